@@ -0,0 +1,128 @@
+package ch.x01.fuzzy.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ch.x01.fuzzy.api.FuzzyModel.LinguisticVariable.lv;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.trapezoid;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.triangle;
+import static ch.x01.fuzzy.api.FuzzyModel.model;
+
+/**
+ * Measures the throughput of the batch evaluation of the tipping problem in double and single precision.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+    static final int ROWS = 4096;
+
+    private static final String[] NAMES = {"service", "food"};
+
+    @Param({"100", "1000", "10000"})
+    private int numOfSteps;
+
+    @Param({"double", "float"})
+    private String precision;
+
+    private FuzzyEngine engine;
+    private double[][] inputs;
+    private double[] outputs;
+    private float[][] floatInputs;
+    private float[] floatOutputs;
+
+    static FuzzyModel tip() {
+        return model().name("tip")
+                      .vars(lv().usage("input")
+                                .name("service")
+                                .terms(trapezoid().name("poor")
+                                                  .start(0)
+                                                  .left_top(0)
+                                                  .right_top(2)
+                                                  .end(4),
+                                       triangle().name("good")
+                                                 .start(2)
+                                                 .top(5)
+                                                 .end(8),
+                                       trapezoid().name("excellent")
+                                                  .start(6)
+                                                  .left_top(8)
+                                                  .right_top(10)
+                                                  .end(10)),
+                            lv().usage("input")
+                                .name("food")
+                                .terms(trapezoid().name("rancid")
+                                                  .start(0)
+                                                  .left_top(0)
+                                                  .right_top(3)
+                                                  .end(6),
+                                       trapezoid().name("delicious")
+                                                  .start(4)
+                                                  .left_top(7)
+                                                  .right_top(10)
+                                                  .end(10)),
+                            lv().usage("output")
+                                .name("tip")
+                                .terms(triangle().name("cheap")
+                                                 .start(0)
+                                                 .top(5)
+                                                 .end(10),
+                                       triangle().name("average")
+                                                 .start(10)
+                                                 .top(15)
+                                                 .end(20),
+                                       triangle().name("generous")
+                                                 .start(20)
+                                                 .top(25)
+                                                 .end(30)))
+                      .rules("if service is poor or food is rancid then tip is cheap",
+                             "if service is good then tip is average",
+                             "if service is excellent or food is delicious then tip is generous");
+    }
+
+    @Setup
+    public void setUp() {
+        engine = new FuzzyEngine(tip(), numOfSteps);
+
+        Random random = new Random(4711);
+        inputs = new double[NAMES.length][ROWS];
+        floatInputs = new float[NAMES.length][ROWS];
+        for (int j = 0; j < NAMES.length; j++) {
+            for (int row = 0; row < ROWS; row++) {
+                floatInputs[j][row] = random.nextFloat() * 10;
+                inputs[j][row] = floatInputs[j][row];
+            }
+        }
+        outputs = new double[ROWS];
+        floatOutputs = new float[ROWS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Object evaluate() {
+        if ("float".equals(precision)) {
+            engine.evaluate(NAMES, floatInputs, floatOutputs);
+            return floatOutputs;
+        }
+        engine.evaluate(NAMES, inputs, outputs);
+        return outputs;
+    }
+
+}
@@ -0,0 +1,166 @@
+package ch.x01.fuzzy.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of the stream evaluation of the tipping problem by an {@link EvaluationProcessor} between a
+ * synchronous publisher and subscriber, compared with a plain loop of single evaluations and a plain loop of batch
+ * evaluations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessorBenchmark {
+
+    private static final int TUPLES = BatchBenchmark.ROWS;
+
+    private static final String[] NAMES = {"service", "food"};
+
+    @Param({"1", "64", "1024"})
+    private int batchSize;
+
+    private FuzzyModel model;
+    private FuzzyEngine engine;
+    private double[][] tuples;
+    private double[][] inputs;
+    private double[] outputs;
+
+    @Setup
+    public void setUp() {
+        model = BatchBenchmark.tip();
+        engine = new FuzzyEngine(model, 100);
+
+        Random random = new Random(4711);
+        tuples = new double[TUPLES][NAMES.length];
+        inputs = new double[NAMES.length][batchSize];
+        outputs = new double[batchSize];
+        for (double[] tuple : tuples) {
+            for (int j = 0; j < NAMES.length; j++) {
+                tuple[j] = random.nextDouble() * 10;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TUPLES)
+    public void singleLoop(Blackhole blackhole) {
+        for (double[] tuple : tuples) {
+            blackhole.consume(engine.evaluate(new FuzzyEngine.InputVariable(NAMES[0], tuple[0]),
+                                              new FuzzyEngine.InputVariable(NAMES[1], tuple[1]))
+                                    .getValue());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TUPLES)
+    public void batchLoop(Blackhole blackhole) {
+        for (int first = 0; first < TUPLES; first += batchSize) {
+            int rows = Math.min(batchSize, TUPLES - first);
+            for (int row = 0; row < rows; row++) {
+                for (int j = 0; j < NAMES.length; j++) {
+                    inputs[j][row] = tuples[first + row][j];
+                }
+            }
+            double[] results = rows == batchSize ? outputs : new double[rows];
+            engine.evaluate(NAMES, inputs, results);
+            for (int row = 0; row < rows; row++) {
+                blackhole.consume(results[row]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TUPLES)
+    @SuppressWarnings("unchecked")
+    public void processor(Blackhole blackhole) throws Exception {
+        // created by reflection, since it is part of the Java 9 layer of the multi-release JAR
+        Flow.Processor<double[], Double> processor = (Flow.Processor<double[], Double>) Class.forName("ch.x01.fuzzy.api.EvaluationProcessor")
+                                                                                             .getConstructor(Supplier.class, String[].class, int.class)
+                                                                                             .newInstance((Supplier<FuzzyEngine>) () -> engine, NAMES, batchSize);
+        processor.subscribe(new Flow.Subscriber<Double>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Double item) {
+                blackhole.consume(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        new ArrayPublisher(tuples).subscribe(processor);
+    }
+
+    /**
+     * Publishes an array of tuples synchronously on request.
+     */
+    private static class ArrayPublisher implements Flow.Publisher<double[]> {
+        private final double[][] tuples;
+
+        ArrayPublisher(double[][] tuples) {
+            this.tuples = tuples;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super double[]> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+                private long requested;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    requested += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (requested > 0 && next < tuples.length) {
+                        requested--;
+                        subscriber.onNext(tuples[next++]);
+                    }
+                    emitting = false;
+                    if (next == tuples.length) {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    next = tuples.length + 1;
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the superposition and center of mass of five reasoned conclusions, computed by means of
+ * {@link MembershipFunction#plot} and by the {@link Defuzzifier} with the scalar and SIMD grid kernels, in double
+ * and single precision. The precision does not apply to <code>plot</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridKernelsBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int numOfSteps;
+
+    @Param({"plot", "scalar", "vector"})
+    private String kernels;
+
+    @Param({"double", "float"})
+    private String precision;
+
+    private final double[] degreesOfRelevance = {0.2, 0.7, 0.4, 0.9, 0.1};
+    private final float[] floatDegreesOfRelevance = {0.2f, 0.7f, 0.4f, 0.9f, 0.1f};
+
+    private MembershipFunction[] conclusions;
+    private Defuzzifier defuzzifier;
+    private double[] grid;
+    private float[] floatGrid;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        SymbolTable symbolTable = new SymbolTable();
+
+        LinguisticVariable x = new LinguisticVariable("x", symbolTable);
+        LinguisticVariable y = new LinguisticVariable("y", symbolTable);
+        y.addTerm("a", new MembershipFunction(0, 2, 4, 6));
+        y.addTerm("b", new MembershipFunction(4, 6, 8, 10));
+        y.addTerm("c", new MembershipFunction(8, 10, 12, 14));
+        y.addTerm("d", new MembershipFunction(2, 5, 8));
+        y.addTerm("e", new MembershipFunction(6, 9, 12));
+
+        List<FuzzyRule> rules = new ArrayList<>();
+        conclusions = new MembershipFunction[degreesOfRelevance.length];
+        RuleParser parser = new RuleParser(symbolTable);
+        for (int i = 0; i < degreesOfRelevance.length; i++) {
+            String term = y.getTerms()
+                           .get(i);
+            x.addTerm(term, new MembershipFunction(i, i + 1, i + 2));
+            FuzzyRule rule = new FuzzyRule("if x is " + term + " then y is " + term, symbolTable);
+            parser.parse(rule);
+            rules.add(rule);
+            conclusions[i] = y.getMembershipFunction(term)
+                              .computeReasoning(degreesOfRelevance[i]);
+        }
+
+        GridKernels gridKernels = GridKernels.scalar();
+        if ("vector".equals(kernels)) {
+            gridKernels = (GridKernels) Class.forName("ch.x01.fuzzy.core.VectorGridKernels")
+                                             .newInstance();
+        }
+        defuzzifier = new Defuzzifier(rules, symbolTable, gridKernels);
+        grid = new double[numOfSteps + 1];
+        floatGrid = new float[numOfSteps + 1];
+    }
+
+    @Benchmark
+    public double defuzzify() {
+        if ("plot".equals(kernels)) {
+            return MembershipFunction.computeCenterOfMass(MembershipFunction.computeSuperposition(conclusions, numOfSteps));
+        }
+        if ("float".equals(precision)) {
+            return defuzzifier.defuzzify(floatDegreesOfRelevance, numOfSteps, floatGrid);
+        }
+        return defuzzifier.defuzzify(degreesOfRelevance, numOfSteps, grid);
+    }
+
+}
@@ -0,0 +1,264 @@
+package ch.x01.fuzzy.server;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyModel;
+import ch.x01.fuzzy.api.FuzzyModelReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class generates load on an evaluation service and reports its throughput and latency.
+ * <p>
+ * Each client sends its next request as soon as the response to the previous one has been read (closed loop), over
+ * a persistent connection. Run as a program, it serves a model on the loopback interface and measures single
+ * evaluations with and without coalescing, and batch evaluations:
+ * </p>
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=ch.x01.fuzzy.server.LoadGenerator \
+ *     -Djmh.args="&lt;model file&gt; [clients] [seconds]"
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private final URL url;
+    private final String contentType;
+    private final byte[] body;
+    private final int clients;
+
+    /**
+     * Creates a load generator.
+     *
+     * @param url         the resource to post to
+     * @param contentType the content type of the requests
+     * @param body        the body of every request
+     * @param clients     number of concurrent clients
+     */
+    public LoadGenerator(URL url, String contentType, byte[] body, int clients) {
+        if (clients < 1) {
+            throw new RuntimeException(String.format("Cannot generate load with %d clients.", clients));
+        }
+        this.url = url;
+        this.contentType = contentType;
+        this.body = body;
+        this.clients = clients;
+    }
+
+    /**
+     * Generates load for the given time after a warm-up, which is not measured.
+     *
+     * @param warmupMillis   the warm-up time in milliseconds
+     * @param durationMillis the measured time in milliseconds
+     * @return the report
+     */
+    public Report run(long warmupMillis, long durationMillis) {
+        long start = System.nanoTime() + warmupMillis * 1_000_000;
+        long end = start + durationMillis * 1_000_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Client>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                futures.add(executor.submit(() -> new Client().run(start, end)));
+            }
+
+            long requests = 0;
+            long errors = 0;
+            long[] latencies = new long[0];
+            for (Future<Client> future : futures) {
+                Client client = future.get();
+                int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + client.count);
+                System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+                requests += client.count;
+                errors += client.errors;
+            }
+            Arrays.sort(latencies);
+            return new Report(requests, errors, end - start, latencies);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new RuntimeException("Load generation was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Cannot generate load.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A client recording the latencies of its requests within the measured time.
+     */
+    private class Client {
+        private final byte[] buffer = new byte[8192];
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Client run(long start, long end) throws IOException {
+            for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+                boolean ok = post();
+                long latency = System.nanoTime() - now;
+                if (now >= start) {
+                    if (!ok) {
+                        errors++;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, 2 * count);
+                    }
+                    latencies[count++] = latency;
+                }
+            }
+            return this;
+        }
+
+        private boolean post() throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            // read the response completely, so that the connection is reused
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                while (in != null && in.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+            return status == 200;
+        }
+    }
+
+    /**
+     * The result of generating load.
+     */
+    public static class Report {
+        private final long requests;
+        private final long errors;
+        private final long nanos;
+        private final long[] latencies;
+
+        private Report(long requests, long errors, long nanos, long[] latencies) {
+            this.requests = requests;
+            this.errors = errors;
+            this.nanos = nanos;
+            this.latencies = latencies;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns the number of requests completed per second.
+         *
+         * @return throughput in requests/s
+         */
+        public double getThroughput() {
+            return requests / (nanos / 1e9);
+        }
+
+        /**
+         * Returns a percentile of the request latency.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency in milliseconds, or 0 if there are no requests
+         */
+        public double getLatency(double percentile) {
+            if (latencies.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{requests=%d, errors=%d, throughput=%.0f requests/s, p50=%.3f ms, p99=%.3f ms, max=%.3f ms}",
+                                 requests, errors, getThroughput(), getLatency(50), getLatency(99), getLatency(100));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadGenerator <model file> [clients] [seconds]");
+            System.exit(2);
+        }
+        FuzzyModel model = FuzzyModelReader.read(Paths.get(args[0]));
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) * 1000 : 10_000;
+
+        // the same input value for every input variable, in the middle of its range
+        StringBuilder single = new StringBuilder("{");
+        StringBuilder batch = new StringBuilder("{");
+        for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
+            if ("input".equals(var.getUsage())) {
+                List<FuzzyModel.Term> terms = var.getTerms();
+                double value = (terms.get(0)
+                                     .getStart() + terms.get(terms.size() - 1)
+                                                        .getEnd()) / 2;
+                String prefix = single.length() > 1 ? "," : "";
+                single.append(String.format("%s\"%s\":%s", prefix, var.getName(), value));
+                batch.append(String.format("%s\"%s\":[", prefix, var.getName()));
+                for (int row = 0; row < 100; row++) {
+                    batch.append(row > 0 ? "," : "")
+                         .append(value);
+                }
+                batch.append(']');
+            }
+        }
+        single.append('}');
+        batch.append('}');
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        // without TCP_NODELAY, the small responses wait for the delayed acknowledgement of the client (about 40 ms); the
+        // property is read once, when the first server of the JVM is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int[][] configurations = {{1, 0}, {64, 100}};
+        for (int[] configuration : configurations) {
+            EvaluationServer server = new EvaluationServer(() -> new FuzzyEngine(model), address, configuration[0],
+                                                           configuration[1]);
+            server.start();
+            try {
+                String base = "http://localhost:" + server.getPort();
+                Report report = new LoadGenerator(new URL(base + "/evaluate"), EvaluationServer.JSON,
+                                                  single.toString()
+                                                        .getBytes("UTF-8"), clients).run(millis / 5, millis);
+                System.out.printf("single, batches of up to %d, %d clients: %s, mean batch size %.1f%n",
+                                  configuration[0], clients, report,
+                                  server.getCoalescedEvaluations() / (double) Math.max(1, server.getCoalescedBatches()));
+                if (configuration[0] == 1) {
+                    report = new LoadGenerator(new URL(base + "/evaluate/batch"), EvaluationServer.JSON,
+                                               batch.toString()
+                                                    .getBytes("UTF-8"), clients).run(millis / 5, millis);
+                    System.out.printf("batch of 100, %d clients: %s%n", clients, report);
+                }
+            } finally {
+                server.stop(0);
+            }
+        }
+    }
+
+}
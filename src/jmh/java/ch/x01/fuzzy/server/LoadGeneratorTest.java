@@ -0,0 +1,43 @@
+package ch.x01.fuzzy.server;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyModel;
+import ch.x01.fuzzy.api.TestModels;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs with the <code>jmh</code> profile, e.g. <code>mvn -Pjmh test -Dtest=LoadGeneratorTest</code>.
+ */
+public class LoadGeneratorTest {
+
+    @Test
+    public void testRun() throws IOException {
+        FuzzyModel model = TestModels.read("tip");
+        EvaluationServer server = new EvaluationServer(() -> new FuzzyEngine(model),
+                                                       new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        try {
+            LoadGenerator.Report report = new LoadGenerator(new URL("http://localhost:" + server.getPort() + "/evaluate"),
+                                                            EvaluationServer.JSON,
+                                                            "{\"food\": 7.5, \"service\": 3}".getBytes(StandardCharsets.UTF_8),
+                                                            4).run(100, 500);
+            System.out.println(report);
+
+            assertTrue(report.getRequests() > 0);
+            assertEquals(0, report.getErrors());
+            assertTrue(report.getLatency(99) <= report.getLatency(100));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+}
@@ -0,0 +1,336 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import ch.x01.fuzzy.api.FuzzyEngine.OutputVariable;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * This class evaluates asynchronously on an executor.
+ * <p>
+ * An engine is not thread-safe, hence each task borrows an idle engine for the time of its evaluation and returns it
+ * afterwards; new engines are created only if all are busy. The tasks therefore run on any executor, including the
+ * common fork-join pool and virtual threads.
+ * </p>
+ * <p>
+ * The submitted tasks wait in a bounded queue shared by all callers. A task submitted to a full queue completes
+ * exceptionally with a {@link RejectedExecutionException} at once, so that a burst cannot build up an unbounded
+ * backlog. A task given a timeout completes exceptionally with a {@link TimeoutException} once its deadline has
+ * passed, whether it is still queued or not; a task whose deadline has passed before it is taken from the queue is
+ * not evaluated. The queue length, rejections, expirations and queueing times are reported by
+ * {@link #getStatistics()}.
+ * </p>
+ */
+public class AsyncEvaluator {
+
+    /**
+     * Completes the tasks whose deadline has passed.
+     */
+    private static final ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "fuzzy-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    private final Supplier<FuzzyEngine> engines;
+    private final Queue<FuzzyEngine> idleEngines = new ConcurrentLinkedQueue<>();
+    private final Executor executor;
+    private final int queueCapacity;
+    private final BlockingQueue<Task<?>> queue;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong waitingNanos = new AtomicLong();
+    private final AtomicLong maxWaitingNanos = new AtomicLong();
+    private final AtomicInteger maxQueueLength = new AtomicInteger();
+
+    /**
+     * Creates an evaluator.
+     *
+     * @param engines       creates the engines, which all evaluate the same model
+     * @param executor      runs the evaluations
+     * @param queueCapacity maximum number of tasks waiting for the executor
+     */
+    public AsyncEvaluator(Supplier<FuzzyEngine> engines, Executor executor, int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new RuntimeException(String.format("Cannot create evaluator with a queue capacity of %d.", queueCapacity));
+        }
+        this.engines = engines;
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Evaluates a single set of input values asynchronously (see {@link FuzzyEngine#evaluate(InputVariable...)}).
+     *
+     * @param inputs the input variables
+     * @return the output variable, once evaluated
+     */
+    public CompletableFuture<OutputVariable> evaluateAsync(InputVariable... inputs) {
+        return submit(engine -> engine.evaluate(inputs), 0);
+    }
+
+    /**
+     * Evaluates a single set of input values asynchronously with a deadline.
+     *
+     * @param timeout the time after which the evaluation completes exceptionally with a {@link TimeoutException}
+     * @param unit    the unit of the timeout
+     * @param inputs  the input variables
+     * @return the output variable, once evaluated
+     */
+    public CompletableFuture<OutputVariable> evaluateAsync(long timeout, TimeUnit unit, InputVariable... inputs) {
+        return submit(engine -> engine.evaluate(inputs), unit.toNanos(timeout));
+    }
+
+    /**
+     * Evaluates a batch of input values asynchronously (see {@link FuzzyEngine#evaluate(String[], double[][],
+     * double[])}). The input values must not be modified until the evaluation is complete.
+     *
+     * @param names  the names of the input variables
+     * @param inputs the input values, <code>inputs[j][row]</code> is the value of the variable
+     *               <code>names[j]</code>
+     * @return the output values, once evaluated
+     */
+    public CompletableFuture<double[]> evaluateAsync(String[] names, double[][] inputs) {
+        return submit(engine -> evaluate(engine, names, inputs), 0);
+    }
+
+    /**
+     * Evaluates a batch of input values asynchronously with a deadline. The input values must not be modified until
+     * the evaluation is complete.
+     *
+     * @param timeout the time after which the evaluation completes exceptionally with a {@link TimeoutException}
+     * @param unit    the unit of the timeout
+     * @param names   the names of the input variables
+     * @param inputs  the input values, <code>inputs[j][row]</code> is the value of the variable
+     *                <code>names[j]</code>
+     * @return the output values, once evaluated
+     */
+    public CompletableFuture<double[]> evaluateAsync(long timeout, TimeUnit unit, String[] names, double[][] inputs) {
+        return submit(engine -> evaluate(engine, names, inputs), unit.toNanos(timeout));
+    }
+
+    private static double[] evaluate(FuzzyEngine engine, String[] names, double[][] inputs) {
+        double[] outputs = new double[inputs.length > 0 ? inputs[0].length : 0];
+        engine.evaluate(names, inputs, outputs);
+        return outputs;
+    }
+
+    public Statistics getStatistics() {
+        long taken = completed.get() + expired.get();
+        return new Statistics(submitted.get(), rejected.get(), expired.get(), completed.get(), queue.size(),
+                              maxQueueLength.get(), taken > 0 ? waitingNanos.get() / taken : 0, maxWaitingNanos.get());
+    }
+
+    private <T> CompletableFuture<T> submit(Function<FuzzyEngine, T> evaluation, long timeoutNanos) {
+        Task<T> task = new Task<>(evaluation, timeoutNanos);
+        submitted.incrementAndGet();
+
+        if (!queue.offer(task)) {
+            rejected.incrementAndGet();
+            task.result.completeExceptionally(new RejectedExecutionException(
+                    String.format("Cannot evaluate because all %d places of the queue are taken.", queueCapacity)));
+            return task.result;
+        }
+        maxQueueLength.accumulateAndGet(queue.size(), Math::max);
+
+        if (timeoutNanos > 0) {
+            ScheduledFuture<?> timer = deadlines.schedule(() -> task.result.completeExceptionally(
+                    new TimeoutException(String.format("Evaluation did not complete within %d µs.", timeoutNanos / 1000))),
+                                                          timeoutNanos, TimeUnit.NANOSECONDS);
+            task.result.whenComplete((value, failure) -> timer.cancel(false));
+        }
+
+        try {
+            // every queued task is paired with one run, which takes the oldest task of the queue
+            executor.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            // the task is failed, or if an earlier run has already taken it, the oldest task left without a run
+            Task<?> unpaired = queue.remove(task) ? task : queue.poll();
+            if (unpaired != null) {
+                rejected.incrementAndGet();
+                unpaired.result.completeExceptionally(e);
+            }
+        }
+        return task.result;
+    }
+
+    private void runNext() {
+        Task<?> task = queue.poll();
+        if (task == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long waiting = now - task.submitted;
+        waitingNanos.addAndGet(waiting);
+        maxWaitingNanos.accumulateAndGet(waiting, Math::max);
+
+        if (task.isExpired(now)) {
+            expired.incrementAndGet();
+            task.result.completeExceptionally(new TimeoutException("Evaluation expired while queued."));
+            return;
+        }
+        completed.incrementAndGet();
+        task.run(this);
+    }
+
+    private FuzzyEngine borrow() {
+        FuzzyEngine engine = idleEngines.poll();
+        return engine != null ? engine : engines.get();
+    }
+
+    private void release(FuzzyEngine engine) {
+        idleEngines.add(engine);
+    }
+
+    /**
+     * An evaluation waiting in the queue.
+     */
+    private static class Task<T> {
+        private final Function<FuzzyEngine, T> evaluation;
+        private final long submitted = System.nanoTime();
+        private final long timeoutNanos;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(Function<FuzzyEngine, T> evaluation, long timeoutNanos) {
+            this.evaluation = evaluation;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        boolean isExpired(long now) {
+            return result.isDone() || (timeoutNanos > 0 && now - submitted >= timeoutNanos);
+        }
+
+        void run(AsyncEvaluator evaluator) {
+            FuzzyEngine engine = null;
+            try {
+                engine = evaluator.borrow();
+                result.complete(evaluation.apply(engine));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } catch (Error e) {
+                // the result is completed before the error ends the run, a task without timeout would wait forever
+                result.completeExceptionally(e);
+                throw e;
+            } finally {
+                if (engine != null) {
+                    evaluator.release(engine);
+                }
+            }
+        }
+    }
+
+    /**
+     * The queueing statistics of an evaluator.
+     */
+    public static class Statistics {
+        private final long submitted;
+        private final long rejected;
+        private final long expired;
+        private final long completed;
+        private final int queueLength;
+        private final int maxQueueLength;
+        private final long meanWaitingNanos;
+        private final long maxWaitingNanos;
+
+        private Statistics(long submitted, long rejected, long expired, long completed, int queueLength,
+                           int maxQueueLength, long meanWaitingNanos, long maxWaitingNanos) {
+            this.submitted = submitted;
+            this.rejected = rejected;
+            this.expired = expired;
+            this.completed = completed;
+            this.queueLength = queueLength;
+            this.maxQueueLength = maxQueueLength;
+            this.meanWaitingNanos = meanWaitingNanos;
+            this.maxWaitingNanos = maxWaitingNanos;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        /**
+         * Returns the number of tasks rejected because the queue was full.
+         *
+         * @return number of tasks
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Returns the number of tasks not evaluated because their deadline had passed when they were taken from the
+         * queue.
+         *
+         * @return number of tasks
+         */
+        public long getExpired() {
+            return expired;
+        }
+
+        /**
+         * Returns the number of tasks evaluated, successfully or not.
+         *
+         * @return number of tasks
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        public int getQueueLength() {
+            return queueLength;
+        }
+
+        public int getMaxQueueLength() {
+            return maxQueueLength;
+        }
+
+        /**
+         * Returns the mean time a task waited in the queue.
+         *
+         * @return the time in microseconds
+         */
+        public double getMeanWaitingTime() {
+            return meanWaitingNanos / 1e3;
+        }
+
+        /**
+         * Returns the maximum time a task waited in the queue.
+         *
+         * @return the time in microseconds
+         */
+        public double getMaxWaitingTime() {
+            return maxWaitingNanos / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Statistics{submitted=%d, rejected=%d, expired=%d, completed=%d, queueLength=%d, "
+                                         + "maxQueueLength=%d, meanWaitingTime=%.1f µs, maxWaitingTime=%.1f µs}",
+                                 submitted, rejected, expired, completed, queueLength, maxQueueLength,
+                                 getMeanWaitingTime(), getMaxWaitingTime());
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.core.CellDecomposition;
+import ch.x01.fuzzy.core.Defuzzifier;
+import ch.x01.fuzzy.core.FuzzyAssociativeMemory;
+import ch.x01.fuzzy.core.FuzzyRule;
+import ch.x01.fuzzy.core.LinguisticVariable;
+import ch.x01.fuzzy.core.MembershipFunction;
+import ch.x01.fuzzy.core.PartitionedEvaluator;
+import ch.x01.fuzzy.core.PremiseNetwork;
+import ch.x01.fuzzy.core.RuleBaseOptimizer;
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds the compiled form of a fuzzy model, i.e. its optimized rules, premise network and defuzzifier.
+ * <p>
+ * A compiled model is immutable and may be shared by any number of engines and threads. The evaluation state, i.e.
+ * the input values, degrees and grids, is held by the engines.
+ * </p>
+ */
+public class CompiledModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledModel.class);
+
+    private final FuzzyModel model;
+    private final RuleBaseOptimizer.Report optimizationReport;
+    private final PremiseNetwork premiseNetwork;
+    private final Defuzzifier defuzzifier;
+    private final FuzzyAssociativeMemory associativeMemory;
+    private final CellDecomposition cellDecomposition;
+    private final SymbolTable symbolTable;
+
+    // compiled on demand, by number of partitions
+    private final Map<Integer, PartitionedEvaluator> partitionedEvaluators = new ConcurrentHashMap<>();
+
+    private CompiledModel(FuzzyModel model, RuleBaseOptimizer.Report optimizationReport, PremiseNetwork premiseNetwork,
+                          Defuzzifier defuzzifier, FuzzyAssociativeMemory associativeMemory,
+                          CellDecomposition cellDecomposition, SymbolTable symbolTable) {
+        this.model = model;
+        this.optimizationReport = optimizationReport;
+        this.premiseNetwork = premiseNetwork;
+        this.defuzzifier = defuzzifier;
+        this.associativeMemory = associativeMemory;
+        this.cellDecomposition = cellDecomposition;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Compiles a model.
+     *
+     * @param model the fuzzy model
+     * @return the compiled model
+     */
+    public static CompiledModel compile(FuzzyModel model) {
+        Object event = FlightRecorderEvents.beginCompilation();
+        HashSet<FuzzyRule> rules = new HashSet<>();
+        SymbolTable symbolTable = new SymbolTable();
+
+        // create linguistic variables and register them with symbol table
+        for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
+            LinguisticVariable lv = new LinguisticVariable(var.getName());
+            for (FuzzyModel.Term term : var.getTerms()) {
+                lv.addTerm(term.getName(),
+                           new MembershipFunction(term.getStart(), term.getLeft_top(), term.getRight_top(), term.getEnd()));
+            }
+            if (!symbolTable.registerLV(lv)) {
+                throw new RuntimeException(String.format(
+                        "Cannot register linguistic variable \"%s\" with symbol table because the variable is registered already.",
+                        lv.getName()));
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Created linguistic variable " + lv.toString());
+            }
+        }
+
+        // create rules
+        long parseStart = System.nanoTime();
+        for (String rule : model.getRules()) {
+            if (!rules.add(new FuzzyRule(rule, symbolTable))) {
+                throw new RuntimeException(
+                        String.format("Cannot add rule \"%s\" to the rule set because it is present already.", rule));
+            }
+        }
+
+        // parse rules
+        RuleParser parser = new RuleParser(symbolTable);
+        rules.forEach(parser::parse);
+        long parseNanos = System.nanoTime() - parseStart;
+
+        // optimize rules
+        RuleBaseOptimizer.Report optimizationReport = new RuleBaseOptimizer(symbolTable).optimize(rules);
+        List<FuzzyRule> fuzzyRules = optimizationReport.getRules();
+
+        // compile premises and conclusions
+        PremiseNetwork premiseNetwork = new PremiseNetwork(fuzzyRules, symbolTable);
+        Defuzzifier defuzzifier = new Defuzzifier(fuzzyRules, symbolTable);
+        FuzzyAssociativeMemory associativeMemory = FuzzyAssociativeMemory.of(rules, fuzzyRules, premiseNetwork);
+        CellDecomposition cellDecomposition = associativeMemory == null ? CellDecomposition.of(premiseNetwork) : null;
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Optimized rule base " + optimizationReport.toString());
+            logger.debug("Compiled premises " + premiseNetwork.toString());
+            if (associativeMemory != null) {
+                logger.debug("Compiled rule table " + associativeMemory.toString());
+            }
+            if (cellDecomposition != null) {
+                logger.debug("Decomposed input space " + cellDecomposition.toString());
+            }
+        }
+
+        FlightRecorderEvents.endCompilation(event, model.getName(), symbolTable.getLinguisticVariables()
+                                                                               .size(), rules.size(),
+                                            fuzzyRules.size(), parseNanos);
+
+        return new CompiledModel(model, optimizationReport, premiseNetwork, defuzzifier, associativeMemory,
+                                 cellDecomposition, symbolTable);
+    }
+
+    public FuzzyModel getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the report of the rule base optimization performed by the compilation.
+     *
+     * @return the optimization report
+     */
+    public RuleBaseOptimizer.Report getOptimizationReport() {
+        return optimizationReport;
+    }
+
+    /**
+     * Returns the number of input variables used within the premises, see {@link EvaluationListener}.
+     *
+     * @return number of variables
+     */
+    public int getVariableCount() {
+        return premiseNetwork.getVariableCount();
+    }
+
+    public String getVariableName(int variable) {
+        return premiseNetwork.getVariableName(variable);
+    }
+
+    public int getTermCount(int variable) {
+        return premiseNetwork.getTermSet(variable)
+                             .size();
+    }
+
+    public String getTermName(int variable, int term) {
+        return premiseNetwork.getTermSet(variable)
+                             .getName(term);
+    }
+
+    /**
+     * Returns the position of the degree of membership of a term within the term degrees passed to an
+     * {@link EvaluationListener}.
+     *
+     * @param variable the index of the variable
+     * @param term     the index of the term within the term set of the variable
+     * @return the position of the term degree
+     */
+    public int getTermIndex(int variable, int term) {
+        return premiseNetwork.getOffset(variable) + term;
+    }
+
+    public int getRuleCount() {
+        return premiseNetwork.getRuleCount();
+    }
+
+    /**
+     * Returns the text of a rule, in the order of the rule strengths passed to an {@link EvaluationListener}.
+     *
+     * @param rule the index of the rule
+     * @return the rule text
+     */
+    public String getRuleText(int rule) {
+        return optimizationReport.getRules()
+                                 .get(rule)
+                                 .getRuleText();
+    }
+
+    PremiseNetwork getPremiseNetwork() {
+        return premiseNetwork;
+    }
+
+    Defuzzifier getDefuzzifier() {
+        return defuzzifier;
+    }
+
+    /**
+     * Returns whether the rule base is a complete fuzzy associative memory, i.e. has exactly one rule for every
+     * combination of the terms of the input variables, joined by 'and'. Such a rule base is evaluated by a table
+     * lookup of the combinations of the terms with a nonzero degree of membership, see
+     * {@link FuzzyAssociativeMemory}.
+     *
+     * @return true if the rules are evaluated by a table lookup
+     */
+    public boolean isAssociativeMemory() {
+        return associativeMemory != null;
+    }
+
+    FuzzyAssociativeMemory getAssociativeMemory() {
+        return associativeMemory;
+    }
+
+    /**
+     * Returns whether the input space is decomposed into cells within which the same rules fire, so that an
+     * evaluation computes the rules of the cell of its input values only, see {@link CellDecomposition}. The input
+     * space of a fuzzy associative memory is not decomposed, nor is an input space of more than
+     * {@link CellDecomposition#MAX_CELLS} cells.
+     *
+     * @return true if the input space is decomposed
+     */
+    public boolean isCellDecomposed() {
+        return cellDecomposition != null;
+    }
+
+    CellDecomposition getCellDecomposition() {
+        return cellDecomposition;
+    }
+
+    /**
+     * Returns the rules compiled in the given number of partitions, which are compiled once and shared by the
+     * engines.
+     */
+    PartitionedEvaluator getPartitionedEvaluator(int partitions) {
+        return partitionedEvaluators.computeIfAbsent(partitions,
+                                                     p -> new PartitionedEvaluator(optimizationReport.getRules(),
+                                                                                   symbolTable, premiseNetwork,
+                                                                                   defuzzifier, p));
+    }
+
+}
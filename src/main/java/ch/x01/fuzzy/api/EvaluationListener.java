@@ -0,0 +1,37 @@
+package ch.x01.fuzzy.api;
+
+/**
+ * This interface receives the intermediate values of the evaluations of an engine, see
+ * {@link FuzzyEngine#setListener(EvaluationListener)}.
+ * <p>
+ * The listener is called once per evaluation, after the output value has been computed, with the engine's own arrays.
+ * The arrays are valid for the time of the call only and must not be modified; a listener keeping values must copy
+ * them. The positions within the arrays are described by the compiled model: the input values follow
+ * {@link CompiledModel#getVariableName(int)}, the term degrees {@link CompiledModel#getTermIndex(int, int)} and the
+ * rule strengths, i.e. the degrees of relevance, {@link CompiledModel#getRuleText(int)}.
+ * </p>
+ * Evaluations in double precision are reported, single-precision and fixed-point evaluations are not.
+ */
+@FunctionalInterface
+public interface EvaluationListener {
+
+    /**
+     * The listener of an engine without listener. The engine checks for it once per evaluation, before any value is
+     * passed, hence it costs no more than a comparison.
+     */
+    EvaluationListener NONE = (model, inputs, termDegrees, ruleStrengths, output) -> {
+    };
+
+    /**
+     * Receives the values of an evaluation.
+     *
+     * @param model         the compiled model evaluated
+     * @param inputs        the input values, of length {@link CompiledModel#getVariableCount()}
+     * @param termDegrees   the degrees of membership of the terms, at least as long as the sum of the
+     *                      {@link CompiledModel#getTermCount(int)} of all variables
+     * @param ruleStrengths the degrees of relevance of the rules, of length {@link CompiledModel#getRuleCount()}
+     * @param output        the output value, NaN if no rule fires
+     */
+    void onEvaluation(CompiledModel model, double[] inputs, double[] termDegrees, double[] ruleStrengths, double output);
+
+}
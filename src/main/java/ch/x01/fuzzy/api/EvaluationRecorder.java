@@ -0,0 +1,166 @@
+package ch.x01.fuzzy.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class records the last evaluations of one or more engines in a ring buffer, for debugging.
+ * <p>
+ * The slots of the ring buffer are allocated when they are first used and reused afterwards, so that recording
+ * allocates nothing once the buffer has wrapped around, unless the dimensions of the model change. The recorded
+ * evaluations are read by {@link #getEvaluations()}, also while the engines are running.
+ * </p>
+ */
+public class EvaluationRecorder implements EvaluationListener {
+
+    private final CompiledModel[] models;
+    private final double[][] inputs;
+    private final double[][] termDegrees;
+    private final double[][] ruleStrengths;
+    private final double[] outputs;
+
+    /**
+     * The number of evaluations recorded so far.
+     */
+    private long count;
+
+    /**
+     * Creates a recorder.
+     *
+     * @param capacity the number of evaluations kept
+     */
+    public EvaluationRecorder(int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException(String.format("Cannot create recorder keeping %d evaluations.", capacity));
+        }
+        this.models = new CompiledModel[capacity];
+        this.inputs = new double[capacity][];
+        this.termDegrees = new double[capacity][];
+        this.ruleStrengths = new double[capacity][];
+        this.outputs = new double[capacity];
+    }
+
+    @Override
+    public synchronized void onEvaluation(CompiledModel model, double[] inputs, double[] termDegrees,
+                                          double[] ruleStrengths, double output) {
+        int slot = (int) (count % models.length);
+        int termCount = model.getPremiseNetwork()
+                             .getTermCount();
+        models[slot] = model;
+        this.inputs[slot] = copy(inputs, inputs.length, this.inputs[slot]);
+        this.termDegrees[slot] = copy(termDegrees, termCount, this.termDegrees[slot]);
+        this.ruleStrengths[slot] = copy(ruleStrengths, ruleStrengths.length, this.ruleStrengths[slot]);
+        outputs[slot] = output;
+        count++;
+    }
+
+    private static double[] copy(double[] source, int length, double[] target) {
+        if (target == null || target.length != length) {
+            target = new double[length];
+        }
+        System.arraycopy(source, 0, target, 0, length);
+        return target;
+    }
+
+    /**
+     * Returns the number of evaluations recorded so far, including those no longer kept.
+     *
+     * @return number of evaluations
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns copies of the evaluations kept, the oldest first.
+     *
+     * @return the evaluations
+     */
+    public synchronized List<Evaluation> getEvaluations() {
+        int kept = (int) Math.min(count, models.length);
+        List<Evaluation> result = new ArrayList<>(kept);
+        for (long sequence = count - kept; sequence < count; sequence++) {
+            int slot = (int) (sequence % models.length);
+            result.add(new Evaluation(sequence, models[slot], inputs[slot].clone(), termDegrees[slot].clone(),
+                                      ruleStrengths[slot].clone(), outputs[slot]));
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    /**
+     * A recorded evaluation.
+     */
+    public static class Evaluation {
+        private final long sequence;
+        private final CompiledModel model;
+        private final double[] inputs;
+        private final double[] termDegrees;
+        private final double[] ruleStrengths;
+        private final double output;
+
+        private Evaluation(long sequence, CompiledModel model, double[] inputs, double[] termDegrees,
+                           double[] ruleStrengths, double output) {
+            this.sequence = sequence;
+            this.model = model;
+            this.inputs = inputs;
+            this.termDegrees = termDegrees;
+            this.ruleStrengths = ruleStrengths;
+            this.output = output;
+        }
+
+        /**
+         * Returns the number of the evaluation, counted from 0 since the recorder was created or cleared.
+         *
+         * @return the sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public CompiledModel getModel() {
+            return model;
+        }
+
+        public double getInput(int variable) {
+            return inputs[variable];
+        }
+
+        public double getTermDegree(int variable, int term) {
+            return termDegrees[model.getTermIndex(variable, term)];
+        }
+
+        public double getRuleStrength(int rule) {
+            return ruleStrengths[rule];
+        }
+
+        public double getOutput() {
+            return output;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Evaluation{sequence=").append(sequence);
+            for (int v = 0; v < model.getVariableCount(); v++) {
+                builder.append(String.format(Locale.ROOT, ", %s=%.4f [", model.getVariableName(v), inputs[v]));
+                for (int t = 0; t < model.getTermCount(v); t++) {
+                    builder.append(String.format(Locale.ROOT, t > 0 ? ", %s=%.4f" : "%s=%.4f", model.getTermName(v, t),
+                                                 getTermDegree(v, t)));
+                }
+                builder.append(']');
+            }
+            for (int r = 0; r < model.getRuleCount(); r++) {
+                if (ruleStrengths[r] > 0) {
+                    builder.append(String.format(Locale.ROOT, ", \"%s\"=%.4f", model.getRuleText(r), ruleStrengths[r]));
+                }
+            }
+            return builder.append(String.format(Locale.ROOT, ", output=%.4f}", output))
+                          .toString();
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package ch.x01.fuzzy.api;
+
+/**
+ * Emits the events of the JDK Flight Recorder. This class emits nothing; it is replaced by the multi-release layer
+ * for Java 11 and later, where the events are recorded whenever they are enabled by the settings of a recording.
+ * <p>
+ * A <code>begin</code> method returns the event to be passed to the matching <code>end</code> method, or null if
+ * the event is disabled, in which case nothing is allocated or measured.
+ * </p>
+ */
+final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    static Object beginCompilation() {
+        return null;
+    }
+
+    static void endCompilation(Object event, String model, int variables, int rules, int optimizedRules,
+                               long parseNanos) {
+    }
+
+    static Object beginEvaluation() {
+        return null;
+    }
+
+    static void endEvaluation(Object event, String model, int rows, long rulesFired, int numOfSteps) {
+    }
+
+    static void modelSwapped(String model, long version, long previousVersion, long compileNanos) {
+    }
+
+    static void modelEvicted(String tenant, String model, long bytes) {
+    }
+
+}
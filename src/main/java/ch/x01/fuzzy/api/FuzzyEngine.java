@@ -1,115 +1,719 @@
 package ch.x01.fuzzy.api;
 
+import ch.x01.fuzzy.core.CellDecomposition;
+import ch.x01.fuzzy.core.Defuzzifier;
+import ch.x01.fuzzy.core.FixedPointEvaluator;
+import ch.x01.fuzzy.core.FixedPointFormat;
+import ch.x01.fuzzy.core.FuzzyAssociativeMemory;
 import ch.x01.fuzzy.core.FuzzyRule;
-import ch.x01.fuzzy.core.LinguisticVariable;
-import ch.x01.fuzzy.core.MembershipFunction;
-import ch.x01.fuzzy.parser.RuleParser;
-import ch.x01.fuzzy.parser.SymbolTable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.ArrayList;
-import java.util.HashSet;
+import ch.x01.fuzzy.core.GradientEvaluator;
+import ch.x01.fuzzy.core.PartitionedEvaluator;
+import ch.x01.fuzzy.core.PremiseNetwork;
+import ch.x01.fuzzy.core.RuleBaseOptimizer;
+import ch.x01.fuzzy.core.ShortCircuitEvaluator;
+
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class FuzzyEngine {
 
-    private static final Logger logger = LoggerFactory.getLogger(FuzzyEngine.class);
+    /**
+     * The upper bound of the number of discrete steps in adaptive mode.
+     */
+    public static final int MAX_NUM_OF_STEPS = 1 << 20;
 
-    private static final String formatString = "%s.input = %{padding}.{precision}f -> %s.output = %{padding}.{precision}f";
+    /**
+     * The number of discrete steps the narrowest feature of the conclusions is covered by at least in adaptive
+     * mode.
+     */
+    private static final int POINTS_PER_FEATURE = 4;
 
-    private final FuzzyModel model;
-    private final int numOfSteps;
-    private HashSet<FuzzyRule> fuzzyRules;
-    private SymbolTable symbolTable;
+    /**
+     * The estimated cost of an evaluation below which the rules are not partitioned, see
+     * {@link #setParallelism(int, Executor, long)}.
+     */
+    public static final long DEFAULT_PARALLEL_COST_THRESHOLD = 200_000;
 
-    private boolean isReady;
+    private static final String formatString = "%s.input = %{padding}.{precision}f -> %s.output = %{padding}.{precision}f";
 
+    private final ModelHolder holder;
+    private final int numOfSteps;
+    private final double tolerance;
+    private final FixedPointFormat format;
+    private FuzzyModel model;
+    private CompiledModel compiledModel;
+    private PremiseNetwork premiseNetwork;
+    private double[] inputValues;
+    private double[] nodeValues;
+    private double[] degreesOfRelevance;
+    private Defuzzifier defuzzifier;
+    private double[] grid;
+    private int lastNumOfSteps;
+    private double lastError;
+    private float[] floatInputValues;
+    private float[] floatNodeValues;
+    private float[] floatDegreesOfRelevance;
+    private float[] floatGrid;
+    private FixedPointEvaluator fixedPointEvaluator;
+    private int[] fixedInputValues;
+    private int[] fixedNodeValues;
+    private int[] fixedDegreesOfRelevance;
+    private int[] fixedGrid;
+    private EvaluationListener listener = EvaluationListener.NONE;
+    private String[] lastNames;
+    private int[] lastIndices;
+    private int parallelism = 1;
+    private Executor executor;
+    private long costThreshold;
+    private PartitionedEvaluator.Evaluation partitioned;
+    private FuzzyAssociativeMemory.Evaluation associativeMemory;
+    private CellDecomposition cellDecomposition;
+    private ShortCircuitEvaluator shortCircuit;
+    private GradientEvaluator gradientEvaluator;
+
+    /**
+     * Creates an engine that defuzzifies on a grid of a fixed number of discrete steps.
+     *
+     * @param model      the fuzzy model
+     * @param numOfSteps number of discrete steps
+     */
     public FuzzyEngine(FuzzyModel model, int numOfSteps) {
+        this.holder = null;
+        this.model = model;
+        this.numOfSteps = numOfSteps;
+        this.tolerance = 0.0;
+        this.format = null;
+    }
+
+    /**
+     * Creates an engine that evaluates in fixed-point integer arithmetic, see {@link FixedPointEvaluator}.
+     * <p>
+     * The term parameters are quantized to the given format when the engine is set up, the input values of
+     * {@link #evaluate(InputVariable...)} and {@link #evaluate(String[], double[][], double[])} are quantized on
+     * every evaluation, and the output values are converted back to double. The results are therefore
+     * bit-reproducible on any Java runtime. Input and output values already in fixed-point format are evaluated by
+     * {@link #evaluate(String[], int[][], int[])}.
+     * </p>
+     *
+     * @param model      the fuzzy model
+     * @param numOfSteps number of discrete steps
+     * @param format     the fixed-point format, whose integer bits must hold all term parameters and input values
+     */
+    public FuzzyEngine(FuzzyModel model, int numOfSteps, FixedPointFormat format) {
+        this.holder = null;
         this.model = model;
         this.numOfSteps = numOfSteps;
+        this.tolerance = 0.0;
+        this.format = format;
+    }
+
+    /**
+     * Creates an engine that chooses the number of discrete steps of every evaluation from an absolute output
+     * tolerance (adaptive mode).
+     * <p>
+     * The first grid is estimated from the narrowest rising side, plateau or falling side of the firing
+     * conclusions. The grid is then refined by doubling the number of steps until the output value changes by no
+     * more than the given tolerance, or until {@link #MAX_NUM_OF_STEPS} is reached. The number of steps and the
+     * last change are reported by {@link OutputVariable#getNumOfSteps()} and {@link OutputVariable#getError()}.
+     * </p>
+     *
+     * @param model     the fuzzy model
+     * @param tolerance the absolute tolerance of the output value
+     */
+    public FuzzyEngine(FuzzyModel model, double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new RuntimeException(String.format("Tolerance must be positive but was %s.", tolerance));
+        }
+        this.holder = null;
+        this.model = model;
+        this.numOfSteps = 0;
+        this.tolerance = tolerance;
+        this.format = null;
     }
 
     public FuzzyEngine(FuzzyModel model) {
         this(model, 1000);
     }
 
+    /**
+     * Creates an engine of a model that has been compiled already. A compiled model is immutable, hence any number of
+     * engines may share it, while each engine holds its own evaluation state.
+     *
+     * @param compiledModel the compiled model
+     * @param numOfSteps    number of discrete steps
+     */
+    public FuzzyEngine(CompiledModel compiledModel, int numOfSteps) {
+        this.holder = null;
+        this.numOfSteps = numOfSteps;
+        this.tolerance = 0.0;
+        this.format = null;
+        bind(compiledModel);
+    }
+
+    /**
+     * Creates an engine that evaluates the current version of the model of a holder, see
+     * {@link ModelHolder#newEngine(int)}.
+     */
+    FuzzyEngine(ModelHolder holder, int numOfSteps, double tolerance, FixedPointFormat format) {
+        this.holder = holder;
+        this.model = null;
+        this.numOfSteps = numOfSteps;
+        this.tolerance = tolerance;
+        this.format = format;
+    }
+
     public OutputVariable evaluate(InputVariable... input) {
-        if (logger.isDebugEnabled()) {
-            logger.debug("Evaluating " + model.toString());
-        }
+        Object event = FlightRecorderEvents.beginEvaluation();
 
         // === setup engine
 
-        if (!isReady) {
-            // invalidate symbol table and fuzzy rules
-            fuzzyRules = new HashSet<>();
-            symbolTable = new SymbolTable();
+        setup();
+
+        // === compute output value
+
+        // set input value(s)
+        setInputValues(input);
 
-            // create linguistic variables and register them with symbol table
-            for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
-                LinguisticVariable lv = new LinguisticVariable(var.getName());
+        // compute degrees of relevance, conclusions and their superposition, then defuzzify
+        double CoM = evaluateInputValues();
+
+        if (event != null) {
+            FlightRecorderEvents.endEvaluation(event, model.getName(), 1, countFiredRules(), lastNumOfSteps);
+        }
+
+        // set output value
+        return new OutputVariable(model.getOutputVariableName(), CoM, lastNumOfSteps, lastError);
+    }
+
+    private void setInputValues(InputVariable[] input) {
+        for (InputVariable var : input) {
+            if (model.isValidInputVariable(var.name)) {
+                int index = premiseNetwork.indexOf(var.name);
+                // an input variable not used within any premise does not contribute
+                if (index >= 0) {
+                    inputValues[index] = var.value;
+                }
+            } else {
+                throw new RuntimeException(String.format("\"%s\" is not a valid input variable.", var.name));
+            }
+        }
+    }
+
+    /**
+     * Evaluates the given input values together with the partial derivatives of the output value with respect to
+     * the input values, see {@link #gradient(boolean, InputVariable...)}.
+     *
+     * @param input the input values
+     * @return the output value and its derivatives
+     */
+    public Gradient gradient(InputVariable... input) {
+        return gradient(false, input);
+    }
+
+    /**
+     * Evaluates the given input values together with the partial derivatives of the output value with respect to
+     * the input values and, optionally, to the parameters of all terms.
+     * <p>
+     * The derivatives are computed analytically by {@link GradientEvaluator}, propagating them backwards through the
+     * piecewise-linear degrees of membership, the minima and maxima of the premises, the superposition and the center
+     * of mass. This takes about the time of three evaluations, whereas finite differences take two evaluations per
+     * input value and parameter. The derivatives are those of the output value for its number of steps; at a
+     * breakpoint of the degrees of membership or of the premises, where the output value has no derivative, a
+     * one-sided derivative is returned. The derivatives are computed in double precision, hence an engine evaluating
+     * in fixed-point arithmetic has none.
+     * </p>
+     *
+     * @param parameters true to compute the derivatives with respect to the term parameters as well
+     * @param input      the input values
+     * @return the output value and its derivatives
+     */
+    public Gradient gradient(boolean parameters, InputVariable... input) {
+        if (format != null) {
+            throw new RuntimeException("Cannot compute gradient because the engine evaluates in fixed-point arithmetic.");
+        }
+        setup();
+        setInputValues(input);
+
+        // the output value and number of steps as evaluated by any other means
+        double CoM = evaluateInputValues();
+
+        if (gradientEvaluator == null) {
+            gradientEvaluator = new GradientEvaluator(premiseNetwork, defuzzifier);
+        }
+        double[] inputDerivatives = new double[premiseNetwork.getVariableCount()];
+        double[] termDerivatives = null;
+        double[] conclusionDerivatives = null;
+        if (parameters) {
+            termDerivatives = new double[GradientEvaluator.PARAMETER_COUNT * premiseNetwork.getTermCount()];
+            conclusionDerivatives = new double[GradientEvaluator.PARAMETER_COUNT * premiseNetwork.getRuleCount()];
+        }
+        gradientEvaluator.evaluate(inputValues, lastNumOfSteps, inputDerivatives, termDerivatives,
+                                   conclusionDerivatives);
+
+        // collect the derivatives by name, an input variable or term not used within any rule does not contribute
+        double none = CoM == CoM ? 0.0 : Double.NaN;
+        Map<String, Double> inputs = new HashMap<>();
+        Map<String, double[]> terms = parameters ? new HashMap<>() : null;
+        for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
+            int v = premiseNetwork.indexOf(var.getName());
+            if ("input".equals(var.getUsage())) {
+                inputs.put(var.getName()
+                              .toLowerCase(), v >= 0 ? inputDerivatives[v] : none);
+            }
+            if (parameters) {
                 for (FuzzyModel.Term term : var.getTerms()) {
-                    lv.addTerm(term.getName(),
-                               new MembershipFunction(term.getStart(), term.getLeft_top(), term.getRight_top(), term.getEnd()));
+                    double[] derivatives = new double[GradientEvaluator.PARAMETER_COUNT];
+                    Arrays.fill(derivatives, none);
+                    if (v >= 0) {
+                        int offset = GradientEvaluator.PARAMETER_COUNT * (premiseNetwork.getOffset(v) +
+                                premiseNetwork.getTermSet(v)
+                                              .indexOf(term.getName()));
+                        System.arraycopy(termDerivatives, offset, derivatives, 0, derivatives.length);
+                    }
+                    terms.put(Gradient.key(var.getName(), term.getName()), derivatives);
                 }
-                if (!symbolTable.registerLV(lv)) {
-                    throw new RuntimeException(String.format(
-                            "Cannot register linguistic variable \"%s\" with symbol table because the variable is registered already.",
-                            lv.getName()));
+            }
+        }
+        if (parameters) {
+            // the optimized rules conclude distinct terms
+            List<FuzzyRule> rules = compiledModel.getOptimizationReport()
+                                                 .getRules();
+            for (int r = 0; r < rules.size(); r++) {
+                Stack<String> conclusion = rules.get(r)
+                                                .getConclusion();
+                double[] derivatives = terms.get(Gradient.key(conclusion.get(0), conclusion.get(1)));
+                if (derivatives != null) {
+                    for (int k = 0; k < derivatives.length; k++) {
+                        derivatives[k] += conclusionDerivatives[GradientEvaluator.PARAMETER_COUNT * r + k];
+                    }
                 }
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Created linguistic variable " + lv.toString());
+            }
+        }
+
+        return new Gradient(model.getOutputVariableName(), CoM, lastNumOfSteps, inputs, terms);
+    }
+
+    /**
+     * Evaluates a batch of input values given as columns, one column per input variable.
+     *
+     * @param names   the names of the input variables
+     * @param inputs  the input values, <code>inputs[j][row]</code> is the value of the variable
+     *                <code>names[j]</code>
+     * @param outputs array receiving the output values, its length is the number of rows
+     */
+    public void evaluate(String[] names, double[][] inputs, double[] outputs) {
+        Object event = FlightRecorderEvents.beginEvaluation();
+        setup();
+        int[] indices = indicesOf(names);
+
+        long rulesFired = 0;
+        for (int row = 0; row < outputs.length; row++) {
+            for (int j = 0; j < indices.length; j++) {
+                if (indices[j] >= 0) {
+                    inputValues[indices[j]] = inputs[j][row];
                 }
             }
+            outputs[row] = evaluateInputValues();
+            if (event != null) {
+                rulesFired += countFiredRules();
+            }
+        }
+
+        if (event != null) {
+            FlightRecorderEvents.endEvaluation(event, model.getName(), outputs.length, rulesFired, lastNumOfSteps);
+        }
+    }
+
+    /**
+     * Evaluates a batch of input values given as columns in single precision.
+     * <p>
+     * The term parameters, degrees of membership and the discretisation grid are single precision, which halves the
+     * memory traffic of the defuzzification and doubles the number of SIMD lanes. For input values representable as
+     * <code>float</code>, an output value differs from the one computed by
+     * {@link #evaluate(String[], double[][], double[])} by no more than about
+     * <code>1e-5 * max{|min support|, |max support|}</code> of the output variable, plus the effect of rounding the
+     * term parameters to <code>float</code>. In adaptive mode, the grid is refined by the same rule as in double
+     * precision.
+     * </p>
+     *
+     * @param names   the names of the input variables
+     * @param inputs  the input values, <code>inputs[j][row]</code> is the value of the variable
+     *                <code>names[j]</code>
+     * @param outputs array receiving the output values, its length is the number of rows
+     */
+    public void evaluate(String[] names, float[][] inputs, float[] outputs) {
+        Object event = FlightRecorderEvents.beginEvaluation();
+        setup();
+        int[] indices = indicesOf(names);
+
+        if (floatGrid == null) {
+            floatInputValues = new float[inputValues.length];
+            floatNodeValues = new float[nodeValues.length];
+            floatDegreesOfRelevance = new float[degreesOfRelevance.length];
+            floatGrid = new float[numOfSteps + 1];
+        }
 
-            // create rules
-            for (String rule : model.getRules()) {
-                if (!fuzzyRules.add(new FuzzyRule(rule, symbolTable))) {
-                    throw new RuntimeException(
-                            String.format("Cannot add rule \"%s\" to the rule set because it is present already.", rule));
+        long rulesFired = 0;
+        for (int row = 0; row < outputs.length; row++) {
+            for (int j = 0; j < indices.length; j++) {
+                if (indices[j] >= 0) {
+                    floatInputValues[indices[j]] = inputs[j][row];
+                }
+            }
+            premiseNetwork.evaluate(floatInputValues, floatNodeValues, floatDegreesOfRelevance);
+            outputs[row] = defuzzifyFloat();
+            if (event != null) {
+                for (float degree : floatDegreesOfRelevance) {
+                    rulesFired += degree > 0 ? 1 : 0;
                 }
             }
+        }
 
-            // parse rules
-            RuleParser parser = new RuleParser(symbolTable);
-            fuzzyRules.forEach(parser::parse);
+        if (event != null) {
+            FlightRecorderEvents.endEvaluation(event, model.getName(), outputs.length, rulesFired, lastNumOfSteps);
+        }
+    }
 
-            isReady = true;
+    /**
+     * Evaluates a batch of input values in fixed-point format, see {@link #FuzzyEngine(FuzzyModel, int,
+     * FixedPointFormat)}.
+     *
+     * @param names   the names of the input variables
+     * @param inputs  the input values, <code>inputs[j][row]</code> is the value of the variable
+     *                <code>names[j]</code>
+     * @param outputs array receiving the output values, its length is the number of rows; a value is
+     *                {@link FixedPointFormat#UNDEFINED} if no rule fires
+     */
+    public void evaluate(String[] names, int[][] inputs, int[] outputs) {
+        if (format == null) {
+            throw new RuntimeException("Cannot evaluate fixed-point values because the engine does not use a fixed-point format.");
+        }
+        Object event = FlightRecorderEvents.beginEvaluation();
+        setup();
+        int[] indices = indicesOf(names);
+
+        long rulesFired = 0;
+        for (int row = 0; row < outputs.length; row++) {
+            for (int j = 0; j < indices.length; j++) {
+                if (indices[j] >= 0) {
+                    fixedInputValues[indices[j]] = inputs[j][row];
+                }
+            }
+            outputs[row] = evaluateFixedInputValues();
+            if (event != null) {
+                rulesFired += countFiredRules();
+            }
         }
 
-        // === compute output value
+        if (event != null) {
+            FlightRecorderEvents.endEvaluation(event, model.getName(), outputs.length, rulesFired, lastNumOfSteps);
+        }
+    }
 
-        // set input value(s)
-        for (InputVariable var : input) {
-            if (model.isValidInputVariable(var.name)) {
-                LinguisticVariable lv = symbolTable.getLV(var.name);
-                lv.setValue(var.value);
-            } else {
-                throw new RuntimeException(String.format("\"%s\" is not a valid input variable.", var.name));
+    /**
+     * Counts the rules with a positive degree of relevance in the last evaluation in double precision or fixed-point
+     * arithmetic.
+     */
+    private int countFiredRules() {
+        int count = 0;
+        if (format != null) {
+            for (int degree : fixedDegreesOfRelevance) {
+                count += degree > 0 ? 1 : 0;
+            }
+        } else {
+            for (double degree : degreesOfRelevance) {
+                count += degree > 0 ? 1 : 0;
             }
         }
+        return count;
+    }
 
-        // compute conclusions
-        List<MembershipFunction> conclusions = new ArrayList<>();
-        for (FuzzyRule rule : fuzzyRules) {
-            conclusions.add(rule.computeConclusion());
+    private int[] indicesOf(String[] names) {
+        // a control loop passes the same names on every tick
+        if (lastNames != null && lastNames.length == names.length) {
+            boolean same = true;
+            for (int j = 0; j < names.length && same; j++) {
+                same = lastNames[j] == names[j];
+            }
+            if (same) {
+                return lastIndices;
+            }
         }
 
-        // compute superposition
-        MembershipFunction[] cs = new MembershipFunction[this.fuzzyRules.size()];
-        double[][] superposition = MembershipFunction.computeSuperposition(conclusions.toArray(cs), numOfSteps);
+        int[] result = new int[names.length];
+        for (int j = 0; j < names.length; j++) {
+            if (!model.isValidInputVariable(names[j])) {
+                throw new RuntimeException(String.format("\"%s\" is not a valid input variable.", names[j]));
+            }
+            // an input variable not used within any premise does not contribute
+            result[j] = premiseNetwork.indexOf(names[j]);
+        }
+        lastNames = names.clone();
+        lastIndices = result;
+        return result;
+    }
 
-        // defuzzify using center of mass approach
-        double CoM = MembershipFunction.computeCenterOfMass(superposition);
+    /**
+     * Evaluates the current input values.
+     */
+    private double evaluateInputValues() {
+        if (format != null) {
+            for (int v = 0; v < inputValues.length; v++) {
+                fixedInputValues[v] = format.toFixed(inputValues[v]);
+            }
+            return format.toDouble(evaluateFixedInputValues());
+        }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("--- defuzzification");
-            logger.debug("x = " + CoM);
+        // compute degrees of relevance, each shared premise is evaluated once
+        if (associativeMemory != null) {
+            associativeMemory.evaluate(inputValues, nodeValues, degreesOfRelevance);
+        } else if (partitioned != null) {
+            partitioned.evaluatePremises(inputValues, degreesOfRelevance);
+            if (listener != EvaluationListener.NONE) {
+                premiseNetwork.fuzzify(inputValues, nodeValues);
+            }
+        } else if (cellDecomposition != null) {
+            cellDecomposition.evaluate(inputValues, nodeValues, degreesOfRelevance);
+        } else {
+            shortCircuit.evaluate(inputValues, nodeValues, degreesOfRelevance);
+            if (listener != EvaluationListener.NONE) {
+                premiseNetwork.fuzzify(inputValues, nodeValues);
+            }
         }
 
-        // set output value
-        return new OutputVariable(model.getOutputVariableName(), CoM);
+        // compute conclusions and their superposition, then defuzzify using center of mass approach
+        double CoM = defuzzify();
+
+        if (listener != EvaluationListener.NONE) {
+            listener.onEvaluation(compiledModel, inputValues, nodeValues, degreesOfRelevance, CoM);
+        }
+        return CoM;
+    }
+
+    private int evaluateFixedInputValues() {
+        fixedPointEvaluator.evaluate(fixedInputValues, fixedNodeValues, fixedDegreesOfRelevance);
+        lastNumOfSteps = numOfSteps;
+        lastError = Double.NaN;
+        return fixedPointEvaluator.defuzzify(fixedDegreesOfRelevance, numOfSteps, fixedGrid);
+    }
+
+    /**
+     * Defuzzifies the current degrees of relevance, refining the grid in adaptive mode.
+     */
+    private double defuzzify() {
+        if (tolerance > 0) {
+            // refine until the change of the output value is within tolerance, the last change estimates the error
+            int steps = Math.min(defuzzifier.estimateNumOfSteps(degreesOfRelevance, POINTS_PER_FEATURE), MAX_NUM_OF_STEPS);
+            double CoM = defuzzify(steps);
+            double error = Double.POSITIVE_INFINITY;
+            while (error > tolerance && steps < MAX_NUM_OF_STEPS) {
+                steps = Math.min(2 * steps, MAX_NUM_OF_STEPS);
+                double refined = defuzzify(steps);
+                error = Math.abs(refined - CoM);
+                CoM = refined;
+            }
+            lastNumOfSteps = steps;
+            lastError = error;
+            return CoM;
+        } else {
+            lastNumOfSteps = numOfSteps;
+            lastError = Double.NaN;
+            return defuzzify(numOfSteps);
+        }
+    }
+
+    private double defuzzify(int steps) {
+        if (partitioned != null) {
+            return partitioned.defuzzify(steps);
+        }
+        if (grid.length < steps + 1) {
+            grid = new double[steps + 1];
+        }
+        return defuzzifier.defuzzify(degreesOfRelevance, steps, grid);
+    }
+
+    /**
+     * Single-precision version of {@link #defuzzify()}.
+     */
+    private float defuzzifyFloat() {
+        if (tolerance > 0) {
+            for (int i = 0; i < floatDegreesOfRelevance.length; i++) {
+                degreesOfRelevance[i] = floatDegreesOfRelevance[i];
+            }
+            int steps = Math.min(defuzzifier.estimateNumOfSteps(degreesOfRelevance, POINTS_PER_FEATURE), MAX_NUM_OF_STEPS);
+            float CoM = defuzzifyFloat(steps);
+            float error = Float.POSITIVE_INFINITY;
+            while (error > tolerance && steps < MAX_NUM_OF_STEPS) {
+                steps = Math.min(2 * steps, MAX_NUM_OF_STEPS);
+                float refined = defuzzifyFloat(steps);
+                error = Math.abs(refined - CoM);
+                CoM = refined;
+            }
+            lastNumOfSteps = steps;
+            lastError = error;
+            return CoM;
+        } else {
+            lastNumOfSteps = numOfSteps;
+            lastError = Double.NaN;
+            return defuzzifyFloat(numOfSteps);
+        }
+    }
+
+    private float defuzzifyFloat(int steps) {
+        if (floatGrid.length < steps + 1) {
+            floatGrid = new float[steps + 1];
+        }
+        return defuzzifier.defuzzify(floatDegreesOfRelevance, steps, floatGrid);
+    }
+
+    /**
+     * Binds the engine to its compiled model, compiling the model on first use. An engine of a model holder binds to
+     * the current version of the holder's model whenever a new version has been published, which takes a single
+     * volatile read otherwise.
+     */
+    private void setup() {
+        if (holder != null) {
+            CompiledModel current = holder.getCurrent()
+                                          .getCompiledModel();
+            if (current != compiledModel) {
+                bind(current);
+            }
+        } else if (compiledModel == null) {
+            bind(CompiledModel.compile(model));
+        }
+    }
+
+    private void bind(CompiledModel compiledModel) {
+        this.compiledModel = compiledModel;
+        this.model = compiledModel.getModel();
+
+        premiseNetwork = compiledModel.getPremiseNetwork();
+        lastNames = null;
+        inputValues = new double[premiseNetwork.getVariableCount()];
+        nodeValues = new double[premiseNetwork.getNodeCount()];
+        degreesOfRelevance = new double[premiseNetwork.getRuleCount()];
+
+        defuzzifier = compiledModel.getDefuzzifier();
+        grid = new double[numOfSteps + 1];
+
+        // allocated by the first single-precision evaluation
+        floatGrid = null;
+
+        // quantize premises and conclusions
+        if (format != null) {
+            fixedPointEvaluator = new FixedPointEvaluator(premiseNetwork, defuzzifier, format);
+            fixedInputValues = new int[inputValues.length];
+            fixedNodeValues = new int[nodeValues.length];
+            fixedDegreesOfRelevance = new int[degreesOfRelevance.length];
+            fixedGrid = new int[numOfSteps + 1];
+        }
+
+        // a complete rule table is looked up rather than evaluated rule by rule
+        FuzzyAssociativeMemory table = compiledModel.getAssociativeMemory();
+        associativeMemory = table != null ? table.newEvaluation() : null;
+        cellDecomposition = compiledModel.getCellDecomposition();
+
+        // any other rule base skips the operands that cannot change a conjunction or disjunction
+        shortCircuit = new ShortCircuitEvaluator(premiseNetwork);
+
+        // created by the first gradient
+        gradientEvaluator = null;
+
+        partition();
+    }
+
+    /**
+     * Partitions the rules for evaluations by the common fork-join pool, see
+     * {@link #setParallelism(int, Executor, long)}.
+     *
+     * @param parallelism the number of partitions, 1 to evaluate sequentially
+     */
+    public void setParallelism(int parallelism) {
+        setParallelism(parallelism, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_COST_THRESHOLD);
+    }
+
+    /**
+     * Partitions the rules of a very large rule base, so that a single evaluation is processed by several threads.
+     * <p>
+     * The premises and the superposition of the conclusions of every partition are computed by a thread of the
+     * executor or by the calling thread, and the partial superpositions are merged before defuzzification, see
+     * {@link PartitionedEvaluator}; the output values are identical to those of a sequential evaluation. The rules
+     * are evaluated sequentially nevertheless if the estimated cost of an evaluation, i.e. the number of premise
+     * nodes and rules plus the number of steps, is below the threshold, since the partitions are then too small to
+     * pay for the hand-over to other threads. In adaptive mode the number of steps is estimated as 1000.
+     * Only the evaluations in double precision are partitioned. A rule base that is a complete fuzzy associative
+     * memory is never partitioned, since its table lookup does not depend on the number of rules, see
+     * {@link CompiledModel#isAssociativeMemory()}. A partitioned rule base is evaluated without the decomposition
+     * of its input space, see {@link CompiledModel#isCellDecomposed()}.
+     * </p>
+     *
+     * @param parallelism   the number of partitions, 1 to evaluate sequentially
+     * @param executor      the executor running the partitions, in addition to the calling thread
+     * @param costThreshold the estimated cost of an evaluation below which the rules are not partitioned
+     */
+    public void setParallelism(int parallelism, Executor executor, long costThreshold) {
+        if (parallelism < 1) {
+            throw new RuntimeException(String.format("Parallelism must be positive but was %d.", parallelism));
+        }
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.costThreshold = costThreshold;
+        partition();
+    }
+
+    /**
+     * Returns whether the rules are partitioned, which is decided when the engine is set up.
+     *
+     * @return true if evaluations in double precision are processed by several threads
+     */
+    public boolean isPartitioned() {
+        setup();
+        return partitioned != null;
+    }
+
+    private void partition() {
+        partitioned = null;
+        if (compiledModel != null && parallelism > 1 && format == null && !compiledModel.isAssociativeMemory()) {
+            long cost = premiseNetwork.getNodeCount() + premiseNetwork.getRuleCount() + (tolerance > 0 ? 1000 : numOfSteps);
+            if (cost >= costThreshold) {
+                partitioned = compiledModel.getPartitionedEvaluator(parallelism)
+                                           .newEvaluation(executor);
+            }
+        }
+    }
+
+    /**
+     * Sets the listener receiving the intermediate values of every evaluation in double precision.
+     *
+     * @param listener the listener, or null to remove the listener
+     */
+    public void setListener(EvaluationListener listener) {
+        this.listener = listener != null ? listener : EvaluationListener.NONE;
+    }
+
+    /**
+     * Returns the model, which for an engine of a model holder is the version the engine is bound to.
+     *
+     * @return the model
+     */
+    public FuzzyModel getModel() {
+        setup();
+        return model;
+    }
+
+    /**
+     * Returns the report of the rule base optimization, which is performed when the engine is set up.
+     *
+     * @return the optimization report
+     */
+    public RuleBaseOptimizer.Report getOptimizationReport() {
+        setup();
+        return compiledModel.getOptimizationReport();
     }
 
     public String printResult(InputVariable input, OutputVariable output, int padding, int precision) {
@@ -148,10 +752,14 @@ public class FuzzyEngine {
     public static class OutputVariable {
         private final String name;
         private final double value;
+        private final int numOfSteps;
+        private final double error;
 
-        private OutputVariable(String name, double value) {
+        private OutputVariable(String name, double value, int numOfSteps, double error) {
             this.name = name;
             this.value = value;
+            this.numOfSteps = numOfSteps;
+            this.error = error;
         }
 
         public String getName() {
@@ -162,11 +770,130 @@ public class FuzzyEngine {
             return value;
         }
 
+        /**
+         * Returns the number of discrete steps the output value was computed with.
+         *
+         * @return number of discrete steps
+         */
+        public int getNumOfSteps() {
+            return numOfSteps;
+        }
+
+        /**
+         * Returns the change of the output value by the last refinement of the grid in adaptive mode, which estimates
+         * the discretisation error.
+         *
+         * @return the estimated error, or NaN if the number of steps is fixed or if no rule fires
+         */
+        public double getError() {
+            return error;
+        }
+
         @Override
         public String toString() {
             return "OutputVariable{" +
                     "name='" + name + '\'' +
                     ", value=" + value +
+                    ", numOfSteps=" + numOfSteps +
+                    ", error=" + error +
+                    '}';
+        }
+    }
+
+    /**
+     * The output value of an evaluation together with its partial derivatives, see
+     * {@link FuzzyEngine#gradient(boolean, InputVariable...)}.
+     */
+    public static class Gradient {
+
+        /**
+         * The parameters of a term.
+         */
+        public enum Parameter {
+            START, LEFT_TOP, RIGHT_TOP, END
+        }
+
+        private final String name;
+        private final double value;
+        private final int numOfSteps;
+        private final Map<String, Double> inputs;
+        private final Map<String, double[]> terms;
+
+        private Gradient(String name, double value, int numOfSteps, Map<String, Double> inputs,
+                         Map<String, double[]> terms) {
+            this.name = name;
+            this.value = value;
+            this.numOfSteps = numOfSteps;
+            this.inputs = inputs;
+            this.terms = terms;
+        }
+
+        private static String key(String variable, String term) {
+            return (variable + " is " + term).toLowerCase();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the number of discrete steps the output value and its derivatives were computed with.
+         *
+         * @return number of discrete steps
+         */
+        public int getNumOfSteps() {
+            return numOfSteps;
+        }
+
+        /**
+         * Returns the partial derivative of the output value with respect to an input value.
+         *
+         * @param input the name of the input variable
+         * @return the derivative, or NaN if no rule fires
+         */
+        public double getDerivative(String input) {
+            Double result = inputs.get(input.toLowerCase());
+            if (result == null) {
+                throw new RuntimeException(String.format("\"%s\" is not a valid input variable.", input));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the partial derivative of the output value with respect to a parameter of a term of an input or
+         * output variable.
+         *
+         * @param variable  the name of the linguistic variable
+         * @param term      the name of the term
+         * @param parameter the parameter
+         * @return the derivative, or NaN if no rule fires
+         */
+        public double getDerivative(String variable, String term, Parameter parameter) {
+            if (terms == null) {
+                throw new RuntimeException(String.format(
+                        "Cannot return derivative with respect to term \"%s\" of variable \"%s\" because the parameters were not differentiated.",
+                        term, variable));
+            }
+            double[] derivatives = terms.get(key(variable, term));
+            if (derivatives == null) {
+                throw new RuntimeException(String.format(
+                        "Cannot return derivative with respect to term \"%s\" of variable \"%s\" because the term is not defined.",
+                        term, variable));
+            }
+            return derivatives[parameter.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            return "Gradient{" +
+                    "name='" + name + '\'' +
+                    ", value=" + value +
+                    ", numOfSteps=" + numOfSteps +
+                    ", inputs=" + inputs +
                     '}';
         }
     }
@@ -3,8 +3,7 @@ package ch.x01.fuzzy.api;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 /**
  * This class represents a complete Fuzzy Model with linguistic variables, terms and rules.
@@ -27,18 +26,6 @@ public class FuzzyModel {
         return name -> vars -> rules -> new FuzzyModel(name, vars, rules);
     }
 
-    private static <T> Collector<T, ?, T> singletonCollector() {
-        return Collectors.collectingAndThen(
-                Collectors.toList(),
-                list -> {
-                    if (list.size() != 1) {
-                        throw new IllegalStateException();
-                    }
-                    return list.get(0);
-                }
-        );
-    }
-
     @Override
     public String toString() {
         return "FuzzyModel{" +
@@ -48,6 +35,10 @@ public class FuzzyModel {
                 '}';
     }
 
+    public String getName() {
+        return name;
+    }
+
     public List<LinguisticVariable> getLinguisticVariables() {
         return new ArrayList<>(Arrays.asList(vars));
     }
@@ -57,18 +48,31 @@ public class FuzzyModel {
     }
 
     public boolean isValidInputVariable(String name) {
-        List<LinguisticVariable> variableList = Arrays.stream(vars)
-                                                      .filter(var -> (var.getName()
-                                                                         .equalsIgnoreCase(name) && "input".equals(var.getUsage())))
-                                                      .collect(Collectors.toList());
-        return variableList.size() == 1;
+        // called for every evaluation, hence without a stream
+        int count = 0;
+        for (LinguisticVariable var : vars) {
+            if (var.getName()
+                   .equalsIgnoreCase(name) && "input".equals(var.getUsage())) {
+                count++;
+            }
+        }
+        return count == 1;
     }
 
     public String getOutputVariableName() {
-        return Arrays.stream(vars)
-                     .filter(var -> "output".equals(var.getUsage()))
-                     .collect(singletonCollector())
-                     .getName();
+        LinguisticVariable output = null;
+        for (LinguisticVariable var : vars) {
+            if ("output".equals(var.getUsage())) {
+                if (output != null) {
+                    throw new IllegalStateException();
+                }
+                output = var;
+            }
+        }
+        if (output == null) {
+            throw new IllegalStateException();
+        }
+        return output.getName();
     }
 
     interface FuzzyModelBuilder {
@@ -108,6 +112,21 @@ public class FuzzyModel {
                     '}';
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            LinguisticVariable that = (LinguisticVariable) o;
+            return Objects.equals(usage, that.usage) && Objects.equals(name, that.name) && Arrays.equals(terms, that.terms);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(usage, name) + Arrays.hashCode(terms);
+        }
+
         public String getName() {
             return name;
         }
@@ -170,6 +189,23 @@ public class FuzzyModel {
                     '}';
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            Term term = (Term) o;
+            return Double.compare(term.start, start) == 0 && Double.compare(term.left_top, left_top) == 0 &&
+                    Double.compare(term.right_top, right_top) == 0 && Double.compare(term.end, end) == 0 &&
+                    Objects.equals(name, term.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, start, left_top, right_top, end);
+        }
+
         public String getName() {
             return name;
         }
@@ -0,0 +1,187 @@
+package ch.x01.fuzzy.api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.x01.fuzzy.api.FuzzyModel.LinguisticVariable.lv;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.trapezoid;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.triangle;
+import static ch.x01.fuzzy.api.FuzzyModel.model;
+
+/**
+ * This class reads a fuzzy model from its text definition.
+ * <p>
+ * The definition consists of lines of whitespace separated words. Empty lines and lines starting with
+ * <code>#</code> are ignored. The first line names the model, followed by the linguistic variables with their terms
+ * and finally the rules:
+ * </p>
+ * <pre>
+ * model car
+ *
+ * input carSpeed
+ *   term low triangle 20 60 100
+ *   term medium triangle 60 100 140
+ *
+ * output brakeForce
+ *   term moderate trapezoid 40 60 60 80
+ *   term strong triangle 70 85 100
+ *
+ * rule if carSpeed is low then brakeForce is moderate
+ * rule if carSpeed is medium then brakeForce is strong
+ * </pre>
+ * A term is either a <code>triangle</code> (start, top, end) or a <code>trapezoid</code> (start, left top, right
+ * top, end). The text of a rule is the remainder of its line.
+ */
+public class FuzzyModelReader {
+
+    private FuzzyModelReader() {
+    }
+
+    /**
+     * Reads a model definition from a file.
+     *
+     * @param path the file, encoded in UTF-8
+     * @return the model
+     * @throws IOException if the file cannot be read
+     */
+    public static FuzzyModel read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a model definition.
+     *
+     * @param reader the definition
+     * @return the model
+     * @throws IOException if the definition cannot be read
+     */
+    public static FuzzyModel read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+
+        String name = null;
+        List<FuzzyModel.LinguisticVariable> vars = new ArrayList<>();
+        List<String> rules = new ArrayList<>();
+        String usage = null;
+        String variable = null;
+        List<FuzzyModel.Term> terms = new ArrayList<>();
+
+        int lineNumber = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] words = trimmed.split("\\s+");
+            String keyword = words[0].toLowerCase();
+
+            if (name == null && !"model".equals(keyword)) {
+                throw error(lineNumber, "the definition must start with \"model <name>\"");
+            }
+
+            switch (keyword) {
+                case "model":
+                    if (name != null || words.length != 2) {
+                        throw error(lineNumber, "expected a single \"model <name>\"");
+                    }
+                    name = words[1];
+                    break;
+                case "input":
+                case "output":
+                    if (!rules.isEmpty() || words.length != 2) {
+                        throw error(lineNumber, "expected \"" + keyword + " <name>\" before the rules");
+                    }
+                    if (variable != null) {
+                        vars.add(variable(lineNumber, usage, variable, terms));
+                    }
+                    usage = keyword;
+                    variable = words[1];
+                    terms = new ArrayList<>();
+                    break;
+                case "term":
+                    if (variable == null || !rules.isEmpty()) {
+                        throw error(lineNumber, "a term must follow its variable");
+                    }
+                    terms.add(term(lineNumber, words));
+                    break;
+                case "rule":
+                    if (variable != null) {
+                        vars.add(variable(lineNumber, usage, variable, terms));
+                        variable = null;
+                    }
+                    rules.add(trimmed.substring(keyword.length())
+                                     .trim());
+                    break;
+                default:
+                    throw error(lineNumber, "unknown keyword \"" + words[0] + "\"");
+            }
+        }
+
+        if (name == null) {
+            throw error(lineNumber, "the definition is empty");
+        }
+        if (variable != null) {
+            vars.add(variable(lineNumber, usage, variable, terms));
+        }
+        if (rules.isEmpty()) {
+            throw error(lineNumber, "the definition has no rules");
+        }
+
+        return model().name(name)
+                      .vars(vars.toArray(new FuzzyModel.LinguisticVariable[0]))
+                      .rules(rules.toArray(new String[0]));
+    }
+
+    private static FuzzyModel.LinguisticVariable variable(int lineNumber, String usage, String name,
+                                                          List<FuzzyModel.Term> terms) {
+        if (terms.isEmpty()) {
+            throw error(lineNumber, "variable \"" + name + "\" has no terms");
+        }
+        return lv().usage(usage)
+                   .name(name)
+                   .terms(terms.toArray(new FuzzyModel.Term[0]));
+    }
+
+    private static FuzzyModel.Term term(int lineNumber, String[] words) {
+        String shape = words.length > 2 ? words[2].toLowerCase() : "";
+        int parameters = "triangle".equals(shape) ? 3 : "trapezoid".equals(shape) ? 4 : -1;
+        if (parameters < 0 || words.length != 3 + parameters) {
+            throw error(lineNumber, "expected \"term <name> triangle <start> <top> <end>\" or "
+                    + "\"term <name> trapezoid <start> <left top> <right top> <end>\"");
+        }
+
+        double[] values = new double[parameters];
+        for (int i = 0; i < parameters; i++) {
+            try {
+                values[i] = Double.parseDouble(words[3 + i]);
+            } catch (NumberFormatException e) {
+                throw error(lineNumber, "\"" + words[3 + i] + "\" is not a number");
+            }
+        }
+
+        if (parameters == 3) {
+            return triangle().name(words[1])
+                             .start(values[0])
+                             .top(values[1])
+                             .end(values[2]);
+        }
+        return trapezoid().name(words[1])
+                          .start(values[0])
+                          .left_top(values[1])
+                          .right_top(values[2])
+                          .end(values[3]);
+    }
+
+    private static RuntimeException error(int lineNumber, String message) {
+        return new RuntimeException(String.format("Cannot read model definition at line %d: %s.", lineNumber, message));
+    }
+
+}
@@ -0,0 +1,243 @@
+package ch.x01.fuzzy.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class scores binary files of input records by means of memory-mapped I/O.
+ * <p>
+ * A record of the input file consists of one little-endian double per input variable, in the order of the given
+ * variable names. The output file receives one little-endian double per record. Both files are mapped window by
+ * window, a window covering a chunk of records, hence files larger than 2 GB are supported. The chunks are evaluated
+ * in parallel by a number of worker threads, each of which uses its own engine (see
+ * {@link FuzzyEngine#evaluate(String[], double[][], double[])}).
+ * </p>
+ * The output values are written to the mapped output file and written back to the file system by the operating
+ * system.
+ */
+public class MappedFileScorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileScorer.class);
+
+    /**
+     * The number of records evaluated by one call of the engine.
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    private final Supplier<FuzzyEngine> engines;
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Creates a scorer.
+     *
+     * @param engines   creates the engine of a worker thread
+     * @param threads   number of worker threads
+     * @param chunkSize number of records of a mapped window
+     */
+    public MappedFileScorer(Supplier<FuzzyEngine> engines, int threads, int chunkSize) {
+        if (threads < 1 || chunkSize < 1) {
+            throw new RuntimeException(String.format("Cannot create scorer with %d threads and chunks of %d records.",
+                                                     threads, chunkSize));
+        }
+        this.engines = engines;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates a scorer with one worker thread per available processor and chunks of 2<sup>20</sup> records.
+     *
+     * @param engines creates the engine of a worker thread
+     */
+    public MappedFileScorer(Supplier<FuzzyEngine> engines) {
+        this(engines, Runtime.getRuntime()
+                             .availableProcessors(), 1 << 20);
+    }
+
+    /**
+     * Scores an input file.
+     *
+     * @param input  the input file
+     * @param names  the names of the input variables, i.e. the fields of a record
+     * @param output the output file, which is created or truncated
+     * @return the report
+     * @throws IOException      if a file cannot be read or written
+     * @throws RuntimeException if there are no names, or the file holds an incomplete record
+     */
+    public Report score(Path input, String[] names, Path output) throws IOException {
+        long startTime = System.nanoTime();
+        if (names.length == 0) {
+            throw new RuntimeException(String.format("Cannot score file \"%s\" because its records have no fields.", input));
+        }
+        int recordSize = names.length * Double.BYTES;
+        if ((long) chunkSize * recordSize > Integer.MAX_VALUE) {
+            throw new RuntimeException(String.format("Cannot map chunks of %d records of %d bytes.", chunkSize, recordSize));
+        }
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            if (size % recordSize != 0) {
+                throw new RuntimeException(String.format("Cannot score file \"%s\" because its size %d is not a multiple of the record size %d.",
+                                                         input, size, recordSize));
+            }
+            long records = size / recordSize;
+            long chunks = (records + chunkSize - 1) / chunkSize;
+            AtomicLong nextChunk = new AtomicLong();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Void>> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    workers.add(executor.submit(() -> {
+                        Worker worker = new Worker(engines.get(), names);
+                        for (long chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                            long first = chunk * chunkSize;
+                            int count = (int) Math.min(chunkSize, records - first);
+                            worker.score(in.map(FileChannel.MapMode.READ_ONLY, first * recordSize, (long) count * recordSize),
+                                         out.map(FileChannel.MapMode.READ_WRITE, first * Double.BYTES, (long) count * Double.BYTES),
+                                         count);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<Void> worker : workers) {
+                    worker.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+                throw new RuntimeException(String.format("Scoring of file \"%s\" was interrupted.", input), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new RuntimeException(String.format("Cannot score file \"%s\".", input), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            Report report = new Report(records, size + records * Double.BYTES, System.nanoTime() - startTime);
+            if (logger.isInfoEnabled()) {
+                logger.info("Scored " + input + " " + report);
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Evaluates the records of mapped windows, reusing its buffers.
+     */
+    private static class Worker {
+        private final FuzzyEngine engine;
+        private final String[] names;
+        private final double[] records;
+        private final double[][] inputs;
+        private final double[] outputs;
+        // the outputs of the last, partial block of a chunk, which has the same size for most chunks
+        private double[] tailOutputs = new double[0];
+
+        Worker(FuzzyEngine engine, String[] names) {
+            this.engine = engine;
+            this.names = names;
+            this.records = new double[BLOCK_SIZE * names.length];
+            this.inputs = new double[names.length][BLOCK_SIZE];
+            this.outputs = new double[BLOCK_SIZE];
+        }
+
+        void score(MappedByteBuffer input, MappedByteBuffer output, int count) {
+            DoubleBuffer in = input.order(ByteOrder.LITTLE_ENDIAN)
+                                   .asDoubleBuffer();
+            DoubleBuffer out = output.order(ByteOrder.LITTLE_ENDIAN)
+                                     .asDoubleBuffer();
+            double[] blockOutputs = outputs;
+
+            for (int first = 0; first < count; first += BLOCK_SIZE) {
+                int rows = Math.min(BLOCK_SIZE, count - first);
+                if (rows < BLOCK_SIZE) {
+                    if (tailOutputs.length != rows) {
+                        tailOutputs = new double[rows];
+                    }
+                    blockOutputs = tailOutputs;
+                }
+
+                // transpose records into columns
+                in.get(records, 0, rows * names.length);
+                for (int row = 0, k = 0; row < rows; row++) {
+                    for (int j = 0; j < names.length; j++, k++) {
+                        inputs[j][row] = records[k];
+                    }
+                }
+
+                engine.evaluate(names, inputs, blockOutputs);
+                out.put(blockOutputs, 0, rows);
+            }
+        }
+    }
+
+    /**
+     * The result of scoring a file.
+     */
+    public static class Report {
+        private final long records;
+        private final long bytes;
+        private final long nanos;
+
+        private Report(long records, long bytes, long nanos) {
+            this.records = records;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * Returns the number of bytes read and written.
+         *
+         * @return number of bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        /**
+         * Returns the throughput in gigabytes (10<sup>9</sup> bytes) read and written per second.
+         *
+         * @return throughput in GB/s
+         */
+        public double getThroughput() {
+            return bytes / (double) nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{records=%d, bytes=%d, seconds=%.3f, throughput=%.3f GB/s}", records, bytes,
+                                 getSeconds(), getThroughput());
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.core.FixedPointFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class holds the current version of a model that is replaced at runtime.
+ * <p>
+ * A new version is compiled in the background by {@link #reload(FuzzyModel)} and then published by a single atomic
+ * swap of the current version, hence neither the compilation nor the swap blocks an evaluation. The engines created
+ * by {@link #newEngine(int)} and its siblings bind to the current version at the start of each evaluation: an
+ * evaluation in progress, including a whole batch, finishes on the version it started with, and the next evaluation
+ * uses the new version. Binding takes a single volatile read unless a new version has been published, in which case
+ * the engine reallocates its evaluation state once.
+ * </p>
+ * <p>
+ * Versions are numbered in the order of the reloads. A version is published only if no later version has been
+ * published meanwhile, so that a slow compilation never replaces the result of a faster, later one. A failed
+ * compilation leaves the current version in place.
+ * </p>
+ */
+public class ModelHolder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelHolder.class);
+
+    private final Executor compiler;
+    private final AtomicReference<Version> current;
+    private final AtomicLong lastNumber = new AtomicLong();
+
+    private final AtomicLong swaps = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastCompileNanos = new AtomicLong();
+    private final AtomicLong maxCompileNanos = new AtomicLong();
+    private final AtomicLong lastSwapNanos = new AtomicLong();
+    private final AtomicLong maxSwapNanos = new AtomicLong();
+    private final AtomicLong lastReloadNanos = new AtomicLong();
+    private final AtomicLong maxReloadNanos = new AtomicLong();
+
+    /**
+     * Creates a holder that compiles the new versions in the common fork-join pool.
+     *
+     * @param model the initial model, which is compiled at once
+     */
+    public ModelHolder(FuzzyModel model) {
+        this(model, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a holder.
+     *
+     * @param model    the initial model, which is compiled at once
+     * @param compiler compiles the new versions
+     */
+    public ModelHolder(FuzzyModel model, Executor compiler) {
+        this.compiler = compiler;
+        this.current = new AtomicReference<>(new Version(lastNumber.incrementAndGet(), CompiledModel.compile(model)));
+    }
+
+    /**
+     * Returns the current version.
+     *
+     * @return the current version
+     */
+    public Version getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Compiles a new version of the model and publishes it as the current version.
+     *
+     * @param model the new model
+     * @return completes with the new version when it has been published, or exceptionally if the compilation has
+     * failed or a later version has been published meanwhile
+     */
+    public CompletableFuture<Version> reload(FuzzyModel model) {
+        long number = lastNumber.incrementAndGet();
+        long requested = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            CompiledModel compiledModel;
+            try {
+                compiledModel = CompiledModel.compile(model);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                throw e;
+            }
+            long compileNanos = System.nanoTime() - start;
+            record(lastCompileNanos, maxCompileNanos, compileNanos);
+            return publish(new Version(number, compiledModel), requested, compileNanos);
+        }, compiler);
+    }
+
+    private Version publish(Version version, long requested, long compileNanos) {
+        long start = System.nanoTime();
+        Version previous;
+        do {
+            previous = current.get();
+            if (previous.number > version.number) {
+                superseded.incrementAndGet();
+                throw new RuntimeException(String.format("Cannot publish version %d because version %d is newer.",
+                                                         version.number, previous.number));
+            }
+        } while (!current.compareAndSet(previous, version));
+        long end = System.nanoTime();
+        swaps.incrementAndGet();
+        record(lastSwapNanos, maxSwapNanos, end - start);
+        record(lastReloadNanos, maxReloadNanos, end - requested);
+        FlightRecorderEvents.modelSwapped(version.getModel()
+                                                 .getName(), version.number, previous.number, compileNanos);
+
+        if (logger.isInfoEnabled()) {
+            logger.info(String.format("Published version %d of model \"%s\", replacing version %d.", version.number,
+                                      version.compiledModel.getModel()
+                                                           .getName(), previous.number));
+        }
+        return version;
+    }
+
+    private static void record(AtomicLong last, AtomicLong max, long nanos) {
+        last.set(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Creates an engine that always evaluates the current version, see {@link FuzzyEngine#FuzzyEngine(FuzzyModel, int)}.
+     *
+     * @param numOfSteps number of steps used to approximate the integrals of the defuzzification
+     * @return the engine
+     */
+    public FuzzyEngine newEngine(int numOfSteps) {
+        return new FuzzyEngine(this, numOfSteps, 0, null);
+    }
+
+    /**
+     * Creates an engine that always evaluates the current version, see
+     * {@link FuzzyEngine#FuzzyEngine(FuzzyModel, double)}.
+     *
+     * @param tolerance maximum error of the defuzzification
+     * @return the engine
+     */
+    public FuzzyEngine newEngine(double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new RuntimeException(String.format("Tolerance must be positive but was %s.", tolerance));
+        }
+        return new FuzzyEngine(this, 0, tolerance, null);
+    }
+
+    /**
+     * Creates an engine that always evaluates the current version in fixed-point arithmetic, see
+     * {@link FuzzyEngine#FuzzyEngine(FuzzyModel, int, FixedPointFormat)}.
+     *
+     * @param numOfSteps number of steps used to approximate the integrals of the defuzzification
+     * @param format     the fixed-point format
+     * @return the engine
+     */
+    public FuzzyEngine newEngine(int numOfSteps, FixedPointFormat format) {
+        return new FuzzyEngine(this, numOfSteps, 0, format);
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(current.get().number, swaps.get(), superseded.get(), failed.get(), lastCompileNanos.get(),
+                              maxCompileNanos.get(), lastSwapNanos.get(), maxSwapNanos.get(), lastReloadNanos.get(),
+                              maxReloadNanos.get());
+    }
+
+    /**
+     * A published version of the model.
+     */
+    public static class Version {
+        private final long number;
+        private final CompiledModel compiledModel;
+        private final long publishedMillis;
+
+        private Version(long number, CompiledModel compiledModel) {
+            this.number = number;
+            this.compiledModel = compiledModel;
+            this.publishedMillis = System.currentTimeMillis();
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public CompiledModel getCompiledModel() {
+            return compiledModel;
+        }
+
+        public FuzzyModel getModel() {
+            return compiledModel.getModel();
+        }
+
+        /**
+         * Returns the time the version was created, in milliseconds since the epoch.
+         *
+         * @return the time
+         */
+        public long getPublishedMillis() {
+            return publishedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Version{" + "number=" + number + ", model=" + compiledModel.getModel()
+                                                                               .getName() + '}';
+        }
+    }
+
+    /**
+     * The statistics of the reloads.
+     */
+    public static class Statistics {
+        private final long version;
+        private final long swaps;
+        private final long superseded;
+        private final long failed;
+        private final long lastCompileNanos;
+        private final long maxCompileNanos;
+        private final long lastSwapNanos;
+        private final long maxSwapNanos;
+        private final long lastReloadNanos;
+        private final long maxReloadNanos;
+
+        private Statistics(long version, long swaps, long superseded, long failed, long lastCompileNanos,
+                           long maxCompileNanos, long lastSwapNanos, long maxSwapNanos, long lastReloadNanos,
+                           long maxReloadNanos) {
+            this.version = version;
+            this.swaps = swaps;
+            this.superseded = superseded;
+            this.failed = failed;
+            this.lastCompileNanos = lastCompileNanos;
+            this.maxCompileNanos = maxCompileNanos;
+            this.lastSwapNanos = lastSwapNanos;
+            this.maxSwapNanos = maxSwapNanos;
+            this.lastReloadNanos = lastReloadNanos;
+            this.maxReloadNanos = maxReloadNanos;
+        }
+
+        /**
+         * Returns the number of the current version.
+         *
+         * @return the version number
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the number of versions published by reloads.
+         *
+         * @return number of versions
+         */
+        public long getSwaps() {
+            return swaps;
+        }
+
+        /**
+         * Returns the number of versions not published because a later version had been published first.
+         *
+         * @return number of versions
+         */
+        public long getSuperseded() {
+            return superseded;
+        }
+
+        /**
+         * Returns the number of versions whose compilation has failed.
+         *
+         * @return number of versions
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getLastCompileNanos() {
+            return lastCompileNanos;
+        }
+
+        public long getMaxCompileNanos() {
+            return maxCompileNanos;
+        }
+
+        /**
+         * Returns the time taken by the last swap of the current version, i.e. by the atomic publication alone.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getLastSwapNanos() {
+            return lastSwapNanos;
+        }
+
+        public long getMaxSwapNanos() {
+            return maxSwapNanos;
+        }
+
+        /**
+         * Returns the time from the last reload request to the publication of its version, including the waiting for
+         * and the compilation.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getLastReloadNanos() {
+            return lastReloadNanos;
+        }
+
+        public long getMaxReloadNanos() {
+            return maxReloadNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Statistics{version=%d, swaps=%d, superseded=%d, failed=%d, lastCompileTime=%.1f µs, "
+                                         + "maxCompileTime=%.1f µs, lastSwapTime=%.1f µs, maxSwapTime=%.1f µs, "
+                                         + "lastReloadTime=%.1f µs, maxReloadTime=%.1f µs}", version, swaps, superseded,
+                                 failed, lastCompileNanos / 1e3, maxCompileNanos / 1e3, lastSwapNanos / 1e3,
+                                 maxSwapNanos / 1e3, lastReloadNanos / 1e3, maxReloadNanos / 1e3);
+        }
+    }
+
+}
@@ -0,0 +1,653 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import ch.x01.fuzzy.api.FuzzyEngine.OutputVariable;
+import ch.x01.fuzzy.core.FuzzyRule;
+import ch.x01.fuzzy.core.PremiseNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ch.x01.fuzzy.api.FuzzyModel.LinguisticVariable.lv;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.trapezoid;
+import static ch.x01.fuzzy.api.FuzzyModel.model;
+
+/**
+ * This class holds the models of many tenants and evaluates them on demand.
+ * <p>
+ * A registered model is stored in a compact form: its names and rule texts are interned, and identical terms and
+ * linguistic variables are shared by all models, so that models derived from a common template cost little more than
+ * their arrays. A model is compiled when it is evaluated for the first time. The compiled models of the most recently
+ * used tenants are kept in a cache bounded both by a number of models and by a memory budget; the least recently used
+ * model is evicted first. Threads evaluating the same uncompiled model at the same time wait for a single
+ * compilation.
+ * </p>
+ * <p>
+ * A compiled model is shared by the engines of its tenant, each evaluation borrows an idle engine. The heap sizes
+ * reported by {@link #getStatistics()} and charged against the memory budget are estimated from the sizes of the
+ * objects and arrays involved, assuming compressed references.
+ * </p>
+ */
+public class ModelRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+    private final int maxModels;
+    private final long memoryBudget;
+    private final int numOfSteps;
+
+    /**
+     * The interned strings, terms and linguistic variables, each mapped to itself and the number of registrations
+     * sharing it.
+     */
+    private final Map<Object, Shared> pool = new ConcurrentHashMap<>();
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final Map<Registration, CompletableFuture<Entry>> compilations = new ConcurrentHashMap<>();
+
+    /**
+     * The compiled models in the order of their last use, guarded by itself.
+     */
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final AtomicLong modelBytes = new AtomicLong();
+    private final AtomicLong sharedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compiles = new AtomicLong();
+    private final AtomicLong joinedCompiles = new AtomicLong();
+    private final AtomicLong failedCompiles = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    /**
+     * Creates a registry.
+     *
+     * @param maxModels    maximum number of compiled models kept
+     * @param memoryBudget maximum estimated heap size of the compiled models kept and their engines, in bytes
+     * @param numOfSteps   number of discrete steps of the engines
+     */
+    public ModelRegistry(int maxModels, long memoryBudget, int numOfSteps) {
+        if (maxModels < 1) {
+            throw new RuntimeException(String.format("Cannot create registry keeping %d compiled models.", maxModels));
+        }
+        this.maxModels = maxModels;
+        this.memoryBudget = memoryBudget;
+        this.numOfSteps = numOfSteps;
+    }
+
+    /**
+     * Registers the model of a tenant, replacing its previous model if any.
+     *
+     * @param tenant the tenant
+     * @param model  the model
+     */
+    public void register(String tenant, FuzzyModel model) {
+        List<Object> shared = new ArrayList<>();
+        FuzzyModel compact = compact(model, shared);
+        Registration registration = new Registration(compact, estimateModel(compact) + array(shared.size(), 4),
+                                                     shared.toArray());
+        Registration previous = registrations.put(tenant, registration);
+        modelBytes.addAndGet(registration.bytes - (previous != null ? previous.bytes : 0));
+        if (previous != null) {
+            invalidate(tenant);
+            release(previous);
+        }
+    }
+
+    /**
+     * Removes the model of a tenant.
+     *
+     * @param tenant the tenant
+     * @return true if a model was registered
+     */
+    public boolean unregister(String tenant) {
+        Registration previous = registrations.remove(tenant);
+        if (previous == null) {
+            return false;
+        }
+        modelBytes.addAndGet(-previous.bytes);
+        invalidate(tenant);
+        release(previous);
+        return true;
+    }
+
+    /**
+     * Returns the compact form of the model of a tenant.
+     *
+     * @param tenant the tenant
+     * @return the model, or null if no model is registered
+     */
+    public FuzzyModel getModel(String tenant) {
+        Registration registration = registrations.get(tenant);
+        return registration != null ? registration.model : null;
+    }
+
+    public int size() {
+        return registrations.size();
+    }
+
+    /**
+     * Evaluates the model of a tenant, see {@link FuzzyEngine#evaluate(InputVariable...)}.
+     *
+     * @param tenant the tenant
+     * @param input  the input values
+     * @return the output value
+     */
+    public OutputVariable evaluate(String tenant, InputVariable... input) {
+        Entry entry = entry(tenant);
+        FuzzyEngine engine = borrow(entry);
+        try {
+            return engine.evaluate(input);
+        } finally {
+            entry.idleEngines.offer(engine);
+        }
+    }
+
+    /**
+     * Evaluates the model of a tenant for a batch of input values, see
+     * {@link FuzzyEngine#evaluate(String[], double[][], double[])}.
+     *
+     * @param tenant  the tenant
+     * @param names   the names of the input variables
+     * @param inputs  the input values, one array per input variable
+     * @param outputs receives the output values
+     */
+    public void evaluate(String tenant, String[] names, double[][] inputs, double[] outputs) {
+        Entry entry = entry(tenant);
+        FuzzyEngine engine = borrow(entry);
+        try {
+            engine.evaluate(names, inputs, outputs);
+        } finally {
+            entry.idleEngines.offer(engine);
+        }
+    }
+
+    private FuzzyEngine borrow(Entry entry) {
+        FuzzyEngine engine = entry.idleEngines.poll();
+        if (engine == null) {
+            engine = new FuzzyEngine(entry.compiledModel, numOfSteps);
+            long bytes = estimateEngine(entry.compiledModel);
+            synchronized (cache) {
+                entry.bytes += bytes;
+                if (cache.get(entry.tenant) == entry) {
+                    cachedBytes += bytes;
+                    evict();
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Returns the compiled model of a tenant, compiling it unless it is cached or being compiled by another thread.
+     */
+    private Entry entry(String tenant) {
+        Registration registration = registrations.get(tenant);
+        if (registration == null) {
+            throw new RuntimeException(String.format("Cannot evaluate model of tenant \"%s\" because it is not registered.",
+                                                     tenant));
+        }
+        Entry entry = cached(tenant, registration);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Entry> compilation = new CompletableFuture<>();
+        CompletableFuture<Entry> running = compilations.putIfAbsent(registration, compilation);
+        if (running != null) {
+            joinedCompiles.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+        try {
+            // another thread may have completed the compilation meanwhile
+            entry = cached(tenant, registration);
+            if (entry == null) {
+                long start = System.nanoTime();
+                CompiledModel compiledModel = CompiledModel.compile(registration.model);
+                compileNanos.addAndGet(System.nanoTime() - start);
+                compiles.incrementAndGet();
+                entry = new Entry(tenant, registration, compiledModel, estimateCompiledModel(compiledModel));
+                insert(entry);
+            }
+            compilation.complete(entry);
+            return entry;
+        } catch (Throwable e) {
+            // any error, so that the threads waiting for this compilation do not wait forever
+            failedCompiles.incrementAndGet();
+            compilation.completeExceptionally(e);
+            throw e;
+        } finally {
+            compilations.remove(registration, compilation);
+        }
+    }
+
+    /**
+     * Returns the failure of the compilation of another thread to be thrown by this thread.
+     */
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new RuntimeException("Cannot evaluate model because its compilation failed.", cause);
+    }
+
+    private Entry cached(String tenant, Registration registration) {
+        synchronized (cache) {
+            Entry entry = cache.get(tenant);
+            return entry != null && entry.registration == registration ? entry : null;
+        }
+    }
+
+    private void insert(Entry entry) {
+        synchronized (cache) {
+            // a model replaced during its compilation is evaluated once but not kept
+            if (registrations.get(entry.tenant) != entry.registration) {
+                return;
+            }
+            Entry previous = cache.put(entry.tenant, entry);
+            if (previous != null) {
+                cachedBytes -= previous.bytes;
+            }
+            cachedBytes += entry.bytes;
+            evict();
+        }
+    }
+
+    /**
+     * Evicts the least recently used models until the limits are met, keeping at least the most recently used one.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = cache.values()
+                                        .iterator();
+        while ((cache.size() > maxModels || cachedBytes > memoryBudget) && cache.size() > 1) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            cachedBytes -= eldest.bytes;
+            evictions.incrementAndGet();
+            FlightRecorderEvents.modelEvicted(eldest.tenant, eldest.compiledModel.getModel()
+                                                                                 .getName(), eldest.bytes);
+            if (logger.isDebugEnabled()) {
+                logger.debug(String.format("Evicted compiled model of tenant \"%s\".", eldest.tenant));
+            }
+        }
+    }
+
+    private void invalidate(String tenant) {
+        synchronized (cache) {
+            Entry previous = cache.remove(tenant);
+            if (previous != null) {
+                cachedBytes -= previous.bytes;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a model of interned names and rule texts and shared terms and linguistic variables. Every interned
+     * object the model refers to, directly or through a shared term or linguistic variable, is added to the shared
+     * objects of its registration, which releases them when it is replaced or removed.
+     */
+    private FuzzyModel compact(FuzzyModel model, List<Object> shared) {
+        List<FuzzyModel.LinguisticVariable> variables = model.getLinguisticVariables();
+        FuzzyModel.LinguisticVariable[] vars = new FuzzyModel.LinguisticVariable[variables.size()];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = intern(variables.get(i), shared);
+        }
+        List<String> rules = model.getRules();
+        String[] texts = new String[rules.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = intern(rules.get(i), shared);
+        }
+        return model().name(intern(model.getName(), shared))
+                      .vars(vars)
+                      .rules(texts);
+    }
+
+    private FuzzyModel.LinguisticVariable intern(FuzzyModel.LinguisticVariable var, List<Object> shared) {
+        List<FuzzyModel.Term> terms = var.getTerms();
+        FuzzyModel.Term[] internedTerms = new FuzzyModel.Term[terms.size()];
+        for (int i = 0; i < internedTerms.length; i++) {
+            internedTerms[i] = intern(terms.get(i), shared);
+        }
+        FuzzyModel.LinguisticVariable candidate = lv().usage(intern(var.getUsage(), shared))
+                                                      .name(intern(var.getName(), shared))
+                                                      .terms(internedTerms);
+        return (FuzzyModel.LinguisticVariable) share(candidate, 24 + array(internedTerms.length, 4), shared);
+    }
+
+    private FuzzyModel.Term intern(FuzzyModel.Term term, List<Object> shared) {
+        FuzzyModel.Term candidate = trapezoid().name(intern(term.getName(), shared))
+                                               .start(term.getStart())
+                                               .left_top(term.getLeft_top())
+                                               .right_top(term.getRight_top())
+                                               .end(term.getEnd());
+        return (FuzzyModel.Term) share(candidate, 48, shared);
+    }
+
+    private String intern(String string, List<Object> shared) {
+        return (String) share(string, string(string), shared);
+    }
+
+    /**
+     * Returns the interned object equal to a candidate, interning the candidate if there is none, and adds a
+     * reference to it.
+     */
+    private Object share(Object candidate, long bytes, List<Object> shared) {
+        Shared interned = pool.compute(candidate, (key, existing) -> {
+            if (existing == null) {
+                sharedBytes.addAndGet(bytes);
+                existing = new Shared(candidate, bytes);
+            }
+            existing.references++;
+            return existing;
+        });
+        shared.add(interned.object);
+        return interned.object;
+    }
+
+    /**
+     * Removes the references of a registration, removing the interned objects no longer referred to.
+     */
+    private void release(Registration registration) {
+        for (Object object : registration.shared) {
+            pool.computeIfPresent(object, (key, existing) -> {
+                if (--existing.references > 0) {
+                    return existing;
+                }
+                sharedBytes.addAndGet(-existing.bytes);
+                return null;
+            });
+        }
+    }
+
+    // === heap size estimates, assuming 12 byte object headers, 16 byte array headers and 4 byte references
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long array(int length, int elementBytes) {
+        return align(16 + (long) length * elementBytes);
+    }
+
+    private static long string(String string) {
+        return 24 + array(string.length(), 1);
+    }
+
+    /**
+     * Estimates the heap size of a compact model, not counting the interned objects it shares.
+     */
+    private static long estimateModel(FuzzyModel model) {
+        return 24 + array(model.getLinguisticVariables()
+                               .size(), 4) + array(model.getRules()
+                                                        .size(), 4);
+    }
+
+    /**
+     * Estimates the heap size of a compiled model, i.e. its packed terms, premise network, conclusions and the parsed
+     * rules of its optimization report.
+     */
+    private static long estimateCompiledModel(CompiledModel compiledModel) {
+        PremiseNetwork network = compiledModel.getPremiseNetwork();
+        long bytes = 64;
+        for (int i = 0; i < network.getVariableCount(); i++) {
+            int terms = network.getTermSet(i)
+                               .size();
+            // names, double and float parameters, plus the linguistic variable and its membership functions
+            bytes += 64 + array(terms, 4) + 7 * array(terms, 8) + 4 * array(terms, 4);
+            bytes += 64 + terms * 96L;
+        }
+        int nodes = network.getNodeCount();
+        int rules = network.getRuleCount();
+        bytes += 3 * array(nodes, 4) + array(rules, 4) + 4 * array(rules, 8) + 4 * array(rules, 4);
+        for (FuzzyRule rule : compiledModel.getOptimizationReport()
+                                           .getRules()) {
+            int tokens = rule.getTokens()
+                             .size();
+            // the rule, its token list and the stacks of premises and conclusion
+            bytes += 40 + 24 + array(Math.max(10, tokens), 4) + tokens * 56L + 2 * (24 + array(10, 4));
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the heap size of the evaluation state of an engine.
+     */
+    private long estimateEngine(CompiledModel compiledModel) {
+        PremiseNetwork network = compiledModel.getPremiseNetwork();
+        return 120 + array(network.getVariableCount(), 8) + array(network.getNodeCount(), 8) +
+                array(network.getRuleCount(), 8) + array(numOfSteps + 1, 8);
+    }
+
+    public Statistics getStatistics() {
+        int cachedModels;
+        long bytes;
+        synchronized (cache) {
+            cachedModels = cache.size();
+            bytes = cachedBytes;
+        }
+        return new Statistics(registrations.size(), modelBytes.get(), sharedBytes.get(), cachedModels, bytes,
+                              hits.get(), misses.get(), compiles.get(), joinedCompiles.get(), failedCompiles.get(),
+                              evictions.get(), compileNanos.get());
+    }
+
+    /**
+     * A registered model; replacing the model of a tenant creates a new registration.
+     */
+    private static class Registration {
+        private final FuzzyModel model;
+        private final long bytes;
+
+        /**
+         * The interned objects referred to by the model, once per reference.
+         */
+        private final Object[] shared;
+
+        Registration(FuzzyModel model, long bytes, Object[] shared) {
+            this.model = model;
+            this.bytes = bytes;
+            this.shared = shared;
+        }
+    }
+
+    /**
+     * An interned object and the number of references to it, guarded by the pool.
+     */
+    private static class Shared {
+        private final Object object;
+        private final long bytes;
+        private int references;
+
+        Shared(Object object, long bytes) {
+            this.object = object;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A compiled model and its idle engines.
+     */
+    private static class Entry {
+        private final String tenant;
+        private final Registration registration;
+        private final CompiledModel compiledModel;
+        private final Queue<FuzzyEngine> idleEngines = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The estimated heap size of the compiled model and its engines, guarded by the cache.
+         */
+        private long bytes;
+
+        Entry(String tenant, Registration registration, CompiledModel compiledModel, long bytes) {
+            this.tenant = tenant;
+            this.registration = registration;
+            this.compiledModel = compiledModel;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The statistics of the registry.
+     */
+    public static class Statistics {
+        private final int models;
+        private final long modelBytes;
+        private final long sharedBytes;
+        private final int cachedModels;
+        private final long cachedBytes;
+        private final long hits;
+        private final long misses;
+        private final long compiles;
+        private final long joinedCompiles;
+        private final long failedCompiles;
+        private final long evictions;
+        private final long compileNanos;
+
+        private Statistics(int models, long modelBytes, long sharedBytes, int cachedModels, long cachedBytes,
+                           long hits, long misses, long compiles, long joinedCompiles, long failedCompiles,
+                           long evictions, long compileNanos) {
+            this.models = models;
+            this.modelBytes = modelBytes;
+            this.sharedBytes = sharedBytes;
+            this.cachedModels = cachedModels;
+            this.cachedBytes = cachedBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.compiles = compiles;
+            this.joinedCompiles = joinedCompiles;
+            this.failedCompiles = failedCompiles;
+            this.evictions = evictions;
+            this.compileNanos = compileNanos;
+        }
+
+        public int getModels() {
+            return models;
+        }
+
+        /**
+         * Returns the estimated heap size of the registered models, not counting the interned objects they share.
+         *
+         * @return size in bytes
+         */
+        public long getModelBytes() {
+            return modelBytes;
+        }
+
+        /**
+         * Returns the estimated heap size of the interned strings, terms and linguistic variables.
+         *
+         * @return size in bytes
+         */
+        public long getSharedBytes() {
+            return sharedBytes;
+        }
+
+        /**
+         * Returns the estimated heap size per registered model, including its part of the interned objects.
+         *
+         * @return size in bytes
+         */
+        public double getBytesPerModel() {
+            return models > 0 ? (double) (modelBytes + sharedBytes) / models : 0;
+        }
+
+        public int getCachedModels() {
+            return cachedModels;
+        }
+
+        /**
+         * Returns the estimated heap size of the cached compiled models and their engines.
+         *
+         * @return size in bytes
+         */
+        public long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        /**
+         * Returns the estimated heap size per cached compiled model, including its engines.
+         *
+         * @return size in bytes
+         */
+        public double getBytesPerCachedModel() {
+            return cachedModels > 0 ? (double) cachedBytes / cachedModels : 0;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the share of evaluations that found their compiled model in the cache.
+         *
+         * @return the hit rate between 0 and 1
+         */
+        public double getHitRate() {
+            return hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+        }
+
+        public long getCompiles() {
+            return compiles;
+        }
+
+        /**
+         * Returns the number of misses that waited for the compilation of another thread instead of compiling.
+         *
+         * @return number of misses
+         */
+        public long getJoinedCompiles() {
+            return joinedCompiles;
+        }
+
+        public long getFailedCompiles() {
+            return failedCompiles;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Returns the mean time of a compilation in microseconds.
+         *
+         * @return the time
+         */
+        public double getMeanCompileTime() {
+            return compiles > 0 ? compileNanos / 1e3 / compiles : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Statistics{models=%d, bytesPerModel=%.0f, sharedBytes=%d, cachedModels=%d, "
+                                         + "bytesPerCachedModel=%.0f, hitRate=%.3f, compiles=%d, joinedCompiles=%d, "
+                                         + "failedCompiles=%d, evictions=%d, meanCompileTime=%.1f µs}", models,
+                                 getBytesPerModel(), sharedBytes, cachedModels, getBytesPerCachedModel(), getHitRate(),
+                                 compiles, joinedCompiles, failedCompiles, evictions, getMeanCompileTime());
+        }
+    }
+
+}
@@ -0,0 +1,437 @@
+package ch.x01.fuzzy.cli;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * This class evaluates CSV rows in a pipeline of three stages.
+ * <p>
+ * The calling thread reads the rows and groups them into batches. Each batch is parsed, evaluated and formatted by
+ * one of the worker threads, which use an engine of their own. The results are written by the calling thread in
+ * the order the batches were read. Since at most two batches per worker are in flight, the memory used does not
+ * depend on the number of rows.
+ * </p>
+ * <p>
+ * The rows of a batch are read into a character buffer, and the values are parsed in place, without a string per
+ * row or value. The batches and their buffers are reused, so that once the pipeline is filled, the remaining
+ * allocation per row is that of formatting its output value, which depends on the JDK.
+ * </p>
+ * The first row is the header naming the input variables. An output row is the input row followed by the output
+ * value.
+ */
+public class CsvPipeline {
+
+    private final Supplier<FuzzyEngine> engines;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param engines   creates the engine of a worker thread
+     * @param threads   number of worker threads
+     * @param batchSize number of rows of a batch
+     */
+    public CsvPipeline(Supplier<FuzzyEngine> engines, int threads, int batchSize) {
+        if (threads < 1 || batchSize < 1) {
+            throw new RuntimeException(String.format("Cannot create pipeline with %d threads and batches of %d rows.",
+                                                     threads, batchSize));
+        }
+        this.engines = engines;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Evaluates all rows.
+     *
+     * @param in  the input rows
+     * @param out receives the output rows
+     * @return the statistics
+     * @throws IOException if the rows cannot be read or written
+     */
+    public Statistics run(BufferedReader in, Writer out) throws IOException {
+        long startTime = System.nanoTime();
+
+        String header = in.readLine();
+        if (header == null) {
+            throw new RuntimeException("Cannot evaluate CSV input because the header is missing.");
+        }
+        String[] names = header.split(",");
+        for (int j = 0; j < names.length; j++) {
+            names[j] = names[j].trim();
+        }
+
+        // validate the header before any worker is started
+        FuzzyEngine engine = engines.get();
+        engine.evaluate(names, new double[names.length][0], new double[0]);
+        String outputName = engine.getModel()
+                                  .getOutputVariableName();
+
+        ThreadLocal<Stage> stages = ThreadLocal.withInitial(() -> new Stage(engines.get(), names, batchSize));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<Batch>> inFlight = new ArrayBlockingQueue<>(2 * threads);
+        Deque<Batch> idle = new ArrayDeque<>();
+        LineReader lines = new LineReader(in);
+        char[] written = new char[0];
+        long[] latencies = new long[64];
+        int batches = 0;
+        long rows = 0;
+
+        try {
+            out.write(header + "," + outputName + "\n");
+
+            boolean eof = false;
+            while (!eof || !inFlight.isEmpty()) {
+                // read a batch unless the pipeline is full, then write the oldest batch if it is done or if the
+                // pipeline is full
+                if (!eof && inFlight.remainingCapacity() > 0) {
+                    Batch batch = idle.isEmpty() ? new Batch(batchSize) : idle.pop();
+                    batch.clear();
+                    while (batch.rows < batchSize && lines.read(batch)) {
+                        // until the batch is full
+                    }
+                    eof = batch.rows < batchSize;
+                    if (batch.rows > 0) {
+                        inFlight.add(executor.submit(() -> stages.get()
+                                                                 .process(batch)));
+                    }
+                }
+                Future<Batch> oldest = inFlight.peek();
+                if (oldest != null && (oldest.isDone() || eof || inFlight.remainingCapacity() == 0)) {
+                    Batch batch = inFlight.remove()
+                                          .get();
+                    int length = batch.output.length();
+                    if (written.length < length) {
+                        written = new char[length];
+                    }
+                    batch.output.getChars(0, length, written, 0);
+                    out.write(written, 0, length);
+                    if (batches == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, 2 * batches);
+                    }
+                    latencies[batches++] = System.nanoTime() - batch.created;
+                    rows += batch.rows;
+                    idle.push(batch);
+                }
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new RuntimeException("Evaluation of CSV input was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Cannot evaluate CSV input.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Statistics(rows, System.nanoTime() - startTime, Arrays.copyOf(latencies, batches));
+    }
+
+    /**
+     * A batch of rows passing the stages. The rows are kept one after the other in a character buffer, and a batch
+     * is reused once its output is written.
+     */
+    private static class Batch {
+        private long created;
+        private char[] chars = new char[4096];
+        private int length;
+        private int rows;
+        private final int[] ends;
+        private final int[] lineNumbers;
+        private final StringBuilder output = new StringBuilder();
+
+        Batch(int batchSize) {
+            this.ends = new int[batchSize];
+            this.lineNumbers = new int[batchSize];
+        }
+
+        void clear() {
+            created = System.nanoTime();
+            length = 0;
+            rows = 0;
+            output.setLength(0);
+        }
+
+        void append(char[] buffer, int from, int to) {
+            int count = to - from;
+            if (length + count > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(2 * chars.length, length + count));
+            }
+            System.arraycopy(buffer, from, chars, length, count);
+            length += count;
+        }
+
+        int start(int row) {
+            return row > 0 ? ends[row - 1] : 0;
+        }
+    }
+
+    /**
+     * Reads the rows following the header into batches, skipping empty lines.
+     */
+    private static class LineReader {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int lineNumber = 1;
+
+        LineReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Appends the next non-empty line to a batch.
+         *
+         * @return false if there are no more lines
+         */
+        boolean read(Batch batch) throws IOException {
+            int start = batch.length;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        // the last line may lack its line terminator
+                        return start < batch.length && end(batch, start);
+                    }
+                }
+                int from = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                batch.append(buffer, from, position);
+                if (position < limit) {
+                    position++;
+                    if (end(batch, start)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Ends the line appended at the given start, unless it is empty.
+         */
+        private boolean end(Batch batch, int start) {
+            lineNumber++;
+            if (batch.length > start && batch.chars[batch.length - 1] == '\r') {
+                batch.length--;
+            }
+            if (batch.length == start) {
+                return false;
+            }
+            batch.ends[batch.rows] = batch.length;
+            batch.lineNumbers[batch.rows] = lineNumber;
+            batch.rows++;
+            return true;
+        }
+    }
+
+    /**
+     * The parse, evaluate and format stages of a worker thread, reusing its buffers.
+     */
+    private static class Stage {
+        private final FuzzyEngine engine;
+        private final String[] names;
+        private final double[][] inputs;
+        private final double[] outputs;
+
+        Stage(FuzzyEngine engine, String[] names, int batchSize) {
+            this.engine = engine;
+            this.names = names;
+            this.inputs = new double[names.length][batchSize];
+            this.outputs = new double[batchSize];
+        }
+
+        Batch process(Batch batch) {
+            int rows = batch.rows;
+
+            // parse the values in place
+            char[] chars = batch.chars;
+            for (int row = 0; row < rows; row++) {
+                int from = batch.start(row);
+                int end = batch.ends[row];
+                for (int j = 0; j < names.length; j++) {
+                    int to = from;
+                    while (to < end && chars[to] != ',') {
+                        to++;
+                    }
+                    if ((j < names.length - 1) == (to == end)) {
+                        throw error(batch, row, String.format("expected %d values", names.length));
+                    }
+                    try {
+                        inputs[j][row] = parseDouble(chars, from, to);
+                    } catch (NumberFormatException e) {
+                        throw error(batch, row, String.format("\"%s\" is not a number", new String(chars, from, to - from)));
+                    }
+                    from = to + 1;
+                }
+            }
+
+            // evaluate
+            double[] results = rows == outputs.length ? outputs : Arrays.copyOf(outputs, rows);
+            engine.evaluate(names, inputs, results);
+
+            // format
+            for (int row = 0; row < rows; row++) {
+                int start = batch.start(row);
+                batch.output.append(chars, start, batch.ends[row] - start)
+                            .append(',')
+                            .append(results[row])
+                            .append('\n');
+            }
+            return batch;
+        }
+
+        private static RuntimeException error(Batch batch, int row, String message) {
+            return new RuntimeException(String.format("Cannot evaluate CSV input at line %d: %s.",
+                                                      batch.lineNumbers[row], message));
+        }
+    }
+
+    /**
+     * The powers of ten represented exactly by a double.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+                                                   1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Parses a decimal number without creating a string, see {@link Double#parseDouble(String)}.
+     * <p>
+     * A number of at most 15 significant digits and a decimal exponent of at most 22 is the exact quotient or product
+     * of two doubles, hence a single division or multiplication rounds it correctly. Other numbers are parsed by
+     * {@link Double#parseDouble(String)}.
+     * </p>
+     *
+     * @param chars the characters
+     * @param from  the index of the first character
+     * @param to    the index after the last character
+     * @return the value
+     * @throws NumberFormatException if the characters are not a number
+     */
+    static double parseDouble(char[] chars, int from, int to) {
+        int i = from;
+        int end = to;
+        while (i < end && chars[i] <= ' ') {
+            i++;
+        }
+        while (end > i && chars[end - 1] <= ' ') {
+            end--;
+        }
+        boolean negative = i < end && chars[i] == '-';
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa > 0 || c != '0') {
+                    mantissa = 10 * mantissa + (c - '0');
+                    digits++;
+                }
+                if (point) {
+                    scale--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i < end && any && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && chars[i] == '-';
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                i++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            for (; i < end && chars[i] >= '0' && chars[i] <= '9' && exponent < 1000; i++) {
+                exponent = 10 * exponent + (chars[i] - '0');
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                any = false;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (i < end || !any || digits > 15 || scale < -22 || scale > 22) {
+            return Double.parseDouble(new String(chars, from, to - from));
+        }
+        double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * The statistics of a run.
+     */
+    public static class Statistics {
+        private final long rows;
+        private final long nanos;
+        private final long[] latencies;
+
+        private Statistics(long rows, long nanos, long[] latencies) {
+            this.rows = rows;
+            this.nanos = nanos;
+            this.latencies = latencies;
+            Arrays.sort(this.latencies);
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getRowsPerSecond() {
+            return rows / (nanos / 1e9);
+        }
+
+        /**
+         * Returns a percentile of the latency of a batch, from starting to read its first row to writing its output.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency in milliseconds, or 0 if there are no rows
+         */
+        public double getLatency(double percentile) {
+            if (latencies.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rows=%d, seconds=%.3f, rows/s=%.0f, batch latency p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                                 rows, nanos / 1e9, getRowsPerSecond(), getLatency(50), getLatency(99), getLatency(100));
+        }
+    }
+
+}
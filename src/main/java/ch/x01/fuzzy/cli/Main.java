@@ -0,0 +1,133 @@
+package ch.x01.fuzzy.cli;
+
+import ch.x01.fuzzy.api.CompiledModel;
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyModel;
+import ch.x01.fuzzy.api.FuzzyModelReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+/**
+ * The command-line evaluator, which reads CSV rows from an input file or standard input, evaluates them by a model
+ * read from a definition file (see {@link FuzzyModelReader}) and writes the rows with their output values to standard
+ * output. The statistics of the run are printed to standard error.
+ * <pre>
+ * java -jar fuzzy.jar &lt;model file&gt; [--input &lt;file&gt;] [--steps &lt;n&gt; | --tolerance &lt;x&gt;] [--threads &lt;n&gt;] [--batch &lt;n&gt;] &gt; output.csv
+ * </pre>
+ */
+public class Main {
+
+    private static final String USAGE = "Usage: java -jar fuzzy.jar <model file> [--input <file>] "
+            + "[--steps <n> | --tolerance <x>] [--threads <n>] [--batch <n>] > output.csv";
+
+    private Main() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the evaluator.
+     *
+     * @param args the command-line arguments
+     * @param in   the input rows, unless they are read from the file given by {@code --input}
+     * @param out  receives the output rows
+     * @param err  receives the statistics and error messages
+     * @return the exit status, 0 on success, 1 if the evaluation failed and 2 if the arguments are invalid
+     */
+    static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        String modelFile = null;
+        String inputFile = null;
+        int numOfSteps = 1000;
+        double tolerance = 0.0;
+        int threads = Runtime.getRuntime()
+                             .availableProcessors();
+        int batchSize = 1024;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--input":
+                        inputFile = value(args, ++i);
+                        break;
+                    case "--steps":
+                        numOfSteps = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--tolerance":
+                        tolerance = Double.parseDouble(value(args, ++i));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--batch":
+                        batchSize = Integer.parseInt(value(args, ++i));
+                        break;
+                    default:
+                        if (args[i].startsWith("--") || modelFile != null) {
+                            throw new IllegalArgumentException("unknown argument \"" + args[i] + "\"");
+                        }
+                        modelFile = args[i];
+                }
+            }
+            if (modelFile == null) {
+                throw new IllegalArgumentException("the model file is missing");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid arguments: " + e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            FuzzyModel model = FuzzyModelReader.read(Paths.get(modelFile));
+            Supplier<FuzzyEngine> engines;
+            if (tolerance > 0) {
+                double tol = tolerance;
+                engines = () -> new FuzzyEngine(model, tol);
+            } else {
+                // the workers share the compiled model, each engine only holds its own evaluation state
+                CompiledModel compiledModel = CompiledModel.compile(model);
+                int steps = numOfSteps;
+                engines = () -> new FuzzyEngine(compiledModel, steps);
+            }
+
+            BufferedReader reader = inputFile != null
+                    ? Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8)
+                    : new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+                CsvPipeline.Statistics statistics = new CsvPipeline(engines, threads, batchSize).run(reader, writer);
+
+                err.println(statistics);
+                return 0;
+            } finally {
+                if (inputFile != null) {
+                    reader.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("the value of \"" + args[i - 1] + "\" is missing");
+        }
+        return args[i];
+    }
+
+}
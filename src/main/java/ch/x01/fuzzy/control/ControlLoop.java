@@ -0,0 +1,356 @@
+package ch.x01.fuzzy.control;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * This class evaluates an engine at a fixed rate, e.g. in the control loop of a plant.
+ * <p>
+ * Every tick reads the input values from their suppliers, evaluates the engine and pushes the output value to the
+ * consumer. The ticks are scheduled at absolute deadlines <code>start + n * period</code>, so that the loop does not
+ * drift however long a tick takes. Between the ticks, the loop parks its thread and busy-spins for the last part of
+ * the wait, see {@link #setSpinNanos(long)}; spinning wakes up on time at the cost of a busy core. If a tick
+ * completes after the deadline of the next tick, the deadlines that have passed are skipped and counted as missed.
+ * The delay of the start of every tick after its deadline is recorded as jitter.
+ * </p>
+ * <p>
+ * A tick failing with a runtime exception, thrown by a supplier, the engine or the consumer, is counted as failed and
+ * its exception is kept as the last failure; the loop goes on with the next tick. An error ends the loop on its
+ * dedicated thread, and {@link #stop()} throws it wrapped in a runtime exception.
+ * </p>
+ * <p>
+ * All state is allocated when the loop is created, so a tick allocates nothing as long as the suppliers and the
+ * consumer do not. A loop runs on a dedicated thread started by {@link #start()}, or on the caller's thread by
+ * {@link #run(long)}; several loops with their own engines run independently. The statistics are updated by the
+ * thread of the loop, its histograms are consistent once the loop has stopped.
+ * </p>
+ */
+public class ControlLoop {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = 10_000_000_000L;
+
+    private final String name;
+    private final FuzzyEngine engine;
+    private final long periodNanos;
+    private final String[] names;
+    private final DoubleSupplier[] suppliers;
+    private final DoubleConsumer consumer;
+    private final double[][] inputs;
+    private final double[] outputs = new double[1];
+
+    private final LatencyHistogram jitter = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+    private final LatencyHistogram durations = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+
+    private Clock clock = Clock.SYSTEM;
+    private long spinNanos = 50_000;
+
+    private volatile boolean running;
+    private volatile long ticks;
+    private volatile long missedDeadlines;
+    private volatile long failedTicks;
+    private volatile RuntimeException lastFailure;
+    private volatile Throwable error;
+    private Thread thread;
+
+    /**
+     * Creates a control loop.
+     *
+     * @param name        the name of the loop and of its thread
+     * @param engine      the engine, used by this loop only
+     * @param periodNanos the period of the ticks in nanoseconds
+     * @param names       the names of the input variables
+     * @param suppliers   the suppliers of the input values, one per input variable
+     * @param consumer    the consumer of the output values
+     */
+    public ControlLoop(String name, FuzzyEngine engine, long periodNanos, String[] names, DoubleSupplier[] suppliers,
+                       DoubleConsumer consumer) {
+        if (periodNanos <= 0) {
+            throw new RuntimeException(String.format("Cannot create control loop %s because the period %d ns is not positive.",
+                                                     name, periodNanos));
+        }
+        if (names.length != suppliers.length) {
+            throw new RuntimeException(String.format("Cannot create control loop %s because there are %d input variables but %d suppliers.",
+                                                     name, names.length, suppliers.length));
+        }
+        this.name = name;
+        this.engine = engine;
+        this.periodNanos = periodNanos;
+        this.names = names.clone();
+        this.suppliers = suppliers.clone();
+        this.consumer = consumer;
+        this.inputs = new double[names.length][1];
+    }
+
+    /**
+     * Sets the clock of the loop, e.g. a {@link SimulatedClock} in tests. The default is the system clock.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        checkNotRunning();
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the wait strategy: the loop parks its thread until the given time before a deadline, then busy-spins.
+     * Use 0 to park only and {@link Long#MAX_VALUE} to spin only. The default is 50 µs, about the wake-up latency of
+     * a parked thread.
+     *
+     * @param spinNanos the time to spin before a deadline in nanoseconds
+     */
+    public void setSpinNanos(long spinNanos) {
+        checkNotRunning();
+        this.spinNanos = Math.max(0, spinNanos);
+    }
+
+    private void checkNotRunning() {
+        if (running) {
+            throw new RuntimeException(String.format("Cannot configure control loop %s because it is running.", name));
+        }
+    }
+
+    /**
+     * Starts the loop on a dedicated thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new RuntimeException(String.format("Cannot start control loop %s because it is running.", name));
+        }
+        running = true;
+        error = null;
+        thread = new Thread(() -> {
+            try {
+                loop(Long.MAX_VALUE);
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                running = false;
+            }
+        }, "fuzzy-control-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop after the current tick and waits for its thread to terminate.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RuntimeException     if an error has ended the loop
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+            thread = null;
+        }
+        Throwable e = error;
+        if (e != null) {
+            error = null;
+            throw new RuntimeException(String.format("Control loop %s has ended because of an error.", name), e);
+        }
+    }
+
+    /**
+     * Runs the given number of ticks on the calling thread.
+     *
+     * @param ticks the number of ticks
+     */
+    public void run(long ticks) {
+        synchronized (this) {
+            if (running) {
+                throw new RuntimeException(String.format("Cannot run control loop %s because it is running.", name));
+            }
+            running = true;
+        }
+        try {
+            loop(ticks);
+        } finally {
+            running = false;
+        }
+    }
+
+    private void loop(long count) {
+        long deadline = clock.nanoTime();
+        for (long n = 0; n < count && running; n++) {
+            while (clock.nanoTime() - deadline < 0 && running) {
+                clock.waitUntil(deadline, spinNanos);
+                if (Thread.currentThread()
+                          .isInterrupted()) {
+                    running = false;
+                }
+            }
+            if (!running) {
+                break;
+            }
+            long start = clock.nanoTime();
+            jitter.record(start - deadline);
+            try {
+                tick();
+                ticks++;
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                failedTicks++;
+            }
+            long end = clock.nanoTime();
+            durations.record(end - start);
+
+            deadline += periodNanos;
+            if (end - deadline > 0) {
+                long missed = (end - deadline) / periodNanos + 1;
+                missedDeadlines += missed;
+                deadline += missed * periodNanos;
+            }
+        }
+    }
+
+    private void tick() {
+        for (int j = 0; j < suppliers.length; j++) {
+            inputs[j][0] = suppliers[j].getAsDouble();
+        }
+        engine.evaluate(names, inputs, outputs);
+        consumer.accept(outputs[0]);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of completed ticks, not counting the failed ones.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of ticks that failed with a runtime exception.
+     */
+    public long getFailedTicks() {
+        return failedTicks;
+    }
+
+    /**
+     * Returns the exception of the last failed tick.
+     *
+     * @return the exception, or null if no tick has failed
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Returns the number of deadlines skipped because a tick completed after them.
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * Returns the delays of the starts of the ticks after their deadlines.
+     *
+     * @return the histogram of the delays in nanoseconds
+     */
+    public LatencyHistogram getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Returns the durations of the ticks, i.e. of reading the inputs, evaluating and pushing the output.
+     *
+     * @return the histogram of the durations in nanoseconds
+     */
+    public LatencyHistogram getDurations() {
+        return durations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ControlLoop{name=%s, ticks=%d, failed=%d, missed=%d, jitter p99=%.1f µs, max=%.1f µs}",
+                             name, ticks, failedTicks, missedDeadlines, jitter.getValueAtPercentile(99) / 1e3,
+                             jitter.getMax() / 1e3);
+    }
+
+    /**
+     * The source of time of a control loop.
+     */
+    public interface Clock {
+
+        /**
+         * The system clock, waiting by parking and spinning.
+         */
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void waitUntil(long deadline, long spinNanos) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining > spinNanos) {
+                    LockSupport.parkNanos(remaining - spinNanos);
+                    return;
+                }
+                while (deadline - System.nanoTime() > 0) {
+                    SpinWait.onSpinWait();
+                }
+            }
+        };
+
+        /**
+         * Returns the current time.
+         *
+         * @return the time in nanoseconds, relative to an arbitrary origin
+         */
+        long nanoTime();
+
+        /**
+         * Waits until the given time, or less, e.g. if the thread is unparked; the loop waits again until the time
+         * has been reached.
+         *
+         * @param deadline  the time in nanoseconds
+         * @param spinNanos the time to spin before the deadline
+         */
+        void waitUntil(long deadline, long spinNanos);
+    }
+
+    /**
+     * A clock whose time passes only when it is advanced or waited for, which makes a loop deterministic in tests.
+     */
+    public static class SimulatedClock implements Clock {
+        private volatile long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        /**
+         * Sets the time to the deadline if it is later, as if the waiting thread had woken up on time.
+         */
+        @Override
+        public void waitUntil(long deadline, long spinNanos) {
+            if (deadline - now > 0) {
+                now = deadline;
+            }
+        }
+
+        /**
+         * Advances the time, e.g. to simulate a slow supplier.
+         *
+         * @param nanos the time in nanoseconds
+         */
+        public void advance(long nanos) {
+            now += nanos;
+        }
+    }
+
+}
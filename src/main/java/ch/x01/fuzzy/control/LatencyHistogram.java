@@ -0,0 +1,193 @@
+package ch.x01.fuzzy.control;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of latencies with a high dynamic range and a bounded relative error, in the manner of HdrHistogram.
+ * <p>
+ * Values below 2048 are counted exactly. Larger values are counted in buckets of 1024 sub-buckets per power of two,
+ * so that a recorded value and the value reported for it differ by less than 0.1%. Recording a value takes a few
+ * arithmetic operations and allocates nothing, which makes the histogram suitable for recording every tick of a
+ * control loop. A histogram is not thread-safe.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 11;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private final long highestTrackableValue;
+    private final long[] counts;
+
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param highestTrackableValue the highest value to be counted with a bounded relative error, larger values are
+     *                              counted as this value but are still reported as the maximum
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_COUNT) {
+            throw new RuntimeException(String.format("Cannot create histogram because the highest trackable value %d is less than %d.",
+                                                     highestTrackableValue, SUB_BUCKET_COUNT));
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[indexOf(highestTrackableValue) + 1];
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Returns the highest value counted by the bucket with the given index.
+     */
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     *
+     * @param value the value, e.g. a latency in nanoseconds
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[indexOf(Math.min(v, highestTrackableValue))]++;
+        count++;
+        sum += v;
+        if (v < min) {
+            min = v;
+        }
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram with the same highest trackable value.
+     *
+     * @param other the other histogram
+     */
+    public void add(LatencyHistogram other) {
+        if (other.highestTrackableValue != highestTrackableValue) {
+            throw new RuntimeException(String.format("Cannot add histogram because its highest trackable value %d differs from %d.",
+                                                     other.highestTrackableValue, highestTrackableValue));
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest recorded value, or 0 if no value has been recorded.
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the largest recorded value, or 0 if no value has been recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the recorded values, or 0 if no value has been recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    /**
+     * Returns the value at a percentile, i.e. the highest value of the bucket containing the recorded value at the
+     * percentile, but no more than the largest recorded value.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the percentile, or 0 if no value has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        if (rank == count) {
+            return max;
+        }
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of recorded values greater than the given value, exact up to the resolution of the buckets,
+     * i.e. a recorded value in the same bucket as the given value is not counted.
+     *
+     * @param value the value
+     * @return the number of values greater than the value
+     */
+    public long getCountAbove(long value) {
+        if (value >= max) {
+            return 0;
+        }
+        long result = 0;
+        for (int i = indexOf(Math.min(Math.max(0, value), highestTrackableValue)) + 1; i < counts.length; i++) {
+            result += counts[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LatencyHistogram{count=%d, min=%d, p50=%d, p99=%d, p99.99=%d, max=%d}", count, getMin(),
+                             getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.99), max);
+    }
+
+}
@@ -0,0 +1,15 @@
+package ch.x01.fuzzy.control;
+
+/**
+ * Hints the runtime that the caller is busy-waiting. This class gives no hint; it is replaced by the multi-release
+ * layer for Java 9 and later, where it calls <code>Thread.onSpinWait()</code>.
+ */
+final class SpinWait {
+
+    private SpinWait() {
+    }
+
+    static void onSpinWait() {
+    }
+
+}
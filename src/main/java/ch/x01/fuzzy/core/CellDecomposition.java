@@ -0,0 +1,276 @@
+package ch.x01.fuzzy.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class decomposes the input space of a {@link PremiseNetwork} into cells within which the same rules fire.
+ * <p>
+ * The degree of membership of a term is nonzero within its support only, i.e. between its start and its end. The
+ * starts and ends of the terms of a variable divide its range into intervals, each of which lies within the
+ * supports of a fixed set of terms. The intervals of all variables divide the input space into cells, each of which
+ * has a fixed set of rules that may fire and of nodes these rules depend on. Both are computed when the
+ * decomposition is created, and cells with the same rules share them.
+ * </p>
+ * <p>
+ * An evaluation locates the interval of every input value by a binary search, computes the degrees of membership of
+ * the terms of the interval and the nodes of the rules of the cell only. The degrees of the other terms and rules are
+ * zero. The degrees are computed by the same operations as {@link PremiseNetwork#evaluate(double[], double[],
+ * double[])}, hence they are identical. Input values that are not finite are evaluated by the premise network.
+ * </p>
+ * The number of cells grows with the product of the numbers of intervals, hence the decomposition is limited to
+ * {@link #MAX_CELLS} cells. An instance holds no evaluation state and may be shared by several threads.
+ */
+public class CellDecomposition {
+
+    /**
+     * The maximal number of cells.
+     */
+    public static final int MAX_CELLS = 1 << 16;
+
+    /**
+     * The maximal number of cells times nodes, which bounds the time to decompose.
+     */
+    private static final long MAX_WORK = 1L << 24;
+
+    private final PremiseNetwork network;
+    private final double[][] breakpoints;
+    private final int[][][] terms;
+    private final int[] strides;
+    private final int[] cells;
+    private final int[][] rules;
+    private final int[][] operators;
+
+    private CellDecomposition(PremiseNetwork network, double[][] breakpoints, int[][][] terms, int[] strides,
+                              int[] cells, int[][] rules, int[][] operators) {
+        this.network = network;
+        this.breakpoints = breakpoints;
+        this.terms = terms;
+        this.strides = strides;
+        this.cells = cells;
+        this.rules = rules;
+        this.operators = operators;
+    }
+
+    /**
+     * Decomposes the input space of a premise network.
+     *
+     * @param network the premise network
+     * @return the decomposition, or null if the terms have parameters that are not finite or if there would be more
+     * than {@link #MAX_CELLS} cells
+     */
+    public static CellDecomposition of(PremiseNetwork network) {
+        int variables = network.getVariableCount();
+        double[][] breakpoints = new double[variables][];
+        int[][][] terms = new int[variables][][];
+        int[] strides = new int[variables];
+
+        // lay out the intervals of every variable, the interval of the first variable varies slowest
+        long count = 1;
+        for (int v = variables - 1; v >= 0; v--) {
+            PackedTermSet termSet = network.getTermSet(v);
+            double[] points = new double[2 * termSet.size()];
+            for (int t = 0; t < termSet.size(); t++) {
+                points[2 * t] = termSet.getStart(t);
+                points[2 * t + 1] = termSet.getEnd(t);
+            }
+            for (double point : points) {
+                if (!isFinite(point)) {
+                    return null;
+                }
+            }
+            Arrays.sort(points);
+            int distinct = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (i == 0 || points[i] != points[distinct - 1]) {
+                    points[distinct++] = points[i];
+                }
+            }
+            breakpoints[v] = Arrays.copyOf(points, distinct);
+
+            // interval i lies between the breakpoints i - 1 and i, the first and the last are unbounded
+            terms[v] = new int[distinct + 1][];
+            terms[v][0] = new int[0];
+            terms[v][distinct] = new int[0];
+            for (int i = 1; i < distinct; i++) {
+                int[] within = new int[termSet.size()];
+                int size = 0;
+                for (int t = 0; t < termSet.size(); t++) {
+                    if (termSet.getStart(t) <= breakpoints[v][i - 1] && termSet.getEnd(t) >= breakpoints[v][i]) {
+                        within[size++] = t;
+                    }
+                }
+                terms[v][i] = Arrays.copyOf(within, size);
+            }
+
+            strides[v] = (int) count;
+            count *= distinct + 1;
+            if (count > MAX_CELLS || count * network.getNodeCount() > MAX_WORK) {
+                return null;
+            }
+        }
+
+        // determine the rules of every cell
+        int[] cells = new int[(int) count];
+        Map<String, Integer> index = new HashMap<>();
+        List<int[]> rules = new ArrayList<>();
+        List<int[]> operators = new ArrayList<>();
+        boolean[] nonzero = new boolean[network.getNodeCount()];
+        int[] active = new int[network.getRuleCount()];
+        int[] intervals = new int[variables];
+        for (int cell = 0; cell < cells.length; cell++) {
+            for (int v = 0; v < variables; v++) {
+                intervals[v] = cell / strides[v] % terms[v].length;
+            }
+            Arrays.fill(nonzero, false);
+            for (int v = 0; v < variables; v++) {
+                for (int t : terms[v][intervals[v]]) {
+                    nonzero[network.getOffset(v) + t] = true;
+                }
+            }
+            network.propagateNonzero(nonzero);
+
+            int size = 0;
+            for (int r = 0; r < network.getRuleCount(); r++) {
+                if (nonzero[network.getRuleNode(r)]) {
+                    active[size++] = r;
+                }
+            }
+            int[] cellRules = Arrays.copyOf(active, size);
+            String key = Arrays.toString(cellRules);
+            Integer set = index.get(key);
+            if (set == null) {
+                set = rules.size();
+                index.put(key, set);
+                rules.add(cellRules);
+                operators.add(operatorsOf(network, cellRules));
+            }
+            cells[cell] = set;
+        }
+
+        return new CellDecomposition(network, breakpoints, terms, strides, cells, rules.toArray(new int[0][]),
+                                     operators.toArray(new int[0][]));
+    }
+
+    private static boolean isFinite(double value) {
+        return Math.abs(value) <= Double.MAX_VALUE;
+    }
+
+    /**
+     * Returns the operator nodes the given rules depend on in topological order.
+     */
+    private static int[] operatorsOf(PremiseNetwork network, int[] rules) {
+        boolean[] marked = new boolean[network.getNodeCount()];
+        for (int r : rules) {
+            marked[network.getRuleNode(r)] = true;
+        }
+        network.markOperands(marked);
+        int[] result = new int[marked.length - network.getTermCount()];
+        int size = 0;
+        for (int i = network.getTermCount(); i < marked.length; i++) {
+            if (marked[i]) {
+                result[size++] = i;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Computes the degree of relevance of all rules, see {@link PremiseNetwork#evaluate(double[], double[],
+     * double[])}. Only the term degrees and the nodes of the rules of the cell are computed.
+     *
+     * @param inputs  crisp input values in the order of {@link PremiseNetwork#getVariableName(int)}
+     * @param values  scratch array of length {@link PremiseNetwork#getNodeCount()} receiving the term degrees
+     * @param results array of length {@link PremiseNetwork#getRuleCount()} receiving the degree of relevance of
+     *                every rule in the order the rules were given
+     */
+    public void evaluate(double[] inputs, double[] values, double[] results) {
+        for (int v = 0; v < breakpoints.length; v++) {
+            if (!isFinite(inputs[v])) {
+                network.evaluate(inputs, values, results);
+                return;
+            }
+        }
+
+        int cell = 0;
+        for (int v = 0; v < breakpoints.length; v++) {
+            double x = inputs[v];
+            int interval = intervalOf(breakpoints[v], x);
+            PackedTermSet termSet = network.getTermSet(v);
+            int offset = network.getOffset(v);
+            Arrays.fill(values, offset, offset + termSet.size(), 0.0);
+            for (int t : terms[v][interval]) {
+                termSet.fuzzifyTerm(t, x, values, offset);
+            }
+            cell += interval * strides[v];
+        }
+
+        int set = cells[cell];
+        network.evaluateOperators(operators[set], values);
+        Arrays.fill(results, 0.0);
+        for (int r : rules[set]) {
+            results[r] = values[network.getRuleNode(r)];
+        }
+    }
+
+    /**
+     * Returns the number of breakpoints at or below the given value, i.e. the index of its interval.
+     */
+    private static int intervalOf(double[] breakpoints, double x) {
+        int low = 0;
+        int high = breakpoints.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (breakpoints[middle] <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of cells.
+     *
+     * @return number of cells
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the number of distinct sets of rules that may fire within a cell.
+     *
+     * @return number of rule sets
+     */
+    public int getRuleSetCount() {
+        return rules.length;
+    }
+
+    /**
+     * Returns the largest number of rules that may fire within a cell.
+     *
+     * @return number of rules
+     */
+    public int getMaxRuleCount() {
+        int result = 0;
+        for (int[] set : rules) {
+            result = Math.max(result, set.length);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CellDecomposition{" +
+                "cells=" + cells.length +
+                ", ruleSets=" + rules.length +
+                ", maxRules=" + getMaxRuleCount() +
+                '}';
+    }
+
+}
@@ -0,0 +1,288 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.SymbolTable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class implements the reasoning and defuzzification of the conclusions of a set of parsed fuzzy rules.
+ * <p>
+ * For a given <i>degree of relevance (H)</i> of every rule, the conclusions
+ * <code>min{H, u<sub>c</sub>(x)}</code> (see {@link MembershipFunction#computeReasoning(double)}) are sampled
+ * directly into one discrete superposition (see {@link MembershipFunction#computeSuperposition}) whose center of
+ * mass is the crisp output value (see {@link MembershipFunction#computeCenterOfMass(double[][])}). Neither membership
+ * functions nor the x-coordinates of the grid are created, and the loops are executed by {@link GridKernels}.
+ * </p>
+ * <p>
+ * The conclusions are stored in single precision as well, for {@link #defuzzify(float[], int, float[])}.
+ * </p>
+ * An instance holds no evaluation state and may be shared by several threads.
+ */
+public class Defuzzifier {
+
+    private final double[] start;
+    private final double[] leftTop;
+    private final double[] rightTop;
+    private final double[] end;
+    private final float[] floatStart;
+    private final float[] floatLeftTop;
+    private final float[] floatRightTop;
+    private final float[] floatEnd;
+    private final GridKernels kernels;
+
+    /**
+     * Compiles the conclusions of the given rules using the best grid kernels available.
+     *
+     * @param rules       the parsed rules
+     * @param symbolTable the table where linguistic variables and its terms are registered
+     */
+    public Defuzzifier(List<FuzzyRule> rules, SymbolTable symbolTable) {
+        this(rules, symbolTable, GridKernels.getInstance());
+    }
+
+    /**
+     * Compiles the conclusions of the given rules.
+     *
+     * @param rules       the parsed rules
+     * @param symbolTable the table where linguistic variables and its terms are registered
+     * @param kernels     the grid kernels
+     */
+    public Defuzzifier(List<FuzzyRule> rules, SymbolTable symbolTable, GridKernels kernels) {
+        int size = rules.size();
+
+        this.start = new double[size];
+        this.leftTop = new double[size];
+        this.rightTop = new double[size];
+        this.end = new double[size];
+        this.floatStart = new float[size];
+        this.floatLeftTop = new float[size];
+        this.floatRightTop = new float[size];
+        this.floatEnd = new float[size];
+        this.kernels = kernels;
+
+        for (int i = 0; i < size; i++) {
+            FuzzyRule rule = rules.get(i);
+            if (rule.getStatus() != FuzzyRuleStatus.DONE) {
+                throw new RuntimeException(String.format("Cannot compute conclusion of rule \"%s\" because its status is \"%s\".",
+                                                         rule.getRuleText(), rule.getStatus()));
+            }
+
+            // if the conclusion is '... then y is b' --> conclusion = [y b is]
+            LinguisticVariable lv = symbolTable.getLV(rule.getConclusion()
+                                                          .get(0));
+            MembershipFunction mf = lv.getMembershipFunction(rule.getConclusion()
+                                                                 .get(1));
+            this.start[i] = mf.getStart();
+            this.end[i] = mf.getEnd();
+            // a plateau reaching beyond the support is cut at the support, see PackedTermSet
+            this.leftTop[i] = Math.min(Math.max(mf.getLeft_top(), mf.getStart()), mf.getEnd());
+            this.rightTop[i] = Math.min(Math.max(mf.getRight_top(), this.leftTop[i]), mf.getEnd());
+
+            this.floatStart[i] = (float) this.start[i];
+            this.floatLeftTop[i] = (float) this.leftTop[i];
+            this.floatRightTop[i] = (float) this.rightTop[i];
+            this.floatEnd[i] = (float) this.end[i];
+        }
+    }
+
+    /**
+     * Returns the slope of a side of a trapezoid, a vertical side has the slope {@link Double#MAX_VALUE}.
+     */
+    static double slope(double height, double width) {
+        return width > 0 ? Math.min(height / width, Double.MAX_VALUE) : Double.MAX_VALUE;
+    }
+
+    /**
+     * Returns the slope of a side of a trapezoid in single precision, a vertical side has the slope
+     * {@link Float#MAX_VALUE}.
+     */
+    static float slope(float height, float width) {
+        return width > 0 ? Math.min(height / width, Float.MAX_VALUE) : Float.MAX_VALUE;
+    }
+
+    /**
+     * Computes the crisp output value.
+     *
+     * @param degreesOfRelevance degree of relevance (H) of every rule in the order the rules were given
+     * @param numOfSteps         number of discrete steps
+     * @param grid               scratch array of at least <code>numOfSteps + 1</code> elements
+     * @return X<sub>s</sub>, the value of the x-coordinate of center of mass, or NaN if no rule fires
+     */
+    public double defuzzify(double[] degreesOfRelevance, int numOfSteps, double[] grid) {
+        // determine max and min support values of the conclusions, a zero function contributes 0
+        double minSupport = 0.0;
+        double maxSupport = 0.0;
+        for (int i = 0; i < start.length; i++) {
+            if (degreesOfRelevance[i] != 0) {
+                minSupport = Math.min(minSupport, start[i]);
+                maxSupport = Math.max(maxSupport, end[i]);
+            }
+        }
+
+        double increment = Math.abs((maxSupport - minSupport) / numOfSteps);
+        int length = numOfSteps + 1;
+
+        // compute superposition, sampling each conclusion within its support only
+        Arrays.fill(grid, 0, length, 0.0);
+        aggregate(degreesOfRelevance, 0, start.length, minSupport, increment, length, grid);
+
+        // defuzzify using center of mass approach
+        return kernels.centerOfMass(minSupport, increment, grid, length);
+    }
+
+    /**
+     * Adds the conclusions of a range of rules to a superposition by maximum. Since the maximum is associative, the
+     * superpositions of disjoint ranges of rules may be computed separately and merged.
+     *
+     * @param degreesOfRelevance degree of relevance (H) of every rule in the order the rules were given
+     * @param fromRule           the index of the first rule, inclusive
+     * @param toRule             the index of the last rule, exclusive
+     * @param minSupport         the x-coordinate of the first grid point
+     * @param increment          the distance of the grid points
+     * @param length             the number of grid points
+     * @param grid               the superposition
+     */
+    void aggregate(double[] degreesOfRelevance, int fromRule, int toRule, double minSupport, double increment,
+                   int length, double[] grid) {
+        for (int i = fromRule; i < toRule; i++) {
+            double h = degreesOfRelevance[i];
+            if (h != 0) {
+                double left_top = h * (leftTop[i] - start[i]) + start[i];
+                double right_top = end[i] - h * (end[i] - rightTop[i]);
+                int fromIndex = 0;
+                int toIndex = length;
+                if (increment > 0) {
+                    fromIndex = Math.max(fromIndex, (int) Math.floor((start[i] - minSupport) / increment));
+                    toIndex = Math.min(toIndex, (int) Math.ceil((end[i] - minSupport) / increment) + 1);
+                }
+                kernels.aggregate(minSupport, increment, grid, fromIndex, toIndex, start[i], slope(h, left_top - start[i]),
+                                  slope(h, end[i] - right_top), end[i], h);
+            }
+        }
+    }
+
+    /**
+     * Computes the center of mass of a superposition, see {@link GridKernels#centerOfMass(double, double, double[], int)}.
+     */
+    double centerOfMass(double minSupport, double increment, double[] grid, int length) {
+        return kernels.centerOfMass(minSupport, increment, grid, length);
+    }
+
+    /**
+     * Computes the crisp output value in single precision, see {@link #defuzzify(double[], int, double[])}.
+     * <p>
+     * For the same degrees of relevance and number of steps, the result differs from the double precision result
+     * by no more than about <code>1e-5 * max{|min support|, |max support|}</code>: the grid points are computed
+     * with a relative error of a few units in the last place of a <code>float</code> (6e-8), the areas are summed
+     * up in single precision in blocks of at most {@link GridKernels#FLOAT_BLOCK_SIZE} points only.
+     * </p>
+     *
+     * @param degreesOfRelevance degree of relevance (H) of every rule in the order the rules were given
+     * @param numOfSteps         number of discrete steps
+     * @param grid               scratch array of at least <code>numOfSteps + 1</code> elements
+     * @return X<sub>s</sub>, the value of the x-coordinate of center of mass, or NaN if no rule fires
+     */
+    public float defuzzify(float[] degreesOfRelevance, int numOfSteps, float[] grid) {
+        // determine max and min support values of the conclusions, a zero function contributes 0
+        float minSupport = 0.0f;
+        float maxSupport = 0.0f;
+        for (int i = 0; i < floatStart.length; i++) {
+            if (degreesOfRelevance[i] != 0) {
+                minSupport = Math.min(minSupport, floatStart[i]);
+                maxSupport = Math.max(maxSupport, floatEnd[i]);
+            }
+        }
+
+        float increment = Math.abs((maxSupport - minSupport) / numOfSteps);
+        int length = numOfSteps + 1;
+
+        // compute superposition, sampling each conclusion within its support only
+        Arrays.fill(grid, 0, length, 0.0f);
+        for (int i = 0; i < floatStart.length; i++) {
+            float h = degreesOfRelevance[i];
+            if (h != 0) {
+                float s = floatStart[i];
+                float e = floatEnd[i];
+                float left_top = h * (floatLeftTop[i] - s) + s;
+                float right_top = e - h * (e - floatRightTop[i]);
+                int fromIndex = 0;
+                int toIndex = length;
+                if (increment > 0) {
+                    fromIndex = Math.max(fromIndex, (int) Math.floor(((double) s - minSupport) / increment));
+                    toIndex = Math.min(toIndex, (int) Math.ceil(((double) e - minSupport) / increment) + 1);
+                }
+                kernels.aggregate(minSupport, increment, grid, fromIndex, toIndex, s, slope(h, left_top - s),
+                                  slope(h, e - right_top), e, h);
+            }
+        }
+
+        // defuzzify using center of mass approach
+        return kernels.centerOfMass(minSupport, increment, grid, length);
+    }
+
+    /**
+     * Estimates the number of discrete steps needed to resolve the superposition of the given degrees of relevance.
+     * <p>
+     * The grid spans the support of the firing conclusions and is chosen such that the narrowest feature of these
+     * conclusions, i.e. a rising or falling side or a plateau of the clipped trapezoid, is covered by at least
+     * {@code pointsPerFeature} steps. This places every breakpoint of the superposition at a known grid distance
+     * but does not by itself bound the error of the center of mass, see
+     * {@link ch.x01.fuzzy.api.FuzzyEngine#FuzzyEngine(ch.x01.fuzzy.api.FuzzyModel, double)}.
+     * </p>
+     *
+     * @param degreesOfRelevance degree of relevance (H) of every rule in the order the rules were given
+     * @param pointsPerFeature   the minimal number of steps per feature
+     * @return the estimated number of steps, at least <code>pointsPerFeature</code>
+     */
+    public int estimateNumOfSteps(double[] degreesOfRelevance, int pointsPerFeature) {
+        double minSupport = 0.0;
+        double maxSupport = 0.0;
+        double narrowest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < start.length; i++) {
+            double h = degreesOfRelevance[i];
+            if (h != 0) {
+                minSupport = Math.min(minSupport, start[i]);
+                maxSupport = Math.max(maxSupport, end[i]);
+                double left_top = h * (leftTop[i] - start[i]) + start[i];
+                double right_top = end[i] - h * (end[i] - rightTop[i]);
+                narrowest = narrowest(narrowest, left_top - start[i]);
+                narrowest = narrowest(narrowest, right_top - left_top);
+                narrowest = narrowest(narrowest, end[i] - right_top);
+            }
+        }
+
+        double steps = Math.ceil(pointsPerFeature * (maxSupport - minSupport) / narrowest);
+        return steps > pointsPerFeature ? (int) Math.min(steps, Integer.MAX_VALUE - 1) : pointsPerFeature;
+    }
+
+    private static double narrowest(double narrowest, double width) {
+        return width > 0 ? Math.min(narrowest, width) : narrowest;
+    }
+
+    public double getStart(int index) {
+        return start[index];
+    }
+
+    public double getLeft_top(int index) {
+        return leftTop[index];
+    }
+
+    public double getRight_top(int index) {
+        return rightTop[index];
+    }
+
+    public double getEnd(int index) {
+        return end[index];
+    }
+
+    /**
+     * Returns the number of conclusions, i.e. the number of rules.
+     *
+     * @return number of conclusions
+     */
+    public int size() {
+        return start.length;
+    }
+
+}
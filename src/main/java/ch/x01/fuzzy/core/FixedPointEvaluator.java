@@ -0,0 +1,203 @@
+package ch.x01.fuzzy.core;
+
+import java.util.Arrays;
+
+/**
+ * This class evaluates a compiled rule base in fixed-point integer arithmetic (see {@link FixedPointFormat}).
+ * <p>
+ * The term parameters and the conclusions of a {@link PremiseNetwork} and a {@link Defuzzifier} are quantized once.
+ * Fuzzification, the min- and max-operators, the reasoning and the center of mass are then computed with
+ * <code>int</code> and <code>long</code> operations only, hence the results are bit-reproducible on any Java
+ * runtime. The algorithms are the ones of the floating-point classes, except that
+ * </p>
+ * <ul>
+ * <li>divisions truncate towards zero,</li>
+ * <li>the distance of two grid points is rounded up to a multiple of the resolution of the format, i.e. the grid
+ * may extend slightly beyond the maximal support,</li>
+ * <li>a vertical slope is represented by a width of one unit of the format.</li>
+ * </ul>
+ * An instance holds no evaluation state and may be shared by several threads.
+ */
+public class FixedPointEvaluator {
+
+    private final FixedPointFormat format;
+    private final PremiseNetwork network;
+    private final int[] termStart;
+    private final int[] termEnd;
+    private final int[] termHeight;
+    private final int[] termAscent;
+    private final int[] termDescent;
+    private final int[] start;
+    private final int[] leftTop;
+    private final int[] rightTop;
+    private final int[] end;
+
+    /**
+     * Quantizes a compiled rule base.
+     *
+     * @param network     the compiled premises
+     * @param defuzzifier the compiled conclusions of the same rules
+     * @param format      the fixed-point format
+     */
+    public FixedPointEvaluator(PremiseNetwork network, Defuzzifier defuzzifier, FixedPointFormat format) {
+        this.format = format;
+        this.network = network;
+
+        int termCount = 0;
+        for (int v = 0; v < network.getVariableCount(); v++) {
+            termCount += network.getTermSet(v)
+                                .size();
+        }
+        this.termStart = new int[termCount];
+        this.termEnd = new int[termCount];
+        this.termHeight = new int[termCount];
+        this.termAscent = new int[termCount];
+        this.termDescent = new int[termCount];
+        for (int v = 0; v < network.getVariableCount(); v++) {
+            PackedTermSet termSet = network.getTermSet(v);
+            for (int i = 0, k = network.getOffset(v); i < termSet.size(); i++, k++) {
+                this.termStart[k] = format.toFixed(termSet.getStart(i));
+                this.termEnd[k] = format.toFixed(termSet.getEnd(i));
+                this.termHeight[k] = format.toFixed(termSet.getHeight(i));
+                this.termAscent[k] = width(this.termStart[k], format.toFixed(termSet.getLeft_top(i)));
+                this.termDescent[k] = width(format.toFixed(termSet.getRight_top(i)), this.termEnd[k]);
+            }
+        }
+
+        int size = defuzzifier.size();
+        this.start = new int[size];
+        this.leftTop = new int[size];
+        this.rightTop = new int[size];
+        this.end = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.start[i] = format.toFixed(defuzzifier.getStart(i));
+            this.leftTop[i] = format.toFixed(defuzzifier.getLeft_top(i));
+            this.rightTop[i] = format.toFixed(defuzzifier.getRight_top(i));
+            this.end[i] = format.toFixed(defuzzifier.getEnd(i));
+        }
+    }
+
+    /**
+     * Returns the width of a slope, at least one unit, so that a vertical slope saturates at height.
+     */
+    private static int width(long from, long to) {
+        return (int) Math.max(to - from, 1);
+    }
+
+    /**
+     * Computes the degree of relevance of all rules, see {@link PremiseNetwork#evaluate(double[], double[], double[])}.
+     *
+     * @param inputs  crisp input values in the order of {@link PremiseNetwork#getVariableName(int)}
+     * @param values  scratch array of length {@link PremiseNetwork#getNodeCount()}
+     * @param results array of length {@link PremiseNetwork#getRuleCount()} receiving the degree of relevance of
+     *                every rule
+     */
+    public void evaluate(int[] inputs, int[] values, int[] results) {
+        for (int v = 0; v < network.getVariableCount(); v++) {
+            long x = inputs[v];
+            int offset = network.getOffset(v);
+            int bound = offset + network.getTermSet(v)
+                                        .size();
+            for (int k = offset; k < bound; k++) {
+                long h = termHeight[k];
+                long ascending = h * (x - termStart[k]) / termAscent[k];
+                long descending = h * (termEnd[k] - x) / termDescent[k];
+                values[k] = (int) Math.max(0, Math.min(h, Math.min(ascending, descending)));
+            }
+        }
+
+        network.evaluateOperators(values, results);
+    }
+
+    /**
+     * Computes the crisp output value, see {@link Defuzzifier#defuzzify(double[], int, double[])}.
+     *
+     * @param degreesOfRelevance degree of relevance (H) of every rule in the order the rules were given
+     * @param numOfSteps         number of discrete steps, at most {@link #getMaxNumOfSteps()}
+     * @param grid               scratch array of at least <code>numOfSteps + 1</code> elements
+     * @return X<sub>s</sub>, the value of the x-coordinate of center of mass, or {@link FixedPointFormat#UNDEFINED}
+     * if no rule fires
+     */
+    public int defuzzify(int[] degreesOfRelevance, int numOfSteps, int[] grid) {
+        if (numOfSteps < 1 || numOfSteps > getMaxNumOfSteps()) {
+            throw new RuntimeException(String.format("Cannot defuzzify with %d steps in format %s, at most %d steps are supported.",
+                                                     numOfSteps, format, getMaxNumOfSteps()));
+        }
+
+        // determine max and min support values of the conclusions, a zero function contributes 0
+        long minSupport = 0;
+        long maxSupport = 0;
+        for (int i = 0; i < start.length; i++) {
+            if (degreesOfRelevance[i] != 0) {
+                minSupport = Math.min(minSupport, start[i]);
+                maxSupport = Math.max(maxSupport, end[i]);
+            }
+        }
+
+        long increment = (maxSupport - minSupport + numOfSteps - 1) / numOfSteps;
+        int length = numOfSteps + 1;
+        int fractionalBits = format.getFractionalBits();
+
+        // compute superposition, sampling each conclusion within its support only
+        Arrays.fill(grid, 0, length, 0);
+        for (int i = 0; i < start.length; i++) {
+            long h = degreesOfRelevance[i];
+            if (h != 0) {
+                long s = start[i];
+                long e = end[i];
+                long ascent = width(s, s + ((h * (leftTop[i] - s)) >> fractionalBits));
+                long descent = width(e - ((h * (e - rightTop[i])) >> fractionalBits), e);
+                int fromIndex = 0;
+                int toIndex = length;
+                if (increment > 0) {
+                    fromIndex = (int) ((s - minSupport) / increment);
+                    toIndex = (int) Math.min(toIndex, (e - minSupport + increment - 1) / increment + 1);
+                }
+                for (int k = fromIndex; k < toIndex; k++) {
+                    long x = minSupport + increment * k;
+                    long ascending = h * (x - s) / ascent;
+                    long descending = h * (e - x) / descent;
+                    grid[k] = (int) Math.max(grid[k], Math.min(h, Math.min(ascending, descending)));
+                }
+            }
+        }
+
+        // defuzzify using center of mass approach, the center of the k-th interval is at (2k + 1) / 2 increments
+        long sumNumerator = 0;
+        long sumDenominator = 0;
+        for (int k = 0; k < numOfSteps; k++) {
+            long Ak = (long) grid[k] + grid[k + 1];
+            sumNumerator += (2L * k + 1) * Ak;
+            sumDenominator += Ak;
+        }
+        if (sumDenominator == 0) {
+            return FixedPointFormat.UNDEFINED;
+        }
+
+        long divisor = 2 * sumDenominator;
+        long quotient = sumNumerator / divisor;
+        long remainder = sumNumerator % divisor;
+        while (divisor > Integer.MAX_VALUE) {
+            divisor >>= 1;
+            remainder >>= 1;
+        }
+        long result = minSupport + increment * quotient + (increment * remainder + divisor / 2) / divisor;
+        return (int) Math.min(result, format.getMaxValue());
+    }
+
+    /**
+     * Returns the maximal number of discrete steps whose center of mass is computed without overflow.
+     *
+     * @return maximal number of steps
+     */
+    public int getMaxNumOfSteps() {
+        // the sums of the center of mass are bounded by 2 * numOfSteps^2 * 2^(n + 1)
+        return (int) Math.min(Integer.MAX_VALUE - 1,
+                              (long) Math.sqrt((double) (Long.MAX_VALUE >> (format.getFractionalBits() + 2))));
+    }
+
+    public FixedPointFormat getFormat() {
+        return format;
+    }
+
+}
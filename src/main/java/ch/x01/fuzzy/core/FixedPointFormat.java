@@ -0,0 +1,104 @@
+package ch.x01.fuzzy.core;
+
+/**
+ * This class describes a signed binary fixed-point format Q<i>m</i>.<i>n</i>, that is, a value is represented by an
+ * <code>int</code> of <i>m</i> integer bits and <i>n</i> fractional bits, plus the sign bit. The represented value
+ * is the integer divided by <code>2<sup>n</sup></code>.
+ * <p>
+ * Degrees of membership use the same number of fractional bits, i.e. the degree 1 is represented by
+ * {@link #one()}.
+ * </p>
+ */
+public class FixedPointFormat {
+
+    /**
+     * The integer representing an undefined value, the fixed-point counterpart of NaN.
+     */
+    public static final int UNDEFINED = Integer.MIN_VALUE;
+
+    private final int integerBits;
+    private final int fractionalBits;
+    private final int maxValue;
+    private final double scale;
+
+    /**
+     * Constructs a fixed-point format.
+     *
+     * @param integerBits    number of integer bits <i>m</i>, at least 1
+     * @param fractionalBits number of fractional bits <i>n</i>, at least 1, where <i>m</i> + <i>n</i> &lt;= 31
+     */
+    public FixedPointFormat(int integerBits, int fractionalBits) {
+        if (integerBits < 1 || fractionalBits < 1 || integerBits + fractionalBits > 31) {
+            throw new RuntimeException(String.format("Cannot create fixed-point format Q%d.%d because it does not fit into 31 bits.",
+                                                     integerBits, fractionalBits));
+        }
+        this.integerBits = integerBits;
+        this.fractionalBits = fractionalBits;
+        this.maxValue = (int) ((1L << (integerBits + fractionalBits)) - 1);
+        this.scale = 1L << fractionalBits;
+    }
+
+    /**
+     * Converts a value to this format, rounding to the nearest representable value. Values out of range saturate.
+     *
+     * @param value the value
+     * @return the fixed-point representation, or {@link #UNDEFINED} if the value is NaN
+     */
+    public int toFixed(double value) {
+        if (Double.isNaN(value)) {
+            return UNDEFINED;
+        }
+        return (int) Math.max(-maxValue, Math.min(maxValue, Math.round(value * scale)));
+    }
+
+    /**
+     * Converts a value of this format to double.
+     *
+     * @param value the fixed-point representation
+     * @return the value, or NaN if the value is {@link #UNDEFINED}
+     */
+    public double toDouble(int value) {
+        return value == UNDEFINED ? Double.NaN : value / scale;
+    }
+
+    /**
+     * Returns the fixed-point representation of 1.
+     *
+     * @return 2<sup>n</sup>
+     */
+    public int one() {
+        return 1 << fractionalBits;
+    }
+
+    /**
+     * Returns the largest representable value, the smallest one is its negation.
+     *
+     * @return 2<sup>m + n</sup> - 1
+     */
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    public int getIntegerBits() {
+        return integerBits;
+    }
+
+    public int getFractionalBits() {
+        return fractionalBits;
+    }
+
+    /**
+     * Returns the distance of two adjacent representable values.
+     *
+     * @return 2<sup>-n</sup>
+     */
+    public double getResolution() {
+        return 1.0 / scale;
+    }
+
+    @Override
+    public String toString() {
+        return "Q" + integerBits + "." + fractionalBits;
+    }
+
+}
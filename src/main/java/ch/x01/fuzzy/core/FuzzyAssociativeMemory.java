@@ -0,0 +1,245 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.Token;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * This class evaluates a rule base that is a complete fuzzy associative memory (FAM), i.e. whose rules are of the
+ * form <code>if (x<sub>1</sub> is a<sub>1</sub> and ... and x<sub>n</sub> is a<sub>n</sub>) then y is b</code> with
+ * exactly one rule for every combination of the terms of the input variables.
+ * <p>
+ * The rules are stored in a dense table indexed by the terms of the input variables. An evaluation fuzzifies the
+ * input values, see {@link PackedTermSet#fuzzify(double, double[], int, int[])}, and enumerates the combinations of
+ * the terms with a nonzero degree of membership only, e.g. 2<sup>n</sup> combinations for overlapping terms instead
+ * of all rules. The degree of relevance of a combination is the minimum of its term degrees. Since the
+ * {@link RuleBaseOptimizer} merges rules with the same conclusion, a combination refers to the optimized rule of its
+ * conclusion, whose degree of relevance is the maximum of the combinations referring to it. Minimum and maximum are
+ * exact, hence the degrees of relevance are identical to those computed by
+ * {@link PremiseNetwork#evaluate(double[], double[], double[])}.
+ * </p>
+ * An instance holds no evaluation state and may be shared by several threads; the state is held by an
+ * {@link Evaluation}.
+ */
+public class FuzzyAssociativeMemory {
+
+    private final PremiseNetwork network;
+    private final int[] strides;
+    private final int[] table;
+
+    private FuzzyAssociativeMemory(PremiseNetwork network, int[] strides, int[] table) {
+        this.network = network;
+        this.strides = strides;
+        this.table = table;
+    }
+
+    /**
+     * Stores the given rules in a table if they form a complete fuzzy associative memory.
+     *
+     * @param rules          the parsed rules
+     * @param optimizedRules the rules optimized by {@link RuleBaseOptimizer}, in the order of the degrees of relevance
+     * @param network        the premise network of the optimized rules, which defines the order of the input values
+     * @return the fuzzy associative memory, or null if the rules are not a complete fuzzy associative memory
+     */
+    public static FuzzyAssociativeMemory of(Collection<FuzzyRule> rules, List<FuzzyRule> optimizedRules,
+                                            PremiseNetwork network) {
+        int variables = network.getVariableCount();
+        if (variables == 0) {
+            return null;
+        }
+
+        // the optimized rule of every conclusion
+        Map<String, Integer> conclusions = new HashMap<>();
+        for (int i = 0; i < optimizedRules.size(); i++) {
+            String conclusion = conclusionOf(optimizedRules.get(i));
+            if (conclusion == null || conclusions.put(conclusion, i) != null) {
+                return null;
+            }
+        }
+
+        // lay out the table, the term of the first variable varies slowest
+        int[] strides = new int[variables];
+        long cells = 1;
+        for (int v = variables - 1; v >= 0; v--) {
+            strides[v] = (int) cells;
+            cells *= network.getTermSet(v)
+                            .size();
+            if (cells > rules.size()) {
+                return null;
+            }
+        }
+        if (cells != rules.size()) {
+            return null;
+        }
+
+        int[] table = new int[(int) cells];
+        Arrays.fill(table, -1);
+        int[] terms = new int[variables];
+        for (FuzzyRule rule : rules) {
+            if (rule.getStatus() != FuzzyRuleStatus.DONE || !termsOf(rule, network, terms)) {
+                return null;
+            }
+            int cell = 0;
+            for (int v = 0; v < variables; v++) {
+                cell += terms[v] * strides[v];
+            }
+            Integer index = conclusions.get(conclusionOf(rule));
+            if (index == null || table[cell] != -1) {
+                return null;
+            }
+            table[cell] = index;
+        }
+
+        return new FuzzyAssociativeMemory(network, strides, table);
+    }
+
+    private static String conclusionOf(FuzzyRule rule) {
+        Stack<String> conclusion = rule.getConclusion();
+        return conclusion.size() < 2 ? null : conclusion.get(0) + " " + Token.IS + " " + conclusion.get(1);
+    }
+
+    /**
+     * Collects the term of every variable of a premise, which must be a conjunction of exactly one fuzzification per
+     * variable of the network. Without an operator joining them, only the topmost of several fuzzifications
+     * determines the degree of relevance, see {@link FuzzyRule#computeDegreeOfRelevance()}, hence the premise must
+     * have one 'and' less than fuzzifications.
+     *
+     * @return true if the premise is such a conjunction
+     */
+    private static boolean termsOf(FuzzyRule rule, PremiseNetwork network, int[] terms) {
+        Arrays.fill(terms, -1);
+        int count = 0;
+        int operators = 0;
+        Stack<String> premises = rule.getPremises();
+        for (int i = 0; i < premises.size(); i++) {
+            String token = premises.get(i);
+            if (token.equals(Token.OR.toString())) {
+                return false;
+            }
+            if (token.equals(Token.AND.toString())) {
+                operators++;
+            }
+            if (token.equals(Token.IS.toString())) {
+                int v = network.indexOf(premises.get(i - 2));
+                int t = v < 0 ? -1 : network.getTermSet(v)
+                                            .indexOf(premises.get(i - 1));
+                if (t < 0 || terms[v] != -1) {
+                    return false;
+                }
+                terms[v] = t;
+                count++;
+            }
+        }
+        return count == terms.length && operators == count - 1;
+    }
+
+    /**
+     * Returns the number of cells of the table, i.e. the number of rules.
+     *
+     * @return number of cells
+     */
+    public int getCellCount() {
+        return table.length;
+    }
+
+    /**
+     * Creates the state of evaluations, which is used by one thread at a time.
+     *
+     * @return the evaluation state
+     */
+    public Evaluation newEvaluation() {
+        return new Evaluation();
+    }
+
+    @Override
+    public String toString() {
+        return "FuzzyAssociativeMemory{" +
+                "variables=" + strides.length +
+                ", cells=" + table.length +
+                '}';
+    }
+
+    /**
+     * The state of the evaluations of a fuzzy associative memory.
+     */
+    public final class Evaluation {
+        private final int[][] active;
+        private final int[] counts;
+        private final int[] positions;
+        private final int[] cells;
+        private final double[] minima;
+
+        private Evaluation() {
+            int variables = strides.length;
+            this.active = new int[variables][];
+            for (int v = 0; v < variables; v++) {
+                active[v] = new int[network.getTermSet(v)
+                                           .size()];
+            }
+            this.counts = new int[variables];
+            this.positions = new int[variables];
+            this.cells = new int[variables];
+            this.minima = new double[variables];
+        }
+
+        /**
+         * Computes the degree of relevance of all rules.
+         *
+         * @param inputs             crisp input values in the order of {@link PremiseNetwork#getVariableName(int)}
+         * @param values             scratch array of length {@link PremiseNetwork#getNodeCount()} receiving the
+         *                           term degrees
+         * @param degreesOfRelevance array of length {@link PremiseNetwork#getRuleCount()} receiving the degree of
+         *                           relevance of every optimized rule
+         * @return the number of combinations enumerated
+         */
+        public int evaluate(double[] inputs, double[] values, double[] degreesOfRelevance) {
+            Arrays.fill(degreesOfRelevance, 0.0);
+
+            // fuzzify, collecting the terms with a nonzero degree of membership
+            int last = strides.length - 1;
+            boolean fires = true;
+            for (int v = 0; v <= last; v++) {
+                counts[v] = network.getTermSet(v)
+                                   .fuzzify(inputs[v], values, network.getOffset(v), active[v]);
+                fires &= counts[v] > 0;
+            }
+            if (!fires) {
+                return 0;
+            }
+
+            // enumerate their combinations depth first, the minimum and the cell are accumulated per variable
+            int combinations = 0;
+            int v = 0;
+            positions[0] = 0;
+            while (v >= 0) {
+                if (positions[v] == counts[v]) {
+                    if (--v >= 0) {
+                        positions[v]++;
+                    }
+                    continue;
+                }
+                int t = active[v][positions[v]];
+                double degree = values[network.getOffset(v) + t];
+                double minimum = v == 0 ? degree : Math.min(minima[v - 1], degree);
+                int cell = (v == 0 ? 0 : cells[v - 1]) + t * strides[v];
+                if (v == last) {
+                    int rule = table[cell];
+                    degreesOfRelevance[rule] = Math.max(degreesOfRelevance[rule], minimum);
+                    positions[v]++;
+                    combinations++;
+                } else {
+                    minima[v] = minimum;
+                    cells[v] = cell;
+                    positions[++v] = 0;
+                }
+            }
+            return combinations;
+        }
+    }
+
+}
@@ -2,8 +2,6 @@ package ch.x01.fuzzy.core;
 
 import ch.x01.fuzzy.parser.SymbolTable;
 import ch.x01.fuzzy.parser.Token;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Objects;
@@ -21,8 +19,6 @@ import java.util.Stack;
  */
 public class FuzzyRule {
 
-    private static final Logger logger = LoggerFactory.getLogger(FuzzyRule.class);
-
     private final String ruleText;
     private final SymbolTable symbolTable;
 
@@ -100,10 +96,6 @@ public class FuzzyRule {
 
         result = stack.pop();
 
-        if (result > 0 && logger.isDebugEnabled()) {
-            logger.debug(String.format("Rule \"%s\" fires. Degree of relevance H = %.4f", ruleText, result));
-        }
-
         return result;
     }
 
@@ -0,0 +1,283 @@
+package ch.x01.fuzzy.core;
+
+import java.util.Arrays;
+
+/**
+ * This class computes the crisp output value of a rule base together with its partial derivatives with respect to
+ * the input values and the parameters of the terms.
+ * <p>
+ * Every stage of the evaluation is piecewise linear or a quotient of sums: the degree of membership of a term is the
+ * minimum of its height and its two sides, the premises are minima and maxima, the superposition is the maximum of
+ * the clipped conclusions sampled on the grid, and the center of mass is
+ * <code>X = min support + increment * S<sub>1</sub> / S<sub>0</sub></code> with
+ * <code>S<sub>0</sub> = &sum; w<sub>i</sub></code> and <code>S<sub>1</sub> = &sum; (i + 1/2) w<sub>i</sub></code>
+ * for the trapezoids <code>w<sub>i</sub> = (y<sub>i</sub> + y<sub>i+1</sub>) / 2</code> of the grid. The derivatives
+ * are propagated backwards through these stages in a single pass, i.e. in about the time of two evaluations
+ * regardless of the number of parameters. A minimum or maximum passes the derivative on to the operand that is equal
+ * to it, hence at the breakpoints, where the operands are equal, a one-sided derivative is computed. Vertical sides
+ * of a trapezoid have no derivative.
+ * </p>
+ * <p>
+ * The derivatives are those of the discrete output value for the given number of steps, including the movement of
+ * the grid with the supports of the conclusions. The parameters of a term are in the order
+ * {@link #START}, {@link #LEFT_TOP}, {@link #RIGHT_TOP} and {@link #END}; a plateau reaching beyond the support is
+ * cut at the support, see {@link PackedTermSet}, and the derivatives are those with respect to the parameters of the
+ * cut trapezoid.
+ * </p>
+ * An instance holds evaluation state and is used by one thread at a time.
+ */
+public class GradientEvaluator {
+
+    /**
+     * The number of parameters of a term.
+     */
+    public static final int PARAMETER_COUNT = 4;
+
+    /**
+     * The position of the start point within the parameters of a term.
+     */
+    public static final int START = 0;
+
+    /**
+     * The position of the left top point within the parameters of a term.
+     */
+    public static final int LEFT_TOP = 1;
+
+    /**
+     * The position of the right top point within the parameters of a term.
+     */
+    public static final int RIGHT_TOP = 2;
+
+    /**
+     * The position of the end point within the parameters of a term.
+     */
+    public static final int END = 3;
+
+    private final PremiseNetwork network;
+    private final Defuzzifier defuzzifier;
+    private final double[] values;
+    private final double[] degreesOfRelevance;
+    private final double[] nodeDerivatives;
+    private final int[] firing;
+    private double[] grid = new double[0];
+
+    /**
+     * Creates an evaluator of the premises and conclusions of the same rules.
+     *
+     * @param network     the premise network
+     * @param defuzzifier the defuzzifier
+     */
+    public GradientEvaluator(PremiseNetwork network, Defuzzifier defuzzifier) {
+        this.network = network;
+        this.defuzzifier = defuzzifier;
+        this.values = new double[network.getNodeCount()];
+        this.degreesOfRelevance = new double[network.getRuleCount()];
+        this.nodeDerivatives = new double[network.getNodeCount()];
+        this.firing = new int[network.getRuleCount()];
+    }
+
+    /**
+     * Computes the crisp output value and its partial derivatives.
+     *
+     * @param inputs                crisp input values in the order of {@link PremiseNetwork#getVariableName(int)}
+     * @param numOfSteps            number of discrete steps
+     * @param inputDerivatives      array of length {@link PremiseNetwork#getVariableCount()} receiving the
+     *                              derivatives with respect to the input values
+     * @param termDerivatives       array of length <code>{@link #PARAMETER_COUNT} *
+     *                              {@link PremiseNetwork#getTermCount()}</code> receiving the derivatives with
+     *                              respect to the parameters of the terms of the premises, the parameters of a term
+     *                              at <code>{@link #PARAMETER_COUNT} * {@link PremiseNetwork#getOffset(int)}</code>
+     *                              plus the parameters of the previous terms of the variable, or null
+     * @param conclusionDerivatives array of length <code>{@link #PARAMETER_COUNT} *
+     *                              {@link PremiseNetwork#getRuleCount()}</code> receiving the derivatives with
+     *                              respect to the parameters of the conclusion of every rule, or null
+     * @return X<sub>s</sub>, the value of the x-coordinate of center of mass, or NaN if no rule fires, in which case
+     * the derivatives are NaN as well
+     */
+    public double evaluate(double[] inputs, int numOfSteps, double[] inputDerivatives, double[] termDerivatives,
+                           double[] conclusionDerivatives) {
+        network.evaluate(inputs, values, degreesOfRelevance);
+        if (grid.length < numOfSteps + 1) {
+            grid = new double[numOfSteps + 1];
+        }
+        double result = defuzzifier.defuzzify(degreesOfRelevance, numOfSteps, grid);
+
+        Arrays.fill(inputDerivatives, 0.0);
+        if (termDerivatives != null) {
+            Arrays.fill(termDerivatives, 0.0);
+        }
+        if (conclusionDerivatives != null) {
+            Arrays.fill(conclusionDerivatives, 0.0);
+        }
+        if (result != result) {
+            Arrays.fill(inputDerivatives, Double.NaN);
+            if (termDerivatives != null) {
+                Arrays.fill(termDerivatives, Double.NaN);
+            }
+            if (conclusionDerivatives != null) {
+                Arrays.fill(conclusionDerivatives, Double.NaN);
+            }
+            return result;
+        }
+
+        Arrays.fill(nodeDerivatives, 0.0);
+        differentiateConclusions(numOfSteps, conclusionDerivatives);
+        network.propagateDerivatives(values, nodeDerivatives);
+        differentiateTerms(inputs, inputDerivatives, termDerivatives);
+        return result;
+    }
+
+    /**
+     * Computes the derivatives with respect to the degrees of relevance, which are added to the rule nodes, and to
+     * the parameters of the conclusions.
+     */
+    private void differentiateConclusions(int numOfSteps, double[] conclusionDerivatives) {
+        // the grid as computed by the defuzzifier, and the rules whose conclusions determine its bounds
+        double minSupport = 0.0;
+        double maxSupport = 0.0;
+        int minRule = -1;
+        int maxRule = -1;
+        int count = 0;
+        for (int r = 0; r < degreesOfRelevance.length; r++) {
+            if (degreesOfRelevance[r] != 0) {
+                firing[count++] = r;
+                if (defuzzifier.getStart(r) < minSupport) {
+                    minSupport = defuzzifier.getStart(r);
+                    minRule = r;
+                }
+                if (defuzzifier.getEnd(r) > maxSupport) {
+                    maxSupport = defuzzifier.getEnd(r);
+                    maxRule = r;
+                }
+            }
+        }
+        double increment = Math.abs((maxSupport - minSupport) / numOfSteps);
+
+        // X = min support + increment * c with c = S1 / S0
+        double s0 = 0.0;
+        double s1 = 0.0;
+        for (int i = 0; i < numOfSteps; i++) {
+            double w = 0.5 * (grid[i] + grid[i + 1]);
+            s0 += w;
+            s1 += (i + 0.5) * w;
+        }
+        double c = s1 / s0;
+        double minSupportDerivative = 1 - c / numOfSteps;
+        double maxSupportDerivative = c / numOfSteps;
+
+        for (int j = 0; j <= numOfSteps; j++) {
+            if (grid[j] <= 0) {
+                continue;
+            }
+            // y_j contributes to the trapezoids left and right of it
+            double a0 = 0.5 * ((j > 0 ? 1 : 0) + (j < numOfSteps ? 1 : 0));
+            double a1 = 0.5 * ((j > 0 ? j - 0.5 : 0) + (j < numOfSteps ? j + 0.5 : 0));
+            double derivative = increment * (a1 - c * a0) / s0;
+
+            // the conclusion forming the superposition at this grid point, as sampled by the grid kernels
+            double x = minSupport + increment * j;
+            int rule = -1;
+            int side = 0;
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < count; k++) {
+                int r = firing[k];
+                double h = degreesOfRelevance[r];
+                double start = defuzzifier.getStart(r);
+                double end = defuzzifier.getEnd(r);
+                double left_top = h * (defuzzifier.getLeft_top(r) - start) + start;
+                double right_top = end - h * (end - defuzzifier.getRight_top(r));
+                double ascending = (x - start) * Defuzzifier.slope(h, left_top - start);
+                double descending = (end - x) * Defuzzifier.slope(h, end - right_top);
+                double u = Math.min(h, Math.min(ascending, descending));
+                if (u > maximum) {
+                    maximum = u;
+                    rule = r;
+                    side = h <= ascending && h <= descending ? 0 : ascending <= descending ? -1 : 1;
+                }
+            }
+
+            if (side == 0) {
+                // clipped at the degree of relevance
+                nodeDerivatives[network.getRuleNode(rule)] += derivative;
+            } else if (conclusionDerivatives != null) {
+                // a side, u = (x - start) / (left_top - start) or u = (end - x) / (end - right_top)
+                double start = defuzzifier.getStart(rule);
+                double left_top = defuzzifier.getLeft_top(rule);
+                double right_top = defuzzifier.getRight_top(rule);
+                double end = defuzzifier.getEnd(rule);
+                double width = side < 0 ? left_top - start : end - right_top;
+                if (width > 0) {
+                    int p = PARAMETER_COUNT * rule;
+                    double slope = side < 0 ? 1 / width : -1 / width;
+                    if (side < 0) {
+                        conclusionDerivatives[p + START] += derivative * (x - left_top) / (width * width);
+                        conclusionDerivatives[p + LEFT_TOP] -= derivative * (x - start) / (width * width);
+                    } else {
+                        conclusionDerivatives[p + RIGHT_TOP] += derivative * (end - x) / (width * width);
+                        conclusionDerivatives[p + END] += derivative * (x - right_top) / (width * width);
+                    }
+                    // the grid point moves with the bounds of the grid
+                    minSupportDerivative += derivative * slope * (1 - (double) j / numOfSteps);
+                    maxSupportDerivative += derivative * slope * j / numOfSteps;
+                }
+            }
+        }
+
+        if (conclusionDerivatives != null) {
+            if (minRule >= 0) {
+                conclusionDerivatives[PARAMETER_COUNT * minRule + START] += minSupportDerivative;
+            }
+            if (maxRule >= 0) {
+                conclusionDerivatives[PARAMETER_COUNT * maxRule + END] += maxSupportDerivative;
+            }
+        }
+    }
+
+    /**
+     * Computes the derivatives with respect to the input values and the parameters of the terms from the
+     * derivatives with respect to the term degrees.
+     */
+    private void differentiateTerms(double[] inputs, double[] inputDerivatives, double[] termDerivatives) {
+        for (int v = 0; v < network.getVariableCount(); v++) {
+            PackedTermSet termSet = network.getTermSet(v);
+            int offset = network.getOffset(v);
+            double x = inputs[v];
+            for (int t = 0; t < termSet.size(); t++) {
+                double derivative = nodeDerivatives[offset + t];
+                if (derivative == 0 || values[offset + t] <= 0) {
+                    continue;
+                }
+                // u = min{h, h(x - start) / (left_top - start), h(end - x) / (end - right_top)}
+                double h = termSet.getHeight(t);
+                double start = termSet.getStart(t);
+                double left_top = termSet.getLeft_top(t);
+                double right_top = termSet.getRight_top(t);
+                double end = termSet.getEnd(t);
+                double ascent = left_top - start;
+                double descent = end - right_top;
+                double ascending = h * (x - start) / (ascent > 0 ? ascent : Double.MIN_VALUE);
+                double descending = h * (end - x) / (descent > 0 ? descent : Double.MIN_VALUE);
+                if (h <= ascending && h <= descending) {
+                    continue;
+                }
+                int p = PARAMETER_COUNT * (offset + t);
+                if (ascending <= descending) {
+                    if (ascent > 0) {
+                        inputDerivatives[v] += derivative * h / ascent;
+                        if (termDerivatives != null) {
+                            termDerivatives[p + START] += derivative * h * (x - left_top) / (ascent * ascent);
+                            termDerivatives[p + LEFT_TOP] -= derivative * h * (x - start) / (ascent * ascent);
+                        }
+                    }
+                } else if (descent > 0) {
+                    inputDerivatives[v] -= derivative * h / descent;
+                    if (termDerivatives != null) {
+                        termDerivatives[p + RIGHT_TOP] += derivative * h * (end - x) / (descent * descent);
+                        termDerivatives[p + END] += derivative * h * (x - right_top) / (descent * descent);
+                    }
+                }
+            }
+        }
+    }
+
+}
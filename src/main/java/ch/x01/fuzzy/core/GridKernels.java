@@ -0,0 +1,117 @@
+package ch.x01.fuzzy.core;
+
+/**
+ * This class defines the loops over a discretisation grid needed to defuzzify the conclusions of a rule base.
+ * <p>
+ * The grid is uniform, i.e. the i-th point has the x-coordinate <code>from + increment * i</code> (see
+ * {@link MembershipFunction#plot(double, double, int)}). Only the y-coordinates are stored.
+ * </p>
+ * The implementation returned by {@link #getInstance()} depends on the Java runtime: this library is packaged as
+ * a multi-release JAR whose Java 17 layer uses SIMD instructions through the <code>jdk.incubator.vector</code>
+ * module if that module is available (<code>--add-modules jdk.incubator.vector</code>). Otherwise the scalar
+ * implementation is used.
+ */
+public abstract class GridKernels {
+
+    /**
+     * The maximal number of grid points summed up in single precision by
+     * {@link #centerOfMass(float, float, float[], int)}.
+     */
+    protected static final int FLOAT_BLOCK_SIZE = 256;
+
+    protected GridKernels() {
+    }
+
+    /**
+     * Returns the best implementation available on this Java runtime.
+     *
+     * @return grid kernels
+     */
+    public static GridKernels getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the scalar implementation, which runs on any Java runtime.
+     *
+     * @return scalar grid kernels
+     */
+    public static GridKernels scalar() {
+        return ScalarGridKernels.INSTANCE;
+    }
+
+    /**
+     * Samples a trapezoid and aggregates it with the given discrete function using the max-operator, that is
+     * <code>y<sub>i</sub> = max{y<sub>i</sub>, u(x<sub>i</sub>)}</code> where
+     * <code>u(x) = min{h, (x - start) * ascending slope, (end - x) * descending slope}</code>.
+     * <p>
+     * The slopes are the height divided by the widths of the slopes of the trapezoid, or {@link Double#MAX_VALUE}
+     * for a vertical slope. Negative values of <code>u(x)</code> never exceed the y-coordinates, which are zero or
+     * positive, hence only the grid points within the support of the trapezoid need to be sampled.
+     * </p>
+     *
+     * @param from             x-coordinate of the first grid point
+     * @param increment        distance of two grid points
+     * @param y                y-coordinates of the discrete function
+     * @param fromIndex        index of the first grid point to be sampled
+     * @param toIndex          index after the last grid point to be sampled
+     * @param start            start point of trapezoid
+     * @param ascendingSlope   slope of the ascending side
+     * @param descendingSlope  slope of the descending side, as a positive value
+     * @param end              end point of trapezoid
+     * @param height           height of trapezoid
+     */
+    public abstract void aggregate(double from, double increment, double[] y, int fromIndex, int toIndex,
+                                   double start, double ascendingSlope, double descendingSlope, double end, double height);
+
+    /**
+     * Computes the center of mass of a discrete function, see
+     * {@link MembershipFunction#computeCenterOfMass(double[][])}.
+     *
+     * @param from      x-coordinate of the first grid point
+     * @param increment distance of two grid points
+     * @param y         y-coordinates of the discrete function
+     * @param length    number of grid points
+     * @return X<sub>s</sub>, the value of the x-coordinate of center of mass
+     */
+    public abstract double centerOfMass(double from, double increment, double[] y, int length);
+
+    /**
+     * Single-precision version of {@link #aggregate(double, double, double[], int, int, double, double, double, double,
+     * double)}. Vertical slopes are represented by {@link Float#MAX_VALUE}.
+     *
+     * @param from             x-coordinate of the first grid point
+     * @param increment        distance of two grid points
+     * @param y                y-coordinates of the discrete function
+     * @param fromIndex        index of the first grid point to be sampled
+     * @param toIndex          index after the last grid point to be sampled
+     * @param start            start point of trapezoid
+     * @param ascendingSlope   slope of the ascending side
+     * @param descendingSlope  slope of the descending side, as a positive value
+     * @param end              end point of trapezoid
+     * @param height           height of trapezoid
+     */
+    public abstract void aggregate(float from, float increment, float[] y, int fromIndex, int toIndex,
+                                   float start, float ascendingSlope, float descendingSlope, float end, float height);
+
+    /**
+     * Single-precision version of {@link #centerOfMass(double, double, double[], int)}. The sums are accumulated
+     * in double precision, at the latest after every {@link #FLOAT_BLOCK_SIZE} grid points, so that the rounding
+     * error does not grow with the number of grid points.
+     *
+     * @param from      x-coordinate of the first grid point
+     * @param increment distance of two grid points
+     * @param y         y-coordinates of the discrete function
+     * @param length    number of grid points
+     * @return X<sub>s</sub>, the value of the x-coordinate of center of mass
+     */
+    public abstract float centerOfMass(float from, float increment, float[] y, int length);
+
+    /**
+     * Defers the selection until first use, since the implementations themselves extend this class.
+     */
+    private static class Holder {
+        private static final GridKernels INSTANCE = GridKernelsProvider.create();
+    }
+
+}
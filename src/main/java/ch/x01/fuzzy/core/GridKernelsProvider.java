@@ -0,0 +1,16 @@
+package ch.x01.fuzzy.core;
+
+/**
+ * Selects the grid kernels for the Java runtime. This class is replaced by the multi-release layer for newer
+ * Java runtimes.
+ */
+class GridKernelsProvider {
+
+    private GridKernelsProvider() {
+    }
+
+    static GridKernels create() {
+        return GridKernels.scalar();
+    }
+
+}
@@ -1,11 +1,11 @@
 package ch.x01.fuzzy.core;
 
 import ch.x01.fuzzy.parser.SymbolTable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -22,10 +22,8 @@ import java.util.Objects;
  */
 public class LinguisticVariable {
 
-    private static final Logger logger = LoggerFactory.getLogger(LinguisticVariable.class);
-
     private final String name;
-    private final Map<String, MembershipFunction> termSet = new HashMap<>();
+    private final Map<String, MembershipFunction> termSet = new LinkedHashMap<>();
     private double value;
 
     /**
@@ -88,9 +86,6 @@ public class LinguisticVariable {
      */
     public void setValue(double value) {
         this.value = value;
-        if (logger.isDebugEnabled()) {
-            logger.debug(String.format("Set crisp value = %.4f for linguistic variable \"%s\".", this.value, this.name));
-        }
     }
 
     /**
@@ -159,6 +154,15 @@ public class LinguisticVariable {
         return this.termSet.containsKey(name.toLowerCase());
     }
 
+    /**
+     * Returns the names of the linguistic terms in the order they were added.
+     *
+     * @return names of linguistic terms
+     */
+    public List<String> getTerms() {
+        return new ArrayList<>(this.termSet.keySet());
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -1,8 +1,5 @@
 package ch.x01.fuzzy.core;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * This class implements a trapezoidal membership function.
  * <p>
@@ -11,8 +8,6 @@ import org.slf4j.LoggerFactory;
  */
 public class MembershipFunction {
 
-    private static final Logger logger = LoggerFactory.getLogger(MembershipFunction.class);
-
     private final double start;
     private final double left_top;
     private final double right_top;
@@ -72,10 +67,8 @@ public class MembershipFunction {
      * represents the x-coordinate and row<sub>1</sub> represents the y-coordinate
      */
     public static double[][] computeSuperposition(MembershipFunction[] membershipFunctions, int numOfSteps) {
-        double[][] result = new double[2][numOfSteps + 1];
-
-        if (membershipFunctions.length < 2) {
-            throw new RuntimeException("Cannot compute superposition for less than two membership functions.");
+        if (membershipFunctions.length < 1) {
+            throw new RuntimeException("Cannot compute superposition for less than one membership function.");
         }
 
         double minSupport = 0.0;
@@ -91,33 +84,12 @@ public class MembershipFunction {
             }
         }
 
-        if (logger.isTraceEnabled()) {
-            logger.trace(String.format("Superposition is computed from %.2f to %.2f", minSupport, maxSupport));
-        }
-
-        double[][] du = membershipFunctions[0].plot(minSupport, maxSupport, numOfSteps);
+        // the superposition starts with the first membership function
+        double[][] result = membershipFunctions[0].plot(minSupport, maxSupport, numOfSteps);
         for (int k = 1; k < membershipFunctions.length; k++) {
             double[][] dk = membershipFunctions[k].plot(minSupport, maxSupport, numOfSteps);
             for (int i = 0; i < numOfSteps + 1; i++) {
-                if (k == 1) {
-                    // compute superposition of the first two membership functions
-                    result[0][i] = du[0][i];
-                    result[1][i] = Math.max(du[1][i], dk[1][i]);
-                } else {
-                    result[1][i] = Math.max(result[1][i], dk[1][i]);
-                }
-            }
-        }
-
-        if (logger.isDebugEnabled()) {
-            logger.debug("--- superposition");
-            String[] label = new String[]{"x -->", "y -->"};
-            for (int row = 0; row < result.length; row++) {
-                StringBuilder sb = new StringBuilder(label[row]);
-                for (int col = 0; col < result[row].length; col++) {
-                    sb.append(String.format("%12.4f", result[row][col]));
-                }
-                logger.debug(sb.toString());
+                result[1][i] = Math.max(result[1][i], dk[1][i]);
             }
         }
 
@@ -135,10 +107,6 @@ public class MembershipFunction {
         double sumNumerator = 0.0;
         double sumDenominator = 0.0;
 
-        if (logger.isTraceEnabled()) {
-            logger.trace("--- center of mass");
-        }
-
         for (int i = 0; i < function[0].length - 1; i++) {
             double x1 = function[0][i];
             double x2 = function[0][i + 1];
@@ -149,22 +117,8 @@ public class MembershipFunction {
             double xsi = 0.5 * (x1 + x2);
             double Ai = 0.5 * (y1 + y2) * (x2 - x1);
 
-            if (logger.isTraceEnabled()) {
-                logger.trace(String.format("xsi = %.4f", xsi));
-                logger.trace(String.format("Ai  = %.4f", Ai));
-            }
-
             sumNumerator += (xsi * Ai);
             sumDenominator += Ai;
-
-            if (logger.isTraceEnabled()) {
-                logger.trace(String.format("sum(xsi * Ai) = %.4f", sumNumerator));
-                logger.trace(String.format("sum(Ai)       = %.4f", sumDenominator));
-            }
-        }
-
-        if (logger.isTraceEnabled()) {
-            logger.trace(String.format("CoM = %.4f", sumNumerator / sumDenominator));
         }
 
         return sumNumerator / sumDenominator;
@@ -239,22 +193,29 @@ public class MembershipFunction {
             result[1][i] = fuzzify(x);
         }
 
-        if (logger.isTraceEnabled()) {
-            logger.trace(String.format("--- discretisation of %s", this.toString()));
-            logger.trace(String.format("from %.4f to %.4f | increment = %.4f | numOfSteps = %s", from, to, increment, numOfSteps));
-            String[] label = new String[]{"x -->", "y -->"};
-            for (int row = 0; row < result.length; row++) {
-                StringBuilder builder = new StringBuilder(label[row]);
-                for (int col = 0; col < result[row].length; col++) {
-                    builder.append(String.format("%12.4f", result[row][col]));
-                }
-                logger.trace(builder.toString());
-            }
-        }
-
         return result;
     }
 
+    public double getStart() {
+        return start;
+    }
+
+    public double getLeft_top() {
+        return left_top;
+    }
+
+    public double getRight_top() {
+        return right_top;
+    }
+
+    public double getEnd() {
+        return end;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
     @Override
     public String toString() {
         return String.format("MF { start = %.2f, ", start) +
@@ -0,0 +1,294 @@
+package ch.x01.fuzzy.core;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class stores the membership functions of a linguistic variable's term set in contiguous primitive arrays,
+ * one array per parameter (start, left top, right top, end and height).
+ * <p>
+ * The degrees of membership of all terms are computed in a single loop without branches, using the clamped form
+ * of a trapezoid
+ * </p>
+ * <code>u(x) = max{0, min{h, h(x - start) / (left_top - start), h(end - x) / (end - right_top)}}</code>
+ * <p>
+ * which agrees with {@link MembershipFunction#fuzzify(double)} for any trapezoid with
+ * <code>start &lt;= left_top &lt;= right_top &lt;= end</code>. Vertical slopes are represented by a denominator
+ * of {@link Double#MIN_VALUE}, so that the slope term is either non-positive or saturates at height.
+ * </p>
+ * <p>
+ * The parameters are stored in single precision as well, rounded to the nearest <code>float</code>, for
+ * {@link #fuzzify(float, float[], int)}.
+ * </p>
+ * If the terms form an ordered partition, i.e. sorted by their supports no crisp value lies within the supports of
+ * more than two terms, as in the usual layout of triangles and trapezoids, the terms of a term set of at least
+ * {@link #SORTED_LAYOUT_MIN_SIZE} terms are also kept in the order of their supports. A crisp value is then located by
+ * a binary search and the degrees of membership of at most two terms are computed, the others are zero.
+ */
+public class PackedTermSet {
+
+    /**
+     * The number of terms from which an ordered partition is fuzzified by a binary search. For fewer terms, the
+     * loop over all terms is as fast.
+     */
+    public static final int SORTED_LAYOUT_MIN_SIZE = 8;
+
+    private final String[] names;
+    private final double[] start;
+    private final double[] leftTop;
+    private final double[] rightTop;
+    private final double[] end;
+    private final double[] height;
+    private final double[] ascent;
+    private final double[] descent;
+    private final float[] floatStart;
+    private final float[] floatEnd;
+    private final float[] floatHeight;
+    private final float[] floatAscent;
+    private final float[] floatDescent;
+
+    // the terms in the order of their supports, null unless the terms form an ordered partition
+    private final int[] order;
+    private final double[] sortedStart;
+
+    /**
+     * Packs the term set of a linguistic variable. The index of a term is its position in
+     * {@link LinguisticVariable#getTerms()}.
+     *
+     * @param lv the linguistic variable
+     */
+    public PackedTermSet(LinguisticVariable lv) {
+        List<String> terms = lv.getTerms();
+        int size = terms.size();
+
+        this.names = terms.toArray(new String[size]);
+        this.start = new double[size];
+        this.leftTop = new double[size];
+        this.rightTop = new double[size];
+        this.end = new double[size];
+        this.height = new double[size];
+        this.ascent = new double[size];
+        this.descent = new double[size];
+        this.floatStart = new float[size];
+        this.floatEnd = new float[size];
+        this.floatHeight = new float[size];
+        this.floatAscent = new float[size];
+        this.floatDescent = new float[size];
+
+        for (int i = 0; i < size; i++) {
+            MembershipFunction mf = lv.getMembershipFunction(names[i]);
+            this.start[i] = mf.getStart();
+            this.end[i] = mf.getEnd();
+            // a plateau reaching beyond the support is cut at the support
+            this.leftTop[i] = Math.min(Math.max(mf.getLeft_top(), mf.getStart()), mf.getEnd());
+            this.rightTop[i] = Math.min(Math.max(mf.getRight_top(), this.leftTop[i]), mf.getEnd());
+            this.height[i] = mf.getHeight();
+            this.ascent[i] = denominator(this.leftTop[i] - this.start[i]);
+            this.descent[i] = denominator(this.end[i] - this.rightTop[i]);
+
+            this.floatStart[i] = (float) this.start[i];
+            this.floatEnd[i] = (float) this.end[i];
+            this.floatHeight[i] = (float) this.height[i];
+            this.floatAscent[i] = denominator((float) this.leftTop[i] - this.floatStart[i]);
+            this.floatDescent[i] = denominator(this.floatEnd[i] - (float) this.rightTop[i]);
+        }
+
+        // lay out the terms in the order of their supports
+        int[] order = null;
+        if (size >= SORTED_LAYOUT_MIN_SIZE) {
+            Integer[] sorted = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> start[i])
+                                          .thenComparingDouble(i -> end[i]));
+            order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = sorted[i];
+                // no value lies within the supports of a term and of the second next term
+                if (i > 1 && end[order[i - 2]] > start[order[i]]) {
+                    order = null;
+                    break;
+                }
+            }
+        }
+        this.order = order;
+        this.sortedStart = new double[order != null ? size : 0];
+        for (int i = 0; i < sortedStart.length; i++) {
+            sortedStart[i] = start[order[i]];
+        }
+    }
+
+    private static double denominator(double width) {
+        return width > 0 ? width : Double.MIN_VALUE;
+    }
+
+    private static float denominator(float width) {
+        return width > 0 ? width : Float.MIN_VALUE;
+    }
+
+    /**
+     * Computes the degree of membership of a crisp input value for all terms.
+     *
+     * @param x       crisp input value
+     * @param degrees array receiving the degrees of membership
+     * @param offset  position in <code>degrees</code> of the first term
+     */
+    public void fuzzify(double x, double[] degrees, int offset) {
+        if (order != null && x == x) {
+            Arrays.fill(degrees, offset, offset + start.length, 0.0);
+            int k = countStartsBelow(x);
+            if (k > 1) {
+                fuzzifyTerm(order[k - 2], x, degrees, offset);
+            }
+            if (k > 0) {
+                fuzzifyTerm(order[k - 1], x, degrees, offset);
+            }
+            return;
+        }
+        for (int i = 0; i < start.length; i++) {
+            fuzzifyTerm(i, x, degrees, offset);
+        }
+    }
+
+    /**
+     * Computes the degree of membership of a crisp input value for all terms, see
+     * {@link #fuzzify(double, double[], int)}, and collects the terms with a nonzero degree of membership.
+     *
+     * @param x       crisp input value
+     * @param degrees array receiving the degrees of membership
+     * @param offset  position in <code>degrees</code> of the first term
+     * @param active  array of at least {@link #size()} elements receiving the indices of the terms with a nonzero
+     *                degree of membership, in ascending order for a term set that is not an ordered partition and in
+     *                the order of the supports otherwise
+     * @return the number of terms with a nonzero degree of membership
+     */
+    public int fuzzify(double x, double[] degrees, int offset, int[] active) {
+        fuzzify(x, degrees, offset);
+        int count = 0;
+        if (order != null && x == x) {
+            int k = countStartsBelow(x);
+            for (int j = Math.max(0, k - 2); j < k; j++) {
+                if (degrees[offset + order[j]] != 0) {
+                    active[count++] = order[j];
+                }
+            }
+        } else {
+            for (int i = 0; i < start.length; i++) {
+                if (degrees[offset + i] != 0) {
+                    active[count++] = i;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Computes the degree of membership of a crisp input value for a single term.
+     *
+     * @param i       the index of the term
+     * @param x       crisp input value
+     * @param degrees array receiving the degrees of membership
+     * @param offset  position in <code>degrees</code> of the first term
+     */
+    public void fuzzifyTerm(int i, double x, double[] degrees, int offset) {
+        double h = height[i];
+        double ascending = h * (x - start[i]) / ascent[i];
+        double descending = h * (end[i] - x) / descent[i];
+        degrees[offset + i] = Math.max(0.0, Math.min(h, Math.min(ascending, descending)));
+    }
+
+    /**
+     * Returns the number of terms of an ordered partition whose support starts below the given value. The degree of
+     * membership of a term is zero at and outside its support, hence only the last two of these terms may be nonzero.
+     */
+    private int countStartsBelow(double x) {
+        int low = 0;
+        int high = sortedStart.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedStart[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns whether the terms form an ordered partition, which is fuzzified by a binary search.
+     *
+     * @return true if at most two terms are fuzzified per value
+     */
+    public boolean isSortedLayout() {
+        return order != null;
+    }
+
+    /**
+     * Computes the degree of membership of a crisp input value for all terms in single precision.
+     *
+     * @param x       crisp input value
+     * @param degrees array receiving the degrees of membership
+     * @param offset  position in <code>degrees</code> of the first term
+     */
+    public void fuzzify(float x, float[] degrees, int offset) {
+        for (int i = 0; i < floatStart.length; i++) {
+            float h = floatHeight[i];
+            float ascending = h * (x - floatStart[i]) / floatAscent[i];
+            float descending = h * (floatEnd[i] - x) / floatDescent[i];
+            degrees[offset + i] = Math.max(0.0f, Math.min(h, Math.min(ascending, descending)));
+        }
+    }
+
+    /**
+     * Returns the index of the given linguistic term.
+     *
+     * @param name the name of linguistic term
+     * @return index of the term or -1 if the term is not a member of the term set
+     */
+    public int indexOf(String name) {
+        String term = name.toLowerCase();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(term)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public double getStart(int index) {
+        return start[index];
+    }
+
+    public double getLeft_top(int index) {
+        return leftTop[index];
+    }
+
+    public double getRight_top(int index) {
+        return rightTop[index];
+    }
+
+    public double getEnd(int index) {
+        return end[index];
+    }
+
+    public double getHeight(int index) {
+        return height[index];
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return number of terms
+     */
+    public int size() {
+        return names.length;
+    }
+
+}
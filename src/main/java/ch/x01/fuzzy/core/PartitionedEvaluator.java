@@ -0,0 +1,286 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.SymbolTable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class evaluates the rules of a very large rule base in partitions, which are processed by several threads
+ * within a single evaluation.
+ * <p>
+ * The rules are split into contiguous ranges of about equal size. The premises of every range are compiled into a
+ * {@link PremiseNetwork} of their own, thus shared premises are evaluated once per partition. An evaluation runs in
+ * two phases: the first computes the degrees of relevance of every partition and the support of its firing
+ * conclusions; the second aggregates the conclusions of every partition into a partial superposition on the common
+ * grid. The partial superpositions are merged by maximum before the center of mass is computed. Since the maximum is
+ * associative, the result is identical to the one of {@link Defuzzifier#defuzzify(double[], int, double[])}.
+ * </p>
+ * An instance holds no evaluation state and may be shared by several threads; the state is held by an
+ * {@link Evaluation}.
+ */
+public class PartitionedEvaluator {
+
+    private final int[] fromRules;
+    private final PremiseNetwork[] networks;
+    private final int[][] inputIndices;
+    private final Defuzzifier defuzzifier;
+
+    /**
+     * Compiles the premises of the given rules in partitions.
+     *
+     * @param rules       the parsed rules
+     * @param symbolTable the table where linguistic variables and its terms are registered
+     * @param network     the premise network of all rules, which defines the order of the input values
+     * @param defuzzifier the defuzzifier of all rules
+     * @param partitions  the number of partitions, at most the number of rules
+     */
+    public PartitionedEvaluator(List<FuzzyRule> rules, SymbolTable symbolTable, PremiseNetwork network,
+                                Defuzzifier defuzzifier, int partitions) {
+        int count = Math.max(1, Math.min(partitions, rules.size()));
+        this.fromRules = new int[count + 1];
+        this.networks = new PremiseNetwork[count];
+        this.inputIndices = new int[count][];
+        this.defuzzifier = defuzzifier;
+
+        for (int p = 0; p < count; p++) {
+            fromRules[p + 1] = (int) ((long) rules.size() * (p + 1) / count);
+            networks[p] = new PremiseNetwork(rules.subList(fromRules[p], fromRules[p + 1]), symbolTable);
+            inputIndices[p] = new int[networks[p].getVariableCount()];
+            for (int v = 0; v < inputIndices[p].length; v++) {
+                inputIndices[p][v] = network.indexOf(networks[p].getVariableName(v));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return number of partitions
+     */
+    public int getPartitionCount() {
+        return networks.length;
+    }
+
+    /**
+     * Creates the state of evaluations, which is used by one thread at a time.
+     *
+     * @param executor the executor running the partitions, in addition to the calling thread
+     * @return the evaluation state
+     */
+    public Evaluation newEvaluation(Executor executor) {
+        return new Evaluation(executor);
+    }
+
+    /**
+     * The state of the evaluations of a partitioned rule base.
+     * <p>
+     * The calling thread submits a helper per additional partition to the executor and then processes partitions
+     * itself. A partition is claimed by the first thread to get to it, so that an evaluation completes even if the
+     * executor is busy or runs the helpers late; a helper starting after its evaluation finds nothing left to do.
+     * </p>
+     */
+    public final class Evaluation {
+        private static final int PREMISES = 0;
+        private static final int CONCLUSIONS = 1;
+
+        private final Executor executor;
+        private final Runnable helper = this::work;
+        private final AtomicInteger next = new AtomicInteger(networks.length);
+        private final double[][] inputs;
+        private final double[][] values;
+        private final double[][] degrees;
+        private final double[] minSupports;
+        private final double[] maxSupports;
+        private final boolean[] fired;
+        private double[][] grids;
+
+        // the current phase and its arguments, published by the write to next
+        private int phase;
+        private double[] phaseInputs;
+        private double[] phaseDegrees;
+        private double minSupport;
+        private double increment;
+        private int length;
+
+        // guarded by this
+        private int completed;
+        private Throwable failure;
+
+        private Evaluation(Executor executor) {
+            this.executor = executor;
+            int count = networks.length;
+            this.inputs = new double[count][];
+            this.values = new double[count][];
+            this.degrees = new double[count][];
+            for (int p = 0; p < count; p++) {
+                inputs[p] = new double[networks[p].getVariableCount()];
+                values[p] = new double[networks[p].getNodeCount()];
+                degrees[p] = new double[networks[p].getRuleCount()];
+            }
+            this.minSupports = new double[count];
+            this.maxSupports = new double[count];
+            this.fired = new boolean[count];
+            this.grids = new double[count][0];
+        }
+
+        /**
+         * Computes the degree of relevance of all rules.
+         *
+         * @param inputValues        crisp input values in the order of the premise network of all rules
+         * @param degreesOfRelevance array receiving the degree of relevance of every rule in the order the rules
+         *                           were given
+         */
+        public void evaluatePremises(double[] inputValues, double[] degreesOfRelevance) {
+            phaseInputs = inputValues;
+            phaseDegrees = degreesOfRelevance;
+            fork(PREMISES);
+        }
+
+        /**
+         * Computes the crisp output value from the degrees of relevance computed by the last call of
+         * {@link #evaluatePremises(double[], double[])}.
+         *
+         * @param numOfSteps number of discrete steps
+         * @return X<sub>s</sub>, the value of the x-coordinate of center of mass, or NaN if no rule fires
+         */
+        public double defuzzify(int numOfSteps) {
+            // the support of the firing conclusions, a zero function contributes 0
+            double min = 0.0;
+            double max = 0.0;
+            for (int p = 0; p < networks.length; p++) {
+                if (fired[p]) {
+                    min = Math.min(min, minSupports[p]);
+                    max = Math.max(max, maxSupports[p]);
+                }
+            }
+            minSupport = min;
+            increment = Math.abs((max - min) / numOfSteps);
+            length = numOfSteps + 1;
+            fork(CONCLUSIONS);
+
+            // merge the partial superpositions
+            double[] grid = null;
+            for (int p = 0; p < networks.length; p++) {
+                if (fired[p]) {
+                    if (grid == null) {
+                        grid = grids[p];
+                    } else {
+                        double[] partial = grids[p];
+                        for (int i = 0; i < length; i++) {
+                            grid[i] = Math.max(grid[i], partial[i]);
+                        }
+                    }
+                }
+            }
+            if (grid == null) {
+                grid = grids[0];
+                Arrays.fill(grid, 0, length, 0.0);
+            }
+            return defuzzifier.centerOfMass(minSupport, increment, grid, length);
+        }
+
+        private void fork(int phase) {
+            this.phase = phase;
+            if (phase == CONCLUSIONS && grids[0].length < length) {
+                for (int p = 0; p < networks.length; p++) {
+                    grids[p] = new double[length];
+                }
+            }
+            synchronized (this) {
+                completed = 0;
+                failure = null;
+            }
+            next.set(0);
+
+            for (int p = 1; p < networks.length; p++) {
+                try {
+                    executor.execute(helper);
+                } catch (RejectedExecutionException e) {
+                    // the calling thread processes the partitions
+                    break;
+                }
+            }
+            work();
+
+            // the partitions claimed by helpers are being processed
+            boolean interrupted = false;
+            Throwable cause;
+            synchronized (this) {
+                while (completed < networks.length) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                cause = failure;
+            }
+            if (interrupted) {
+                Thread.currentThread()
+                      .interrupt();
+            }
+            if (cause != null) {
+                throw new RuntimeException(String.format("Cannot evaluate partitioned rules because a partition failed: %s",
+                                                         cause), cause);
+            }
+        }
+
+        private void work() {
+            for (int p = next.getAndIncrement(); p < networks.length; p = next.getAndIncrement()) {
+                try {
+                    if (phase == PREMISES) {
+                        evaluatePremises(p);
+                    } else if (fired[p]) {
+                        aggregate(p);
+                    }
+                } catch (Throwable t) {
+                    synchronized (this) {
+                        if (failure == null) {
+                            failure = t;
+                        }
+                    }
+                } finally {
+                    synchronized (this) {
+                        if (++completed == networks.length) {
+                            notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+
+        private void evaluatePremises(int p) {
+            int[] indices = inputIndices[p];
+            for (int v = 0; v < indices.length; v++) {
+                inputs[p][v] = phaseInputs[indices[v]];
+            }
+            networks[p].evaluate(inputs[p], values[p], degrees[p]);
+            System.arraycopy(degrees[p], 0, phaseDegrees, fromRules[p], degrees[p].length);
+
+            boolean any = false;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = fromRules[p]; i < fromRules[p + 1]; i++) {
+                if (phaseDegrees[i] != 0) {
+                    any = true;
+                    min = Math.min(min, defuzzifier.getStart(i));
+                    max = Math.max(max, defuzzifier.getEnd(i));
+                }
+            }
+            fired[p] = any;
+            minSupports[p] = min;
+            maxSupports[p] = max;
+        }
+
+        private void aggregate(int p) {
+            double[] grid = grids[p];
+            Arrays.fill(grid, 0, length, 0.0);
+            defuzzifier.aggregate(phaseDegrees, fromRules[p], fromRules[p + 1], minSupport, increment, length, grid);
+        }
+    }
+
+}
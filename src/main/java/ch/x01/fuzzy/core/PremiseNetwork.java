@@ -0,0 +1,442 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.SymbolTable;
+import ch.x01.fuzzy.parser.Token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * This class compiles the premises of a set of parsed fuzzy rules into one shared expression graph.
+ * <p>
+ * Every distinct fuzzification <code>x is a</code> and every distinct sub-expression, such as
+ * <code>(x<sub>1</sub> is a<sub>1</sub> and x<sub>2</sub> is a<sub>2</sub>)</code>, is represented by exactly one
+ * node regardless of how many rules refer to it. Since the operators are commutative, the operands of a node are
+ * ordered before the node is looked up, i.e. <code>(a and b)</code> and <code>(b and a)</code> share the same node.
+ * </p>
+ * <p>
+ * The first nodes form the term-degree vector: the term sets of all linguistic variables used within the premises
+ * are stored as {@link PackedTermSet} and fuzzified in bulk, one variable after the other. The operator nodes
+ * follow in topological order, thus a single pass over the nodes computes the <i>degree of relevance (H)</i> of
+ * all rules, evaluating every node exactly once.
+ * </p>
+ * An instance holds no evaluation state and may be shared by several threads.
+ */
+public class PremiseNetwork {
+
+    private static final int AND = 1;
+    private static final int OR = 2;
+
+    private final String[] variables;
+    private final PackedTermSet[] termSets;
+    private final int[] offsets;
+    private final int termCount;
+    private final int[] kinds;
+    private final int[] operands1;
+    private final int[] operands2;
+    private final int[] ruleNodes;
+    private final int referencedNodes;
+
+    /**
+     * Compiles the premises of the given rules.
+     *
+     * @param rules       the parsed rules
+     * @param symbolTable the table where linguistic variables and its terms are registered
+     */
+    public PremiseNetwork(List<FuzzyRule> rules, SymbolTable symbolTable) {
+        // lay out the term-degree vector
+        Map<String, PackedTermSet> layout = new LinkedHashMap<>();
+        for (FuzzyRule rule : rules) {
+            if (rule.getStatus() != FuzzyRuleStatus.DONE) {
+                throw new RuntimeException(
+                        String.format("Cannot compute degree of relevance of rule \"%s\" because its status is \"%s\". %s",
+                                      rule.getRuleText(), rule.getStatus(), rule.getParsingError()));
+            }
+            Stack<String> premises = rule.getPremises();
+            for (int i = 0; i < premises.size(); i++) {
+                if (premises.get(i)
+                            .equals(Token.IS.toString())) {
+                    LinguisticVariable lv = symbolTable.getLV(premises.get(i - 2));
+                    layout.computeIfAbsent(lv.getName(), k -> new PackedTermSet(lv));
+                }
+            }
+        }
+
+        this.variables = layout.keySet()
+                               .toArray(new String[0]);
+        this.termSets = layout.values()
+                              .toArray(new PackedTermSet[0]);
+        this.offsets = new int[termSets.length];
+        int count = 0;
+        for (int v = 0; v < termSets.length; v++) {
+            this.offsets[v] = count;
+            count += termSets[v].size();
+        }
+        this.termCount = count;
+
+        // compile premises
+        Builder builder = new Builder();
+
+        this.ruleNodes = new int[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            this.ruleNodes[i] = builder.add(rules.get(i));
+        }
+
+        int size = builder.kinds.size();
+        this.kinds = new int[size];
+        this.operands1 = new int[size];
+        this.operands2 = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.kinds[i] = builder.kinds.get(i);
+            this.operands1[i] = builder.operands1.get(i);
+            this.operands2[i] = builder.operands2.get(i);
+        }
+        this.referencedNodes = builder.referencedNodes;
+    }
+
+    /**
+     * Computes the degree of relevance of all rules.
+     *
+     * @param inputs  crisp input values in the order of {@link #getVariableName(int)}
+     * @param values  scratch array of length {@link #getNodeCount()} receiving the value of every node
+     * @param results array of length {@link #getRuleCount()} receiving the degree of relevance of every rule in
+     *                the order the rules were given
+     */
+    public void evaluate(double[] inputs, double[] values, double[] results) {
+        for (int v = 0; v < termSets.length; v++) {
+            termSets[v].fuzzify(inputs[v], values, offsets[v]);
+        }
+
+        for (int k = 0, i = termCount; k < kinds.length; k++, i++) {
+            if (kinds[k] == AND) {
+                values[i] = Math.min(values[operands1[k]], values[operands2[k]]);
+            } else {
+                values[i] = Math.max(values[operands1[k]], values[operands2[k]]);
+            }
+        }
+
+        for (int i = 0; i < ruleNodes.length; i++) {
+            results[i] = values[ruleNodes[i]];
+        }
+    }
+
+    /**
+     * Computes the term degrees only, i.e. the first {@link #getTermCount()} elements of <code>values</code>.
+     *
+     * @param inputs crisp input values in the order of {@link #getVariableName(int)}
+     * @param values scratch array of length {@link #getNodeCount()} receiving the term degrees
+     */
+    public void fuzzify(double[] inputs, double[] values) {
+        for (int v = 0; v < termSets.length; v++) {
+            termSets[v].fuzzify(inputs[v], values, offsets[v]);
+        }
+    }
+
+    /**
+     * Computes the degree of relevance of all rules in single precision, see
+     * {@link #evaluate(double[], double[], double[])}.
+     *
+     * @param inputs  crisp input values in the order of {@link #getVariableName(int)}
+     * @param values  scratch array of length {@link #getNodeCount()} receiving the value of every node
+     * @param results array of length {@link #getRuleCount()} receiving the degree of relevance of every rule in
+     *                the order the rules were given
+     */
+    public void evaluate(float[] inputs, float[] values, float[] results) {
+        for (int v = 0; v < termSets.length; v++) {
+            termSets[v].fuzzify(inputs[v], values, offsets[v]);
+        }
+
+        for (int k = 0, i = termCount; k < kinds.length; k++, i++) {
+            if (kinds[k] == AND) {
+                values[i] = Math.min(values[operands1[k]], values[operands2[k]]);
+            } else {
+                values[i] = Math.max(values[operands1[k]], values[operands2[k]]);
+            }
+        }
+
+        for (int i = 0; i < ruleNodes.length; i++) {
+            results[i] = values[ruleNodes[i]];
+        }
+    }
+
+    /**
+     * Computes the operator nodes and the degree of relevance of all rules from the term degrees, which the caller
+     * has stored in the first elements of <code>values</code>, see {@link #getOffset(int)}. This allows the term
+     * degrees to be computed in a different arithmetic, e.g. by {@link FixedPointEvaluator}.
+     *
+     * @param values  array of length {@link #getNodeCount()} holding the term degrees and receiving the value of
+     *                every operator node
+     * @param results array of length {@link #getRuleCount()} receiving the degree of relevance of every rule in
+     *                the order the rules were given
+     */
+    void evaluateOperators(int[] values, int[] results) {
+        for (int k = 0, i = termCount; k < kinds.length; k++, i++) {
+            if (kinds[k] == AND) {
+                values[i] = Math.min(values[operands1[k]], values[operands2[k]]);
+            } else {
+                values[i] = Math.max(values[operands1[k]], values[operands2[k]]);
+            }
+        }
+
+        for (int i = 0; i < ruleNodes.length; i++) {
+            results[i] = values[ruleNodes[i]];
+        }
+    }
+
+    /**
+     * Computes the given operator nodes from the term degrees and the operator nodes they depend on, see
+     * {@link CellDecomposition}.
+     *
+     * @param nodes  the indices of the operator nodes in ascending, i.e. topological, order
+     * @param values array of length {@link #getNodeCount()} holding the term degrees and receiving the value of the
+     *               operator nodes
+     */
+    void evaluateOperators(int[] nodes, double[] values) {
+        for (int i : nodes) {
+            int k = i - termCount;
+            if (kinds[k] == AND) {
+                values[i] = Math.min(values[operands1[k]], values[operands2[k]]);
+            } else {
+                values[i] = Math.max(values[operands1[k]], values[operands2[k]]);
+            }
+        }
+    }
+
+    /**
+     * Determines the operator nodes that may have a nonzero value, given the term degrees that may be nonzero. A
+     * conjunction may be nonzero if both of its operands may be, a disjunction if either of them may be.
+     *
+     * @param nonzero array of length {@link #getNodeCount()} holding whether a term degree may be nonzero and
+     *                receiving whether an operator node may be nonzero
+     */
+    void propagateNonzero(boolean[] nonzero) {
+        for (int k = 0, i = termCount; k < kinds.length; k++, i++) {
+            if (kinds[k] == AND) {
+                nonzero[i] = nonzero[operands1[k]] && nonzero[operands2[k]];
+            } else {
+                nonzero[i] = nonzero[operands1[k]] || nonzero[operands2[k]];
+            }
+        }
+    }
+
+    /**
+     * Marks the nodes the marked nodes depend on.
+     *
+     * @param marked array of length {@link #getNodeCount()} holding the marked nodes, e.g. the nodes of some rules,
+     *               and receiving the nodes they depend on
+     */
+    void markOperands(boolean[] marked) {
+        for (int k = kinds.length - 1, i = termCount + k; k >= 0; k--, i--) {
+            if (marked[i]) {
+                marked[operands1[k]] = true;
+                marked[operands2[k]] = true;
+            }
+        }
+    }
+
+    /**
+     * Propagates the derivatives of a function of the nodes back to the operands, see {@link GradientEvaluator}. The
+     * derivative of a minimum or maximum is added to the operand that is equal to it, to the first operand if both
+     * are.
+     *
+     * @param values      array of length {@link #getNodeCount()} holding the value of every node
+     * @param derivatives array of length {@link #getNodeCount()} holding the derivatives with respect to the nodes,
+     *                    to which the derivatives with respect to the operands are added
+     */
+    void propagateDerivatives(double[] values, double[] derivatives) {
+        for (int k = kinds.length - 1, i = termCount + k; k >= 0; k--, i--) {
+            double derivative = derivatives[i];
+            if (derivative != 0) {
+                double operand1 = values[operands1[k]];
+                double operand2 = values[operands2[k]];
+                boolean first = kinds[k] == AND ? operand1 <= operand2 : operand1 >= operand2;
+                derivatives[first ? operands1[k] : operands2[k]] += derivative;
+            }
+        }
+    }
+
+    /**
+     * Returns whether an operator node is a conjunction, i.e. the minimum of its operands, or a disjunction.
+     *
+     * @param node the index of the operator node
+     * @return true if the node is a conjunction
+     */
+    boolean isConjunction(int node) {
+        return kinds[node - termCount] == AND;
+    }
+
+    /**
+     * Returns the first operand of an operator node.
+     *
+     * @param node the index of the operator node
+     * @return the index of the operand node
+     */
+    int getOperand1(int node) {
+        return operands1[node - termCount];
+    }
+
+    /**
+     * Returns the second operand of an operator node.
+     *
+     * @param node the index of the operator node
+     * @return the index of the operand node
+     */
+    int getOperand2(int node) {
+        return operands2[node - termCount];
+    }
+
+    /**
+     * Returns the node whose value is the degree of relevance of a rule.
+     *
+     * @param rule the index of the rule
+     * @return the index of the node
+     */
+    int getRuleNode(int rule) {
+        return ruleNodes[rule];
+    }
+
+    /**
+     * Returns the term set of a linguistic variable.
+     *
+     * @param index the index of the variable
+     * @return the term set
+     */
+    public PackedTermSet getTermSet(int index) {
+        return termSets[index];
+    }
+
+    /**
+     * Returns the position of the first term of a linguistic variable within the term-degree vector.
+     *
+     * @param index the index of the variable
+     * @return the offset of the variable's term degrees
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the number of term degrees, i.e. the number of the first nodes holding the degrees of membership of
+     * the terms.
+     *
+     * @return number of terms
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * Returns the number of distinct nodes, i.e. the number of term degrees and operations computed by
+     * {@link #evaluate}.
+     *
+     * @return number of nodes
+     */
+    public int getNodeCount() {
+        return termCount + kinds.length;
+    }
+
+    /**
+     * Returns the number of nodes the premises would consist of without sharing.
+     *
+     * @return number of referenced nodes
+     */
+    public int getReferencedNodeCount() {
+        return referencedNodes;
+    }
+
+    public int getRuleCount() {
+        return ruleNodes.length;
+    }
+
+    /**
+     * Returns the number of linguistic variables used within the premises.
+     *
+     * @return number of variables
+     */
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    public String getVariableName(int index) {
+        return variables[index];
+    }
+
+    /**
+     * Returns the index of the given linguistic variable.
+     *
+     * @param name the name of the linguistic variable
+     * @return index of the variable or -1 if the variable is not used within the premises
+     */
+    public int indexOf(String name) {
+        for (int v = 0; v < variables.length; v++) {
+            if (variables[v].equalsIgnoreCase(name)) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "PremiseNetwork{" +
+                "rules=" + ruleNodes.length +
+                ", terms=" + termCount +
+                ", nodes=" + getNodeCount() +
+                ", referencedNodes=" + referencedNodes +
+                '}';
+    }
+
+    /**
+     * Collects the operator nodes while the premises are compiled.
+     */
+    private class Builder {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<Integer> operands1 = new ArrayList<>();
+        private final List<Integer> operands2 = new ArrayList<>();
+        private int referencedNodes;
+
+        int add(FuzzyRule rule) {
+            // see FuzzyRule.computeDegreeOfRelevance()
+            Stack<String> premises = rule.getPremises();
+            Stack<Integer> stack = new Stack<>();
+
+            for (int i = 0; i < premises.size(); i++) {
+                String token = premises.get(i);
+
+                if (token.equals(Token.IS.toString())) {
+                    int v = indexOf(premises.get(i - 2));
+                    referencedNodes++;
+                    stack.push(offsets[v] + termSets[v].indexOf(premises.get(i - 1)));
+                }
+
+                if (token.equals(Token.AND.toString()) || token.equals(Token.OR.toString())) {
+                    int operand2 = stack.pop();
+                    int operand1 = stack.pop();
+                    int kind = token.equals(Token.AND.toString()) ? AND : OR;
+                    stack.push(node(kind, Math.min(operand1, operand2), Math.max(operand1, operand2)));
+                }
+            }
+
+            return stack.pop();
+        }
+
+        private int node(int kind, int operand1, int operand2) {
+            referencedNodes++;
+            String key = kind + ":" + operand1 + ":" + operand2;
+            Integer result = index.get(key);
+            if (result == null) {
+                result = termCount + kinds.size();
+                kinds.add(kind);
+                operands1.add(operand1);
+                operands2.add(operand2);
+                index.put(key, result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import ch.x01.fuzzy.parser.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.TreeMap;
+
+/**
+ * This class implements a lossless optimization pass over a set of parsed fuzzy rules.
+ * <p>
+ * The premise of each rule is rebuilt from its postfix form and brought into a canonical form, that is
+ * <ul>
+ * <li>nested operators of the same kind are flattened, e.g. <code>(a and (b and c))</code> becomes
+ * <code>(a and b and c)</code></li>
+ * <li>duplicate operands are removed, e.g. <code>(a and a)</code> becomes <code>a</code></li>
+ * <li>subsumed operands are removed, e.g. <code>(a or (a and b))</code> becomes <code>a</code></li>
+ * <li>operands are sorted</li>
+ * </ul>
+ * Rules with the same conclusion <code>y is b</code> are merged into a single rule whose premise is the
+ * disjunction of the original premises. Since the conclusions are aggregated with the max-operator,
+ * <code>max{min{H<sub>1</sub>, u<sub>b</sub>(x)}, min{H<sub>2</sub>, u<sub>b</sub>(x)}} = min{max{H<sub>1</sub>,
+ * H<sub>2</sub>}, u<sub>b</sub>(x)}</code> holds and the result of the inference is not changed.
+ * </p>
+ * Erroneous rules are passed through untouched, so that evaluating them still fails as before.
+ */
+public class RuleBaseOptimizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RuleBaseOptimizer.class);
+
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructs a rule base optimizer.
+     *
+     * @param symbolTable the table where linguistic variables and its terms are registered
+     */
+    public RuleBaseOptimizer(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Counts the operations needed to evaluate a parsed rule, that is, one operation for every fuzzification and
+     * every fuzzy operator of the premise and one operation for reasoning the conclusion.
+     *
+     * @param rule the parsed rule
+     * @return number of operations
+     */
+    static int countOperations(FuzzyRule rule) {
+        int result = 1;
+        for (String token : rule.getPremises()) {
+            if (isOperator(token)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isOperator(String token) {
+        return token.equals(Token.IS.toString()) || token.equals(Token.AND.toString()) || token.equals(Token.OR.toString());
+    }
+
+    /**
+     * Rebuilds the premise of a parsed rule as an expression tree. The tree reflects the way
+     * {@link FuzzyRule#computeDegreeOfRelevance()} evaluates the postfix form, i.e. the topmost operand
+     * remaining on the stack determines the degree of relevance.
+     */
+    private static Expression toExpression(Stack<String> premises) {
+        Stack<Expression> stack = new Stack<>();
+
+        for (int i = 0; i < premises.size(); i++) {
+            String token = premises.get(i);
+
+            if (token.equals(Token.IS.toString())) {
+                stack.push(new Atom(premises.get(i - 2), premises.get(i - 1)));
+            }
+
+            if (token.equals(Token.AND.toString()) || token.equals(Token.OR.toString())) {
+                Expression operand2 = stack.pop();
+                Expression operand1 = stack.pop();
+                List<Expression> operands = new ArrayList<>();
+                operands.add(operand1);
+                operands.add(operand2);
+                stack.push(new Operation(token, operands));
+            }
+        }
+
+        return stack.pop();
+    }
+
+    /**
+     * Brings an expression into its canonical form.
+     */
+    private static Expression normalize(Expression expression) {
+        if (expression instanceof Atom) {
+            return expression;
+        }
+
+        Operation operation = (Operation) expression;
+
+        // flatten operands of the same kind and remove duplicates
+        Map<String, Expression> operands = new TreeMap<>();
+        for (Expression operand : operation.operands) {
+            Expression normalized = normalize(operand);
+            if (normalized instanceof Operation && ((Operation) normalized).operator.equals(operation.operator)) {
+                for (Expression inner : ((Operation) normalized).operands) {
+                    operands.put(inner.key, inner);
+                }
+            } else {
+                operands.put(normalized.key, normalized);
+            }
+        }
+
+        // remove subsumed operands: an operand of the dual kind is redundant if another operand covers a subset
+        // of its operands, e.g. min{max{A}, max{A, B}} = max{A} and max{min{A}, min{A, B}} = min{A}
+        List<Expression> candidates = new ArrayList<>(operands.values());
+        for (Expression candidate : candidates) {
+            if (candidate instanceof Operation) {
+                for (Expression other : candidates) {
+                    if (other != candidate && operands.containsKey(other.key) &&
+                            candidate.operandKeys().containsAll(other.operandKeysFor(operation.operator))) {
+                        operands.remove(candidate.key);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (operands.size() == 1) {
+            return operands.values()
+                           .iterator()
+                           .next();
+        }
+
+        return new Operation(operation.operator, new ArrayList<>(operands.values()));
+    }
+
+    /**
+     * Creates a parsed rule from a canonical premise and a conclusion of the form <code>y is b</code>.
+     * <p>
+     * The postfix form of the premise is generated directly since the rule parser evaluates the operators of
+     * a bracket only in the order of their appearance (see {@link RuleParser}).
+     * </p>
+     */
+    private FuzzyRule toRule(Expression premise, String conclusion) {
+        FuzzyRule result = new FuzzyRule("if " + premise.toText() + " then " + conclusion, symbolTable);
+
+        premise.toPostfix(result.getPremises());
+
+        String[] parts = conclusion.split(" is ");
+        result.getConclusion()
+              .push(parts[0]);
+        result.getConclusion()
+              .push(parts[1]);
+        result.getConclusion()
+              .push(Token.IS.toString());
+
+        result.setStatus(FuzzyRuleStatus.DONE);
+
+        return result;
+    }
+
+    /**
+     * Optimizes the given rules.
+     *
+     * @param rules the parsed rules
+     * @return the report of the optimization including the optimized rules
+     */
+    public Report optimize(Collection<FuzzyRule> rules) {
+        List<FuzzyRule> result = new ArrayList<>();
+        Map<String, List<Expression>> premisesByConclusion = new LinkedHashMap<>();
+
+        int operationsBefore = 0;
+        for (FuzzyRule rule : rules) {
+            if (rule.getStatus() != FuzzyRuleStatus.DONE) {
+                result.add(rule);
+                continue;
+            }
+            operationsBefore += countOperations(rule);
+
+            // if the conclusion is '... then y is b' --> conclusion = [y b is]
+            String conclusion = rule.getConclusion()
+                                    .get(0) + " is " + rule.getConclusion()
+                                                           .get(1);
+            premisesByConclusion.computeIfAbsent(conclusion, k -> new ArrayList<>())
+                                .add(toExpression(rule.getPremises()));
+        }
+
+        int operationsAfter = 0;
+        for (Map.Entry<String, List<Expression>> entry : premisesByConclusion.entrySet()) {
+            List<Expression> premises = entry.getValue();
+            Expression premise = normalize(premises.size() == 1 ? premises.get(0) : new Operation(Token.OR.toString(), premises));
+
+            FuzzyRule rule = toRule(premise, entry.getKey());
+            operationsAfter += countOperations(rule);
+            result.add(rule);
+        }
+
+        Report report = new Report(result, rules.size(), operationsBefore, operationsAfter);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(report.toString());
+            result.forEach(rule -> logger.debug(String.format("Optimized rule \"%s\".", rule.getRuleText())));
+        }
+
+        return report;
+    }
+
+    /**
+     * The result of an optimization.
+     */
+    public static class Report {
+
+        private final List<FuzzyRule> rules;
+        private final int rulesBefore;
+        private final int operationsBefore;
+        private final int operationsAfter;
+
+        private Report(List<FuzzyRule> rules, int rulesBefore, int operationsBefore, int operationsAfter) {
+            this.rules = Collections.unmodifiableList(rules);
+            this.rulesBefore = rulesBefore;
+            this.operationsBefore = operationsBefore;
+            this.operationsAfter = operationsAfter;
+        }
+
+        /**
+         * Returns the optimized rules. Erroneous rules are contained as they were given.
+         *
+         * @return optimized rules
+         */
+        public List<FuzzyRule> getRules() {
+            return rules;
+        }
+
+        public int getRemovedRules() {
+            return rulesBefore - rules.size();
+        }
+
+        public int getRemovedOperations() {
+            return operationsBefore - operationsAfter;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "rules=" + rulesBefore + " -> " + rules.size() +
+                    ", operations=" + operationsBefore + " -> " + operationsAfter +
+                    '}';
+        }
+    }
+
+    /**
+     * A node of a premise in canonical form. The key identifies the node's canonical form.
+     */
+    private abstract static class Expression {
+        final String key;
+
+        Expression(String key) {
+            this.key = key;
+        }
+
+        abstract String toText();
+
+        abstract void toPostfix(Stack<String> stack);
+
+        abstract List<String> operandKeys();
+
+        /**
+         * Returns the keys of the operands this expression covers if it is an operand of the given operator.
+         */
+        List<String> operandKeysFor(String enclosingOperator) {
+            return Collections.singletonList(key);
+        }
+    }
+
+    private static class Atom extends Expression {
+        private final String lv;
+        private final String lt;
+
+        Atom(String lv, String lt) {
+            super(lv + " is " + lt);
+            this.lv = lv;
+            this.lt = lt;
+        }
+
+        @Override
+        String toText() {
+            return lv + " is " + lt;
+        }
+
+        @Override
+        void toPostfix(Stack<String> stack) {
+            stack.push(lv);
+            stack.push(lt);
+            stack.push(Token.IS.toString());
+        }
+
+        @Override
+        List<String> operandKeys() {
+            return Collections.singletonList(key);
+        }
+    }
+
+    private static class Operation extends Expression {
+        private final String operator;
+        private final List<Expression> operands;
+
+        Operation(String operator, List<Expression> operands) {
+            super(createKey(operator, operands));
+            this.operator = operator;
+            this.operands = operands;
+        }
+
+        private static String createKey(String operator, List<Expression> operands) {
+            StringBuilder builder = new StringBuilder(operator).append('(');
+            for (int i = 0; i < operands.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(operands.get(i).key);
+            }
+            return builder.append(')')
+                          .toString();
+        }
+
+        @Override
+        String toText() {
+            StringBuilder builder = new StringBuilder("(");
+            for (int i = 0; i < operands.size(); i++) {
+                if (i > 0) {
+                    builder.append(' ')
+                           .append(operator.toLowerCase())
+                           .append(' ');
+                }
+                builder.append(operands.get(i)
+                                       .toText());
+            }
+            return builder.append(')')
+                          .toString();
+        }
+
+        @Override
+        void toPostfix(Stack<String> stack) {
+            operands.get(0)
+                    .toPostfix(stack);
+            for (int i = 1; i < operands.size(); i++) {
+                operands.get(i)
+                        .toPostfix(stack);
+                stack.push(operator);
+            }
+        }
+
+        @Override
+        List<String> operandKeys() {
+            List<String> result = new ArrayList<>();
+            operands.forEach(operand -> result.add(operand.key));
+            return result;
+        }
+
+        @Override
+        List<String> operandKeysFor(String enclosingOperator) {
+            // an operation of the same kind as the enclosing one would have been flattened, thus only an
+            // operation of the dual kind can cover another one
+            return operator.equals(enclosingOperator) ? Collections.singletonList(key) : operandKeys();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ch.x01.fuzzy.core;
+
+/**
+ * The scalar grid kernels. The loops are free of branches, so that the JIT compiler may unroll and vectorise them.
+ */
+class ScalarGridKernels extends GridKernels {
+
+    static final ScalarGridKernels INSTANCE = new ScalarGridKernels();
+
+    private ScalarGridKernels() {
+    }
+
+    @Override
+    public void aggregate(double from, double increment, double[] y, int fromIndex, int toIndex,
+                          double start, double ascendingSlope, double descendingSlope, double end, double height) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            double x = from + increment * i;
+            double ascending = (x - start) * ascendingSlope;
+            double descending = (end - x) * descendingSlope;
+            y[i] = Math.max(y[i], Math.min(height, Math.min(ascending, descending)));
+        }
+    }
+
+    @Override
+    public double centerOfMass(double from, double increment, double[] y, int length) {
+        double sumNumerator = 0.0;
+        double sumDenominator = 0.0;
+
+        for (int i = 0; i < length - 1; i++) {
+            double x1 = from + increment * i;
+            double x2 = from + increment * (i + 1);
+
+            double xsi = 0.5 * (x1 + x2);
+            double Ai = 0.5 * (y[i] + y[i + 1]) * (x2 - x1);
+
+            sumNumerator += (xsi * Ai);
+            sumDenominator += Ai;
+        }
+
+        return sumNumerator / sumDenominator;
+    }
+
+    @Override
+    public void aggregate(float from, float increment, float[] y, int fromIndex, int toIndex,
+                          float start, float ascendingSlope, float descendingSlope, float end, float height) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            float x = from + increment * i;
+            float ascending = (x - start) * ascendingSlope;
+            float descending = (end - x) * descendingSlope;
+            y[i] = Math.max(y[i], Math.min(height, Math.min(ascending, descending)));
+        }
+    }
+
+    @Override
+    public float centerOfMass(float from, float increment, float[] y, int length) {
+        double sumNumerator = 0.0;
+        double sumDenominator = 0.0;
+
+        for (int i = 0; i < length - 1; i++) {
+            float x1 = from + increment * i;
+            float x2 = from + increment * (i + 1);
+
+            float xsi = 0.5f * (x1 + x2);
+            float Ai = 0.5f * (y[i] + y[i + 1]) * (x2 - x1);
+
+            sumNumerator += (xsi * Ai);
+            sumDenominator += Ai;
+        }
+
+        return (float) (sumNumerator / sumDenominator);
+    }
+
+}
@@ -0,0 +1,230 @@
+package ch.x01.fuzzy.core;
+
+import java.util.Arrays;
+
+/**
+ * This class evaluates the premises of a {@link PremiseNetwork} on demand, skipping the operands that cannot change
+ * the value of an operator.
+ * <p>
+ * The degree of relevance of every rule is computed from its node downwards. A conjunction is zero as soon as one
+ * of its operands is zero, and a disjunction equals its first operand if that operand reaches the upper bound of the
+ * second one, i.e. the largest height of the terms the second operand depends on. The second operand and the terms
+ * it depends on are then not computed at all. Every node is computed at most once per evaluation, as in
+ * {@link PremiseNetwork#evaluate(double[], double[], double[])}, and the skipped operands cannot change the minimum
+ * or maximum, hence the degrees of relevance are identical. Input values that are not finite, and term sets with
+ * parameters that are not finite, are evaluated by the premise network.
+ * </p>
+ * <p>
+ * Since the operators are commutative, either operand may be computed first. The evaluator counts how often every
+ * node is zero or at its upper bound, and every {@link #REORDER_INTERVAL} evaluations it puts first the operand of a
+ * conjunction that is zero more often, and the operand of a disjunction that reaches its bound more often. The counts
+ * are then halved, so that the order follows the input values of the recent evaluations.
+ * </p>
+ * The term degrees that are not needed are not computed, so that the values of the term nodes are valid for the
+ * computed nodes only. An instance holds evaluation state and is used by one thread at a time.
+ */
+public class ShortCircuitEvaluator {
+
+    /**
+     * The number of evaluations after which the operands are reordered.
+     */
+    public static final int REORDER_INTERVAL = 4096;
+
+    private final PremiseNetwork network;
+    private final boolean finite;
+    private final int termCount;
+    private final int[] termVariables;
+    private final int[] termIndices;
+    private final double[] bounds;
+    private final int[] firstOperands;
+    private final int[] secondOperands;
+    private final boolean[] conjunctions;
+
+    private final int[] stamps;
+    private final int[] stack;
+    private final int[] zeros;
+    private final int[] tops;
+    private int epoch;
+    private int evaluations;
+    private long skipped;
+
+    /**
+     * Creates an evaluator of the given premise network with the operands in the order of the network.
+     *
+     * @param network the premise network
+     */
+    public ShortCircuitEvaluator(PremiseNetwork network) {
+        this.network = network;
+        this.termCount = network.getTermCount();
+        int nodeCount = network.getNodeCount();
+        this.termVariables = new int[termCount];
+        this.termIndices = new int[termCount];
+        this.bounds = new double[nodeCount];
+
+        boolean finite = true;
+        for (int v = 0; v < network.getVariableCount(); v++) {
+            PackedTermSet termSet = network.getTermSet(v);
+            for (int t = 0; t < termSet.size(); t++) {
+                int node = network.getOffset(v) + t;
+                termVariables[node] = v;
+                termIndices[node] = t;
+                bounds[node] = Math.max(0.0, termSet.getHeight(t));
+                finite &= isFinite(termSet.getStart(t)) && isFinite(termSet.getLeft_top(t))
+                        && isFinite(termSet.getRight_top(t)) && isFinite(termSet.getEnd(t))
+                        && isFinite(termSet.getHeight(t));
+            }
+        }
+        this.finite = finite;
+
+        int operators = nodeCount - termCount;
+        this.firstOperands = new int[operators];
+        this.secondOperands = new int[operators];
+        this.conjunctions = new boolean[operators];
+        for (int k = 0, i = termCount; k < operators; k++, i++) {
+            firstOperands[k] = network.getOperand1(i);
+            secondOperands[k] = network.getOperand2(i);
+            conjunctions[k] = network.isConjunction(i);
+            bounds[i] = conjunctions[k] ? Math.min(bounds[firstOperands[k]], bounds[secondOperands[k]])
+                                        : Math.max(bounds[firstOperands[k]], bounds[secondOperands[k]]);
+        }
+
+        this.stamps = new int[nodeCount];
+        this.stack = new int[nodeCount];
+        this.zeros = new int[nodeCount];
+        this.tops = new int[nodeCount];
+    }
+
+    private static boolean isFinite(double value) {
+        return Math.abs(value) <= Double.MAX_VALUE;
+    }
+
+    /**
+     * Computes the degree of relevance of all rules.
+     *
+     * @param inputs  crisp input values in the order of {@link PremiseNetwork#getVariableName(int)}
+     * @param values  scratch array of length {@link PremiseNetwork#getNodeCount()} receiving the value of the
+     *                computed nodes
+     * @param results array of length {@link PremiseNetwork#getRuleCount()} receiving the degree of relevance of
+     *                every rule in the order the rules were given
+     */
+    public void evaluate(double[] inputs, double[] values, double[] results) {
+        boolean exact = finite;
+        for (int v = 0; v < inputs.length && exact; v++) {
+            exact = isFinite(inputs[v]);
+        }
+        if (!exact) {
+            network.evaluate(inputs, values, results);
+            return;
+        }
+
+        if (++epoch == 0) {
+            // the stamps have wrapped around
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        for (int r = 0; r < results.length; r++) {
+            results[r] = evaluate(network.getRuleNode(r), inputs, values);
+        }
+
+        if (++evaluations == REORDER_INTERVAL) {
+            reorder();
+        }
+    }
+
+    /**
+     * Computes the value of a node and of the operands it needs, depth first.
+     */
+    private double evaluate(int root, double[] inputs, double[] values) {
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int i = stack[top - 1];
+            if (stamps[i] == epoch) {
+                top--;
+                continue;
+            }
+            if (i < termCount) {
+                int v = termVariables[i];
+                network.getTermSet(v)
+                       .fuzzifyTerm(termIndices[i], inputs[v], values, network.getOffset(v));
+                record(i, values[i]);
+                top--;
+                continue;
+            }
+
+            int k = i - termCount;
+            int first = firstOperands[k];
+            if (stamps[first] != epoch) {
+                stack[top++] = first;
+                continue;
+            }
+            int second = secondOperands[k];
+            double value = values[first];
+            if (stamps[second] != epoch) {
+                // min{0, y} = 0 and max{x, y} = x for 0 <= y <= bound <= x
+                if (conjunctions[k] ? value == 0 : value >= bounds[second]) {
+                    skipped++;
+                } else {
+                    stack[top++] = second;
+                    continue;
+                }
+            } else {
+                value = conjunctions[k] ? Math.min(value, values[second]) : Math.max(value, values[second]);
+            }
+            values[i] = value;
+            record(i, value);
+            top--;
+        }
+        return values[root];
+    }
+
+    private void record(int node, double value) {
+        stamps[node] = epoch;
+        if (value == 0) {
+            zeros[node]++;
+        } else if (value >= bounds[node]) {
+            tops[node]++;
+        }
+    }
+
+    /**
+     * Puts first the operands that decide their operators more often and halves the counts.
+     */
+    private void reorder() {
+        for (int k = 0; k < firstOperands.length; k++) {
+            int first = firstOperands[k];
+            int second = secondOperands[k];
+            boolean swap = conjunctions[k] ? zeros[second] > zeros[first]
+                                           : bounds[second] >= bounds[first] && tops[second] > tops[first];
+            if (swap) {
+                firstOperands[k] = second;
+                secondOperands[k] = first;
+            }
+        }
+        for (int i = 0; i < zeros.length; i++) {
+            zeros[i] >>>= 1;
+            tops[i] >>>= 1;
+        }
+        evaluations = 0;
+    }
+
+    /**
+     * Returns the number of operands skipped since the evaluator was created.
+     *
+     * @return number of skipped operands
+     */
+    public long getSkippedOperands() {
+        return skipped;
+    }
+
+    /**
+     * Returns whether the operands of an operator node are computed in the reverse order of the premise network.
+     *
+     * @param node the index of the operator node
+     * @return true if the second operand is computed first
+     */
+    public boolean isReordered(int node) {
+        return firstOperands[node - termCount] != network.getOperand1(node);
+    }
+
+}
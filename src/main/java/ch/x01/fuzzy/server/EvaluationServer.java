@@ -0,0 +1,419 @@
+package ch.x01.fuzzy.server;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyModel;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * This class serves a fuzzy model over HTTP by means of the HTTP server of the JDK.
+ * <p>
+ * The service offers the following resources:
+ * </p>
+ * <ul>
+ * <li><code>GET /model</code> describes the model, i.e. its name, the names of its input variables in the order of a
+ * binary record and the name of its output variable.</li>
+ * <li><code>POST /evaluate</code> evaluates a single set of input values. Concurrent single evaluations are coalesced
+ * into small batches, which are evaluated on the batch path of the engine.</li>
+ * <li><code>POST /evaluate/batch</code> evaluates a batch of input values on the handling thread.</li>
+ * </ul>
+ * Requests of content type <code>application/json</code> hold one member per input variable, a number for a single
+ * evaluation or an array of numbers for a batch (see {@link Json}). Requests of content type
+ * <code>application/octet-stream</code> hold records of little-endian doubles, one per input variable in the order
+ * given by <code>/model</code>; the response holds one little-endian double per record. Invalid requests are answered
+ * with status 400, requests that cannot be evaluated while the server is stopping or overloaded with status 503 and
+ * other failures with status 500, each with a JSON error message.
+ * <p>
+ * On Java 21 and later the requests are handled by virtual threads. The HTTP server of the JDK does not set
+ * <code>TCP_NODELAY</code> unless the system property <code>sun.net.httpserver.nodelay</code> is true, in which case
+ * small responses wait for the delayed acknowledgement of the client (about 40 ms). The property applies to all
+ * servers of the JVM and is read when the first one is created, hence it is best given on the command line, e.g.
+ * <code>-Dsun.net.httpserver.nodelay=true</code>.
+ * </p>
+ */
+public class EvaluationServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvaluationServer.class);
+
+    public static final String JSON = "application/json";
+    public static final String BINARY = "application/octet-stream";
+
+    /**
+     * The maximum time in seconds a single evaluation waits for its batch to be evaluated.
+     */
+    private static final long EVALUATION_TIMEOUT_SECONDS = 30;
+
+    private final Supplier<FuzzyEngine> engines;
+    private final Queue<FuzzyEngine> idleEngines = new ConcurrentLinkedQueue<>();
+    private final FuzzyModel model;
+    private final String[] names;
+    private final String outputName;
+    private final MicroBatcher batcher;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    /**
+     * Creates a server, which is started by {@link #start()}.
+     *
+     * @param engines        creates the engines, which all evaluate the same model
+     * @param address        the address to bind, port 0 chooses a free port
+     * @param maxBatchSize   maximum number of single evaluations coalesced into a batch, 1 disables coalescing
+     * @param maxDelayMicros maximum time in microseconds a single evaluation waits for its batch to fill up
+     * @throws IOException if the address cannot be bound
+     * @throws RuntimeException if the model has no input variables
+     */
+    public EvaluationServer(Supplier<FuzzyEngine> engines, InetSocketAddress address, int maxBatchSize,
+                            long maxDelayMicros) throws IOException {
+        if (maxBatchSize < 1 || maxDelayMicros < 0) {
+            throw new RuntimeException(String.format("Cannot create server with batches of %d evaluations and a delay of %d µs.",
+                                                     maxBatchSize, maxDelayMicros));
+        }
+        FuzzyEngine engine = engines.get();
+        this.engines = engines;
+        this.idleEngines.add(engine);
+        this.model = engine.getModel();
+        this.names = model.getLinguisticVariables()
+                          .stream()
+                          .filter(var -> "input".equals(var.getUsage()))
+                          .map(FuzzyModel.LinguisticVariable::getName)
+                          .toArray(String[]::new);
+        if (names.length == 0) {
+            // a binary record would be empty
+            throw new RuntimeException(String.format("Cannot serve model \"%s\" because it has no input variables.",
+                                                     model.getName()));
+        }
+        this.outputName = model.getOutputVariableName();
+        this.batcher = new MicroBatcher(engines, names, Runtime.getRuntime()
+                                                               .availableProcessors(), maxBatchSize,
+                                        TimeUnit.MICROSECONDS.toNanos(maxDelayMicros));
+
+        this.executor = HandlerExecutorProvider.create();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/model", this::handleModel);
+        this.server.createContext("/evaluate", this::handleEvaluate);
+    }
+
+    /**
+     * Creates a server coalescing up to 64 single evaluations, which wait at most 100 µs.
+     *
+     * @param engines creates the engines, which all evaluate the same model
+     * @param address the address to bind, port 0 chooses a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public EvaluationServer(Supplier<FuzzyEngine> engines, InetSocketAddress address) throws IOException {
+        this(engines, address, 64, 100);
+    }
+
+    public void start() {
+        server.start();
+        if (logger.isInfoEnabled()) {
+            logger.info("Serving model " + model.getName() + " at " + server.getAddress());
+        }
+    }
+
+    /**
+     * Stops the server, waiting at most the given time for running requests to complete.
+     *
+     * @param delaySeconds the maximum time to wait in seconds
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        batcher.stop();
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress()
+                     .getPort();
+    }
+
+    /**
+     * Returns the number of batches into which single evaluations were coalesced.
+     *
+     * @return number of batches
+     */
+    public long getCoalescedBatches() {
+        return batcher.getBatches();
+    }
+
+    /**
+     * Returns the number of single evaluations coalesced into batches.
+     *
+     * @return number of evaluations
+     */
+    public long getCoalescedEvaluations() {
+        return batcher.getEvaluations();
+    }
+
+    private void handleModel(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/model".equals(exchange.getRequestURI()
+                                         .getPath())) {
+                send(exchange, 404, JSON, Json.error("Not found."));
+            } else if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, JSON, Json.error("Method not allowed."));
+            } else {
+                send(exchange, 200, JSON, Json.write(model.getName(), names, outputName));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleEvaluate(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI()
+                                  .getPath();
+            boolean batch = "/evaluate/batch".equals(path);
+            if (!batch && !"/evaluate".equals(path)) {
+                send(exchange, 404, JSON, Json.error("Not found."));
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, JSON, Json.error("Method not allowed."));
+                return;
+            }
+
+            String contentType = exchange.getRequestHeaders()
+                                         .getFirst("Content-Type");
+            byte[] body = read(exchange.getRequestBody());
+            try {
+                if (contentType != null && contentType.startsWith(BINARY)) {
+                    send(exchange, 200, BINARY, batch ? evaluateBatch(body) : evaluateSingle(body));
+                } else {
+                    Map<String, Object> members = parse(body);
+                    send(exchange, 200, JSON, batch ? evaluateBatch(members) : evaluateSingle(members));
+                }
+            } catch (InvalidRequestException e) {
+                send(exchange, 400, JSON, Json.error(message(e)));
+            } catch (UnavailableException e) {
+                send(exchange, 503, JSON, Json.error(message(e)));
+            } catch (RuntimeException e) {
+                logger.warn("Cannot evaluate request to " + path, e);
+                send(exchange, 500, JSON, Json.error(message(e)));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String evaluateSingle(Map<String, Object> members) {
+        double[] values = new double[names.length];
+        boolean[] given = new boolean[names.length];
+        for (Map.Entry<String, Object> member : members.entrySet()) {
+            if (!(member.getValue() instanceof Double)) {
+                throw new InvalidRequestException(String.format("Cannot evaluate because \"%s\" is not a number.", member.getKey()));
+            }
+            int j = indexOf(member.getKey());
+            values[j] = (Double) member.getValue();
+            given[j] = true;
+        }
+        checkGiven(given);
+        return Json.write(outputName, evaluate(values));
+    }
+
+    private byte[] evaluateSingle(byte[] body) {
+        if (body.length != names.length * Double.BYTES) {
+            throw new InvalidRequestException(String.format("Cannot evaluate because the request has %d bytes instead of %d.",
+                                                     body.length, names.length * Double.BYTES));
+        }
+        double[] values = new double[names.length];
+        ByteBuffer.wrap(body)
+                  .order(ByteOrder.LITTLE_ENDIAN)
+                  .asDoubleBuffer()
+                  .get(values);
+
+        byte[] result = new byte[Double.BYTES];
+        ByteBuffer.wrap(result)
+                  .order(ByteOrder.LITTLE_ENDIAN)
+                  .putDouble(evaluate(values));
+        return result;
+    }
+
+    private double evaluate(double[] values) {
+        try {
+            return batcher.submit(values)
+                          .get(EVALUATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new UnavailableException(e.getMessage(), e);
+        } catch (TimeoutException e) {
+            throw new UnavailableException(String.format("Cannot evaluate because the evaluation did not complete within %d s.",
+                                                         EVALUATION_TIMEOUT_SECONDS), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new UnavailableException("Evaluation was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new UnavailableException(e.getCause()
+                                                .getMessage(), e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Cannot evaluate.", e.getCause());
+        }
+    }
+
+    private String evaluateBatch(Map<String, Object> members) {
+        double[][] inputs = new double[names.length][];
+        for (Map.Entry<String, Object> member : members.entrySet()) {
+            if (!(member.getValue() instanceof double[])) {
+                throw new InvalidRequestException(String.format("Cannot evaluate batch because \"%s\" is not an array.", member.getKey()));
+            }
+            inputs[indexOf(member.getKey())] = (double[]) member.getValue();
+        }
+        boolean[] given = new boolean[names.length];
+        for (int j = 0; j < names.length; j++) {
+            given[j] = inputs[j] != null;
+        }
+        checkGiven(given);
+        for (int j = 1; j < names.length; j++) {
+            if (inputs[j].length != inputs[0].length) {
+                throw new InvalidRequestException("Cannot evaluate batch because the arrays differ in length.");
+            }
+        }
+
+        double[] outputs = new double[inputs[0].length];
+        evaluateBatch(inputs, outputs);
+        return Json.write(outputName, outputs);
+    }
+
+    private byte[] evaluateBatch(byte[] body) {
+        int recordSize = names.length * Double.BYTES;
+        if (body.length % recordSize != 0) {
+            throw new InvalidRequestException(String.format("Cannot evaluate batch because its size %d is not a multiple of the record size %d.",
+                                                     body.length, recordSize));
+        }
+        int rows = body.length / recordSize;
+
+        // transpose records into columns
+        ByteBuffer in = ByteBuffer.wrap(body)
+                                  .order(ByteOrder.LITTLE_ENDIAN);
+        double[][] inputs = new double[names.length][rows];
+        for (int row = 0; row < rows; row++) {
+            for (int j = 0; j < names.length; j++) {
+                inputs[j][row] = in.getDouble();
+            }
+        }
+
+        double[] outputs = new double[rows];
+        evaluateBatch(inputs, outputs);
+
+        byte[] result = new byte[rows * Double.BYTES];
+        ByteBuffer.wrap(result)
+                  .order(ByteOrder.LITTLE_ENDIAN)
+                  .asDoubleBuffer()
+                  .put(outputs);
+        return result;
+    }
+
+    private void evaluateBatch(double[][] inputs, double[] outputs) {
+        // engines are not thread-safe, every batch borrows an idle one
+        FuzzyEngine engine = idleEngines.poll();
+        if (engine == null) {
+            engine = engines.get();
+        }
+        try {
+            engine.evaluate(names, inputs, outputs);
+        } finally {
+            idleEngines.add(engine);
+        }
+    }
+
+    private static Map<String, Object> parse(byte[] body) {
+        try {
+            return Json.parse(new String(body, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException(message(e));
+        }
+    }
+
+    /**
+     * Returns the message of an exception, or its class name if it has none.
+     */
+    private static String message(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass()
+                                                          .getName();
+    }
+
+    private int indexOf(String name) {
+        for (int j = 0; j < names.length; j++) {
+            if (names[j].equalsIgnoreCase(name)) {
+                return j;
+            }
+        }
+        throw new InvalidRequestException(String.format("\"%s\" is not a valid input variable.", name));
+    }
+
+    private void checkGiven(boolean[] given) {
+        for (int j = 0; j < names.length; j++) {
+            if (!given[j]) {
+                throw new InvalidRequestException(String.format("Cannot evaluate because input variable \"%s\" is missing.", names[j]));
+            }
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        send(exchange, status, contentType + "; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders()
+                .set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * An invalid request, answered with status 400.
+     */
+    private static class InvalidRequestException extends RuntimeException {
+        InvalidRequestException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A request that cannot be evaluated at the moment, e.g. because the server is stopping or overloaded, answered
+     * with status 503.
+     */
+    private static class UnavailableException extends RuntimeException {
+        UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+}
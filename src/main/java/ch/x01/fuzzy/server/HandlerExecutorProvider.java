@@ -0,0 +1,25 @@
+package ch.x01.fuzzy.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executor running the HTTP handlers. This class is replaced by the multi-release layer for newer
+ * Java runtimes.
+ */
+class HandlerExecutorProvider {
+
+    private HandlerExecutorProvider() {
+    }
+
+    static ExecutorService create() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fuzzy-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
@@ -0,0 +1,207 @@
+package ch.x01.fuzzy.server;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes the JSON documents of the evaluation service. A request is a flat object whose members are
+ * numbers (a single evaluation) or arrays of numbers (a batch evaluation), e.g.
+ * <code>{"food": 7.5, "service": 3}</code> or <code>{"food": [7.5, 2], "service": [3, 9]}</code>. Output values
+ * that are not defined are written as <code>null</code>.
+ */
+class Json {
+
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a request.
+     *
+     * @param text the JSON text
+     * @return the members in document order, the values are either of type <code>Double</code> or
+     * <code>double[]</code>
+     */
+    static Map<String, Object> parse(String text) {
+        return new Json(text).object();
+    }
+
+    static String write(String name, double value) {
+        StringBuilder sb = new StringBuilder("{");
+        string(sb, name).append(':');
+        number(sb, value);
+        return sb.append('}')
+                 .toString();
+    }
+
+    static String write(String name, double[] values) {
+        StringBuilder sb = new StringBuilder(16 + 20 * values.length).append('{');
+        string(sb, name).append(":[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            number(sb, values[i]);
+        }
+        return sb.append("]}")
+                 .toString();
+    }
+
+    static String error(String message) {
+        StringBuilder sb = new StringBuilder("{");
+        string(sb, "error").append(':');
+        string(sb, message);
+        return sb.append('}')
+                 .toString();
+    }
+
+    static String write(String name, String[] inputs, String output) {
+        StringBuilder sb = new StringBuilder("{");
+        string(sb, "name").append(':');
+        string(sb, name).append(',');
+        string(sb, "inputs").append(":[");
+        for (int i = 0; i < inputs.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            string(sb, inputs[i]);
+        }
+        sb.append("],");
+        string(sb, "output").append(':');
+        string(sb, output);
+        return sb.append('}')
+                 .toString();
+    }
+
+    private static void number(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sb.append("null");
+        } else {
+            sb.append(value);
+        }
+    }
+
+    private static StringBuilder string(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\')
+                  .append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        expect('{');
+        if (!peek('}')) {
+            do {
+                String name = string();
+                expect(':');
+                if (members.put(name, peek('[') ? array() : number()) != null) {
+                    throw syntaxError("duplicate member \"" + name + "\"");
+                }
+            } while (accept(','));
+        }
+        expect('}');
+        skipWhitespace();
+        if (pos < text.length()) {
+            throw syntaxError("unexpected content after the object");
+        }
+        return members;
+    }
+
+    private double[] array() {
+        double[] values = new double[16];
+        int length = 0;
+        expect('[');
+        if (!peek(']')) {
+            do {
+                if (length == values.length) {
+                    values = Arrays.copyOf(values, 2 * length);
+                }
+                values[length++] = number();
+            } while (accept(','));
+        }
+        expect(']');
+        return Arrays.copyOf(values, length);
+    }
+
+    private double number() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < text.length() && "+-.0123456789eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        try {
+            return Double.parseDouble(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw syntaxError("expected a number");
+        }
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (pos < text.length() && text.charAt(pos) != '"') {
+            char c = text.charAt(pos++);
+            if (c == '\\' && pos < text.length()) {
+                c = text.charAt(pos++);
+                if (c == 'u' && pos + 4 <= text.length()) {
+                    try {
+                        c = (char) Integer.parseInt(text.substring(pos, pos + 4), 16);
+                    } catch (NumberFormatException e) {
+                        throw syntaxError("invalid escape sequence");
+                    }
+                    pos += 4;
+                } else {
+                    int escape = "btnfr".indexOf(c);
+                    c = escape >= 0 ? "\b\t\n\f\r".charAt(escape) : c;
+                }
+            }
+            sb.append(c);
+        }
+        expect('"');
+        return sb.toString();
+    }
+
+    private boolean peek(char c) {
+        skipWhitespace();
+        return pos < text.length() && text.charAt(pos) == c;
+    }
+
+    private boolean accept(char c) {
+        if (peek(c)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw syntaxError("expected '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private RuntimeException syntaxError(String message) {
+        return new RuntimeException(String.format("Cannot parse JSON request at position %d: %s.", pos, message));
+    }
+
+}
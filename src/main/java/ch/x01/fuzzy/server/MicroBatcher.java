@@ -0,0 +1,198 @@
+package ch.x01.fuzzy.server;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class coalesces concurrent single evaluations into small batches.
+ * <p>
+ * A number of dispatcher threads take the pending evaluations from a shared queue. A dispatcher takes the oldest
+ * pending evaluation, then all others already queued and, if the batch is not yet full, waits at most the given delay
+ * for further evaluations. The batch is evaluated by the dispatcher's engine on the batch path (see
+ * {@link FuzzyEngine#evaluate(String[], double[][], double[])}). The delay therefore bounds the latency added under
+ * low load, whereas under high load the batches fill up without waiting. A failing evaluation fails the evaluations
+ * of its batch, and stopping the micro-batcher fails those not yet evaluated.
+ * </p>
+ */
+class MicroBatcher {
+
+    private final String[] names;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong evaluations = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a micro-batcher and starts its dispatcher threads.
+     *
+     * @param engines       creates the engine of a dispatcher thread
+     * @param names         the names of the input variables, in the order of the submitted values
+     * @param dispatchers   number of dispatcher threads
+     * @param maxBatchSize  maximum number of evaluations of a batch
+     * @param maxDelayNanos maximum time waited for a batch to fill up
+     */
+    MicroBatcher(Supplier<FuzzyEngine> engines, String[] names, int dispatchers, int maxBatchSize, long maxDelayNanos) {
+        this.names = names;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelayNanos;
+
+        for (int i = 0; i < dispatchers; i++) {
+            Thread thread = new Thread(new Dispatcher(engines.get()), "fuzzy-batcher-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            this.dispatchers.add(thread);
+        }
+    }
+
+    /**
+     * Submits an evaluation.
+     *
+     * @param values the input values, in the order of the input variable names
+     * @return the output value, once evaluated
+     * @throws RejectedExecutionException if the micro-batcher has been stopped
+     */
+    CompletableFuture<Double> submit(double[] values) {
+        if (!running) {
+            throw stopped();
+        }
+        Pending pending = new Pending(values);
+        queue.add(pending);
+        if (!running) {
+            // stopped after the check above, possibly after the queue was drained
+            failQueued();
+        }
+        return pending.result;
+    }
+
+    /**
+     * Stops the dispatcher threads. Pending evaluations complete exceptionally.
+     */
+    void stop() {
+        running = false;
+        for (Thread thread : dispatchers) {
+            thread.interrupt();
+        }
+        failQueued();
+    }
+
+    private void failQueued() {
+        for (Pending pending = queue.poll(); pending != null; pending = queue.poll()) {
+            pending.result.completeExceptionally(stopped());
+        }
+    }
+
+    private static RejectedExecutionException stopped() {
+        return new RejectedExecutionException("Cannot evaluate because the micro-batcher has been stopped.");
+    }
+
+    long getBatches() {
+        return batches.get();
+    }
+
+    long getEvaluations() {
+        return evaluations.get();
+    }
+
+    private static class Pending {
+        private final double[] values;
+        private final CompletableFuture<Double> result = new CompletableFuture<>();
+
+        Pending(double[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Collects and evaluates batches, reusing its buffers.
+     */
+    private class Dispatcher implements Runnable {
+        private final FuzzyEngine engine;
+        private final List<Pending> batch = new ArrayList<>(maxBatchSize);
+        private final double[][] inputs = new double[names.length][maxBatchSize];
+        private final double[][] outputs = new double[maxBatchSize + 1][];
+
+        Dispatcher(FuzzyEngine engine) {
+            this.engine = engine;
+            for (int size = 1; size <= maxBatchSize; size++) {
+                outputs[size] = new double[size];
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    collect();
+                    evaluate();
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            } finally {
+                // a batch collected but not evaluated when stopped, or when an error ended the thread
+                for (Pending pending : batch) {
+                    pending.result.completeExceptionally(stopped());
+                }
+            }
+        }
+
+        private void collect() throws InterruptedException {
+            batch.clear();
+            batch.add(queue.take());
+            queue.drainTo(batch, maxBatchSize - batch.size());
+
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                Pending pending = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (pending == null) {
+                    break;
+                }
+                batch.add(pending);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+        }
+
+        private void evaluate() {
+            int rows = batch.size();
+            for (int row = 0; row < rows; row++) {
+                double[] values = batch.get(row).values;
+                for (int j = 0; j < names.length; j++) {
+                    inputs[j][row] = values[j];
+                }
+            }
+
+            double[] results = outputs[rows];
+            try {
+                engine.evaluate(names, inputs, results);
+            } catch (Throwable e) {
+                // any failure, including an error, fails the batch but not the dispatcher
+                for (Pending pending : batch) {
+                    pending.result.completeExceptionally(e);
+                }
+                batch.clear();
+                return;
+            }
+            batches.incrementAndGet();
+            evaluations.addAndGet(rows);
+
+            for (int row = 0; row < rows; row++) {
+                batch.get(row).result.complete(results[row]);
+            }
+            batch.clear();
+        }
+    }
+
+}
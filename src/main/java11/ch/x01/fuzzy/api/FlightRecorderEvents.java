@@ -0,0 +1,190 @@
+package ch.x01.fuzzy.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits the events of the JDK Flight Recorder.
+ * <p>
+ * The events are enabled, disabled and filtered by the settings of a recording like the events of the JDK. An event
+ * that is disabled costs a single check; the evaluation event is disabled unless a recording enables it, since it
+ * is emitted for every call of an evaluation method.
+ * </p>
+ * This class is part of the Java 11 layer of the multi-release JAR.
+ */
+final class FlightRecorderEvents {
+
+    private static final CompilationEvent COMPILATION = new CompilationEvent();
+    private static final EvaluationEvent EVALUATION = new EvaluationEvent();
+    private static final ModelSwapEvent MODEL_SWAP = new ModelSwapEvent();
+    private static final ModelEvictionEvent MODEL_EVICTION = new ModelEvictionEvent();
+
+    private FlightRecorderEvents() {
+    }
+
+    static Object beginCompilation() {
+        if (!COMPILATION.isEnabled()) {
+            return null;
+        }
+        CompilationEvent event = new CompilationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCompilation(Object event, String model, int variables, int rules, int optimizedRules,
+                               long parseNanos) {
+        if (event == null) {
+            return;
+        }
+        CompilationEvent compilation = (CompilationEvent) event;
+        compilation.end();
+        if (compilation.shouldCommit()) {
+            compilation.model = model;
+            compilation.variables = variables;
+            compilation.rules = rules;
+            compilation.optimizedRules = optimizedRules;
+            compilation.parseTime = parseNanos;
+            compilation.commit();
+        }
+    }
+
+    static Object beginEvaluation() {
+        if (!EVALUATION.isEnabled()) {
+            return null;
+        }
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endEvaluation(Object event, String model, int rows, long rulesFired, int numOfSteps) {
+        if (event == null) {
+            return;
+        }
+        EvaluationEvent evaluation = (EvaluationEvent) event;
+        evaluation.end();
+        if (evaluation.shouldCommit()) {
+            evaluation.model = model;
+            evaluation.rows = rows;
+            evaluation.rulesFired = rulesFired;
+            evaluation.numOfSteps = numOfSteps;
+            evaluation.commit();
+        }
+    }
+
+    static void modelSwapped(String model, long version, long previousVersion, long compileNanos) {
+        if (!MODEL_SWAP.isEnabled()) {
+            return;
+        }
+        ModelSwapEvent event = new ModelSwapEvent();
+        event.model = model;
+        event.version = version;
+        event.previousVersion = previousVersion;
+        event.compileTime = compileNanos;
+        event.commit();
+    }
+
+    static void modelEvicted(String tenant, String model, long bytes) {
+        if (!MODEL_EVICTION.isEnabled()) {
+            return;
+        }
+        ModelEvictionEvent event = new ModelEvictionEvent();
+        event.tenant = tenant;
+        event.model = model;
+        event.bytes = bytes;
+        event.commit();
+    }
+
+    @Name("ch.x01.fuzzy.Compilation")
+    @Label("Model Compilation")
+    @Category("Fuzzy")
+    @Description("Parsing, optimization and compilation of the rules of a model")
+    @StackTrace(false)
+    static class CompilationEvent extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("Variables")
+        int variables;
+
+        @Label("Rules")
+        int rules;
+
+        @Label("Optimized Rules")
+        @Description("Number of rules after removing duplicate and subsumed rules")
+        int optimizedRules;
+
+        @Label("Parse Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long parseTime;
+    }
+
+    @Name("ch.x01.fuzzy.Evaluation")
+    @Label("Evaluation")
+    @Category("Fuzzy")
+    @Description("Call of an evaluation method of an engine, i.e. a single evaluation or a batch")
+    @Enabled(false)
+    @Threshold("0 ms")
+    @StackTrace(false)
+    static class EvaluationEvent extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Rules Fired")
+        @Description("Number of rules with a positive degree of relevance, summed over the rows")
+        long rulesFired;
+
+        @Label("Grid Size")
+        @Description("Number of discrete steps of the defuzzification, of the last row in adaptive mode")
+        int numOfSteps;
+    }
+
+    @Name("ch.x01.fuzzy.ModelSwap")
+    @Label("Model Swap")
+    @Category("Fuzzy")
+    @Description("Publication of a new version of a model by a model holder")
+    @StackTrace(false)
+    static class ModelSwapEvent extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("Version")
+        long version;
+
+        @Label("Previous Version")
+        long previousVersion;
+
+        @Label("Compile Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long compileTime;
+    }
+
+    @Name("ch.x01.fuzzy.ModelEviction")
+    @Label("Model Eviction")
+    @Category("Fuzzy")
+    @Description("Eviction of a compiled model from the cache of a model registry")
+    @StackTrace(false)
+    static class ModelEvictionEvent extends Event {
+        @Label("Tenant")
+        String tenant;
+
+        @Label("Model")
+        String model;
+
+        @Label("Estimated Size")
+        @DataAmount
+        long bytes;
+    }
+
+}
@@ -0,0 +1,25 @@
+package ch.x01.fuzzy.core;
+
+/**
+ * Selects the grid kernels for the Java runtime. On Java 17 and later the SIMD kernels are used if the
+ * <code>jdk.incubator.vector</code> module is available.
+ */
+class GridKernelsProvider {
+
+    private GridKernelsProvider() {
+    }
+
+    static GridKernels create() {
+        if (ModuleLayer.boot()
+                       .findModule("jdk.incubator.vector")
+                       .isPresent()) {
+            try {
+                return new VectorGridKernels();
+            } catch (LinkageError e) {
+                // fall back to the scalar kernels
+            }
+        }
+        return GridKernels.scalar();
+    }
+
+}
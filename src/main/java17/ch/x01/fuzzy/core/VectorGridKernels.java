@@ -0,0 +1,189 @@
+package ch.x01.fuzzy.core;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The grid kernels using SIMD instructions through the Vector API. Each lane computes one grid point; the
+ * remaining grid points are computed by the scalar loop.
+ */
+public final class VectorGridKernels extends GridKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private final double[] lanes;
+    private final float[] floatLanes;
+
+    public VectorGridKernels() {
+        lanes = new double[SPECIES.length()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = i;
+        }
+        floatLanes = new float[FLOAT_SPECIES.length()];
+        for (int i = 0; i < floatLanes.length; i++) {
+            floatLanes[i] = i;
+        }
+    }
+
+    @Override
+    public void aggregate(double from, double increment, double[] y, int fromIndex, int toIndex,
+                          double start, double ascendingSlope, double descendingSlope, double end, double height) {
+        DoubleVector offsets = DoubleVector.fromArray(SPECIES, lanes, 0);
+        int bound = fromIndex + SPECIES.loopBound(Math.max(toIndex - fromIndex, 0));
+
+        int i = fromIndex;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = offsets.add(i)
+                                    .mul(increment)
+                                    .add(from);
+            DoubleVector ascending = x.sub(start)
+                                      .mul(ascendingSlope);
+            DoubleVector descending = x.neg()
+                                       .add(end)
+                                       .mul(descendingSlope);
+            DoubleVector u = ascending.min(descending)
+                                      .min(height);
+            DoubleVector.fromArray(SPECIES, y, i)
+                        .max(u)
+                        .intoArray(y, i);
+        }
+
+        for (; i < toIndex; i++) {
+            double x = from + increment * i;
+            double ascending = (x - start) * ascendingSlope;
+            double descending = (end - x) * descendingSlope;
+            y[i] = Math.max(y[i], Math.min(height, Math.min(ascending, descending)));
+        }
+    }
+
+    @Override
+    public double centerOfMass(double from, double increment, double[] y, int length) {
+        DoubleVector offsets = DoubleVector.fromArray(SPECIES, lanes, 0);
+        DoubleVector numerator = DoubleVector.zero(SPECIES);
+        DoubleVector denominator = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length - 1);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x1 = offsets.add(i)
+                                     .mul(increment)
+                                     .add(from);
+            DoubleVector x2 = offsets.add(i + 1)
+                                     .mul(increment)
+                                     .add(from);
+            DoubleVector y1 = DoubleVector.fromArray(SPECIES, y, i);
+            DoubleVector y2 = DoubleVector.fromArray(SPECIES, y, i + 1);
+
+            DoubleVector xsi = x1.add(x2)
+                                 .mul(0.5);
+            DoubleVector Ai = y1.add(y2)
+                                .mul(0.5)
+                                .mul(x2.sub(x1));
+
+            numerator = numerator.add(xsi.mul(Ai));
+            denominator = denominator.add(Ai);
+        }
+
+        double sumNumerator = numerator.reduceLanes(VectorOperators.ADD);
+        double sumDenominator = denominator.reduceLanes(VectorOperators.ADD);
+
+        for (; i < length - 1; i++) {
+            double x1 = from + increment * i;
+            double x2 = from + increment * (i + 1);
+
+            double xsi = 0.5 * (x1 + x2);
+            double Ai = 0.5 * (y[i] + y[i + 1]) * (x2 - x1);
+
+            sumNumerator += (xsi * Ai);
+            sumDenominator += Ai;
+        }
+
+        return sumNumerator / sumDenominator;
+    }
+
+    @Override
+    public void aggregate(float from, float increment, float[] y, int fromIndex, int toIndex,
+                          float start, float ascendingSlope, float descendingSlope, float end, float height) {
+        FloatVector offsets = FloatVector.fromArray(FLOAT_SPECIES, floatLanes, 0);
+        int bound = fromIndex + FLOAT_SPECIES.loopBound(Math.max(toIndex - fromIndex, 0));
+
+        int i = fromIndex;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector x = offsets.add(i)
+                                   .mul(increment)
+                                   .add(from);
+            FloatVector ascending = x.sub(start)
+                                     .mul(ascendingSlope);
+            FloatVector descending = x.neg()
+                                      .add(end)
+                                      .mul(descendingSlope);
+            FloatVector u = ascending.min(descending)
+                                     .min(height);
+            FloatVector.fromArray(FLOAT_SPECIES, y, i)
+                       .max(u)
+                       .intoArray(y, i);
+        }
+
+        for (; i < toIndex; i++) {
+            float x = from + increment * i;
+            float ascending = (x - start) * ascendingSlope;
+            float descending = (end - x) * descendingSlope;
+            y[i] = Math.max(y[i], Math.min(height, Math.min(ascending, descending)));
+        }
+    }
+
+    @Override
+    public float centerOfMass(float from, float increment, float[] y, int length) {
+        FloatVector offsets = FloatVector.fromArray(FLOAT_SPECIES, floatLanes, 0);
+        int block = Math.max(FLOAT_SPECIES.loopBound(FLOAT_BLOCK_SIZE), FLOAT_SPECIES.length());
+        int bound = FLOAT_SPECIES.loopBound(length - 1);
+        double sumNumerator = 0.0;
+        double sumDenominator = 0.0;
+
+        int i = 0;
+        while (i < bound) {
+            // sum up a block in single precision, then accumulate in double precision
+            FloatVector numerator = FloatVector.zero(FLOAT_SPECIES);
+            FloatVector denominator = FloatVector.zero(FLOAT_SPECIES);
+            int blockBound = Math.min(i + block, bound);
+            for (; i < blockBound; i += FLOAT_SPECIES.length()) {
+                FloatVector x1 = offsets.add(i)
+                                        .mul(increment)
+                                        .add(from);
+                FloatVector x2 = offsets.add(i + 1)
+                                        .mul(increment)
+                                        .add(from);
+                FloatVector y1 = FloatVector.fromArray(FLOAT_SPECIES, y, i);
+                FloatVector y2 = FloatVector.fromArray(FLOAT_SPECIES, y, i + 1);
+
+                FloatVector xsi = x1.add(x2)
+                                    .mul(0.5f);
+                FloatVector Ai = y1.add(y2)
+                                   .mul(0.5f)
+                                   .mul(x2.sub(x1));
+
+                numerator = numerator.add(xsi.mul(Ai));
+                denominator = denominator.add(Ai);
+            }
+            sumNumerator += numerator.reduceLanes(VectorOperators.ADD);
+            sumDenominator += denominator.reduceLanes(VectorOperators.ADD);
+        }
+
+        for (; i < length - 1; i++) {
+            float x1 = from + increment * i;
+            float x2 = from + increment * (i + 1);
+
+            float xsi = 0.5f * (x1 + x2);
+            float Ai = 0.5f * (y[i] + y[i + 1]) * (x2 - x1);
+
+            sumNumerator += (xsi * Ai);
+            sumDenominator += Ai;
+        }
+
+        return (float) (sumNumerator / sumDenominator);
+    }
+
+}
@@ -0,0 +1,21 @@
+package ch.x01.fuzzy.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor running the HTTP handlers. On Java 21 and later every request is handled by a virtual
+ * thread, so that requests waiting for their micro-batch do not occupy a platform thread.
+ */
+class HandlerExecutorProvider {
+
+    private HandlerExecutorProvider() {
+    }
+
+    static ExecutorService create() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                                                        .name("fuzzy-http-", 1)
+                                                        .factory());
+    }
+
+}
@@ -0,0 +1,260 @@
+package ch.x01.fuzzy.api;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class evaluates a stream of input tuples as a {@link Flow.Processor}.
+ * <p>
+ * An input tuple holds one value per input variable, in the order of the given variable names. The processor
+ * requests input tuples from its upstream publisher in rounds: a round requests as many tuples as the downstream
+ * subscriber has requested outputs, but at most the batch size. When all tuples of a round have arrived, or the
+ * upstream publisher has completed, they are evaluated as one batch (see
+ * {@link FuzzyEngine#evaluate(String[], double[][], double[])}) and their output values are published. The number of
+ * outputs published therefore never exceeds the downstream demand, and at most one batch of tuples is buffered.
+ * </p>
+ * <p>
+ * Each processor uses an engine of its own, created when it is subscribed to its publisher, so that several streams
+ * evaluate the same model in parallel by means of several processors. A processor accepts a single subscriber.
+ * </p>
+ * This class is part of the Java 9 layer of the multi-release JAR.
+ */
+public class EvaluationProcessor implements Flow.Processor<double[], Double> {
+
+    private final Supplier<FuzzyEngine> engines;
+    private final String[] names;
+    private final int batchSize;
+
+    private final double[][] inputs;
+    private final double[] outputs;
+
+    private FuzzyEngine engine;
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super Double> downstream;
+
+    /**
+     * The number of outputs requested by the downstream subscriber.
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * Serializes the requests, evaluations and signals.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * The number of outputs published, accessed by the drain loop only.
+     */
+    private long emitted;
+
+    /**
+     * The number of tuples requested in the current round, 0 if there is none, accessed by the drain loop only.
+     */
+    private int roundSize;
+
+    /**
+     * The number of tuples received in the current round.
+     */
+    private volatile int received;
+
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    /**
+     * Creates a processor.
+     *
+     * @param engines   creates the engine of the processor
+     * @param names     the names of the input variables, in the order of the values of an input tuple
+     * @param batchSize maximum number of tuples evaluated as one batch
+     */
+    public EvaluationProcessor(Supplier<FuzzyEngine> engines, String[] names, int batchSize) {
+        if (batchSize < 1) {
+            throw new RuntimeException(String.format("Cannot create processor with batches of %d tuples.", batchSize));
+        }
+        this.engines = engines;
+        this.names = names.clone();
+        this.batchSize = batchSize;
+        this.inputs = new double[names.length][batchSize];
+        this.outputs = new double[batchSize];
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Double> subscriber) {
+        Objects.requireNonNull(subscriber);
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber.onSubscribe(new Subscription());
+                drain();
+                return;
+            }
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onError(new IllegalStateException("The processor accepts a single subscriber."));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        engine = engines.get();
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(double[] tuple) {
+        if (done) {
+            return;
+        }
+        if (tuple.length != names.length) {
+            upstream.cancel();
+            onError(new IllegalArgumentException(String.format("Cannot evaluate tuple of %d values because %d are expected.",
+                                                               tuple.length, names.length)));
+            return;
+        }
+        int row = received;
+        for (int j = 0; j < names.length; j++) {
+            inputs[j][row] = tuple[j];
+        }
+        // publishes the tuple to the drain loop
+        received = row + 1;
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    /**
+     * Starts rounds, evaluates their tuples and publishes the outputs. The loop is run by one thread at a time;
+     * signals arriving meanwhile, including those caused by the loop itself, make it loop again instead of recursing.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (step()) {
+                // until no progress is made
+            }
+        } while ((missed = wip.addAndGet(-missed)) != 0);
+    }
+
+    /**
+     * Makes one step of progress.
+     *
+     * @return true if the loop should try another step
+     */
+    private boolean step() {
+        Flow.Subscriber<? super Double> subscriber = downstream;
+        if (cancelled || terminated || subscriber == null) {
+            return false;
+        }
+        if (error != null) {
+            terminated = true;
+            subscriber.onError(error);
+            return false;
+        }
+        if (roundSize > 0) {
+            if (received < roundSize && !done) {
+                // wait for the remaining tuples of the round
+                return false;
+            }
+            publish(subscriber, received);
+            roundSize = 0;
+            received = 0;
+            return true;
+        }
+        if (done) {
+            terminated = true;
+            subscriber.onComplete();
+            return false;
+        }
+        long demand = requested.get() - emitted;
+        Flow.Subscription subscription = upstream;
+        if (demand > 0 && subscription != null) {
+            roundSize = (int) Math.min(demand, batchSize);
+            subscription.request(roundSize);
+            return true;
+        }
+        return false;
+    }
+
+    private void publish(Flow.Subscriber<? super Double> subscriber, int rows) {
+        if (rows == 0) {
+            return;
+        }
+        double[] results = rows == batchSize ? outputs : new double[rows];
+        try {
+            engine.evaluate(names, inputs, results);
+        } catch (RuntimeException e) {
+            upstream.cancel();
+            error = e;
+            done = true;
+            return;
+        }
+        emitted += rows;
+        for (int row = 0; row < rows && !cancelled; row++) {
+            subscriber.onNext(results[row]);
+        }
+    }
+
+    /**
+     * The subscription of the downstream subscriber.
+     */
+    private class Subscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                Flow.Subscription subscription = upstream;
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+                error = new IllegalArgumentException("The number of requested outputs must be positive but was " + n + ".");
+                done = true;
+                drain();
+                return;
+            }
+            requested.getAndAccumulate(n, (current, increment) -> current + increment < 0 ? Long.MAX_VALUE : current + increment);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Flow.Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+}
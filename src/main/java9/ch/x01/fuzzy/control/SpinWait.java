@@ -0,0 +1,18 @@
+package ch.x01.fuzzy.control;
+
+/**
+ * Hints the runtime that the caller is busy-waiting, e.g. by a pause instruction on x86.
+ * <p>
+ * This class is part of the Java 9 layer of the multi-release JAR.
+ * </p>
+ */
+final class SpinWait {
+
+    private SpinWait() {
+    }
+
+    static void onSpinWait() {
+        Thread.onSpinWait();
+    }
+
+}
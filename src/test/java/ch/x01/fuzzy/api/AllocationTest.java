@@ -0,0 +1,226 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import ch.x01.fuzzy.core.FixedPointFormat;
+import ch.x01.fuzzy.core.PremiseNetwork;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated on the evaluation paths of the bundled models in every engine mode and fails if an
+ * allocation budget is exceeded, so that garbage does not creep back into the hot paths unnoticed.
+ * <p>
+ * Each phase is warmed up before it is measured by the allocation counter of the current thread, see
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}. The budgets are upper bounds: once compiled,
+ * the JIT may eliminate the allocation of the output of a single evaluation altogether.
+ * </p>
+ */
+public class AllocationTest {
+
+    private static final String[] MODELS = {"car", "dimmer", "tip"};
+
+    private static final int WARMUP_ITERATIONS = 10_000;
+    private static final int ITERATIONS = 2_000;
+    private static final int ROWS = 100;
+
+    /**
+     * The minimum number of measured calls of a phase, so that a batch phase is not measured by a handful of calls, in
+     * which a single stray allocation of the runtime would exceed its budget.
+     */
+    private static final int MIN_ITERATIONS = 1_000;
+
+    /**
+     * The budget of a single evaluation, which returns a new output variable.
+     */
+    private static final double SINGLE_EVALUATION_BUDGET = 64;
+
+    /**
+     * The budget of a row of a batch, which allocates nothing once the indices of the input variables are cached. It
+     * is less than a byte, which tolerates an occasional allocation of the runtime during the measurement, but not an
+     * object per row or per batch.
+     */
+    private static final double BATCH_ROW_BUDGET = 0.5;
+
+    private static final FixedPointFormat FORMAT = new FixedPointFormat(12, 19);
+
+    private static com.sun.management.ThreadMXBean threadBean;
+    private static long overhead;
+
+    @BeforeClass
+    public static void setUpClass() {
+        Assume.assumeTrue("The runtime does not count allocated bytes.",
+                          ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("The runtime does not count allocated bytes.", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // the allocation of the counter itself, if any
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            allocated();
+        }
+        long start = allocated();
+        overhead = allocated() - start;
+    }
+
+    private static long allocated() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread()
+                                                        .getId());
+    }
+
+    /**
+     * Returns the mean number of bytes allocated by a phase after it has been warmed up.
+     */
+    private static double measure(Runnable phase) {
+        return measure(phase, 1);
+    }
+
+    /**
+     * Returns the mean number of bytes allocated per row by a phase that evaluates the given number of rows.
+     */
+    private static double measure(Runnable phase, int rows) {
+        int warmupIterations = Math.max(1, WARMUP_ITERATIONS / rows);
+        int iterations = Math.max(MIN_ITERATIONS, ITERATIONS / rows);
+        for (int i = 0; i < warmupIterations; i++) {
+            phase.run();
+        }
+        long start = allocated();
+        for (int i = 0; i < iterations; i++) {
+            phase.run();
+        }
+        long end = allocated();
+        return Math.max(0, end - start - overhead) / ((double) iterations * rows);
+    }
+
+    /**
+     * The allocations measured for a model in an engine mode.
+     */
+    private static class Report {
+        private final List<String> lines = new ArrayList<>();
+        private final List<String> failures = new ArrayList<>();
+
+        void add(String model, String mode, String phase, double bytes, double budget) {
+            boolean exceeded = bytes > budget;
+            lines.add(String.format("%-8s %-16s %-24s %12.2f %10s%s", model, mode, phase, bytes,
+                                    Double.isInfinite(budget) ? "-" : String.format("%.1f", budget),
+                                    exceeded ? "  EXCEEDED" : ""));
+            if (exceeded) {
+                failures.add(String.format("%s of model %s in mode %s allocates %.2f bytes, but the budget is %.1f.",
+                                           phase, model, mode, bytes, budget));
+            }
+        }
+
+        void print() {
+            System.out.println(String.format("%-8s %-16s %-24s %12s %10s", "model", "mode", "phase", "bytes", "budget"));
+            lines.forEach(System.out::println);
+        }
+    }
+
+    @Test
+    public void testAllocation() {
+        Report report = new Report();
+        for (String name : MODELS) {
+            FuzzyModel model = TestModels.read(name);
+            measureCompilation(report, name, model);
+            measure(report, name, "1000 steps", new FuzzyEngine(model, 1000), model);
+            measure(report, name, "tolerance 0.1%", new FuzzyEngine(model, 1e-3 * outputWidth(model)), model);
+            measure(report, name, "Q12.19", new FuzzyEngine(model, 1000, FORMAT), model);
+        }
+        report.print();
+        assertTrue(String.join("\n", report.failures), report.failures.isEmpty());
+    }
+
+    private static double outputWidth(FuzzyModel model) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
+            if ("output".equals(var.getUsage())) {
+                for (FuzzyModel.Term term : var.getTerms()) {
+                    min = Math.min(min, term.getStart());
+                    max = Math.max(max, term.getEnd());
+                }
+            }
+        }
+        return max - min;
+    }
+
+    private static void measureCompilation(Report report, String name, FuzzyModel model) {
+        long start = allocated();
+        CompiledModel compiledModel = CompiledModel.compile(model);
+        report.add(name, "-", "compile (cold)", allocated() - start - overhead, Double.POSITIVE_INFINITY);
+
+        // the premises and the defuzzification by themselves
+        PremiseNetwork network = compiledModel.getPremiseNetwork();
+        double[] inputs = new double[network.getVariableCount()];
+        double[] values = new double[network.getNodeCount()];
+        double[] degrees = new double[network.getRuleCount()];
+        double[] grid = new double[1001];
+        report.add(name, "-", "premises", measure(() -> network.evaluate(inputs, values, degrees)), 0);
+        report.add(name, "-", "defuzzify", measure(() -> compiledModel.getDefuzzifier()
+                                                                      .defuzzify(degrees, 1000, grid)), 0);
+    }
+
+    private static void measure(Report report, String name, String mode, FuzzyEngine engine, FuzzyModel model) {
+        // the input variables and their ranges
+        List<String> variables = new ArrayList<>();
+        List<double[]> ranges = new ArrayList<>();
+        for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
+            if ("input".equals(var.getUsage())) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (FuzzyModel.Term term : var.getTerms()) {
+                    min = Math.min(min, term.getStart());
+                    max = Math.max(max, term.getEnd());
+                }
+                variables.add(var.getName());
+                ranges.add(new double[]{min, max});
+            }
+        }
+        String[] names = variables.toArray(new String[0]);
+
+        Random random = new Random(4711);
+        double[][] inputs = new double[names.length][ROWS];
+        float[][] floatInputs = new float[names.length][ROWS];
+        int[][] fixedInputs = new int[names.length][ROWS];
+        InputVariable[][] singleInputs = new InputVariable[ROWS][names.length];
+        for (int j = 0; j < names.length; j++) {
+            double[] range = ranges.get(j);
+            for (int row = 0; row < ROWS; row++) {
+                inputs[j][row] = range[0] + random.nextDouble() * (range[1] - range[0]);
+                floatInputs[j][row] = (float) inputs[j][row];
+                fixedInputs[j][row] = FORMAT.toFixed(inputs[j][row]);
+                singleInputs[row][j] = new InputVariable(names[j], inputs[j][row]);
+            }
+        }
+
+        // the first evaluation binds the engine to its compiled model
+        long start = allocated();
+        engine.evaluate(singleInputs[0]);
+        report.add(name, mode, "setup (cold)", allocated() - start - overhead, Double.POSITIVE_INFINITY);
+
+        int[] next = new int[1];
+        report.add(name, mode, "evaluate", measure(() -> engine.evaluate(singleInputs[next[0]++ % ROWS])),
+                   SINGLE_EVALUATION_BUDGET);
+
+        double[] outputs = new double[ROWS];
+        report.add(name, mode, "batch row", measure(() -> engine.evaluate(names, inputs, outputs), ROWS),
+                   BATCH_ROW_BUDGET);
+        if (mode.startsWith("Q")) {
+            int[] fixedOutputs = new int[ROWS];
+            report.add(name, mode, "fixed-point batch row",
+                       measure(() -> engine.evaluate(names, fixedInputs, fixedOutputs), ROWS), BATCH_ROW_BUDGET);
+        } else {
+            float[] floatOutputs = new float[ROWS];
+            report.add(name, mode, "float batch row",
+                       measure(() -> engine.evaluate(names, floatInputs, floatOutputs), ROWS), BATCH_ROW_BUDGET);
+        }
+    }
+
+}
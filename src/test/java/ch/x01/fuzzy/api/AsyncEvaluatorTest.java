@@ -0,0 +1,215 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import ch.x01.fuzzy.api.FuzzyEngine.OutputVariable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncEvaluatorTest {
+
+    /**
+     * Runs the submitted tasks only when asked to.
+     */
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> runnables = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            runnables.add(command);
+        }
+
+        void runAll() {
+            runnables.forEach(Runnable::run);
+            runnables.clear();
+        }
+    }
+
+    @Test
+    public void testEvaluateAsync() throws Exception {
+        FuzzyModel model = TestModels.car();
+        FuzzyEngine engine = new FuzzyEngine(model);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncEvaluator evaluator = new AsyncEvaluator(() -> new FuzzyEngine(model), executor, 1000);
+
+            List<CompletableFuture<OutputVariable>> futures = new ArrayList<>();
+            for (int speed = 0; speed < 1000; speed++) {
+                futures.add(evaluator.evaluateAsync(new InputVariable("carSpeed", speed % 160)));
+            }
+            for (int speed = 0; speed < 1000; speed++) {
+                assertEquals(engine.evaluate(new InputVariable("carSpeed", speed % 160))
+                                   .getValue(), futures.get(speed)
+                                                       .get()
+                                                       .getValue(), 0.0);
+            }
+
+            double[][] inputs = {{30, 70, 110}};
+            double[] expected = new double[3];
+            engine.evaluate(new String[]{"carSpeed"}, inputs, expected);
+            assertArrayEquals(expected, evaluator.evaluateAsync(new String[]{"carSpeed"}, inputs)
+                                                 .get(), 0.0);
+
+            AsyncEvaluator.Statistics statistics = evaluator.getStatistics();
+            System.out.println(statistics);
+            assertEquals(1001, statistics.getSubmitted());
+            assertEquals(1001, statistics.getCompleted());
+            assertEquals(0, statistics.getRejected());
+            assertEquals(0, statistics.getQueueLength());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncEvaluator evaluator = new AsyncEvaluator(() -> new FuzzyEngine(TestModels.car()), executor, 4);
+
+        List<CompletableFuture<OutputVariable>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(evaluator.evaluateAsync(new InputVariable("carSpeed", 70)));
+        }
+        assertEquals(4, evaluator.getStatistics()
+                                 .getQueueLength());
+        assertEquals(2, evaluator.getStatistics()
+                                 .getRejected());
+        try {
+            futures.get(5)
+                   .get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        executor.runAll();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(65.9939, futures.get(i)
+                                         .get()
+                                         .getValue(), 0.01);
+        }
+        assertEquals(4, evaluator.getStatistics()
+                                 .getMaxQueueLength());
+        assertEquals(4, evaluator.getStatistics()
+                                 .getCompleted());
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncEvaluator evaluator = new AsyncEvaluator(() -> new FuzzyEngine(TestModels.car()), executor, 4);
+
+        CompletableFuture<OutputVariable> future = evaluator.evaluateAsync(10, TimeUnit.MILLISECONDS,
+                                                                           new InputVariable("carSpeed", 70));
+        try {
+            // the task is still queued when its deadline passes
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        executor.runAll();
+        assertEquals(1, evaluator.getStatistics()
+                                 .getExpired());
+        assertEquals(0, evaluator.getStatistics()
+                                 .getCompleted());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        AsyncEvaluator evaluator = new AsyncEvaluator(() -> new FuzzyEngine(TestModels.car()), Runnable::run, 1);
+
+        try {
+            evaluator.evaluateAsync(new InputVariable("speed", 70))
+                     .get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("\"speed\" is not a valid input variable.", e.getCause()
+                                                                      .getMessage());
+        }
+        // the engine is returned and reused
+        assertEquals(65.9939, evaluator.evaluateAsync(new InputVariable("carSpeed", 70))
+                                       .get()
+                                       .getValue(), 0.01);
+    }
+
+    @Test
+    public void testError() throws Exception {
+        // the task rethrows the error after completing the result, so it ends up in the pool thread's handler
+        AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        CountDownLatch died = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setUncaughtExceptionHandler((t, e) -> {
+                uncaught.set(e);
+                died.countDown();
+            });
+            return thread;
+        });
+        try {
+            AsyncEvaluator evaluator = new AsyncEvaluator(() -> {
+                throw new StackOverflowError();
+            }, executor, 1);
+            try {
+                evaluator.evaluateAsync(new InputVariable("carSpeed", 70))
+                         .get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof StackOverflowError);
+            }
+            assertTrue(died.await(10, TimeUnit.SECONDS));
+            assertTrue(uncaught.get() instanceof StackOverflowError);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedAfterOvertaken() throws Exception {
+        AsyncEvaluator[] evaluator = new AsyncEvaluator[1];
+        List<CompletableFuture<OutputVariable>> overtaking = new ArrayList<>();
+        boolean[] overtaken = new boolean[1];
+        Executor executor = command -> {
+            if (!overtaken[0]) {
+                // another submission overtakes this one, its run takes the older task, then this run is rejected
+                overtaken[0] = true;
+                overtaking.add(evaluator[0].evaluateAsync(new InputVariable("carSpeed", 110)));
+                throw new RejectedExecutionException("Cannot run.");
+            }
+            command.run();
+        };
+        evaluator[0] = new AsyncEvaluator(() -> new FuzzyEngine(TestModels.car()), executor, 4);
+
+        CompletableFuture<OutputVariable> future = evaluator[0].evaluateAsync(new InputVariable("carSpeed", 70));
+        assertEquals(65.9939, future.get()
+                                    .getValue(), 0.01);
+        // the task left without a run is failed rather than queued forever
+        try {
+            overtaking.get(0)
+                      .get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, evaluator[0].getStatistics()
+                                    .getQueueLength());
+    }
+
+}
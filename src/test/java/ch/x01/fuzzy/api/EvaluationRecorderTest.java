@@ -0,0 +1,61 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationRecorderTest {
+
+    @Test
+    public void testRecord() {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car());
+        EvaluationRecorder recorder = new EvaluationRecorder(3);
+        engine.setListener(recorder);
+
+        double output = engine.evaluate(new InputVariable("carSpeed", 70))
+                              .getValue();
+        List<EvaluationRecorder.Evaluation> evaluations = recorder.getEvaluations();
+        assertEquals(1, evaluations.size());
+        EvaluationRecorder.Evaluation evaluation = evaluations.get(0);
+        System.out.println(evaluation);
+
+        CompiledModel model = evaluation.getModel();
+        assertEquals("carspeed", model.getVariableName(0));
+        assertEquals(70, evaluation.getInput(0), 0.0);
+        for (int t = 0; t < model.getTermCount(0); t++) {
+            assertEquals("low".equals(model.getTermName(0, t)) ? 0.75 : 0.25, evaluation.getTermDegree(0, t), 1e-12);
+        }
+        for (int r = 0; r < model.getRuleCount(); r++) {
+            assertEquals(model.getRuleText(r)
+                              .contains("low") ? 0.75 : 0.25, evaluation.getRuleStrength(r), 1e-12);
+        }
+        assertEquals(output, evaluation.getOutput(), 0.0);
+        assertTrue(evaluation.toString()
+                             .contains("low=0.7500"));
+
+        // batch evaluations are recorded row by row, the oldest are overwritten
+        double[][] inputs = {{30, 50, 110, 130}};
+        double[] outputs = new double[4];
+        engine.evaluate(new String[]{"carSpeed"}, inputs, outputs);
+        evaluations = recorder.getEvaluations();
+        assertEquals(5, recorder.getCount());
+        assertEquals(3, evaluations.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2 + i, evaluations.get(i)
+                                           .getSequence());
+            assertEquals(inputs[0][i + 1], evaluations.get(i)
+                                                      .getInput(0), 0.0);
+            assertEquals(outputs[i + 1], evaluations.get(i)
+                                                    .getOutput(), 0.0);
+        }
+
+        engine.setListener(null);
+        engine.evaluate(new InputVariable("carSpeed", 70));
+        assertEquals(5, recorder.getCount());
+    }
+
+}
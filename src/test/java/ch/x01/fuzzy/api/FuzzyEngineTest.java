@@ -2,13 +2,20 @@ package ch.x01.fuzzy.api;
 
 import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
 import ch.x01.fuzzy.api.FuzzyEngine.OutputVariable;
+import ch.x01.fuzzy.core.FixedPointFormat;
+import ch.x01.fuzzy.core.PremiseNetwork;
 import org.junit.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static ch.x01.fuzzy.api.FuzzyModel.LinguisticVariable.lv;
 import static ch.x01.fuzzy.api.FuzzyModel.Term.trapezoid;
 import static ch.x01.fuzzy.api.FuzzyModel.Term.triangle;
 import static ch.x01.fuzzy.api.FuzzyModel.model;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class FuzzyEngineTest {
 
@@ -136,6 +143,139 @@ public class FuzzyEngineTest {
         System.out.println(output);
     }
 
+    @Test
+    public void testCarAdaptive() {
+
+        FuzzyModel model = model().name("car (adaptive)")
+                                  .vars(lv().usage("input")
+                                            .name("carSpeed")
+                                            .terms(triangle().name("low")
+                                                             .start(20)
+                                                             .top(60)
+                                                             .end(100),
+                                                   triangle().name("medium")
+                                                             .start(60)
+                                                             .top(100)
+                                                             .end(140)),
+                                        lv().usage("output")
+                                            .name("brakeForce")
+                                            .terms(triangle().name("moderate")
+                                                             .start(40)
+                                                             .top(60)
+                                                             .end(80),
+                                                   trapezoid().name("strong")
+                                                              .start(70)
+                                                              .left_top(84.9)
+                                                              .right_top(85.1)
+                                                              .end(85.1)))
+                                  .rules("if carSpeed is low then brakeForce is moderate",
+                                         "if carSpeed is medium then brakeForce is strong");
+
+        FuzzyEngine reference = new FuzzyEngine(model, FuzzyEngine.MAX_NUM_OF_STEPS);
+        FuzzyEngine engine = new FuzzyEngine(model, 1e-3);
+
+        for (double speed = 0; speed <= 160; speed += 2.5) {
+            OutputVariable expected = reference.evaluate(new InputVariable("carSpeed", speed));
+            OutputVariable output = engine.evaluate(new InputVariable("carSpeed", speed));
+
+            // test output value and achieved resolution
+            assertEquals(expected.getValue(), output.getValue(), 1e-3);
+            if (!Double.isNaN(expected.getValue())) {
+                assertTrue(output.getError() <= 1e-3);
+                assertTrue(output.getNumOfSteps() < FuzzyEngine.MAX_NUM_OF_STEPS);
+            }
+        }
+
+        System.out.println(engine.evaluate(new InputVariable("carSpeed", 70)));
+    }
+
+    @Test
+    public void testCarBatch() {
+
+        FuzzyModel model = model().name("car (batch)")
+                                  .vars(lv().usage("input")
+                                            .name("carSpeed")
+                                            .terms(triangle().name("low")
+                                                             .start(20)
+                                                             .top(60)
+                                                             .end(100),
+                                                   triangle().name("medium")
+                                                             .start(60)
+                                                             .top(100)
+                                                             .end(140)),
+                                        lv().usage("output")
+                                            .name("brakeForce")
+                                            .terms(triangle().name("moderate")
+                                                             .start(40)
+                                                             .top(60)
+                                                             .end(80),
+                                                   trapezoid().name("strong")
+                                                              .start(70.1)
+                                                              .left_top(85)
+                                                              .right_top(90)
+                                                              .end(99.9)))
+                                  .rules("if carSpeed is low then brakeForce is moderate",
+                                         "if carSpeed is medium then brakeForce is strong");
+
+        int rows = 1000;
+        double[][] inputs = new double[1][rows];
+        float[][] floatInputs = new float[1][rows];
+        for (int row = 0; row < rows; row++) {
+            floatInputs[0][row] = 0.16f * row;
+            inputs[0][row] = floatInputs[0][row];
+        }
+
+        for (FuzzyEngine engine : new FuzzyEngine[]{new FuzzyEngine(model, 10000), new FuzzyEngine(model, 1e-3)}) {
+            double[] outputs = new double[rows];
+            float[] floatOutputs = new float[rows];
+            engine.evaluate(new String[]{"carSpeed"}, inputs, outputs);
+            engine.evaluate(new String[]{"carSpeed"}, floatInputs, floatOutputs);
+
+            for (int row = 0; row < rows; row++) {
+                OutputVariable output = engine.evaluate(new InputVariable("carSpeed", inputs[0][row]));
+
+                // test output value, see FuzzyEngine.evaluate(String[], float[][], float[])
+                assertEquals(output.getValue(), outputs[row], 0.0);
+                assertEquals(output.getValue(), floatOutputs[row], 1e-5 * 100 + 1e-3);
+            }
+        }
+
+        double[] outputs = new double[rows];
+        float[] floatOutputs = new float[rows];
+        FuzzyEngine engine = new FuzzyEngine(model, 10000);
+        engine.evaluate(new String[]{"carSpeed"}, inputs, outputs);
+        engine.evaluate(new String[]{"carSpeed"}, floatInputs, floatOutputs);
+        for (int row = 0; row < rows; row++) {
+            assertEquals(outputs[row], floatOutputs[row], 1e-5 * 100);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCarBatchInvalidInput() {
+
+        FuzzyModel model = model().name("car")
+                                  .vars(lv().usage("input")
+                                            .name("carSpeed")
+                                            .terms(triangle().name("low")
+                                                             .start(20)
+                                                             .top(60)
+                                                             .end(100)),
+                                        lv().usage("output")
+                                            .name("brakeForce")
+                                            .terms(triangle().name("moderate")
+                                                             .start(40)
+                                                             .top(60)
+                                                             .end(80)))
+                                  .rules("if carSpeed is low then brakeForce is moderate");
+
+        new FuzzyEngine(model).evaluate(new String[]{"brakeForce"}, new float[1][1], new float[1]);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidTolerance() {
+        new FuzzyEngine(null, 0.0);
+    }
+
     @Test(expected = RuntimeException.class)
     public void testCarInvalidModel() {
 
@@ -408,6 +548,131 @@ public class FuzzyEngineTest {
 
     }
 
+    @Test
+    public void testTipFixedPoint() {
+
+        FuzzyModel model = model().name("tip (fixed-point)")
+                                  .vars(lv().usage("input")
+                                            .name("service")
+                                            .terms(trapezoid().name("poor")
+                                                              .start(0)
+                                                              .left_top(2)
+                                                              .right_top(4)
+                                                              .end(6),
+                                                   trapezoid().name("good")
+                                                              .start(4)
+                                                              .left_top(6)
+                                                              .right_top(8)
+                                                              .end(10),
+                                                   trapezoid().name("excellent")
+                                                              .start(8)
+                                                              .left_top(10)
+                                                              .right_top(12)
+                                                              .end(14)),
+                                        lv().usage("input")
+                                            .name("food")
+                                            .terms(trapezoid().name("rancid")
+                                                              .start(0)
+                                                              .left_top(2)
+                                                              .right_top(4)
+                                                              .end(6),
+                                                   trapezoid().name("tasty")
+                                                              .start(4)
+                                                              .left_top(6)
+                                                              .right_top(8)
+                                                              .end(10),
+                                                   trapezoid().name("delicious")
+                                                              .start(8)
+                                                              .left_top(10)
+                                                              .right_top(12)
+                                                              .end(14)),
+                                        lv().usage("output")
+                                            .name("tip")
+                                            .terms(trapezoid().name("poor")
+                                                              .start(0)
+                                                              .left_top(2)
+                                                              .right_top(4)
+                                                              .end(6),
+                                                   trapezoid().name("average")
+                                                              .start(4)
+                                                              .left_top(6)
+                                                              .right_top(8)
+                                                              .end(10),
+                                                   trapezoid().name("generous")
+                                                              .start(8)
+                                                              .left_top(10)
+                                                              .right_top(12)
+                                                              .end(14)))
+                                  .rules("if (food is rancid or service is poor) then tip is poor",
+                                         "if (food is tasty and service is good) then tip is average",
+                                         "if (food is tasty and service is excellent) then tip is generous",
+                                         "if (food is delicious and service is good) then tip is average",
+                                         "if (food is delicious and service is excellent) then tip is generous"
+                                  );
+
+        FuzzyEngine reference = new FuzzyEngine(model, 1000);
+        FixedPointFormat[] formats = {new FixedPointFormat(8, 23), new FixedPointFormat(16, 15)};
+        double[] tolerances = {1e-4, 1e-3};
+
+        for (int f = 0; f < formats.length; f++) {
+            FixedPointFormat format = formats[f];
+            FuzzyEngine engine = new FuzzyEngine(model, 1000, format);
+
+            int rows = 57 * 57;
+            int[][] inputs = new int[2][rows];
+            int[] outputs = new int[rows];
+            double maxError = 0.0;
+            for (int row = 0; row < rows; row++) {
+                double food = 0.25 * (row / 57);
+                double service = 0.25 * (row % 57);
+                inputs[0][row] = format.toFixed(food);
+                inputs[1][row] = format.toFixed(service);
+
+                OutputVariable expected = reference.evaluate(new InputVariable("food", food),
+                                                             new InputVariable("service", service));
+                OutputVariable output = engine.evaluate(new InputVariable("food", food),
+                                                        new InputVariable("service", service));
+
+                // test output value against the double engine
+                assertEquals(expected.getValue(), output.getValue(), tolerances[f]);
+                if (!Double.isNaN(expected.getValue())) {
+                    maxError = Math.max(maxError, Math.abs(expected.getValue() - output.getValue()));
+                }
+            }
+
+            // test bit-reproducibility of the fixed-point batch
+            engine.evaluate(new String[]{"food", "service"}, inputs, outputs);
+            for (int row = 0; row < rows; row++) {
+                assertEquals(engine.evaluate(new InputVariable("food", format.toDouble(inputs[0][row])),
+                                             new InputVariable("service", format.toDouble(inputs[1][row])))
+                                   .getValue(), format.toDouble(outputs[row]), 0.0);
+            }
+
+            System.out.println(format + ": max. error = " + maxError);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testFixedPointBatchWithoutFormat() {
+
+        FuzzyModel model = model().name("car")
+                                  .vars(lv().usage("input")
+                                            .name("carSpeed")
+                                            .terms(triangle().name("low")
+                                                             .start(20)
+                                                             .top(60)
+                                                             .end(100)),
+                                        lv().usage("output")
+                                            .name("brakeForce")
+                                            .terms(triangle().name("moderate")
+                                                             .start(40)
+                                                             .top(60)
+                                                             .end(80)))
+                                  .rules("if carSpeed is low then brakeForce is moderate");
+
+        new FuzzyEngine(model).evaluate(new String[]{"carSpeed"}, new int[1][1], new int[1]);
+    }
+
     @Test
     public void testTipBug() {
 
@@ -480,4 +745,242 @@ public class FuzzyEngineTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * A grid of rules of two inputs of the given number of terms, which is complete if the number of rules is the
+     * square of the number of terms.
+     */
+    private static FuzzyModel grid(int terms, int count) {
+        FuzzyModel.Term[] inputTerms = new FuzzyModel.Term[terms];
+        for (int t = 0; t < terms; t++) {
+            inputTerms[t] = triangle().name("t" + t)
+                                      .start(t - 1)
+                                      .top(t)
+                                      .end(t + 1);
+        }
+        FuzzyModel.Term[] outputTerms = new FuzzyModel.Term[2 * terms];
+        for (int t = 0; t < 2 * terms; t++) {
+            outputTerms[t] = trapezoid().name("t" + t)
+                                        .start(t - 2)
+                                        .left_top(t - 0.5)
+                                        .right_top(t + 0.5)
+                                        .end(t + 2);
+        }
+        String[] rules = new String[count];
+        for (int i = 0; i < terms; i++) {
+            for (int j = 0; j < terms && i * terms + j < count; j++) {
+                rules[i * terms + j] = String.format("if (x is t%d and y is t%d) then z is t%d", i, j, i + j);
+            }
+        }
+        return model().name("grid")
+                      .vars(lv().usage("input")
+                                .name("x")
+                                .terms(inputTerms),
+                            lv().usage("input")
+                                .name("y")
+                                .terms(inputTerms),
+                            lv().usage("output")
+                                .name("z")
+                                .terms(outputTerms))
+                      .rules(rules);
+    }
+
+    /**
+     * A grid of rules of two inputs evaluated in partitions gives the same output values as a sequential evaluation.
+     */
+    @Test
+    public void testParallel() {
+        // one rule short of a complete grid, which would be looked up in a table instead
+        FuzzyModel model = grid(15, 15 * 15 - 1);
+        CompiledModel compiledModel = CompiledModel.compile(model);
+        assertFalse(compiledModel.isAssociativeMemory());
+        // the sequential engines evaluate the rules of the cell of the input values only
+        assertTrue(compiledModel.isCellDecomposed());
+
+        String[] names = {"x", "y"};
+        double[][] inputs = new double[2][500];
+        for (int row = 0; row < 500; row++) {
+            inputs[0][row] = (row * 7 % 170) / 10.0 - 1;
+            inputs[1][row] = (row * 13 % 170) / 10.0 - 1;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // fixed number of steps and adaptive mode
+            FuzzyEngine[][] engines = {{new FuzzyEngine(model, 1000), new FuzzyEngine(model, 1000)},
+                                       {new FuzzyEngine(model, 1e-3), new FuzzyEngine(model, 1e-3)}};
+            for (FuzzyEngine[] pair : engines) {
+                FuzzyEngine sequential = pair[0];
+                FuzzyEngine parallel = pair[1];
+                parallel.setParallelism(3, executor, 0);
+                assertTrue(parallel.isPartitioned());
+
+                double[] expected = new double[500];
+                double[] actual = new double[500];
+                sequential.evaluate(names, inputs, expected);
+                parallel.evaluate(names, inputs, actual);
+                for (int row = 0; row < 500; row++) {
+                    assertEquals(expected[row], actual[row], 0.0);
+                }
+                assertEquals(sequential.evaluate(new InputVariable("x", 3.3), new InputVariable("y", 7.1))
+                                       .getValue(),
+                             parallel.evaluate(new InputVariable("x", 3.3), new InputVariable("y", 7.1))
+                                     .getValue(), 0.0);
+            }
+
+            // below the cost threshold, the rules are evaluated sequentially
+            FuzzyEngine engine = new FuzzyEngine(model, 1000);
+            engine.setParallelism(3, executor, Long.MAX_VALUE);
+            assertFalse(engine.isPartitioned());
+            engine.setParallelism(3);
+            assertFalse(engine.isPartitioned());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAssociativeMemory() {
+        FuzzyModel model = grid(15, 15 * 15);
+        CompiledModel compiledModel = CompiledModel.compile(model);
+        assertTrue(compiledModel.isAssociativeMemory());
+        assertFalse(compiledModel.isCellDecomposed());
+
+        String[] names = {"x", "y"};
+        double[][] inputs = new double[2][500];
+        for (int row = 0; row < 500; row++) {
+            inputs[0][row] = (row * 7 % 170) / 10.0 - 1;
+            inputs[1][row] = (row * 13 % 170) / 10.0 - 1;
+        }
+
+        // identical to the degrees of relevance computed by the premise network
+        PremiseNetwork network = compiledModel.getPremiseNetwork();
+        double[] inputValues = new double[2];
+        double[] values = new double[network.getNodeCount()];
+        double[] degrees = new double[network.getRuleCount()];
+        double[] grid = new double[1001];
+        int x = network.indexOf("x");
+        int y = network.indexOf("y");
+        FuzzyEngine engine = new FuzzyEngine(compiledModel, 1000);
+        double[] actual = new double[500];
+        engine.evaluate(names, inputs, actual);
+        for (int row = 0; row < 500; row++) {
+            inputValues[x] = inputs[0][row];
+            inputValues[y] = inputs[1][row];
+            network.evaluate(inputValues, values, degrees);
+            assertEquals(compiledModel.getDefuzzifier()
+                                      .defuzzify(degrees, 1000, grid), actual[row], 0.0);
+        }
+
+        // the table is not partitioned
+        engine.setParallelism(3, Runnable::run, 0);
+        assertFalse(engine.isPartitioned());
+        assertEquals(actual[42], engine.evaluate(new InputVariable("x", inputs[0][42]),
+                                                 new InputVariable("y", inputs[1][42]))
+                                        .getValue(), 0.0);
+    }
+
+    /**
+     * A tip model with a variable start of the good service and right top of the average tip.
+     */
+    private static FuzzyModel tip(double goodStart, double averageRightTop) {
+        return model().name("tip")
+                      .vars(lv().usage("input")
+                                .name("service")
+                                .terms(trapezoid().name("poor")
+                                                  .start(0)
+                                                  .left_top(2)
+                                                  .right_top(4)
+                                                  .end(6),
+                                       trapezoid().name("good")
+                                                  .start(goodStart)
+                                                  .left_top(6)
+                                                  .right_top(8)
+                                                  .end(10)),
+                            lv().usage("input")
+                                .name("food")
+                                .terms(trapezoid().name("rancid")
+                                                  .start(0)
+                                                  .left_top(2)
+                                                  .right_top(4)
+                                                  .end(6),
+                                       trapezoid().name("tasty")
+                                                  .start(4)
+                                                  .left_top(6)
+                                                  .right_top(8)
+                                                  .end(10)),
+                            lv().usage("output")
+                                .name("tip")
+                                .terms(trapezoid().name("poor")
+                                                  .start(0)
+                                                  .left_top(2)
+                                                  .right_top(4)
+                                                  .end(6),
+                                       trapezoid().name("average")
+                                                  .start(4)
+                                                  .left_top(6)
+                                                  .right_top(averageRightTop)
+                                                  .end(10),
+                                       trapezoid().name("generous")
+                                                  .start(10)
+                                                  .left_top(12)
+                                                  .right_top(14)
+                                                  .end(16)))
+                      .rules("if (food is rancid or service is poor) then tip is poor",
+                             "if (food is tasty and service is good) then tip is average",
+                             "if service is good then tip is generous");
+    }
+
+    private static double output(FuzzyModel model, InputVariable... input) {
+        return new FuzzyEngine(model, 997).evaluate(input)
+                                          .getValue();
+    }
+
+    /**
+     * The derivatives agree with finite differences of the output value.
+     */
+    @Test
+    public void testGradient() {
+        // a prime number of steps, so that no grid point falls onto a corner of a conclusion
+        FuzzyEngine engine = new FuzzyEngine(tip(3, 8), 997);
+        InputVariable food = new InputVariable("food", 4.9);
+        InputVariable service = new InputVariable("service", 4.7);
+        FuzzyEngine.Gradient gradient = engine.gradient(true, food, service);
+        assertEquals(engine.evaluate(food, service)
+                           .getValue(), gradient.getValue(), 0.0);
+        assertEquals(997, gradient.getNumOfSteps());
+
+        double h = 1e-6;
+        double expected = (output(tip(3, 8), new InputVariable("food", 4.9 + h), service) -
+                output(tip(3, 8), new InputVariable("food", 4.9 - h), service)) / (2 * h);
+        assertEquals(expected, gradient.getDerivative("food"), 1e-6);
+        assertTrue(expected != 0);
+        expected = (output(tip(3, 8), food, new InputVariable("service", 4.7 + h)) -
+                output(tip(3, 8), food, new InputVariable("service", 4.7 - h))) / (2 * h);
+        assertEquals(expected, gradient.getDerivative("Service"), 1e-6);
+        assertTrue(expected != 0);
+
+        // a term of an input and of the output variable
+        expected = (output(tip(3 + h, 8), food, service) - output(tip(3 - h, 8), food, service)) / (2 * h);
+        assertEquals(expected, gradient.getDerivative("service", "good", FuzzyEngine.Gradient.Parameter.START), 1e-6);
+        assertTrue(expected != 0);
+        expected = (output(tip(3, 8 + h), food, service) - output(tip(3, 8 - h), food, service)) / (2 * h);
+        assertEquals(expected, gradient.getDerivative("tip", "average", FuzzyEngine.Gradient.Parameter.RIGHT_TOP),
+                     1e-6);
+        assertTrue(expected != 0);
+        // rancid food does not decide the disjunction
+        assertEquals(0.0, gradient.getDerivative("food", "rancid", FuzzyEngine.Gradient.Parameter.START), 0.0);
+
+        // adaptive mode differentiates the output value for the number of steps it was computed with
+        engine = new FuzzyEngine(tip(3, 8), 1e-6);
+        gradient = engine.gradient(food, service);
+        OutputVariable output = engine.evaluate(food, service);
+        assertEquals(output.getValue(), gradient.getValue(), 0.0);
+        assertEquals(output.getNumOfSteps(), gradient.getNumOfSteps());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testGradientFixedPoint() {
+        new FuzzyEngine(tip(3, 8), 1000, new FixedPointFormat(16, 15)).gradient(new InputVariable("food", 5));
+    }
+
+}
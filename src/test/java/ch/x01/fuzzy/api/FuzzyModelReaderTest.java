@@ -0,0 +1,86 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static ch.x01.fuzzy.api.FuzzyModel.LinguisticVariable.lv;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.triangle;
+import static ch.x01.fuzzy.api.FuzzyModel.model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FuzzyModelReaderTest {
+
+    private static final String CAR = "# brake behaviour of a car driver\n"
+            + "model car\n"
+            + "\n"
+            + "input carSpeed\n"
+            + "  term low triangle 20 60 100\n"
+            + "  term medium triangle 60 100 140\n"
+            + "\n"
+            + "output brakeForce\n"
+            + "  term moderate triangle 40 60 80\n"
+            + "  term strong trapezoid 70 85 85 100\n"
+            + "\n"
+            + "rule if carSpeed is low then brakeForce is moderate\n"
+            + "rule if carSpeed is medium then brakeForce is strong\n";
+
+    @Test
+    public void testRead() throws IOException {
+        FuzzyModel model = FuzzyModelReader.read(new StringReader(CAR));
+
+        FuzzyModel expected = model().name("car")
+                                     .vars(lv().usage("input")
+                                               .name("carSpeed")
+                                               .terms(triangle().name("low")
+                                                                .start(20)
+                                                                .top(60)
+                                                                .end(100),
+                                                      triangle().name("medium")
+                                                                .start(60)
+                                                                .top(100)
+                                                                .end(140)),
+                                           lv().usage("output")
+                                               .name("brakeForce")
+                                               .terms(triangle().name("moderate")
+                                                                .start(40)
+                                                                .top(60)
+                                                                .end(80),
+                                                      triangle().name("strong")
+                                                                .start(70)
+                                                                .top(85)
+                                                                .end(100)))
+                                     .rules("if carSpeed is low then brakeForce is moderate",
+                                            "if carSpeed is medium then brakeForce is strong");
+
+        assertEquals("car", model.getName());
+        assertEquals("brakeForce", model.getOutputVariableName());
+        for (double speed = 0; speed <= 160; speed += 5) {
+            assertEquals(new FuzzyEngine(expected).evaluate(new InputVariable("carSpeed", speed))
+                                                  .getValue(),
+                         new FuzzyEngine(model).evaluate(new InputVariable("carSpeed", speed))
+                                               .getValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void testInvalidTerm() throws IOException {
+        try {
+            FuzzyModelReader.read(new StringReader(CAR.replace("140", "x")));
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage()
+                                        .startsWith("Cannot read model definition at line 6"));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMissingRules() throws IOException {
+        FuzzyModelReader.read(new StringReader(CAR.substring(0, CAR.indexOf("rule"))));
+    }
+
+}
@@ -0,0 +1,137 @@
+package ch.x01.fuzzy.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static ch.x01.fuzzy.api.FuzzyModel.LinguisticVariable.lv;
+import static ch.x01.fuzzy.api.FuzzyModel.Term.trapezoid;
+import static ch.x01.fuzzy.api.FuzzyModel.model;
+import static org.junit.Assert.assertEquals;
+
+public class MappedFileScorerTest {
+
+    private static final String[] NAMES = {"food", "service"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static FuzzyModel tip() {
+        return model().name("tip")
+                      .vars(lv().usage("input")
+                                .name("service")
+                                .terms(trapezoid().name("poor")
+                                                  .start(0)
+                                                  .left_top(2)
+                                                  .right_top(4)
+                                                  .end(6),
+                                       trapezoid().name("good")
+                                                  .start(4)
+                                                  .left_top(6)
+                                                  .right_top(8)
+                                                  .end(10)),
+                            lv().usage("input")
+                                .name("food")
+                                .terms(trapezoid().name("rancid")
+                                                  .start(0)
+                                                  .left_top(2)
+                                                  .right_top(4)
+                                                  .end(6),
+                                       trapezoid().name("tasty")
+                                                  .start(4)
+                                                  .left_top(6)
+                                                  .right_top(8)
+                                                  .end(10)),
+                            lv().usage("output")
+                                .name("tip")
+                                .terms(trapezoid().name("poor")
+                                                  .start(0)
+                                                  .left_top(2)
+                                                  .right_top(4)
+                                                  .end(6),
+                                       trapezoid().name("average")
+                                                  .start(4)
+                                                  .left_top(6)
+                                                  .right_top(8)
+                                                  .end(10)))
+                      .rules("if (food is rancid or service is poor) then tip is poor",
+                             "if (food is tasty and service is good) then tip is average");
+    }
+
+    private static double[][] write(Path file, int records) throws IOException {
+        Random random = new Random(4711);
+        double[][] inputs = new double[NAMES.length][records];
+        ByteBuffer buffer = ByteBuffer.allocate(records * NAMES.length * Double.BYTES)
+                                      .order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = 0; row < records; row++) {
+            for (int j = 0; j < NAMES.length; j++) {
+                inputs[j][row] = random.nextDouble() * 10;
+                buffer.putDouble(inputs[j][row]);
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(buffer);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void testScore() throws IOException {
+        int records = 10007;
+        Path input = folder.newFile("input.bin")
+                           .toPath();
+        Path output = folder.getRoot()
+                            .toPath()
+                            .resolve("output.bin");
+        double[][] inputs = write(input, records);
+
+        // small chunks, so that several windows are mapped by several threads
+        MappedFileScorer scorer = new MappedFileScorer(() -> new FuzzyEngine(tip()), 3, 1000);
+        MappedFileScorer.Report report = scorer.score(input, NAMES, output);
+        System.out.println(report);
+
+        double[] expected = new double[records];
+        new FuzzyEngine(tip()).evaluate(NAMES, inputs, expected);
+
+        ByteBuffer actual = ByteBuffer.wrap(Files.readAllBytes(output))
+                                      .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(records, report.getRecords());
+        assertEquals(records * Double.BYTES, actual.capacity());
+        for (int row = 0; row < records; row++) {
+            assertEquals(expected[row], actual.getDouble(), 0.0);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testIncompleteRecord() throws IOException {
+        Path input = folder.newFile("input.bin")
+                           .toPath();
+        Files.write(input, new byte[Double.BYTES * 3]);
+
+        new MappedFileScorer(() -> new FuzzyEngine(tip())).score(input, NAMES, folder.getRoot()
+                                                                                     .toPath()
+                                                                                     .resolve("output.bin"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testNoFields() throws IOException {
+        Path input = folder.newFile("input.bin")
+                           .toPath();
+        Files.write(input, new byte[Double.BYTES * 3]);
+
+        new MappedFileScorer(() -> new FuzzyEngine(tip())).score(input, new String[0], folder.getRoot()
+                                                                                         .toPath()
+                                                                                         .resolve("output.bin"));
+    }
+
+}
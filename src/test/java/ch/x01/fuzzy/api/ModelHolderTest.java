@@ -0,0 +1,154 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import ch.x01.fuzzy.core.FixedPointFormat;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModelHolderTest {
+
+    private static final String[] NAMES = {"carSpeed"};
+
+    private static double evaluate(FuzzyEngine engine, double speed) {
+        return engine.evaluate(new InputVariable("carSpeed", speed))
+                     .getValue();
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        ModelHolder holder = new ModelHolder(TestModels.car(85), Runnable::run);
+        FuzzyEngine engine = holder.newEngine(1000);
+        FuzzyEngine fixed = holder.newEngine(1000, new FixedPointFormat(12, 19));
+        assertEquals(1, holder.getCurrent()
+                              .getNumber());
+        assertEquals(evaluate(new FuzzyEngine(TestModels.car(85)), 110), evaluate(engine, 110), 0.0);
+        double fixedBefore = evaluate(fixed, 110);
+
+        ModelHolder.Version version = holder.reload(TestModels.car(95))
+                                            .get();
+        assertEquals(2, version.getNumber());
+        assertSame(version, holder.getCurrent());
+        assertEquals(evaluate(new FuzzyEngine(TestModels.car(95)), 110), evaluate(engine, 110), 0.0);
+        assertNotEquals(fixedBefore, evaluate(fixed, 110), 0.01);
+
+        // batch evaluations bind to the new version as well
+        double[][] inputs = {{30, 70, 110}};
+        double[] expected = new double[3];
+        double[] outputs = new double[3];
+        new FuzzyEngine(TestModels.car(95)).evaluate(NAMES, inputs, expected);
+        engine.evaluate(NAMES, inputs, outputs);
+        for (int row = 0; row < 3; row++) {
+            assertEquals(expected[row], outputs[row], 0.0);
+        }
+
+        ModelHolder.Statistics statistics = holder.getStatistics();
+        System.out.println(statistics);
+        assertEquals(2, statistics.getVersion());
+        assertEquals(1, statistics.getSwaps());
+        assertTrue(statistics.getLastReloadNanos() >= statistics.getLastSwapNanos());
+    }
+
+    @Test
+    public void testSupersededAndFailedReload() throws Exception {
+        List<Runnable> compilations = new ArrayList<>();
+        ModelHolder holder = new ModelHolder(TestModels.car(85), compilations::add);
+
+        // version 3 is published before version 2 has been compiled
+        CompletableFuture<ModelHolder.Version> second = holder.reload(TestModels.car(90));
+        CompletableFuture<ModelHolder.Version> third = holder.reload(TestModels.car(95));
+        compilations.get(1)
+                    .run();
+        compilations.get(0)
+                    .run();
+        assertEquals(3, third.get()
+                             .getNumber());
+        try {
+            second.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("Cannot publish version 2 because version 3 is newer.", e.getCause()
+                                                                                   .getMessage());
+        }
+
+        // a model that does not compile leaves the current version in place
+        FuzzyModel invalid = TestModels.car(85, "if carSpeed is fast then brakeForce is strong");
+        CompletableFuture<ModelHolder.Version> fourth = holder.reload(invalid);
+        compilations.get(2)
+                    .run();
+        assertTrue(fourth.isCompletedExceptionally());
+        assertEquals(3, holder.getCurrent()
+                              .getNumber());
+
+        ModelHolder.Statistics statistics = holder.getStatistics();
+        assertEquals(1, statistics.getSwaps());
+        assertEquals(1, statistics.getSuperseded());
+        assertEquals(1, statistics.getFailed());
+    }
+
+    @Test
+    public void testConcurrentReload() throws Exception {
+        double[] tops = {85, 95};
+        ModelHolder holder = new ModelHolder(TestModels.car(tops[0]), Runnable::run);
+        double[] expected = new double[tops.length];
+        for (int i = 0; i < tops.length; i++) {
+            expected[i] = evaluate(new FuzzyEngine(TestModels.car(tops[i])), 110);
+        }
+
+        // evaluators run without interruption while the model is swapped back and forth
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong evaluations = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                FuzzyEngine engine = holder.newEngine(1000);
+                try {
+                    while (running.get()) {
+                        double value = evaluate(engine, 110);
+                        if (value != expected[0] && value != expected[1]) {
+                            throw new AssertionError("unexpected output " + value);
+                        }
+                        evaluations.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        while (evaluations.get() == 0) {
+            Thread.yield();
+        }
+        for (int i = 1; i <= 50; i++) {
+            holder.reload(TestModels.car(tops[i % 2]))
+                  .get();
+            Thread.sleep(1);
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertTrue(evaluations.get() > 0);
+        assertEquals(51, holder.getCurrent()
+                               .getNumber());
+        assertEquals(expected[0], evaluate(holder.newEngine(1000), 110), 0.0);
+    }
+
+}
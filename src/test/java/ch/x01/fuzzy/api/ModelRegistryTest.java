@@ -0,0 +1,170 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModelRegistryTest {
+
+    private static double evaluate(ModelRegistry registry, String tenant, double speed) {
+        return registry.evaluate(tenant, new InputVariable("carSpeed", speed))
+                       .getValue();
+    }
+
+    @Test
+    public void testCompactStorage() {
+        ModelRegistry registry = new ModelRegistry(10, Long.MAX_VALUE, 1000);
+        registry.register("a", TestModels.car(85));
+        registry.register("b", TestModels.car(85));
+        registry.register("c", TestModels.car(95));
+
+        FuzzyModel a = registry.getModel("a");
+        FuzzyModel b = registry.getModel("b");
+        FuzzyModel c = registry.getModel("c");
+        assertSame(a.getLinguisticVariables()
+                    .get(1), b.getLinguisticVariables()
+                              .get(1));
+        assertSame(a.getRules()
+                    .get(0), c.getRules()
+                              .get(0));
+        // the input variable is shared, the output variables differ in one term and share the others
+        assertSame(a.getLinguisticVariables()
+                    .get(0), c.getLinguisticVariables()
+                              .get(0));
+        assertSame(a.getLinguisticVariables()
+                    .get(1)
+                    .getTerms()
+                    .get(0), c.getLinguisticVariables()
+                              .get(1)
+                              .getTerms()
+                              .get(0));
+
+        assertEquals(new FuzzyEngine(TestModels.car(95)).evaluate(new InputVariable("carSpeed", 110))
+                                             .getValue(), evaluate(registry, "c", 110), 0.0);
+
+        ModelRegistry.Statistics statistics = registry.getStatistics();
+        System.out.println(statistics);
+        assertEquals(3, statistics.getModels());
+        assertTrue(statistics.getBytesPerModel() > 0);
+        assertTrue(statistics.getBytesPerCachedModel() > 0);
+    }
+
+    @Test
+    public void testReleaseShared() {
+        ModelRegistry registry = new ModelRegistry(10, Long.MAX_VALUE, 1000);
+        registry.register("a", TestModels.car(85));
+        registry.register("b", TestModels.car(85));
+        long shared = registry.getStatistics()
+                              .getSharedBytes();
+        registry.register("c", TestModels.car(95));
+        assertTrue(registry.getStatistics()
+                           .getSharedBytes() > shared);
+
+        // replacing and removing models releases the objects only they shared
+        registry.register("c", TestModels.car(85));
+        assertEquals(shared, registry.getStatistics()
+                                     .getSharedBytes());
+        registry.register("c", TestModels.car(95));
+        registry.unregister("c");
+        assertEquals(shared, registry.getStatistics()
+                                     .getSharedBytes());
+        registry.unregister("a");
+        assertEquals(shared, registry.getStatistics()
+                                     .getSharedBytes());
+        assertEquals(new FuzzyEngine(TestModels.car(85)).evaluate(new InputVariable("carSpeed", 110))
+                                             .getValue(), evaluate(registry, "b", 110), 0.0);
+        registry.unregister("b");
+        assertEquals(0, registry.getStatistics()
+                                .getSharedBytes());
+    }
+
+    @Test
+    public void testEviction() {
+        ModelRegistry registry = new ModelRegistry(2, Long.MAX_VALUE, 1000);
+        for (int i = 0; i < 3; i++) {
+            registry.register("tenant" + i, TestModels.car(80 + 5 * i));
+        }
+        evaluate(registry, "tenant0", 110);
+        evaluate(registry, "tenant1", 110);
+        evaluate(registry, "tenant0", 110);
+        // evicts tenant1, the least recently used
+        evaluate(registry, "tenant2", 110);
+        evaluate(registry, "tenant0", 110);
+        evaluate(registry, "tenant1", 110);
+
+        ModelRegistry.Statistics statistics = registry.getStatistics();
+        assertEquals(2, statistics.getCachedModels());
+        assertEquals(4, statistics.getCompiles());
+        assertEquals(2, statistics.getHits());
+        assertEquals(2, statistics.getEvictions());
+
+        // a budget smaller than a single compiled model keeps the most recently used one only
+        ModelRegistry small = new ModelRegistry(10, 1, 1000);
+        small.register("tenant0", TestModels.car(80));
+        small.register("tenant1", TestModels.car(85));
+        evaluate(small, "tenant0", 110);
+        evaluate(small, "tenant1", 110);
+        assertEquals(1, small.getStatistics()
+                             .getCachedModels());
+
+        // replacing a model drops its compiled model
+        registry.register("tenant0", TestModels.car(95));
+        assertEquals(new FuzzyEngine(TestModels.car(95)).evaluate(new InputVariable("carSpeed", 110))
+                                             .getValue(), evaluate(registry, "tenant0", 110), 0.0);
+        assertTrue(registry.unregister("tenant0"));
+        assertNull(registry.getModel("tenant0"));
+        try {
+            evaluate(registry, "tenant0", 110);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("Cannot evaluate model of tenant \"tenant0\" because it is not registered.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testConcurrentCompile() throws Exception {
+        ModelRegistry registry = new ModelRegistry(10, Long.MAX_VALUE, 1000);
+        registry.register("tenant", TestModels.car(85));
+        double expected = new FuzzyEngine(TestModels.car(85)).evaluate(new InputVariable("carSpeed", 110))
+                                                  .getValue();
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        assertEquals(expected, evaluate(registry, "tenant", 110), 0.0);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        ModelRegistry.Statistics statistics = registry.getStatistics();
+        System.out.println(statistics);
+        assertEquals(1, statistics.getCompiles());
+        assertEquals(800, statistics.getHits() + statistics.getMisses());
+    }
+
+}
@@ -0,0 +1,91 @@
+package ch.x01.fuzzy.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The models of the tests, read from the definitions in <code>/models</code> (see {@link FuzzyModelReader}). Every
+ * call reads the definition anew, so that the names and rule texts of two models are distinct strings.
+ */
+public final class TestModels {
+
+    private static final String STRONG = "term strong triangle 70 85 100";
+    private static final String MEDIUM_RULE = "rule if carSpeed is medium then brakeForce is strong";
+
+    private TestModels() {
+    }
+
+    /**
+     * Reads a model.
+     *
+     * @param name the name of the definition, without its extension
+     * @return the model
+     */
+    public static FuzzyModel read(String name) {
+        return parse(definition(name));
+    }
+
+    /**
+     * Returns the car model, which brakes moderately at low speed and strongly at medium speed.
+     *
+     * @return the model
+     */
+    public static FuzzyModel car() {
+        return read("car");
+    }
+
+    /**
+     * Returns the car model with the peak of the strong brake force at the given position.
+     *
+     * @param strongTop the top of the term <code>strong</code>
+     * @return the model
+     */
+    public static FuzzyModel car(double strongTop) {
+        return car(strongTop, "if carSpeed is medium then brakeForce is strong");
+    }
+
+    /**
+     * Returns the car model with the peak of the strong brake force at the given position and another second rule.
+     *
+     * @param strongTop  the top of the term <code>strong</code>
+     * @param secondRule the text of the rule replacing the rule of medium speed
+     * @return the model
+     */
+    public static FuzzyModel car(double strongTop, String secondRule) {
+        String definition = definition("car");
+        if (!definition.contains(STRONG) || !definition.contains(MEDIUM_RULE)) {
+            throw new RuntimeException("Cannot vary the car model because its definition has changed.");
+        }
+        return parse(definition.replace(STRONG, "term strong triangle 70 " + strongTop + " 100")
+                               .replace(MEDIUM_RULE, "rule " + secondRule));
+    }
+
+    private static FuzzyModel parse(String definition) {
+        try {
+            return FuzzyModelReader.read(new StringReader(definition));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String definition(String name) {
+        try (InputStream in = TestModels.class.getResourceAsStream("/models/" + name + ".model")) {
+            if (in == null) {
+                throw new RuntimeException(String.format("Cannot read model \"%s\" because it does not exist.", name));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package ch.x01.fuzzy.cli;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyModel;
+import ch.x01.fuzzy.api.FuzzyModelReader;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CsvPipelineTest {
+
+    private static final String[] NAMES = {"food", "service"};
+
+    private static final String TIP = "model tip\n"
+            + "input service\n"
+            + "  term poor trapezoid 0 2 4 6\n"
+            + "  term good trapezoid 4 6 8 10\n"
+            + "input food\n"
+            + "  term rancid trapezoid 0 2 4 6\n"
+            + "  term tasty trapezoid 4 6 8 10\n"
+            + "output tip\n"
+            + "  term poor trapezoid 0 2 4 6\n"
+            + "  term average trapezoid 4 6 8 10\n"
+            + "rule if (food is rancid or service is poor) then tip is poor\n"
+            + "rule if (food is tasty and service is good) then tip is average\n";
+
+    private static FuzzyModel tip() {
+        try {
+            return FuzzyModelReader.read(new StringReader(TIP));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        int rows = 10007;
+        Random random = new Random(4711);
+        double[][] inputs = new double[NAMES.length][rows];
+        StringBuilder csv = new StringBuilder("food, service\n");
+        for (int row = 0; row < rows; row++) {
+            for (int j = 0; j < NAMES.length; j++) {
+                inputs[j][row] = random.nextInt(10000) / 1000.0;
+            }
+            csv.append(String.format(Locale.ROOT, "%s,%s\n", inputs[0][row], inputs[1][row]));
+        }
+
+        // small batches, so that many batches are in flight on several threads
+        StringWriter out = new StringWriter();
+        CsvPipeline.Statistics statistics = new CsvPipeline(() -> new FuzzyEngine(tip()), 3, 100)
+                .run(new BufferedReader(new StringReader(csv.toString())), out);
+        System.out.println(statistics);
+
+        double[] expected = new double[rows];
+        new FuzzyEngine(tip()).evaluate(NAMES, inputs, expected);
+
+        String[] lines = out.toString()
+                            .split("\n");
+        assertEquals(rows, statistics.getRows());
+        assertEquals(rows + 1, lines.length);
+        assertEquals("food, service,tip", lines[0]);
+        for (int row = 0; row < rows; row++) {
+            String[] values = lines[row + 1].split(",");
+            assertEquals(inputs[0][row], Double.parseDouble(values[0]), 0.0);
+            assertEquals(expected[row], Double.parseDouble(values[2]), 0.0);
+        }
+    }
+
+    @Test
+    public void testInvalidRow() throws IOException {
+        String csv = "food,service\n1,2\n\n3,4\n5\n";
+        try {
+            new CsvPipeline(() -> new FuzzyEngine(tip()), 2, 1).run(new BufferedReader(new StringReader(csv)),
+                                                                    new StringWriter());
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage()
+                                        .startsWith("Cannot evaluate CSV input at line 5"));
+        }
+    }
+
+    @Test
+    public void testParseDouble() {
+        String[] numbers = {"0", "-0", "+1", " 7.5 ", "1e3", "-2.5E-3", ".5", "5.", "0.1", "123456789012345",
+                            "1234567890123456789", "0.30000000000000004", "1e22", "1e23", "1e-22", "1e-300",
+                            "4.9e-324", "NaN", "-Infinity", "0x1p3", "1d", "00012.50"};
+        for (String number : numbers) {
+            char[] chars = ("," + number + ",").toCharArray();
+            assertEquals(number, Double.parseDouble(number), CsvPipeline.parseDouble(chars, 1, chars.length - 1), 0.0);
+        }
+        Random random = new Random(4711);
+        for (int i = 0; i < 100000; i++) {
+            String number = random.nextInt(2) == 0 ? Double.toString(random.nextDouble() * 1000)
+                    : String.format(Locale.ROOT, "%." + random.nextInt(8) + "f", random.nextGaussian() * 100);
+            char[] chars = number.toCharArray();
+            assertEquals(number, Double.parseDouble(number), CsvPipeline.parseDouble(chars, 0, chars.length), 0.0);
+        }
+
+        String[] invalid = {"", " ", "-", ".", "e3", "1e", "1.2.3", "1,5", "abc"};
+        for (String number : invalid) {
+            try {
+                CsvPipeline.parseDouble(number.toCharArray(), 0, number.length());
+                fail(number);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLineTerminators() throws IOException {
+        StringWriter out = new StringWriter();
+        new CsvPipeline(() -> new FuzzyEngine(tip()), 2, 2).run(new BufferedReader(new StringReader(
+                "food,service\r\n1,2\r\n\r\n3, 4\n5,6")), out);
+        String[] lines = out.toString()
+                            .split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("1,2," + expected(1, 2), lines[1]);
+        assertEquals("3, 4," + expected(3, 4), lines[2]);
+        assertEquals("5,6," + expected(5, 6), lines[3]);
+    }
+
+    private static double expected(double food, double service) {
+        double[] output = new double[1];
+        new FuzzyEngine(tip()).evaluate(NAMES, new double[][]{{food}, {service}}, output);
+        return output[0];
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidHeader() throws IOException {
+        new CsvPipeline(() -> new FuzzyEngine(tip()), 1, 10).run(new BufferedReader(new StringReader("food,price\n")),
+                                                                 new StringWriter());
+    }
+
+}
@@ -0,0 +1,318 @@
+package ch.x01.fuzzy.control;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyModel;
+import ch.x01.fuzzy.api.FuzzyModelReader;
+import ch.x01.fuzzy.core.FixedPointFormat;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * This class measures the latency of the evaluations of an engine controlling a {@link VehiclePlant} in closed loop.
+ * <p>
+ * Every tick evaluates the brake force for the current speed of the vehicle and advances the simulation by 1 ms with
+ * it, so that the inputs follow the dynamics of a control loop rather than a random or constant sequence. The ticks
+ * run back to back; the latency of every evaluation is recorded in a {@link LatencyHistogram}. A tick during which
+ * a garbage collection has completed is recorded in a second histogram as well, which tells whether the tail of the
+ * latency is caused by collections. Run as a program, it prints a line per engine mode, headed by the JVM, its flags
+ * and its collectors, so that results of different modes and JVM flags are comparable:
+ * </p>
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=ch.x01.fuzzy.control.ClosedLoopBenchmark \
+ *     -Djmh.args="src/test/resources/models/car.model [ticks]" [-Djmh.jvmArgs="JVM flags"]
+ * </pre>
+ * The model must have the input variable <code>carSpeed</code> in km/h and an output variable for the brake force,
+ * as the car model of the tests.
+ */
+public class ClosedLoopBenchmark {
+
+    /**
+     * The simulated time step in seconds, i.e. a control loop of 1 kHz.
+     */
+    public static final double DT = 0.001;
+
+    private static final String[] NAMES = {"carSpeed"};
+    private static final long HIGHEST_TRACKABLE_NANOS = 10_000_000_000L;
+    private static final FixedPointFormat FORMAT = new FixedPointFormat(12, 19);
+
+    /**
+     * The engine modes.
+     */
+    public enum Mode {
+        /**
+         * Double precision with 1000 steps.
+         */
+        STEPS,
+        /**
+         * Double precision in adaptive mode with a tolerance of 0.1% of the range of the output variable.
+         */
+        ADAPTIVE,
+        /**
+         * Single precision with 1000 steps.
+         */
+        FLOAT,
+        /**
+         * Fixed-point arithmetic in format Q12.19 with 1000 steps.
+         */
+        FIXED_POINT
+    }
+
+    private final Mode mode;
+    private final FuzzyEngine engine;
+    private final GarbageCollectorMXBean[] collectors;
+
+    // a batch of one row, which does not allocate output variables
+    private final double[][] inputs = new double[1][1];
+    private final double[] outputs = new double[1];
+    private final float[][] floatInputs = new float[1][1];
+    private final float[] floatOutputs = new float[1];
+    private final int[][] fixedInputs = new int[1][1];
+    private final int[] fixedOutputs = new int[1];
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param model the model, with the input variable <code>carSpeed</code>
+     * @param mode  the engine mode
+     */
+    public ClosedLoopBenchmark(FuzzyModel model, Mode mode) {
+        if (!model.isValidInputVariable(NAMES[0])) {
+            throw new RuntimeException(String.format("Cannot control a vehicle because model %s has no input variable %s.",
+                                                     model.getName(), NAMES[0]));
+        }
+        this.mode = mode;
+        switch (mode) {
+            case ADAPTIVE:
+                this.engine = new FuzzyEngine(model, 1e-3 * outputWidth(model));
+                break;
+            case FIXED_POINT:
+                this.engine = new FuzzyEngine(model, 1000, FORMAT);
+                break;
+            default:
+                this.engine = new FuzzyEngine(model, 1000);
+        }
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        this.collectors = beans.toArray(new GarbageCollectorMXBean[0]);
+    }
+
+    private static double outputWidth(FuzzyModel model) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (FuzzyModel.LinguisticVariable var : model.getLinguisticVariables()) {
+            if ("output".equals(var.getUsage())) {
+                for (FuzzyModel.Term term : var.getTerms()) {
+                    min = Math.min(min, term.getStart());
+                    max = Math.max(max, term.getEnd());
+                }
+            }
+        }
+        return max - min;
+    }
+
+    private long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Evaluates the brake force for a speed.
+     */
+    private double control(double speed) {
+        switch (mode) {
+            case FLOAT:
+                floatInputs[0][0] = (float) speed;
+                engine.evaluate(NAMES, floatInputs, floatOutputs);
+                return floatOutputs[0];
+            case FIXED_POINT:
+                fixedInputs[0][0] = FORMAT.toFixed(speed);
+                engine.evaluate(NAMES, fixedInputs, fixedOutputs);
+                return FORMAT.toDouble(fixedOutputs[0]);
+            default:
+                inputs[0][0] = speed;
+                engine.evaluate(NAMES, inputs, outputs);
+                return outputs[0];
+        }
+    }
+
+    /**
+     * Runs the closed loop for the given number of ticks after a warm-up, which is not measured.
+     *
+     * @param warmupTicks the number of ticks of the warm-up
+     * @param ticks       the number of measured ticks
+     * @return the report
+     */
+    public Report run(long warmupTicks, long ticks) {
+        VehiclePlant plant = new VehiclePlant(60);
+        for (long t = 0; t < warmupTicks; t++) {
+            plant.step(control(plant.getSpeed()), DT);
+        }
+
+        LatencyHistogram latencies = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        LatencyHistogram collectionLatencies = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        double minSpeed = Double.POSITIVE_INFINITY;
+        double maxSpeed = Double.NEGATIVE_INFINITY;
+        long startCollections = collections();
+        long startCollectionMillis = collectionMillis();
+        long collections = startCollections;
+        for (long t = 0; t < ticks; t++) {
+            double speed = plant.getSpeed();
+            long start = System.nanoTime();
+            double brakeForce = control(speed);
+            long latency = System.nanoTime() - start;
+            latencies.record(latency);
+
+            // a collection has completed since the previous tick
+            long current = collections();
+            if (current != collections) {
+                collectionLatencies.record(latency);
+                collections = current;
+            }
+
+            plant.step(brakeForce, DT);
+            minSpeed = Math.min(minSpeed, speed);
+            maxSpeed = Math.max(maxSpeed, speed);
+        }
+        return new Report(mode, latencies, collectionLatencies, collections - startCollections,
+                          collectionMillis() - startCollectionMillis, minSpeed, maxSpeed);
+    }
+
+    /**
+     * The result of a run.
+     */
+    public static class Report {
+        private final Mode mode;
+        private final LatencyHistogram latencies;
+        private final LatencyHistogram collectionLatencies;
+        private final long collections;
+        private final long collectionMillis;
+        private final double minSpeed;
+        private final double maxSpeed;
+
+        private Report(Mode mode, LatencyHistogram latencies, LatencyHistogram collectionLatencies, long collections,
+                       long collectionMillis, double minSpeed, double maxSpeed) {
+            this.mode = mode;
+            this.latencies = latencies;
+            this.collectionLatencies = collectionLatencies;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+            this.minSpeed = minSpeed;
+            this.maxSpeed = maxSpeed;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * Returns the latencies of all measured ticks.
+         *
+         * @return the histogram of the latencies in nanoseconds
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * Returns the latencies of the ticks during which a garbage collection has completed.
+         *
+         * @return the histogram of the latencies in nanoseconds
+         */
+        public LatencyHistogram getCollectionLatencies() {
+            return collectionLatencies;
+        }
+
+        /**
+         * Returns the number of garbage collections during the measured ticks.
+         */
+        public long getCollections() {
+            return collections;
+        }
+
+        /**
+         * Returns the accumulated time of the garbage collections during the measured ticks.
+         *
+         * @return the time in milliseconds, as reported by the collectors
+         */
+        public long getCollectionMillis() {
+            return collectionMillis;
+        }
+
+        /**
+         * Returns the number of ticks slower than the given percentile of all ticks during which a garbage
+         * collection has completed, i.e. the share of the tail that is correlated with collections.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the number of ticks
+         */
+        public long getCollectionTicksAbove(double percentile) {
+            return collectionLatencies.getCountAbove(latencies.getValueAtPercentile(percentile));
+        }
+
+        public double getMinSpeed() {
+            return minSpeed;
+        }
+
+        public double getMaxSpeed() {
+            return maxSpeed;
+        }
+
+        /**
+         * Returns the header of the columns of {@link #toString()}.
+         *
+         * @return the header
+         */
+        public static String header() {
+            return String.format("%-12s %10s %8s %8s %8s %8s %8s %8s %10s %6s %8s %14s", "mode", "ticks", "mean",
+                                 "p50", "p90", "p99", "p99.9", "p99.99", "max [us]", "gcs", "gc [ms]",
+                                 "> p99.9 in gc");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %10d %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f %10.2f %6d %8d %7d of %-4d", mode,
+                                 latencies.getCount(), latencies.getMean() / 1e3,
+                                 latencies.getValueAtPercentile(50) / 1e3, latencies.getValueAtPercentile(90) / 1e3,
+                                 latencies.getValueAtPercentile(99) / 1e3, latencies.getValueAtPercentile(99.9) / 1e3,
+                                 latencies.getValueAtPercentile(99.99) / 1e3, latencies.getMax() / 1e3, collections,
+                                 collectionMillis, getCollectionTicksAbove(99.9),
+                                 latencies.getCountAbove(latencies.getValueAtPercentile(99.9)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ClosedLoopBenchmark <model file> [ticks]");
+            System.exit(2);
+        }
+        FuzzyModel model = FuzzyModelReader.read(Paths.get(args[0]));
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000;
+
+        System.out.printf("%s %s, flags %s, collectors", System.getProperty("java.vm.name"),
+                          System.getProperty("java.vm.version"), ManagementFactory.getRuntimeMXBean()
+                                                                                  .getInputArguments());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            System.out.printf(" %s", collector.getName());
+        }
+        System.out.printf("%nmodel %s, %d ticks of %.0f ms%n", model.getName(), ticks, DT * 1e3);
+        System.out.println(Report.header());
+        for (Mode mode : Mode.values()) {
+            System.out.println(new ClosedLoopBenchmark(model, mode).run(Math.min(ticks / 10, 1_000_000), ticks));
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package ch.x01.fuzzy.control;
+
+import ch.x01.fuzzy.api.TestModels;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClosedLoopBenchmarkTest {
+
+    @Test
+    public void testRun() {
+        System.out.println(ClosedLoopBenchmark.Report.header());
+        for (ClosedLoopBenchmark.Mode mode : ClosedLoopBenchmark.Mode.values()) {
+            ClosedLoopBenchmark.Report report = new ClosedLoopBenchmark(TestModels.car(), mode).run(10_000,
+                                                                                                             40_000);
+            System.out.println(report);
+            assertEquals(40_000, report.getLatencies()
+                                       .getCount());
+            assertTrue(report.getLatencies()
+                             .getValueAtPercentile(50) > 0);
+            assertTrue(report.getCollectionLatencies()
+                             .getCount() <= report.getCollections());
+
+            // the brake keeps the vehicle within the range of the model
+            assertTrue(report.getMinSpeed() > 20);
+            assertTrue(report.getMaxSpeed() < 140);
+        }
+    }
+
+    @Test
+    public void testPlant() {
+        // the speed sweeps the rules of the car model over a period of the throttle
+        ClosedLoopBenchmark benchmark = new ClosedLoopBenchmark(TestModels.car(),
+                                                                ClosedLoopBenchmark.Mode.STEPS);
+        ClosedLoopBenchmark.Report report = benchmark.run(0, 60_000);
+        System.out.printf("speed %.1f - %.1f km/h%n", report.getMinSpeed(), report.getMaxSpeed());
+        assertTrue(report.getMinSpeed() < 60);
+        assertTrue(report.getMaxSpeed() > 100);
+    }
+
+}
@@ -0,0 +1,178 @@
+package ch.x01.fuzzy.control;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.TestModels;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ControlLoopTest {
+
+    private static final long PERIOD = 1_000_000;
+    private static final String[] NAMES = {"carSpeed"};
+
+    @Test
+    public void testFixedRate() {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        ControlLoop.SimulatedClock clock = new ControlLoop.SimulatedClock();
+        double[] speed = {30};
+        List<Double> outputs = new ArrayList<>();
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{() -> speed[0]++},
+                                          outputs::add);
+        loop.setClock(clock);
+        loop.run(100);
+
+        assertEquals(100, loop.getTicks());
+        assertEquals(0, loop.getMissedDeadlines());
+        assertEquals(99 * PERIOD, clock.nanoTime());
+        assertEquals(0, loop.getJitter()
+                            .getMax());
+        assertFalse(loop.isRunning());
+
+        FuzzyEngine reference = new FuzzyEngine(TestModels.car(), 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(reference.evaluate(new FuzzyEngine.InputVariable("carSpeed", 30 + i))
+                                  .getValue(), outputs.get(i), 1e-12);
+        }
+    }
+
+    @Test
+    public void testMissedDeadlines() {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        ControlLoop.SimulatedClock clock = new ControlLoop.SimulatedClock();
+        int[] count = new int[1];
+        // every tenth tick takes two and a half periods
+        DoubleSupplier slow = () -> {
+            if (count[0]++ % 10 == 9) {
+                clock.advance(5 * PERIOD / 2);
+            }
+            return 70;
+        };
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{slow}, output -> {
+        });
+        loop.setClock(clock);
+        loop.run(100);
+        System.out.println(loop);
+
+        assertEquals(100, loop.getTicks());
+        // the two deadlines passed by a slow tick are skipped, the next tick is on time
+        assertEquals(20, loop.getMissedDeadlines());
+        // the last tick is a slow one
+        assertEquals(99 * PERIOD + 18 * PERIOD + 5 * PERIOD / 2, clock.nanoTime());
+        assertEquals(0, loop.getJitter()
+                            .getMax());
+        assertEquals(5 * PERIOD / 2, loop.getDurations()
+                                         .getMax());
+    }
+
+    @Test
+    public void testNoAllocation() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        VehiclePlant plant = new VehiclePlant(60);
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{plant::getSpeed},
+                                          brakeForce -> plant.step(brakeForce, PERIOD / 1e9));
+        loop.setClock(new ControlLoop.SimulatedClock());
+        loop.run(20_000);
+
+        long id = Thread.currentThread()
+                        .getId();
+        long start = threadBean.getThreadAllocatedBytes(id);
+        loop.run(20_000);
+        long bytes = threadBean.getThreadAllocatedBytes(id) - start;
+        System.out.printf("%d bytes allocated by 20000 ticks%n", bytes);
+        assertTrue(bytes < 20_000);
+    }
+
+    @Test
+    public void testThread() throws InterruptedException {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{() -> 70}, output -> {
+        });
+        long start = System.nanoTime();
+        loop.start();
+        assertTrue(loop.isRunning());
+        Thread.sleep(200);
+        loop.stop();
+        long elapsed = System.nanoTime() - start;
+        System.out.println(loop);
+
+        assertFalse(loop.isRunning());
+        // a fixed rate does not drift ahead of the clock
+        assertTrue(loop.getTicks() > 0);
+        assertTrue(loop.getTicks() + loop.getMissedDeadlines() <= elapsed / PERIOD + 1);
+    }
+
+    @Test
+    public void testFailedTicks() {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        ControlLoop.SimulatedClock clock = new ControlLoop.SimulatedClock();
+        int[] count = new int[1];
+        // every third input value is rejected by the sensor
+        DoubleSupplier failing = () -> {
+            if (count[0]++ % 3 == 2) {
+                throw new RuntimeException("Cannot read sensor.");
+            }
+            return 70;
+        };
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{failing}, output -> {
+        });
+        loop.setClock(clock);
+        loop.run(99);
+
+        assertEquals(66, loop.getTicks());
+        assertEquals(33, loop.getFailedTicks());
+        assertEquals("Cannot read sensor.", loop.getLastFailure()
+                                                .getMessage());
+        assertEquals(98 * PERIOD, clock.nanoTime());
+    }
+
+    @Test
+    public void testNanoTimeOverflow() {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        ControlLoop.SimulatedClock clock = new ControlLoop.SimulatedClock();
+        // the clock passes Long.MAX_VALUE during the run
+        clock.advance(Long.MAX_VALUE - 10 * PERIOD);
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{() -> 70}, output -> {
+        });
+        loop.setClock(clock);
+        loop.run(100);
+
+        assertEquals(100, loop.getTicks());
+        assertEquals(0, loop.getMissedDeadlines());
+        assertEquals(Long.MAX_VALUE - 10 * PERIOD + 99 * PERIOD, clock.nanoTime());
+    }
+
+    @Test
+    public void testError() throws InterruptedException {
+        FuzzyEngine engine = new FuzzyEngine(TestModels.car(), 100);
+        ControlLoop loop = new ControlLoop("car", engine, PERIOD, NAMES, new DoubleSupplier[]{() -> 70}, output -> {
+            throw new AssertionError("actuator");
+        });
+        loop.start();
+        while (loop.isRunning()) {
+            Thread.sleep(1);
+        }
+        try {
+            loop.stop();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("actuator", e.getCause()
+                                      .getMessage());
+        }
+        assertEquals(0, loop.getTicks());
+    }
+
+}
@@ -0,0 +1,65 @@
+package ch.x01.fuzzy.control;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000_000_000L);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1_000_000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_000.5, histogram.getMean(), 1e-6);
+
+        // the relative error is less than 0.1%
+        double[] percentiles = {1, 50, 90, 99, 99.9, 99.99};
+        for (double percentile : percentiles) {
+            double expected = percentile * 10_000;
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + actual, actual >= expected && actual <= expected * 1.001);
+        }
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+
+        // small values are exact
+        assertEquals(1000, histogram.getValueAtPercentile(0.1));
+        // up to the width of a bucket, 512 at 1'000'000
+        assertEquals(1000, histogram.getCountAbove(999_000), 512);
+    }
+
+    @Test
+    public void testRange() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000);
+        histogram.record(-5);
+        histogram.record(5_000_000);
+        assertEquals(0, histogram.getMin());
+        assertEquals(5_000_000, histogram.getMax());
+        assertEquals(5_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(1, histogram.getCountAbove(1000));
+
+        LatencyHistogram other = new LatencyHistogram(1_000_000);
+        other.record(42);
+        histogram.add(other);
+        assertEquals(3, histogram.getCount());
+        assertEquals(42, histogram.getValueAtPercentile(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testAddDifferentRange() {
+        new LatencyHistogram(1_000_000).add(new LatencyHistogram(2_000_000));
+    }
+
+}
@@ -0,0 +1,66 @@
+package ch.x01.fuzzy.control;
+
+/**
+ * A simulated vehicle whose speed is controlled by a brake force, the plant of the closed-loop benchmark.
+ * <p>
+ * The driver accelerates periodically, the brake and the air drag decelerate the vehicle:
+ * </p>
+ * <pre>
+ * dv/dt = throttle(t) - BRAKE_GAIN * brakeForce - DRAG * v
+ * throttle(t) = 45 + 24 * sin(2 * pi * t / 20 s)
+ * </pre>
+ * With the brake force of the car model in the tests, the speed in km/h oscillates between about 35 and 115, so that
+ * the inputs of the engine sweep its rules.
+ */
+public class VehiclePlant {
+
+    private static final double BRAKE_GAIN = 0.1;
+    private static final double DRAG = 0.5;
+    private static final double THROTTLE = 45;
+    private static final double THROTTLE_AMPLITUDE = 24;
+    private static final double THROTTLE_PERIOD = 20;
+
+    private double speed;
+    private double time;
+
+    /**
+     * Creates a vehicle.
+     *
+     * @param speed the initial speed in km/h
+     */
+    public VehiclePlant(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Returns the current speed.
+     *
+     * @return the speed in km/h
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Returns the simulated time.
+     *
+     * @return the time in seconds
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Advances the simulation by a time step.
+     *
+     * @param brakeForce the brake force applied during the step, no brake is applied if it is NaN
+     * @param dt         the time step in seconds
+     */
+    public void step(double brakeForce, double dt) {
+        double throttle = THROTTLE + THROTTLE_AMPLITUDE * Math.sin(2 * Math.PI * time / THROTTLE_PERIOD);
+        double brake = Double.isNaN(brakeForce) ? 0 : BRAKE_GAIN * brakeForce;
+        speed = Math.max(0, speed + (throttle - brake - DRAG * speed) * dt);
+        time += dt;
+    }
+
+}
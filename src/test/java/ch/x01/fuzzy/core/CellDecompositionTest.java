@@ -0,0 +1,143 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CellDecompositionTest {
+
+    private SymbolTable symbolTable;
+    private List<FuzzyRule> rules;
+
+    /**
+     * Three inputs of overlapping terms, shoulders, vertical sides and a plateau, and rules of conjunctions and
+     * disjunctions.
+     */
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+        for (String input : new String[]{"x", "y", "z"}) {
+            LinguisticVariable lv = new LinguisticVariable(input, symbolTable);
+            lv.addTerm("low", new MembershipFunction(-1.0, -1.0, 0.0, 3.0));
+            lv.addTerm("medium", new MembershipFunction(1.0, 4.0, 7.0));
+            lv.addTerm("wide", new MembershipFunction(2.0, 3.0, 6.0, 9.0));
+            lv.addTerm("step", new MembershipFunction(5.0, 5.0, 8.0, 8.0));
+            lv.addTerm("high", new MembershipFunction(6.0, 9.0, 11.0, 11.0));
+        }
+        LinguisticVariable out = new LinguisticVariable("out", symbolTable);
+        for (int t = 0; t < 10; t++) {
+            out.addTerm("t" + t, new MembershipFunction(t - 2, t, t + 2));
+        }
+
+        String[] texts = {
+                "if x is low then out is t0",
+                "if (x is medium and y is low) then out is t1",
+                "if (x is wide and (y is medium or z is step)) then out is t2",
+                "if (y is high or z is low) then out is t3",
+                "if (x is step and y is step and z is step) then out is t4",
+                "if (x is high and (y is wide or (z is medium and y is low))) then out is t5",
+                "if z is high then out is t6",
+                "if (x is low or y is low or z is wide) then out is t7",
+                "if (x is medium and z is medium) then out is t8",
+                "if (y is step and z is high) then out is t9"};
+        rules = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        for (String text : texts) {
+            FuzzyRule rule = new FuzzyRule(text, symbolTable);
+            parser.parse(rule);
+            assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+            rules.add(rule);
+        }
+    }
+
+    @Test
+    public void testIdenticalToPremiseNetwork() {
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        CellDecomposition cells = CellDecomposition.of(network);
+        assertNotNull(cells);
+        // 10 breakpoints per variable, i.e. 11 intervals
+        assertEquals(11 * 11 * 11, cells.getCellCount());
+        assertTrue(cells.getRuleSetCount() < cells.getCellCount());
+        assertTrue(cells.getMaxRuleCount() < rules.size());
+
+        double[] values = new double[network.getNodeCount()];
+        double[] expectedValues = new double[network.getNodeCount()];
+        double[] expected = new double[network.getRuleCount()];
+        double[] actual = new double[network.getRuleCount()];
+        double[] special = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Random random = new Random(4711);
+        for (int n = 0; n < 20000; n++) {
+            double[] inputs = new double[network.getVariableCount()];
+            for (int v = 0; v < inputs.length; v++) {
+                if (n % 3 == 0) {
+                    // on a breakpoint
+                    inputs[v] = random.nextInt(13) - 1;
+                } else if (n % 1000 == 1) {
+                    inputs[v] = special[random.nextInt(special.length)];
+                } else {
+                    inputs[v] = random.nextDouble() * 14 - 2;
+                }
+            }
+            network.evaluate(inputs, expectedValues, expected);
+            cells.evaluate(inputs, values, actual);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 0.0);
+            }
+            // the term degrees of the previous evaluation are overwritten
+            for (int i = 0; i < network.getTermCount(); i++) {
+                assertEquals(expectedValues[i], values[i], 0.0);
+            }
+        }
+    }
+
+    /**
+     * A premise network of a single rule joining the given number of variables of five overlapping terms.
+     */
+    private static PremiseNetwork network(int variables) {
+        SymbolTable symbolTable = new SymbolTable();
+        StringBuilder text = new StringBuilder("if (");
+        for (int v = 0; v < variables; v++) {
+            LinguisticVariable lv = new LinguisticVariable("x" + v, symbolTable);
+            for (int t = 0; t < 5; t++) {
+                lv.addTerm("t" + t, new MembershipFunction(t - 1, t, t + 1));
+            }
+            text.append(v == 0 ? "" : " and ")
+                .append("x")
+                .append(v)
+                .append(" is t0");
+        }
+        LinguisticVariable out = new LinguisticVariable("out", symbolTable);
+        out.addTerm("t0", new MembershipFunction(0, 1, 2));
+        FuzzyRule rule = new FuzzyRule(text.append(") then out is t0")
+                                           .toString(), symbolTable);
+        new RuleParser(symbolTable).parse(rule);
+        assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+
+        List<FuzzyRule> rules = new ArrayList<>();
+        rules.add(rule);
+        return new PremiseNetwork(rules, symbolTable);
+    }
+
+    @Test
+    public void testTooManyCells() {
+        // 7 breakpoints per variable, i.e. 8 intervals
+        CellDecomposition cells = CellDecomposition.of(network(5));
+        assertNotNull(cells);
+        assertEquals(1 << 15, cells.getCellCount());
+        assertEquals(2, cells.getRuleSetCount());
+
+        assertNull(CellDecomposition.of(network(6)));
+    }
+
+}
@@ -0,0 +1,132 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FixedPointEvaluatorTest {
+
+    private static final FixedPointFormat FORMAT = new FixedPointFormat(12, 19);
+
+    private SymbolTable symbolTable;
+    private List<FuzzyRule> rules;
+
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+
+        LinguisticVariable temperature = new LinguisticVariable("temperature", symbolTable);
+        temperature.addTerm("low", new MembershipFunction(0, 10, 20));
+        temperature.addTerm("high", new MembershipFunction(10, 20, 30));
+        temperature.addTerm("hot", new MembershipFunction(25, 35, 35, 35));
+
+        LinguisticVariable humidity = new LinguisticVariable("humidity", symbolTable);
+        humidity.addTerm("low", new MembershipFunction(0, 25, 50, 75));
+        humidity.addTerm("high", new MembershipFunction(25, 50, 75, 100));
+
+        LinguisticVariable fan = new LinguisticVariable("fan", symbolTable);
+        fan.addTerm("off", new MembershipFunction(-100, -100, 0, 0));
+        fan.addTerm("slow", new MembershipFunction(0, 500, 1000));
+        fan.addTerm("fast", new MembershipFunction(500, 1000, 1500));
+
+        rules = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        for (String ruleText : new String[]{"if (temperature is high and humidity is high) then fan is fast",
+                                            "if (temperature is low or humidity is low) then fan is slow",
+                                            "if temperature is hot then fan is fast",
+                                            "if (temperature is low and humidity is low) then fan is off"}) {
+            FuzzyRule rule = new FuzzyRule(ruleText, symbolTable);
+            parser.parse(rule);
+            rules.add(rule);
+        }
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("Q12.19", FORMAT.toString());
+        assertEquals(1 << 19, FORMAT.one());
+        assertEquals(-1.5, FORMAT.toDouble(FORMAT.toFixed(-1.5)), 0.0);
+        assertEquals(0.1, FORMAT.toDouble(FORMAT.toFixed(0.1)), FORMAT.getResolution() / 2);
+        assertEquals(FORMAT.getMaxValue(), FORMAT.toFixed(1e9));
+        assertEquals(-FORMAT.getMaxValue(), FORMAT.toFixed(-1e9));
+        assertEquals(FixedPointFormat.UNDEFINED, FORMAT.toFixed(Double.NaN));
+        assertEquals(Double.NaN, FORMAT.toDouble(FixedPointFormat.UNDEFINED), 0.0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidFormat() {
+        new FixedPointFormat(16, 16);
+    }
+
+    @Test
+    public void testEvaluate() {
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        FixedPointEvaluator evaluator = new FixedPointEvaluator(network, new Defuzzifier(rules, symbolTable), FORMAT);
+
+        double[] inputs = new double[network.getVariableCount()];
+        double[] values = new double[network.getNodeCount()];
+        double[] results = new double[network.getRuleCount()];
+        int[] fixedInputs = new int[network.getVariableCount()];
+        int[] fixedValues = new int[network.getNodeCount()];
+        int[] fixedResults = new int[network.getRuleCount()];
+
+        for (double t = -5; t <= 40; t += 1.25) {
+            for (double h = -5; h <= 105; h += 2.5) {
+                inputs[network.indexOf("temperature")] = t;
+                inputs[network.indexOf("humidity")] = h;
+                for (int v = 0; v < inputs.length; v++) {
+                    fixedInputs[v] = FORMAT.toFixed(inputs[v]);
+                }
+                network.evaluate(inputs, values, results);
+                evaluator.evaluate(fixedInputs, fixedValues, fixedResults);
+                for (int i = 0; i < results.length; i++) {
+                    // truncation of the division loses at most one unit
+                    assertEquals(results[i], FORMAT.toDouble(fixedResults[i]), FORMAT.getResolution());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDefuzzify() {
+        Defuzzifier defuzzifier = new Defuzzifier(rules, symbolTable);
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        FixedPointEvaluator evaluator = new FixedPointEvaluator(network, defuzzifier, FORMAT);
+
+        int numOfSteps = 1000;
+        double[] degrees = new double[rules.size()];
+        double[] grid = new double[numOfSteps + 1];
+        int[] fixedDegrees = new int[rules.size()];
+        int[] fixedGrid = new int[numOfSteps + 1];
+
+        Random random = new Random(4711);
+        for (int n = 0; n < 1000; n++) {
+            for (int i = 0; i < degrees.length; i++) {
+                // quantize the degrees, so that both evaluations reason with the same degrees
+                degrees[i] = random.nextInt(4) == 0 ? 0.0 : FORMAT.toDouble(FORMAT.toFixed(random.nextDouble()));
+                fixedDegrees[i] = FORMAT.toFixed(degrees[i]);
+            }
+
+            double expected = defuzzifier.defuzzify(degrees, numOfSteps, grid);
+            double actual = FORMAT.toDouble(evaluator.defuzzify(fixedDegrees, numOfSteps, fixedGrid));
+            assertEquals(expected, actual, 1e-3);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTooManySteps() {
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        FixedPointEvaluator evaluator = new FixedPointEvaluator(network, new Defuzzifier(rules, symbolTable), FORMAT);
+        int numOfSteps = evaluator.getMaxNumOfSteps() + 1;
+
+        evaluator.defuzzify(new int[rules.size()], numOfSteps, new int[1]);
+    }
+
+}
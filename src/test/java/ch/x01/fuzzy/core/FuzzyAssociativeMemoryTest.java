@@ -0,0 +1,145 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyAssociativeMemoryTest {
+
+    private static final int TERMS = 7;
+
+    private SymbolTable symbolTable;
+    private RuleParser parser;
+
+    /**
+     * Three inputs of overlapping terms, the last term of every input is wide enough to overlap three terms.
+     */
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+        for (String input : new String[]{"x", "y", "z"}) {
+            LinguisticVariable lv = new LinguisticVariable(input, symbolTable);
+            for (int t = 0; t < TERMS - 1; t++) {
+                lv.addTerm("t" + t, new MembershipFunction(t - 1, t, t + 1));
+            }
+            lv.addTerm("t" + (TERMS - 1), new MembershipFunction(2, 4, 6));
+        }
+        LinguisticVariable out = new LinguisticVariable("out", symbolTable);
+        for (int t = 0; t < 3 * TERMS; t++) {
+            out.addTerm("t" + t, new MembershipFunction(t - 2, t - 0.5, t + 0.5, t + 2));
+        }
+        parser = new RuleParser(symbolTable);
+    }
+
+    private FuzzyRule rule(String text) {
+        FuzzyRule rule = new FuzzyRule(text, symbolTable);
+        parser.parse(rule);
+        assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+        return rule;
+    }
+
+    private List<FuzzyRule> grid() {
+        List<FuzzyRule> rules = new ArrayList<>();
+        for (int i = 0; i < TERMS; i++) {
+            for (int j = 0; j < TERMS; j++) {
+                for (int k = 0; k < TERMS; k++) {
+                    // the variables in any order
+                    String text = k % 2 == 0
+                            ? String.format("if (x is t%d and y is t%d and z is t%d) then out is t%d", i, j, k, i + j + k)
+                            : String.format("if (z is t%d and (x is t%d and y is t%d)) then out is t%d", k, i, j, i + j + k);
+                    rules.add(rule(text));
+                }
+            }
+        }
+        return rules;
+    }
+
+    private static FuzzyAssociativeMemory of(List<FuzzyRule> rules, SymbolTable symbolTable) {
+        List<FuzzyRule> optimizedRules = new RuleBaseOptimizer(symbolTable).optimize(rules)
+                                                                           .getRules();
+        return FuzzyAssociativeMemory.of(rules, optimizedRules, new PremiseNetwork(optimizedRules, symbolTable));
+    }
+
+    @Test
+    public void testIdenticalToPremiseNetwork() {
+        List<FuzzyRule> rules = grid();
+        List<FuzzyRule> optimizedRules = new RuleBaseOptimizer(symbolTable).optimize(rules)
+                                                                           .getRules();
+        PremiseNetwork network = new PremiseNetwork(optimizedRules, symbolTable);
+        FuzzyAssociativeMemory memory = FuzzyAssociativeMemory.of(rules, optimizedRules, network);
+        assertNotNull(memory);
+        assertEquals(TERMS * TERMS * TERMS, memory.getCellCount());
+
+        FuzzyAssociativeMemory.Evaluation evaluation = memory.newEvaluation();
+        double[] values = new double[network.getNodeCount()];
+        double[] expected = new double[network.getRuleCount()];
+        double[] actual = new double[network.getRuleCount()];
+        Random random = new Random(4711);
+        int maxCombinations = 0;
+        for (int n = 0; n < 2000; n++) {
+            double[] inputs = new double[network.getVariableCount()];
+            for (int v = 0; v < inputs.length; v++) {
+                // some inputs fire no rule, some are at the top of a term
+                inputs[v] = n % 10 == 0 ? random.nextInt(TERMS) : random.nextDouble() * (TERMS + 2) - 2;
+            }
+            network.evaluate(inputs, values, expected);
+            int combinations = evaluation.evaluate(inputs, values, actual);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 0.0);
+            }
+            maxCombinations = Math.max(maxCombinations, combinations);
+        }
+        // at most three terms of every input overlap
+        assertEquals(27, maxCombinations);
+    }
+
+    @Test
+    public void testNotAssociativeMemory() {
+        // incomplete
+        List<FuzzyRule> rules = grid();
+        rules.remove(rules.size() - 1);
+        assertNull(of(rules, symbolTable));
+
+        // a disjunction
+        rules = grid();
+        rules.set(0, rule("if (x is t0 and (y is t0 or z is t0)) then out is t0"));
+        assertNull(of(rules, symbolTable));
+
+        // a variable twice, the grid has one cell less
+        rules = grid();
+        rules.set(0, rule("if (x is t0 and x is t1 and z is t0) then out is t0"));
+        assertNull(of(rules, symbolTable));
+
+        // two rules of the same cell
+        rules = grid();
+        rules.set(0, rule("if (x is t0 and y is t0 and z is t1) then out is t2"));
+        assertNull(of(rules, symbolTable));
+
+        // without parentheses, only the last fuzzification is evaluated
+        rules = grid();
+        rules.set(0, rule("if x is t0 and y is t0 and z is t0 then out is t0"));
+        assertNull(of(rules, symbolTable));
+
+        // a single input
+        rules = new ArrayList<>();
+        for (int i = 0; i < TERMS; i++) {
+            rules.add(rule(String.format("if x is t%d then out is t%d", i, i)));
+        }
+        FuzzyAssociativeMemory memory = of(rules, symbolTable);
+        assertNotNull(memory);
+        assertTrue(memory.toString()
+                         .contains("cells=7"));
+    }
+
+}
@@ -0,0 +1,184 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GradientEvaluatorTest {
+
+    // a prime number of steps, so that no grid point falls onto a corner of a conclusion, where the output value is
+    // not differentiable
+    private static final int STEPS = 997;
+    private static final double H = 1e-6;
+
+    private static final String[] VARIABLES = {"x", "y", "out"};
+    private static final String[][] TERMS = {{"low", "medium", "high"},
+                                             {"low", "medium", "high"},
+                                             {"a", "b", "c", "d"}};
+    private static final String[] RULES = {
+            "if (x is low and y is low) then out is a",
+            "if (x is medium or y is high) then out is b",
+            "if (x is high and (y is medium or y is low)) then out is c",
+            "if (x is medium and y is medium) then out is d",
+            "if y is high then out is d"};
+
+    // the parameters of every term of every variable
+    private double[][][] parameters;
+
+    /**
+     * Two inputs of overlapping triangles and trapezoids, and an output whose supports reach below zero.
+     */
+    @Before
+    public void setUp() {
+        parameters = new double[][][]{
+                {{-3, -1, 0, 4}, {1, 4, 4, 7}, {5, 8, 10, 11}},
+                {{-1, 0, 1, 5}, {2, 4, 5, 8}, {6, 9, 9, 12}},
+                {{-4, -2, -1, 1}, {-1, 1, 1, 2.5}, {1, 2, 3, 5}, {3, 5, 6, 8}}};
+    }
+
+    private static final class Compiled {
+        private final PremiseNetwork network;
+        private final Defuzzifier defuzzifier;
+
+        private Compiled(PremiseNetwork network, Defuzzifier defuzzifier) {
+            this.network = network;
+            this.defuzzifier = defuzzifier;
+        }
+
+        private double evaluate(double[] inputs) {
+            double[] degrees = new double[network.getRuleCount()];
+            network.evaluate(inputs, new double[network.getNodeCount()], degrees);
+            return defuzzifier.defuzzify(degrees, STEPS, new double[STEPS + 1]);
+        }
+    }
+
+    private Compiled compile() {
+        SymbolTable symbolTable = new SymbolTable();
+        for (int v = 0; v < VARIABLES.length; v++) {
+            LinguisticVariable lv = new LinguisticVariable(VARIABLES[v], symbolTable);
+            for (int t = 0; t < TERMS[v].length; t++) {
+                double[] p = parameters[v][t];
+                lv.addTerm(TERMS[v][t], new MembershipFunction(p[0], p[1], p[2], p[3]));
+            }
+        }
+        List<FuzzyRule> rules = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        for (String text : RULES) {
+            FuzzyRule rule = new FuzzyRule(text, symbolTable);
+            parser.parse(rule);
+            assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+            rules.add(rule);
+        }
+        return new Compiled(new PremiseNetwork(rules, symbolTable), new Defuzzifier(rules, symbolTable));
+    }
+
+    /**
+     * Returns the central difference of the output value, or NaN if the one-sided differences disagree, i.e. if the
+     * output value is not differentiable there.
+     */
+    private double difference(double[] inputs, int v, int t, int k) {
+        double[] perturbed = inputs.clone();
+        double value = t < 0 ? inputs[v] : parameters[v][t][k];
+        double[] outputs = new double[3];
+        for (int i = 0; i < 3; i++) {
+            if (t < 0) {
+                perturbed[v] = value + (i - 1) * H;
+            } else {
+                parameters[v][t][k] = value + (i - 1) * H;
+            }
+            outputs[i] = compile().evaluate(perturbed);
+        }
+        if (t >= 0) {
+            parameters[v][t][k] = value;
+        }
+        double backward = (outputs[1] - outputs[0]) / H;
+        double forward = (outputs[2] - outputs[1]) / H;
+        return Math.abs(forward - backward) > 1e-4 * (1 + Math.abs(forward)) ? Double.NaN : (outputs[2] - outputs[0]) / (2 * H);
+    }
+
+    @Test
+    public void testFiniteDifferences() {
+        Compiled compiled = compile();
+        PremiseNetwork network = compiled.network;
+        GradientEvaluator evaluator = new GradientEvaluator(network, compiled.defuzzifier);
+        double[] inputDerivatives = new double[network.getVariableCount()];
+        double[] termDerivatives = new double[GradientEvaluator.PARAMETER_COUNT * network.getTermCount()];
+        double[] conclusionDerivatives = new double[GradientEvaluator.PARAMETER_COUNT * network.getRuleCount()];
+
+        Random random = new Random(4711);
+        int checked = 0;
+        int skipped = 0;
+        for (int n = 0; n < 40; n++) {
+            double[] inputs = new double[network.getVariableCount()];
+            for (int v = 0; v < inputs.length; v++) {
+                inputs[v] = random.nextDouble() * 12 - 1;
+            }
+            double value = evaluator.evaluate(inputs, STEPS, inputDerivatives, termDerivatives, conclusionDerivatives);
+            assertEquals(compiled.evaluate(inputs), value, 0.0);
+            if (value != value) {
+                continue;
+            }
+
+            for (int v = 0; v < VARIABLES.length; v++) {
+                int variable = v < 2 ? network.indexOf(VARIABLES[v]) : -1;
+                if (v < 2) {
+                    double expected = difference(inputs, variable, -1, 0);
+                    if (expected == expected) {
+                        assertEquals(expected, inputDerivatives[variable], 1e-5 * (1 + Math.abs(expected)));
+                        checked++;
+                    } else {
+                        skipped++;
+                    }
+                }
+                for (int t = 0; t < TERMS[v].length; t++) {
+                    for (int k = 0; k < GradientEvaluator.PARAMETER_COUNT; k++) {
+                        double actual = 0.0;
+                        if (v < 2) {
+                            int term = network.getTermSet(variable)
+                                              .indexOf(TERMS[v][t]);
+                            actual = termDerivatives[GradientEvaluator.PARAMETER_COUNT *
+                                    (network.getOffset(variable) + term) + k];
+                        } else {
+                            // the derivatives of all rules concluding the term
+                            for (int r = 0; r < RULES.length; r++) {
+                                if (RULES[r].endsWith(" is " + TERMS[v][t])) {
+                                    actual += conclusionDerivatives[GradientEvaluator.PARAMETER_COUNT * r + k];
+                                }
+                            }
+                        }
+                        double expected = difference(inputs, v, t, k);
+                        if (expected == expected) {
+                            assertEquals(expected, actual, 1e-5 * (1 + Math.abs(expected)));
+                            checked++;
+                        } else {
+                            skipped++;
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 1000);
+        assertTrue(skipped < checked / 20);
+    }
+
+    @Test
+    public void testNoRuleFires() {
+        Compiled compiled = compile();
+        PremiseNetwork network = compiled.network;
+        GradientEvaluator evaluator = new GradientEvaluator(network, compiled.defuzzifier);
+        double[] inputDerivatives = new double[network.getVariableCount()];
+        double value = evaluator.evaluate(new double[]{20, 20}, STEPS, inputDerivatives, null, null);
+        assertTrue(Double.isNaN(value));
+        assertTrue(Double.isNaN(inputDerivatives[0]));
+    }
+
+}
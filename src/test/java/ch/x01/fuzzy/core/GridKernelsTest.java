@@ -0,0 +1,141 @@
+package ch.x01.fuzzy.core;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GridKernelsTest {
+
+    private static final int NUM_OF_STEPS = 997;
+
+    /**
+     * Returns the SIMD kernels of the Java 17 layer, or null if they are not available on this runtime.
+     */
+    private static GridKernels vector() {
+        try {
+            return (GridKernels) Class.forName("ch.x01.fuzzy.core.VectorGridKernels")
+                                      .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static MembershipFunction[] conclusions(Random random) {
+        MembershipFunction[] result = new MembershipFunction[5];
+        for (int i = 0; i < result.length; i++) {
+            double start = random.nextDouble() * 10 - 2;
+            double left_top = start + random.nextDouble() * 3;
+            double right_top = left_top + random.nextDouble() * 2;
+            double end = right_top + random.nextDouble() * 3;
+            result[i] = new MembershipFunction(start, left_top, right_top, end).computeReasoning(random.nextDouble());
+        }
+        return result;
+    }
+
+    private static double[] aggregate(GridKernels kernels, MembershipFunction[] conclusions, double from, double increment) {
+        double[] result = new double[NUM_OF_STEPS + 1];
+        for (MembershipFunction mf : conclusions) {
+            kernels.aggregate(from, increment, result, 0, result.length, mf.getStart(),
+                              Defuzzifier.slope(mf.getHeight(), mf.getLeft_top() - mf.getStart()),
+                              Defuzzifier.slope(mf.getHeight(), mf.getEnd() - mf.getRight_top()), mf.getEnd(),
+                              mf.getHeight());
+        }
+        return result;
+    }
+
+    private static float[] aggregate(GridKernels kernels, MembershipFunction[] conclusions, float from, float increment) {
+        float[] result = new float[NUM_OF_STEPS + 1];
+        for (MembershipFunction mf : conclusions) {
+            float height = (float) mf.getHeight();
+            kernels.aggregate(from, increment, result, 0, result.length, (float) mf.getStart(),
+                              Defuzzifier.slope(height, (float) mf.getLeft_top() - (float) mf.getStart()),
+                              Defuzzifier.slope(height, (float) mf.getEnd() - (float) mf.getRight_top()),
+                              (float) mf.getEnd(), height);
+        }
+        return result;
+    }
+
+    @Test
+    public void testScalarKernels() {
+        Random random = new Random(4711);
+
+        for (int n = 0; n < 20; n++) {
+            MembershipFunction[] conclusions = conclusions(random);
+            double[][] superposition = MembershipFunction.computeSuperposition(conclusions, NUM_OF_STEPS);
+
+            // see MembershipFunction.computeSuperposition()
+            double from = 0.0;
+            double to = 0.0;
+            for (MembershipFunction mf : conclusions) {
+                from = Math.min(from, mf.getStart());
+                to = Math.max(to, mf.getEnd());
+            }
+            double increment = Math.abs((to - from) / NUM_OF_STEPS);
+            double[] y = aggregate(GridKernels.scalar(), conclusions, from, increment);
+
+            assertArrayEquals(superposition[1], y, 1e-12);
+            assertEquals(MembershipFunction.computeCenterOfMass(superposition),
+                         GridKernels.scalar()
+                                    .centerOfMass(from, increment, y, y.length), 1e-9);
+        }
+    }
+
+    @Test
+    public void testVectorKernels() {
+        GridKernels vector = vector();
+        Assume.assumeNotNull(vector);
+
+        Random random = new Random(4711);
+
+        for (int n = 0; n < 20; n++) {
+            MembershipFunction[] conclusions = conclusions(random);
+            double from = -2.0;
+            double increment = 16.0 / NUM_OF_STEPS;
+
+            double[] expected = aggregate(GridKernels.scalar(), conclusions, from, increment);
+            double[] actual = aggregate(vector, conclusions, from, increment);
+
+            assertArrayEquals(expected, actual, 0.0);
+            assertEquals(GridKernels.scalar()
+                                    .centerOfMass(from, increment, expected, expected.length),
+                         vector.centerOfMass(from, increment, actual, actual.length), 1e-9);
+        }
+    }
+
+    @Test
+    public void testFloatKernels() {
+        GridKernels vector = vector();
+        Random random = new Random(4711);
+
+        for (int n = 0; n < 20; n++) {
+            MembershipFunction[] conclusions = conclusions(random);
+            float from = -2.0f;
+            float increment = 16.0f / NUM_OF_STEPS;
+
+            double[] expected = aggregate(GridKernels.scalar(), conclusions, (double) from, (double) increment);
+            float[] actual = aggregate(GridKernels.scalar(), conclusions, from, increment);
+
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 1e-5);
+            }
+            // see Defuzzifier.defuzzify(float[], int, float[])
+            assertEquals(GridKernels.scalar()
+                                    .centerOfMass((double) from, (double) increment, expected, expected.length),
+                         GridKernels.scalar()
+                                    .centerOfMass(from, increment, actual, actual.length), 1e-5 * 14);
+
+            if (vector != null) {
+                float[] vectorActual = aggregate(vector, conclusions, from, increment);
+                assertArrayEquals(actual, vectorActual, 0.0f);
+                assertEquals(GridKernels.scalar()
+                                        .centerOfMass(from, increment, actual, actual.length),
+                             vector.centerOfMass(from, increment, vectorActual, vectorActual.length), 1e-5 * 14);
+            }
+        }
+    }
+
+}
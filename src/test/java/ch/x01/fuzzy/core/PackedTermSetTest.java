@@ -0,0 +1,128 @@
+package ch.x01.fuzzy.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PackedTermSetTest {
+
+    private LinguisticVariable lv;
+
+    @Before
+    public void setUp() {
+        lv = new LinguisticVariable("x");
+        lv.addTerm("triangle", new MembershipFunction(2.0, 5.0, 8.0));
+        lv.addTerm("trapezoid", new MembershipFunction(0.0, 1.0, 3.0, 4.0));
+        lv.addTerm("left_shoulder", new MembershipFunction(-1.0, -1.0, 2.0, 6.0));
+        lv.addTerm("right_shoulder", new MembershipFunction(4.0, 7.0, 9.0, 9.0));
+        lv.addTerm("wide_top", new MembershipFunction(6.0, 7.0, 100.0, 8.0));
+        lv.addTerm("reasoned", new MembershipFunction(1.0, 3.0, 3.0, 5.0).computeReasoning(0.5));
+    }
+
+    @Test
+    public void testFuzzify() {
+        PackedTermSet termSet = new PackedTermSet(lv);
+        double[] degrees = new double[termSet.size() + 1];
+
+        assertEquals(6, termSet.size());
+        assertEquals(3, termSet.indexOf("Right_Shoulder"));
+        assertEquals(-1, termSet.indexOf("undefined"));
+
+        for (double x = -2.0; x <= 10.0; x += 0.125) {
+            termSet.fuzzify(x, degrees, 1);
+            for (int i = 0; i < termSet.size(); i++) {
+                String term = termSet.getName(i);
+                assertEquals(term + " @ " + x, lv.getMembershipFunction(term)
+                                                  .fuzzify(x), degrees[i + 1], 1e-15);
+            }
+        }
+    }
+
+    @Test
+    public void testFuzzifyFloat() {
+        PackedTermSet termSet = new PackedTermSet(lv);
+        double[] degrees = new double[termSet.size()];
+        float[] floatDegrees = new float[termSet.size()];
+
+        for (float x = -2.0f; x <= 10.0f; x += 0.125f) {
+            termSet.fuzzify(x, degrees, 0);
+            termSet.fuzzify(x, floatDegrees, 0);
+            for (int i = 0; i < termSet.size(); i++) {
+                assertEquals(termSet.getName(i) + " @ " + x, degrees[i], floatDegrees[i], 1e-6);
+            }
+        }
+    }
+
+    /**
+     * An ordered partition of 40 terms with shoulders and a gap, added in random order, is fuzzified by a binary
+     * search with the same degrees as every term on its own.
+     */
+    @Test
+    public void testSortedLayout() {
+        List<Integer> terms = new ArrayList<>();
+        for (int t = 0; t < 40; t++) {
+            terms.add(t);
+        }
+        Collections.shuffle(terms, new Random(4711));
+        LinguisticVariable partition = new LinguisticVariable("partition");
+        for (int t : terms) {
+            // a gap between the terms 19 and 20
+            double c = t < 20 ? t : t + 1.5;
+            MembershipFunction mf;
+            if (t == 0) {
+                mf = new MembershipFunction(-1.0, -1.0, 0.0, 1.0);
+            } else if (t == 39) {
+                mf = new MembershipFunction(c - 1.0, c, c + 2.0, c + 2.0);
+            } else {
+                mf = new MembershipFunction(c - 1.0, c - 0.25, c + 0.25, c + 1.0);
+            }
+            partition.addTerm("t" + t, mf);
+        }
+        PackedTermSet termSet = new PackedTermSet(partition);
+        assertTrue(termSet.isSortedLayout());
+        assertFalse(new PackedTermSet(lv).isSortedLayout());
+
+        // every term on its own
+        PackedTermSet[] singles = new PackedTermSet[termSet.size()];
+        for (int i = 0; i < singles.length; i++) {
+            LinguisticVariable single = new LinguisticVariable("single");
+            single.addTerm(termSet.getName(i), partition.getMembershipFunction(termSet.getName(i)));
+            singles[i] = new PackedTermSet(single);
+        }
+
+        double[] degrees = new double[termSet.size() + 1];
+        double[] expected = new double[1];
+        int[] active = new int[termSet.size()];
+        for (double x = -2.0; x <= 44.0; x += 0.0625) {
+            int count = termSet.fuzzify(x, degrees, 1, active);
+            assertTrue(count <= 2);
+            int nonzero = 0;
+            for (int i = 0; i < termSet.size(); i++) {
+                singles[i].fuzzify(x, expected, 0);
+                assertEquals(termSet.getName(i) + " @ " + x, expected[0], degrees[i + 1], 0.0);
+                nonzero += expected[0] != 0 ? 1 : 0;
+            }
+            assertEquals(nonzero, count);
+            for (int j = 0; j < count; j++) {
+                assertTrue(degrees[active[j] + 1] != 0);
+            }
+        }
+
+        // not a number is not located
+        assertEquals(termSet.size(), termSet.fuzzify(Double.NaN, degrees, 1, active));
+        assertTrue(Double.isNaN(degrees[termSet.size()]));
+
+        // a value within the supports of three terms
+        partition.addTerm("wide", new MembershipFunction(4.0, 6.0, 8.0));
+        assertFalse(new PackedTermSet(partition).isSortedLayout());
+    }
+
+}
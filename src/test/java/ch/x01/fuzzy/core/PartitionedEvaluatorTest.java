@@ -0,0 +1,123 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedEvaluatorTest {
+
+    private static final int TERMS = 12;
+
+    private SymbolTable symbolTable;
+    private List<FuzzyRule> rules;
+
+    /**
+     * A complete grid of rules of three inputs, whose conclusions are spread over the output.
+     */
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+        String[] inputs = {"x", "y", "z"};
+        for (String input : inputs) {
+            LinguisticVariable lv = new LinguisticVariable(input, symbolTable);
+            for (int t = 0; t < TERMS; t++) {
+                lv.addTerm("t" + t, new MembershipFunction(t - 1, t, t + 1));
+            }
+        }
+        LinguisticVariable out = new LinguisticVariable("out", symbolTable);
+        for (int t = 0; t < 3 * TERMS; t++) {
+            out.addTerm("t" + t, new MembershipFunction(t - 2, t - 0.5, t + 0.5, t + 2));
+        }
+
+        rules = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        for (int i = 0; i < TERMS; i++) {
+            for (int j = 0; j < TERMS; j++) {
+                for (int k = 0; k < TERMS; k++) {
+                    String text = String.format("if x is t%d and (y is t%d or z is t%d) then out is t%d", i, j, k,
+                                                i + j + k);
+                    FuzzyRule rule = new FuzzyRule(text, symbolTable);
+                    parser.parse(rule);
+                    assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+                    rules.add(rule);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIdenticalToSequential() throws InterruptedException {
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        Defuzzifier defuzzifier = new Defuzzifier(rules, symbolTable);
+        double[] values = new double[network.getNodeCount()];
+        double[] degrees = new double[network.getRuleCount()];
+        double[] grid = new double[3001];
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Random random = new Random(4711);
+            for (int partitions : new int[]{1, 2, 3, 7, 64}) {
+                PartitionedEvaluator evaluator = new PartitionedEvaluator(rules, symbolTable, network, defuzzifier,
+                                                                          partitions);
+                assertEquals(partitions, evaluator.getPartitionCount());
+                PartitionedEvaluator.Evaluation evaluation = evaluator.newEvaluation(executor);
+                double[] partitionedDegrees = new double[network.getRuleCount()];
+
+                for (int n = 0; n < 200; n++) {
+                    double[] inputs = new double[network.getVariableCount()];
+                    for (int v = 0; v < inputs.length; v++) {
+                        // some inputs fire no rule
+                        inputs[v] = random.nextDouble() * (TERMS + 2) - 2;
+                    }
+                    network.evaluate(inputs, values, degrees);
+                    double expected = defuzzifier.defuzzify(degrees, 1000, grid);
+
+                    evaluation.evaluatePremises(inputs, partitionedDegrees);
+                    for (int i = 0; i < degrees.length; i++) {
+                        assertEquals(degrees[i], partitionedDegrees[i], 0.0);
+                    }
+                    assertEquals(expected, evaluation.defuzzify(1000), 0.0);
+                    assertEquals(defuzzifier.defuzzify(degrees, 3000, grid), evaluation.defuzzify(3000), 0.0);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testBusyExecutor() {
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        Defuzzifier defuzzifier = new Defuzzifier(rules, symbolTable);
+        double[] values = new double[network.getNodeCount()];
+        double[] degrees = new double[network.getRuleCount()];
+        double[] grid = new double[1001];
+
+        // an executor that never runs the helpers, the calling thread processes all partitions
+        List<Runnable> pending = new ArrayList<>();
+        PartitionedEvaluator.Evaluation evaluation = new PartitionedEvaluator(rules, symbolTable, network, defuzzifier,
+                                                                              4).newEvaluation(pending::add);
+        double[] inputs = {3.3, 5.5, 7.7};
+        network.evaluate(inputs, values, degrees);
+        evaluation.evaluatePremises(inputs, new double[degrees.length]);
+        assertEquals(defuzzifier.defuzzify(degrees, 1000, grid), evaluation.defuzzify(1000), 0.0);
+
+        // helpers running late find nothing to do
+        pending.forEach(Runnable::run);
+        assertEquals(defuzzifier.defuzzify(degrees, 1000, grid), evaluation.defuzzify(1000), 0.0);
+    }
+
+}
@@ -0,0 +1,104 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PremiseNetworkTest {
+
+    private SymbolTable symbolTable;
+    private LinguisticVariable temperature;
+    private LinguisticVariable humidity;
+
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+
+        temperature = new LinguisticVariable("temperature", symbolTable);
+        temperature.addTerm("low", new MembershipFunction(0, 10, 20));
+        temperature.addTerm("high", new MembershipFunction(10, 20, 30));
+
+        humidity = new LinguisticVariable("humidity", symbolTable);
+        humidity.addTerm("low", new MembershipFunction(0, 25, 50, 75));
+        humidity.addTerm("high", new MembershipFunction(25, 50, 75, 100));
+
+        LinguisticVariable fan = new LinguisticVariable("fan", symbolTable);
+        fan.addTerm("slow", new MembershipFunction(0, 500, 1000));
+        fan.addTerm("fast", new MembershipFunction(500, 1000, 1500));
+    }
+
+    private List<FuzzyRule> parse(String... ruleTexts) {
+        List<FuzzyRule> result = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        for (String ruleText : ruleTexts) {
+            FuzzyRule rule = new FuzzyRule(ruleText, symbolTable);
+            parser.parse(rule);
+            assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+            result.add(rule);
+        }
+        return result;
+    }
+
+    @Test
+    public void testSharedSubExpressions() {
+        List<FuzzyRule> rules = parse("if (temperature is high and humidity is high) then fan is fast",
+                                      "if ((humidity is high and temperature is high) or temperature is low) then fan is fast",
+                                      "if (temperature is low or (temperature is high and humidity is high)) then fan is slow",
+                                      "if humidity is low then fan is slow");
+
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        System.out.println(network);
+
+        // four distinct terms, one shared AND and one shared OR
+        assertEquals(6, network.getNodeCount());
+        assertEquals(2, network.getVariableCount());
+        assertEquals(14, network.getReferencedNodeCount());
+        assertEquals(4, network.getRuleCount());
+    }
+
+    @Test
+    public void testEvaluate() {
+        List<FuzzyRule> rules = parse("if (temperature is high and humidity is high) then fan is fast",
+                                      "if ((humidity is high and temperature is high) or temperature is low) then fan is fast",
+                                      "if (temperature is low or (humidity is low and temperature is high)) then fan is slow",
+                                      "if temperature is low and humidity is low then fan is slow");
+
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        double[] inputs = new double[network.getVariableCount()];
+        double[] values = new double[network.getNodeCount()];
+        double[] results = new double[network.getRuleCount()];
+
+        for (double t = -5; t <= 35; t += 2.5) {
+            for (double h = -5; h <= 105; h += 5) {
+                temperature.setValue(t);
+                humidity.setValue(h);
+                inputs[network.indexOf("temperature")] = t;
+                inputs[network.indexOf("humidity")] = h;
+                network.evaluate(inputs, values, results);
+                for (int i = 0; i < rules.size(); i++) {
+                    assertEquals(rules.get(i)
+                                      .computeDegreeOfRelevance(), results[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testErroneousRule() {
+        FuzzyRule rule = new FuzzyRule("if temperature is hot then fan is fast", symbolTable);
+        new RuleParser(symbolTable).parse(rule);
+
+        List<FuzzyRule> rules = new ArrayList<>();
+        rules.add(rule);
+
+        new PremiseNetwork(rules, symbolTable);
+    }
+
+}
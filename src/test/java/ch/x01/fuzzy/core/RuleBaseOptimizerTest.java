@@ -0,0 +1,157 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RuleBaseOptimizerTest {
+
+    private SymbolTable symbolTable;
+    private LinguisticVariable food;
+    private LinguisticVariable service;
+
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+
+        service = new LinguisticVariable("service", symbolTable);
+        service.addTerm("poor", new MembershipFunction(0, 2, 4, 6));
+        service.addTerm("good", new MembershipFunction(4, 6, 8, 10));
+        service.addTerm("excellent", new MembershipFunction(8, 10, 12, 14));
+
+        food = new LinguisticVariable("food", symbolTable);
+        food.addTerm("rancid", new MembershipFunction(0, 2, 4, 6));
+        food.addTerm("tasty", new MembershipFunction(4, 6, 8, 10));
+        food.addTerm("delicious", new MembershipFunction(8, 10, 12, 14));
+
+        LinguisticVariable tip = new LinguisticVariable("tip", symbolTable);
+        tip.addTerm("poor", new MembershipFunction(0, 2, 4, 6));
+        tip.addTerm("average", new MembershipFunction(4, 6, 8, 10));
+        tip.addTerm("generous", new MembershipFunction(8, 10, 12, 14));
+    }
+
+    private List<FuzzyRule> parse(String... ruleTexts) {
+        List<FuzzyRule> result = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        for (String ruleText : ruleTexts) {
+            FuzzyRule rule = new FuzzyRule(ruleText, symbolTable);
+            parser.parse(rule);
+            assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+            result.add(rule);
+        }
+        return result;
+    }
+
+    private double computeCenterOfMass(List<FuzzyRule> rules) {
+        MembershipFunction[] conclusions = new MembershipFunction[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            conclusions[i] = rules.get(i)
+                                  .computeConclusion();
+        }
+        return MembershipFunction.computeCenterOfMass(MembershipFunction.computeSuperposition(conclusions, 1000));
+    }
+
+    @Test
+    public void testCanonicalForm() {
+        List<FuzzyRule> rules = parse("if (food is tasty and service is good) then tip is average",
+                                      "if (service is good  and   food is tasty) then tip is average");
+
+        RuleBaseOptimizer.Report report = new RuleBaseOptimizer(symbolTable).optimize(rules);
+        System.out.println(report);
+
+        assertEquals(1, report.getRules()
+                              .size());
+        assertEquals("if (food is tasty and service is good) then tip is average", report.getRules()
+                                                                                       .get(0)
+                                                                                       .getRuleText());
+        assertEquals(1, report.getRemovedRules());
+        assertEquals(4, report.getRemovedOperations());
+    }
+
+    @Test
+    public void testDuplicateOperands() {
+        List<FuzzyRule> rules = parse("if (food is tasty and food is tasty) then tip is average",
+                                      "if (food is rancid or (service is poor or food is rancid)) then tip is poor");
+
+        RuleBaseOptimizer.Report report = new RuleBaseOptimizer(symbolTable).optimize(rules);
+        System.out.println(report);
+
+        assertEquals(0, report.getRemovedRules());
+        assertEquals(4, report.getRemovedOperations());
+        assertEquals("if food is tasty then tip is average", report.getRules()
+                                                                   .get(0)
+                                                                   .getRuleText());
+        assertEquals("if (food is rancid or service is poor) then tip is poor", report.getRules()
+                                                                                      .get(1)
+                                                                                      .getRuleText());
+    }
+
+    @Test
+    public void testSubsumedRules() {
+        List<FuzzyRule> rules = parse("if food is rancid then tip is poor",
+                                      "if (food is rancid and service is poor) then tip is poor",
+                                      "if ((food is tasty or service is good) and food is tasty) then tip is average");
+
+        RuleBaseOptimizer.Report report = new RuleBaseOptimizer(symbolTable).optimize(rules);
+        System.out.println(report);
+
+        assertEquals(1, report.getRemovedRules());
+        assertEquals("if food is rancid then tip is poor", report.getRules()
+                                                                 .get(0)
+                                                                 .getRuleText());
+        assertEquals("if food is tasty then tip is average", report.getRules()
+                                                                   .get(1)
+                                                                   .getRuleText());
+    }
+
+    @Test
+    public void testMergedRulesPreserveResult() {
+        List<FuzzyRule> rules = parse("if (food is rancid or service is poor) then tip is poor",
+                                      "if (food is tasty and service is good) then tip is average",
+                                      "if (food is tasty and service is excellent) then tip is generous",
+                                      "if (food is delicious and service is good) then tip is average",
+                                      "if (food is delicious and service is excellent) then tip is generous",
+                                      "if ((food is delicious and service is excellent) or food is rancid) then tip is generous");
+
+        RuleBaseOptimizer.Report report = new RuleBaseOptimizer(symbolTable).optimize(rules);
+        System.out.println(report);
+
+        assertEquals(3, report.getRemovedRules());
+        assertEquals("if ((food is delicious and service is excellent) or (food is tasty and service is excellent) or food is rancid) then tip is generous",
+                     report.getRules()
+                           .get(2)
+                           .getRuleText());
+
+        for (double x = 0; x <= 14; x += 0.5) {
+            for (double y = 0; y <= 14; y += 0.5) {
+                food.setValue(x);
+                service.setValue(y);
+                assertEquals(computeCenterOfMass(rules), computeCenterOfMass(report.getRules()), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testErroneousRule() {
+        FuzzyRule rule = new FuzzyRule("if food is spicy then tip is poor", symbolTable);
+        new RuleParser(symbolTable).parse(rule);
+
+        List<FuzzyRule> rules = parse("if food is rancid then tip is poor");
+        rules.add(rule);
+
+        RuleBaseOptimizer.Report report = new RuleBaseOptimizer(symbolTable).optimize(rules);
+
+        assertEquals(2, report.getRules()
+                              .size());
+        assertSame(rule, report.getRules()
+                               .get(0));
+    }
+
+}
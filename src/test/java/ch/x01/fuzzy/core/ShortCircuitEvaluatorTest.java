@@ -0,0 +1,102 @@
+package ch.x01.fuzzy.core;
+
+import ch.x01.fuzzy.parser.RuleParser;
+import ch.x01.fuzzy.parser.SymbolTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ShortCircuitEvaluatorTest {
+
+    private static final String[] INPUTS = {"w", "x", "y", "z"};
+    private static final String[] TERMS = {"low", "medium", "wide", "step", "high"};
+
+    private SymbolTable symbolTable;
+    private List<FuzzyRule> rules;
+
+    /**
+     * Four inputs of overlapping terms, shoulders, vertical sides and a plateau, and random rules of nested
+     * conjunctions and disjunctions.
+     */
+    @Before
+    public void setUp() {
+        symbolTable = new SymbolTable();
+        for (String input : INPUTS) {
+            LinguisticVariable lv = new LinguisticVariable(input, symbolTable);
+            lv.addTerm("low", new MembershipFunction(-1.0, -1.0, 0.0, 3.0));
+            lv.addTerm("medium", new MembershipFunction(1.0, 4.0, 7.0));
+            lv.addTerm("wide", new MembershipFunction(2.0, 3.0, 6.0, 9.0));
+            lv.addTerm("step", new MembershipFunction(5.0, 5.0, 8.0, 8.0));
+            lv.addTerm("high", new MembershipFunction(6.0, 9.0, 11.0, 11.0));
+        }
+        LinguisticVariable out = new LinguisticVariable("out", symbolTable);
+        for (int t = 0; t < 10; t++) {
+            out.addTerm("t" + t, new MembershipFunction(t - 2, t, t + 2));
+        }
+
+        rules = new ArrayList<>();
+        RuleParser parser = new RuleParser(symbolTable);
+        Random random = new Random(4711);
+        for (int r = 0; r < 40; r++) {
+            String text = "if " + premise(random, 1 + random.nextInt(3)) + " then out is t" + r % 10;
+            FuzzyRule rule = new FuzzyRule(text, symbolTable);
+            parser.parse(rule);
+            assertSame(FuzzyRuleStatus.DONE, rule.getStatus());
+            rules.add(rule);
+        }
+    }
+
+    private static String premise(Random random, int depth) {
+        if (depth == 0) {
+            return INPUTS[random.nextInt(INPUTS.length)] + " is " + TERMS[random.nextInt(TERMS.length)];
+        }
+        return "(" + premise(random, random.nextInt(depth)) + (random.nextBoolean() ? " and " : " or ") +
+                premise(random, random.nextInt(depth)) + ")";
+    }
+
+    @Test
+    public void testIdenticalToPremiseNetwork() {
+        PremiseNetwork network = new PremiseNetwork(rules, symbolTable);
+        ShortCircuitEvaluator evaluator = new ShortCircuitEvaluator(network);
+
+        double[] values = new double[network.getNodeCount()];
+        double[] expected = new double[network.getRuleCount()];
+        double[] actual = new double[network.getRuleCount()];
+        double[] special = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Random random = new Random(4711);
+        for (int n = 0; n < 3 * ShortCircuitEvaluator.REORDER_INTERVAL; n++) {
+            double[] inputs = new double[network.getVariableCount()];
+            for (int v = 0; v < inputs.length; v++) {
+                if (n % 5 == 0) {
+                    // on a breakpoint
+                    inputs[v] = random.nextInt(13) - 1;
+                } else if (n % 1000 == 1) {
+                    inputs[v] = special[random.nextInt(special.length)];
+                } else {
+                    // the inputs lie in different ranges, so that the terms are zero with different frequencies
+                    inputs[v] = random.nextDouble() * 5 + 2 * v - 1;
+                }
+            }
+            network.evaluate(inputs, new double[network.getNodeCount()], expected);
+            evaluator.evaluate(inputs, values, actual);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 0.0);
+            }
+        }
+
+        assertTrue(evaluator.getSkippedOperands() > 0);
+        boolean reordered = false;
+        for (int i = network.getTermCount(); i < network.getNodeCount(); i++) {
+            reordered |= evaluator.isReordered(i);
+        }
+        assertTrue(reordered);
+    }
+
+}
@@ -0,0 +1,231 @@
+package ch.x01.fuzzy.server;
+
+import ch.x01.fuzzy.api.FuzzyEngine;
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import ch.x01.fuzzy.api.FuzzyModel;
+import ch.x01.fuzzy.api.FuzzyModelReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationServerTest {
+
+    private static final String TIP = "model tip\n"
+            + "input service\n"
+            + "  term poor trapezoid 0 2 4 6\n"
+            + "  term good trapezoid 4 6 8 10\n"
+            + "input food\n"
+            + "  term rancid trapezoid 0 2 4 6\n"
+            + "  term tasty trapezoid 4 6 8 10\n"
+            + "output tip\n"
+            + "  term poor trapezoid 0 2 4 6\n"
+            + "  term average trapezoid 4 6 8 10\n"
+            + "rule if (food is rancid or service is poor) then tip is poor\n"
+            + "rule if (food is tasty and service is good) then tip is average\n";
+
+    private FuzzyModel model;
+    private EvaluationServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        model = FuzzyModelReader.read(new StringReader(TIP));
+        // a long delay, so that concurrent single evaluations are coalesced
+        server = new EvaluationServer(() -> new FuzzyEngine(model),
+                                      new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16, 20_000);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private double expected(double food, double service) {
+        return new FuzzyEngine(model).evaluate(new InputVariable("food", food), new InputVariable("service", service))
+                                     .getValue();
+    }
+
+    private Response request(String method, String path, String contentType, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[1024];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return new Response(status, bytes.toByteArray());
+    }
+
+    private Response post(String path, String json) throws IOException {
+        return request("POST", path, EvaluationServer.JSON, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class Response {
+        private final int status;
+        private final byte[] body;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testModel() throws IOException {
+        Response response = request("GET", "/model", null, null);
+
+        assertEquals(200, response.status);
+        assertEquals("{\"name\":\"tip\",\"inputs\":[\"service\",\"food\"],\"output\":\"tip\"}", response.text());
+    }
+
+    @Test
+    public void testSingleJson() throws IOException {
+        Response response = post("/evaluate", "{\"food\": 7.5, \"Service\": 3}");
+
+        assertEquals(200, response.status);
+        assertEquals("{\"tip\":" + expected(7.5, 3) + "}", response.text());
+    }
+
+    @Test
+    public void testSingleBinary() throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(2 * Double.BYTES)
+                                      .order(ByteOrder.LITTLE_ENDIAN);
+        // in the order given by /model
+        record.putDouble(3)
+              .putDouble(7.5);
+        Response response = request("POST", "/evaluate", EvaluationServer.BINARY, record.array());
+
+        assertEquals(200, response.status);
+        assertEquals(expected(7.5, 3), ByteBuffer.wrap(response.body)
+                                                 .order(ByteOrder.LITTLE_ENDIAN)
+                                                 .getDouble(), 0.0);
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        Response json = post("/evaluate/batch", "{\"food\": [7.5, 1, 9], \"service\": [3, 2, 9]}");
+
+        assertEquals(200, json.status);
+        assertEquals("{\"tip\":[" + expected(7.5, 3) + "," + expected(1, 2) + "," + expected(9, 9) + "]}", json.text());
+
+        ByteBuffer records = ByteBuffer.allocate(6 * Double.BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+        records.putDouble(3)
+               .putDouble(7.5)
+               .putDouble(2)
+               .putDouble(1)
+               .putDouble(9)
+               .putDouble(9);
+        Response binary = request("POST", "/evaluate/batch", EvaluationServer.BINARY, records.array());
+
+        assertEquals(200, binary.status);
+        ByteBuffer outputs = ByteBuffer.wrap(binary.body)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3 * Double.BYTES, binary.body.length);
+        assertEquals(expected(7.5, 3), outputs.getDouble(), 0.0);
+        assertEquals(expected(1, 2), outputs.getDouble(), 0.0);
+        assertEquals(expected(9, 9), outputs.getDouble(), 0.0);
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        int clients = 8;
+        int requests = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < requests; r++) {
+                        double food = (client * requests + r) % 101 / 10.0;
+                        double service = 10 - food;
+                        Response response = post("/evaluate", "{\"food\":" + food + ",\"service\":" + service + "}");
+                        assertEquals(200, response.status);
+                        assertEquals(Json.write("tip", expected(food, service)), response.text());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(clients * requests, server.getCoalescedEvaluations());
+        assertTrue(server.getCoalescedBatches() < clients * requests);
+    }
+
+    @Test
+    public void testInvalidRequests() throws IOException {
+        assertEquals(400, post("/evaluate", "{\"food\": 7.5}").status);
+        assertEquals(400, post("/evaluate", "{\"food\": 7.5, \"service\": 3, \"price\": 1}").status);
+        assertEquals(400, post("/evaluate", "{\"food\": [7.5], \"service\": 3}").status);
+        assertEquals(400, post("/evaluate", "{\"food\": 7.5,").status);
+        assertEquals(400, post("/evaluate/batch", "{\"food\": [7.5], \"service\": [3, 2]}").status);
+        assertEquals(400, request("POST", "/evaluate/batch", EvaluationServer.BINARY, new byte[12]).status);
+        assertEquals(405, request("GET", "/evaluate", null, null).status);
+        assertEquals(404, post("/evaluate/other", "{}").status);
+
+        Response response = post("/evaluate", "{\"food\": 7.5}");
+        assertEquals("{\"error\":\"Cannot evaluate because input variable \\\"service\\\" is missing.\"}", response.text());
+    }
+
+    @Test
+    public void testServerError() throws IOException {
+        server.stop(0);
+        // engines failing with an exception without a message
+        server = new EvaluationServer(() -> new FuzzyEngine(model) {
+            @Override
+            public void evaluate(String[] names, double[][] inputs, double[] outputs) {
+                throw new IllegalStateException();
+            }
+        }, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16, 100);
+        server.start();
+
+        Response single = post("/evaluate", "{\"food\": 7.5, \"service\": 3}");
+        assertEquals(500, single.status);
+        assertEquals("{\"error\":\"java.lang.IllegalStateException\"}", single.text());
+        assertEquals(500, post("/evaluate/batch", "{\"food\": [7.5], \"service\": [3]}").status);
+        // the request is validated before it is evaluated
+        assertEquals(400, post("/evaluate", "{\"food\": 7.5}").status);
+    }
+
+}
@@ -0,0 +1,112 @@
+package ch.x01.fuzzy.api;
+
+import ch.x01.fuzzy.api.FuzzyEngine.InputVariable;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlightRecorderEventsTest {
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                     .filter(event -> event.getEventType()
+                                           .getName()
+                                           .equals(name))
+                     .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        Path file = Files.createTempFile("fuzzy", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("ch.x01.fuzzy.Compilation");
+            recording.enable("ch.x01.fuzzy.Evaluation")
+                     .withoutThreshold();
+            recording.enable("ch.x01.fuzzy.ModelSwap");
+            recording.enable("ch.x01.fuzzy.ModelEviction");
+            recording.start();
+
+            FuzzyEngine engine = new FuzzyEngine(TestModels.car(85));
+            engine.evaluate(new InputVariable("carSpeed", 70));
+            engine.evaluate(new String[]{"carSpeed"}, new double[][]{{30, 70, 110}}, new double[3]);
+
+            ModelHolder holder = new ModelHolder(TestModels.car(85), Runnable::run);
+            holder.reload(TestModels.car(95))
+                  .get();
+
+            ModelRegistry registry = new ModelRegistry(1, Long.MAX_VALUE, 100);
+            registry.register("a", TestModels.car(85));
+            registry.register("b", TestModels.car(95));
+            registry.evaluate("a", new InputVariable("carSpeed", 70));
+            registry.evaluate("b", new InputVariable("carSpeed", 70));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            // the engine, the two versions of the holder and the two models of the registry
+            assertEquals(5, events(events, "ch.x01.fuzzy.Compilation").size());
+            RecordedEvent compilation = events(events, "ch.x01.fuzzy.Compilation").get(0);
+            assertEquals("car", compilation.getString("model"));
+            assertEquals(2, compilation.getInt("rules"));
+            assertEquals(2, compilation.getInt("optimizedRules"));
+            assertTrue(compilation.getLong("parseTime") > 0);
+
+            List<RecordedEvent> evaluations = events(events, "ch.x01.fuzzy.Evaluation");
+            assertEquals(4, evaluations.size());
+            assertEquals(1, evaluations.get(0)
+                                       .getInt("rows"));
+            assertEquals(2, evaluations.get(0)
+                                       .getLong("rulesFired"));
+            assertEquals(1000, evaluations.get(0)
+                                          .getInt("numOfSteps"));
+            assertEquals(3, evaluations.get(1)
+                                       .getInt("rows"));
+            assertEquals(4, evaluations.get(1)
+                                       .getLong("rulesFired"));
+
+            RecordedEvent swap = events(events, "ch.x01.fuzzy.ModelSwap").get(0);
+            assertEquals(2, swap.getLong("version"));
+            assertEquals(1, swap.getLong("previousVersion"));
+
+            RecordedEvent eviction = events(events, "ch.x01.fuzzy.ModelEviction").get(0);
+            assertEquals("a", eviction.getString("tenant"));
+            assertTrue(eviction.getLong("bytes") > 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Path file = Files.createTempFile("fuzzy", ".jfr");
+        try (Recording recording = new Recording()) {
+            // the evaluation event is disabled by default
+            recording.start();
+            new FuzzyEngine(TestModels.car(85)).evaluate(new InputVariable("carSpeed", 70));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(0, events(events, "ch.x01.fuzzy.Evaluation").size());
+            assertEquals(1, events(events, "ch.x01.fuzzy.Compilation").size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
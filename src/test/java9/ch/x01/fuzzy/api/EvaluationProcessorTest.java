@@ -0,0 +1,138 @@
+package ch.x01.fuzzy.api;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationProcessorTest {
+
+    private static final String[] NAMES = {"carSpeed"};
+
+    /**
+     * Creates the processor by reflection, since it is part of the Java 9 layer of the multi-release JAR.
+     */
+    @SuppressWarnings("unchecked")
+    private static Flow.Processor<double[], Double> processor(Supplier<FuzzyEngine> engines, int batchSize) throws Exception {
+        return (Flow.Processor<double[], Double>) Class.forName("ch.x01.fuzzy.api.EvaluationProcessor")
+                                                       .getConstructor(Supplier.class, String[].class, int.class)
+                                                       .newInstance(engines, NAMES, batchSize);
+    }
+
+    /**
+     * Requests a few outputs at a time and checks that no more outputs arrive than requested.
+     */
+    private static class Collector implements Flow.Subscriber<Double> {
+        private final int increment;
+        private final List<Double> outputs = new ArrayList<>();
+        private final AtomicLong outstanding = new AtomicLong();
+        private final CompletableFuture<List<Double>> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        Collector(int increment) {
+            this.increment = increment;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding.addAndGet(increment);
+            subscription.request(increment);
+        }
+
+        @Override
+        public void onNext(Double item) {
+            if (outstanding.decrementAndGet() < 0) {
+                result.completeExceptionally(new AssertionError("more outputs than requested"));
+            }
+            outputs.add(item);
+            if (outstanding.get() == 0) {
+                outstanding.addAndGet(increment);
+                subscription.request(increment);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(outputs);
+        }
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        FuzzyModel model = TestModels.car();
+        int tuples = 10_007;
+
+        // several streams share the model, each processor evaluates with its own engine
+        List<SubmissionPublisher<double[]>> publishers = new ArrayList<>();
+        List<Collector> collectors = new ArrayList<>();
+        for (int stream = 0; stream < 3; stream++) {
+            SubmissionPublisher<double[]> publisher = new SubmissionPublisher<>();
+            Flow.Processor<double[], Double> processor = processor(() -> new FuzzyEngine(model), 64);
+            Collector collector = new Collector(stream == 0 ? 1 : 100 * stream);
+            publisher.subscribe(processor);
+            processor.subscribe(collector);
+            publishers.add(publisher);
+            collectors.add(collector);
+        }
+        for (int i = 0; i < tuples; i++) {
+            for (SubmissionPublisher<double[]> publisher : publishers) {
+                publisher.submit(new double[]{i % 160});
+            }
+        }
+        publishers.forEach(SubmissionPublisher::close);
+
+        FuzzyEngine engine = new FuzzyEngine(model);
+        double[][] inputs = new double[1][tuples];
+        for (int i = 0; i < tuples; i++) {
+            inputs[0][i] = i % 160;
+        }
+        double[] expected = new double[tuples];
+        engine.evaluate(NAMES, inputs, expected);
+
+        for (Collector collector : collectors) {
+            List<Double> outputs = collector.result.get(30, TimeUnit.SECONDS);
+            assertEquals(tuples, outputs.size());
+            for (int i = 0; i < tuples; i++) {
+                assertEquals(expected[i], outputs.get(i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidTuple() throws Exception {
+        SubmissionPublisher<double[]> publisher = new SubmissionPublisher<>();
+        Flow.Processor<double[], Double> processor = processor(() -> new FuzzyEngine(TestModels.car()), 8);
+        Collector collector = new Collector(10);
+        publisher.subscribe(processor);
+        processor.subscribe(collector);
+
+        publisher.submit(new double[]{70});
+        publisher.submit(new double[]{70, 80});
+        publisher.close();
+
+        try {
+            collector.result.get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            return;
+        }
+        throw new AssertionError("expected an error");
+    }
+
+}